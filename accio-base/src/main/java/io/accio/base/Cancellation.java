@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.base;
+
+import io.airlift.log.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.accio.base.metadata.StandardErrorCode.USER_CANCELED;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cancels the work started for a query. The connectors register how to stop the work they started, for example
+ * cancelling the BigQuery job or the JDBC statement, and unregister it once the work is done.
+ */
+public class Cancellation
+{
+    private static final Logger LOG = Logger.get(Cancellation.class);
+
+    private final List<Runnable> cancellers = new ArrayList<>();
+    private ErrorCodeSupplier errorCode;
+    private String message;
+
+    /**
+     * @return the registration to close once the work is done, the canceller won't be called after that.
+     * The canceller is called right away if the query is canceled already.
+     */
+    public synchronized Registration register(Runnable canceller)
+    {
+        requireNonNull(canceller, "canceller is null");
+        if (isCanceled()) {
+            runQuietly(canceller);
+            return () -> {};
+        }
+        cancellers.add(canceller);
+        return () -> unregister(canceller);
+    }
+
+    private synchronized void unregister(Runnable canceller)
+    {
+        cancellers.remove(canceller);
+    }
+
+    public void cancel()
+    {
+        cancel(USER_CANCELED, "Query was canceled");
+    }
+
+    /**
+     * Cancels the query, the error code and the message are those of the exception the query fails with.
+     * Only the first call takes effect.
+     */
+    public synchronized void cancel(ErrorCodeSupplier errorCode, String message)
+    {
+        if (isCanceled()) {
+            return;
+        }
+        this.errorCode = requireNonNull(errorCode, "errorCode is null");
+        this.message = requireNonNull(message, "message is null");
+        // a canceller could close its own registration
+        List<Runnable> registered = new ArrayList<>(cancellers);
+        cancellers.clear();
+        registered.forEach(Cancellation::runQuietly);
+    }
+
+    public synchronized boolean isCanceled()
+    {
+        return errorCode != null;
+    }
+
+    /**
+     * @throws AccioException if the query is canceled
+     */
+    public synchronized void checkCanceled()
+    {
+        if (isCanceled()) {
+            throw new AccioException(errorCode, message);
+        }
+    }
+
+    private static void runQuietly(Runnable canceller)
+    {
+        try {
+            canceller.run();
+        }
+        catch (RuntimeException e) {
+            LOG.warn(e, "Failed to cancel the query");
+        }
+    }
+
+    public interface Registration
+            extends AutoCloseable
+    {
+        @Override
+        void close();
+    }
+}
@@ -19,11 +19,15 @@ import io.accio.base.AccioException;
 import io.accio.base.Parameter;
 import io.accio.base.client.AutoCloseableIterator;
 import io.accio.base.client.Client;
+import io.accio.base.client.duckdb.DuckdbConnectionPool.Lane;
 import io.accio.base.client.jdbc.JdbcRecordIterator;
 import io.accio.base.metadata.ColumnMetadata;
 import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
 import org.duckdb.DuckDBConnection;
 
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -33,28 +37,68 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.accio.base.client.duckdb.DuckdbConnectionPool.Lane.BACKGROUND;
+import static io.accio.base.client.duckdb.DuckdbConnectionPool.Lane.INTERACTIVE;
+import static io.accio.base.client.duckdb.DuckdbConnectionPool.Lane.MAINTENANCE;
 import static io.accio.base.client.duckdb.DuckdbType.DUCKDB_TYPE;
 import static io.accio.base.metadata.StandardErrorCode.GENERIC_USER_ERROR;
 import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
 
 public final class DuckdbClient
         implements Client
 {
     private static final Logger LOG = Logger.get(DuckdbClient.class);
-    private final Connection duckDBConnection;
+    private final DuckDBConnection duckDBConnection;
+    private final DuckdbConnectionPool connectionPool;
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
 
     public DuckdbClient()
+    {
+        this(Optional.empty());
+    }
+
+    /**
+     * @param databaseFile the file backing the database; an in-memory database is used if absent.
+     */
+    public DuckdbClient(Optional<Path> databaseFile)
+    {
+        this(builder().setDatabaseFile(databaseFile));
+    }
+
+    private DuckdbClient(Builder builder)
     {
         try {
             // The instance will be cleared after the process end. We don't need to
             // close this connection
             Class.forName("org.duckdb.DuckDBDriver");
-            this.duckDBConnection = DriverManager.getConnection("jdbc:duckdb:");
+            this.duckDBConnection = (DuckDBConnection) DriverManager.getConnection("jdbc:duckdb:" + builder.databaseFile.map(Path::toString).orElse(""));
+            // duckdb only allows threads and memory_limit to be set for the whole database
+            try (Statement statement = duckDBConnection.createStatement()) {
+                if (builder.threads.isPresent()) {
+                    statement.execute(format("SET threads = %s", builder.threads.get()));
+                }
+                if (builder.memoryLimit.isPresent()) {
+                    statement.execute(format("SET memory_limit = '%sB'", builder.memoryLimit.get().toBytes()));
+                }
+            }
         }
         catch (SQLException | ClassNotFoundException e) {
             throw new RuntimeException(e);
         }
+        this.connectionPool = new DuckdbConnectionPool(
+                duckDBConnection,
+                builder.interactiveConnections,
+                builder.interactiveAcquireTimeout,
+                builder.backgroundConnections);
     }
 
     @Override
@@ -83,8 +127,8 @@ public final class DuckdbClient
     @Override
     public List<ColumnMetadata> describe(String sql, List<Parameter> parameters)
     {
-        try (Connection connection = createConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        try (Connection connection = createConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             for (int i = 0; i < parameters.size(); i++) {
                 preparedStatement.setObject(i + 1, parameters.get(i).getValue());
             }
@@ -108,12 +152,21 @@ public final class DuckdbClient
         }
     }
 
+    /**
+     * Runs the statement on the background lane, as DDL here is mostly about building caches.
+     */
     @Override
     public void executeDDL(String sql)
     {
-        try (Connection connection = createConnection()) {
-            Statement statement = connection.createStatement();
-            statement.execute(sql);
+        try (Connection connection = createConnection(BACKGROUND)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+            catch (SQLException e) {
+                // the statement may have left a transaction open, don't reuse the connection
+                connection.abort(directExecutor());
+                throw e;
+            }
         }
         catch (SQLException se) {
             throw new RuntimeException(se);
@@ -123,12 +176,17 @@ public final class DuckdbClient
     // for canner use
     public void executeDDL(String sql, List<Object> parameters)
     {
-        try (Connection connection = createConnection();
-                PreparedStatement statement = connection.prepareStatement(sql)) {
-            for (int i = 0; i < parameters.size(); i++) {
-                statement.setObject(i + 1, parameters.get(i));
+        try (Connection connection = createConnection(BACKGROUND)) {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                statement.execute();
+            }
+            catch (SQLException e) {
+                connection.abort(directExecutor());
+                throw e;
             }
-            statement.execute();
         }
         catch (SQLException se) {
             throw new RuntimeException(se);
@@ -152,24 +210,117 @@ public final class DuckdbClient
         }
     }
 
+    /**
+     * Runs on the maintenance lane, so dropping a replaced cache doesn't wait for the cache builds on the background lane.
+     */
     public void dropTableQuietly(String tableName)
     {
-        try {
-            executeDDL(format("BEGIN TRANSACTION;DROP TABLE IF EXISTS %s;COMMIT;", tableName));
+        try (Connection connection = createConnection(MAINTENANCE)) {
+            // a cache could be a view over parquet files instead of a table
+            String type = isView(connection, tableName) ? "VIEW" : "TABLE";
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(format("BEGIN TRANSACTION;DROP %s IF EXISTS %s;COMMIT;", type, tableName));
+            }
+            catch (SQLException e) {
+                connection.abort(directExecutor());
+                throw e;
+            }
         }
         catch (Exception e) {
             LOG.error(e, "Failed to drop table %s", tableName);
         }
     }
 
+    private static boolean isView(Connection connection, String tableName)
+            throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM duckdb_views() WHERE view_name = ?")) {
+            statement.setString(1, tableName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    /**
+     * Connections handed out through the {@link Client} interface serve queries, so they come from the interactive lane.
+     */
     @Override
     public Connection createConnection()
             throws SQLException
     {
-        // Refer to the official doc, if we want to create multiple read-write connections,
-        // to the same database in-memory database instance, we can use the custom `duplicate()` method.
-        // https://duckdb.org/docs/api/java
+        return createConnection(INTERACTIVE);
+    }
+
+    public Connection createConnection(Lane lane)
+            throws SQLException
+    {
+        return connectionPool.getConnection(lane);
+    }
+
+    public DuckdbConnectionPool getConnectionPool()
+    {
+        return connectionPool;
+    }
+
+    /**
+     * Quotes a value, e.g. a file path, as a duckdb string literal.
+     */
+    public static String quoteLiteral(String value)
+    {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    public static class Builder
+    {
+        private Optional<Path> databaseFile = Optional.empty();
+        private Optional<Integer> threads = Optional.empty();
+        private Optional<DataSize> memoryLimit = Optional.empty();
+        private int interactiveConnections = 16;
+        private Duration interactiveAcquireTimeout = new Duration(1, MINUTES);
+        private int backgroundConnections = 2;
+
+        private Builder() {}
 
-        return ((DuckDBConnection) duckDBConnection).duplicate();
+        public Builder setDatabaseFile(Optional<Path> databaseFile)
+        {
+            this.databaseFile = requireNonNull(databaseFile, "databaseFile is null");
+            return this;
+        }
+
+        public Builder setThreads(Optional<Integer> threads)
+        {
+            this.threads = requireNonNull(threads, "threads is null");
+            return this;
+        }
+
+        public Builder setMemoryLimit(Optional<DataSize> memoryLimit)
+        {
+            this.memoryLimit = requireNonNull(memoryLimit, "memoryLimit is null");
+            return this;
+        }
+
+        public Builder setInteractiveConnections(int interactiveConnections)
+        {
+            this.interactiveConnections = interactiveConnections;
+            return this;
+        }
+
+        public Builder setInteractiveAcquireTimeout(Duration interactiveAcquireTimeout)
+        {
+            this.interactiveAcquireTimeout = requireNonNull(interactiveAcquireTimeout, "interactiveAcquireTimeout is null");
+            return this;
+        }
+
+        public Builder setBackgroundConnections(int backgroundConnections)
+        {
+            this.backgroundConnections = backgroundConnections;
+            return this;
+        }
+
+        public DuckdbClient build()
+        {
+            return new DuckdbClient(this);
+        }
     }
 }
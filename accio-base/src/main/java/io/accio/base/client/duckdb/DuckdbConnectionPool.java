@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.base.client.duckdb;
+
+import io.accio.base.client.jdbc.LeasedConnection;
+import io.airlift.units.Duration;
+import org.duckdb.DuckDBConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Hands out reusable connections to one duckdb database from separate lanes. Every lane owns
+ * its own bounded set of connections, so background work like cache builds can only occupy
+ * the background lane and never the connections interactive queries are waiting for.
+ */
+public final class DuckdbConnectionPool
+{
+    public enum Lane
+    {
+        INTERACTIVE,
+        BACKGROUND,
+        // short statements maintaining the caches, like drops, which must not queue behind cache builds
+        MAINTENANCE,
+    }
+
+    private static final int MAINTENANCE_CONNECTIONS = 1;
+
+    private final DuckDBConnection database;
+    private final Map<Lane, LanePool> lanes = new EnumMap<>(Lane.class);
+
+    /**
+     * Interactive callers give up after {@code interactiveAcquireTimeout}, while background and maintenance
+     * callers queue until a connection of their lane is free.
+     */
+    public DuckdbConnectionPool(DuckDBConnection database, int interactiveConnections, Duration interactiveAcquireTimeout, int backgroundConnections)
+    {
+        this.database = requireNonNull(database, "database is null");
+        requireNonNull(interactiveAcquireTimeout, "interactiveAcquireTimeout is null");
+        lanes.put(Lane.INTERACTIVE, new LanePool(Lane.INTERACTIVE, interactiveConnections, Optional.of(interactiveAcquireTimeout)));
+        lanes.put(Lane.BACKGROUND, new LanePool(Lane.BACKGROUND, backgroundConnections, Optional.empty()));
+        lanes.put(Lane.MAINTENANCE, new LanePool(Lane.MAINTENANCE, MAINTENANCE_CONNECTIONS, Optional.empty()));
+    }
+
+    public Connection getConnection(Lane lane)
+            throws SQLException
+    {
+        return lanes.get(requireNonNull(lane, "lane is null")).getConnection();
+    }
+
+    public int getActiveConnections(Lane lane)
+    {
+        LanePool pool = lanes.get(lane);
+        return pool.maxConnections - pool.permits.availablePermits();
+    }
+
+    public int getWaitingThreads(Lane lane)
+    {
+        return lanes.get(lane).permits.getQueueLength();
+    }
+
+    /**
+     * Takes back the connections leased from a lane. A connection whose lease was aborted is discarded on
+     * release instead, e.g. after a failed statement left a transaction open.
+     */
+    private final class LanePool
+            implements LeasedConnection.Pool
+    {
+        private final Lane lane;
+        private final int maxConnections;
+        private final Optional<Duration> acquireTimeout;
+        private final Semaphore permits;
+        private final Deque<Connection> idleConnections = new ArrayDeque<>();
+
+        private LanePool(Lane lane, int maxConnections, Optional<Duration> acquireTimeout)
+        {
+            this.lane = lane;
+            this.maxConnections = maxConnections;
+            this.acquireTimeout = acquireTimeout;
+            this.permits = new Semaphore(maxConnections, true);
+        }
+
+        private Connection getConnection()
+                throws SQLException
+        {
+            acquirePermit();
+            try {
+                Connection connection;
+                synchronized (this) {
+                    connection = idleConnections.pollFirst();
+                }
+                if (connection == null) {
+                    // Refer to the official doc, if we want to create multiple read-write connections,
+                    // to the same database in-memory database instance, we can use the custom `duplicate()` method.
+                    // https://duckdb.org/docs/api/java
+                    connection = database.duplicate();
+                }
+                return LeasedConnection.lease(connection, this, format("%s connection %s", lane, connection));
+            }
+            catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void acquirePermit()
+                throws SQLException
+        {
+            try {
+                if (acquireTimeout.isEmpty()) {
+                    permits.acquire();
+                }
+                else if (!permits.tryAcquire(acquireTimeout.get().toMillis(), MILLISECONDS)) {
+                    throw new SQLTransientConnectionException(format("Timed out after %s waiting for a duckdb connection, all %s %s connections are in use",
+                            acquireTimeout.get(), maxConnections, lane.name().toLowerCase(ENGLISH)));
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a duckdb connection", e);
+            }
+        }
+
+        @Override
+        public void release(Connection connection, boolean broken)
+        {
+            try {
+                if (!broken && reset(connection)) {
+                    synchronized (this) {
+                        idleConnections.addFirst(connection);
+                    }
+                    return;
+                }
+                closeQuietly(connection);
+            }
+            finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void abort(Connection connection, Executor executor)
+        {
+            // duckdb doesn't support abort, closing the connection on release is enough
+        }
+
+        private boolean reset(Connection connection)
+        {
+            try {
+                if (connection.isClosed()) {
+                    return false;
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                return true;
+            }
+            catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closeQuietly(Connection connection)
+        {
+            try {
+                connection.close();
+            }
+            catch (SQLException ignored) {
+                // the connection is discarded anyway
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@
  */
 package io.accio.base.client.jdbc;
 
+import io.accio.base.Cancellation;
 import io.accio.base.Parameter;
 import io.accio.base.client.AutoCloseableIterator;
 import io.accio.base.client.Client;
@@ -38,6 +39,7 @@ public abstract class BaseJdbcRecordIterator<T>
     protected final ResultSet resultSet;
     private final ResultSetMetaData resultSetMetaData;
     protected final int columnCount;
+    private final Cancellation.Registration cancellationRegistration;
 
     private boolean hasNext;
 
@@ -49,12 +51,38 @@ public abstract class BaseJdbcRecordIterator<T>
 
     public BaseJdbcRecordIterator(Client client, String sql, List<Parameter> parameters)
             throws SQLException
+    {
+        this(client, sql, parameters, new Cancellation());
+    }
+
+    /**
+     * The statement is canceled once the cancellation is canceled, until the iterator is closed.
+     */
+    public BaseJdbcRecordIterator(Client client, String sql, List<Parameter> parameters, Cancellation cancellation)
+            throws SQLException
     {
         requireNonNull(client, "client is null");
+        requireNonNull(cancellation, "cancellation is null");
         connection = client.createConnection();
         statement = connection.prepareStatement(sql);
-        setParameter(parameters);
-        resultSet = statement.executeQuery();
+        cancellationRegistration = cancellation.register(this::cancelStatement);
+        try {
+            setParameter(parameters);
+            resultSet = statement.executeQuery();
+        }
+        catch (SQLException | RuntimeException e) {
+            cancellationRegistration.close();
+            // the iterator is never returned, so it can't be closed by the caller
+            try {
+                statement.close();
+                connection.close();
+            }
+            catch (SQLException closeException) {
+                e.addSuppressed(closeException);
+            }
+            cancellation.checkCanceled();
+            throw e;
+        }
 
         this.resultSetMetaData = resultSet.getMetaData();
         this.columnCount = resultSetMetaData.getColumnCount();
@@ -98,18 +126,15 @@ public abstract class BaseJdbcRecordIterator<T>
     public void close()
             throws Exception
     {
+        // the connection may be reused by another query once closed, so it must not be canceled after that
+        cancellationRegistration.close();
         // use try with resources to close everything properly
         try (Connection connection = this.connection;
                 Statement statement = this.statement;
                 ResultSet resultSet = this.resultSet) {
             if (statement != null) {
-                try {
-                    // Trying to cancel running statement as close() may not do it
-                    statement.cancel();
-                }
-                catch (SQLException ignored) {
-                    // statement already closed or cancel is not supported
-                }
+                // Trying to cancel running statement as close() may not do it
+                cancelStatement();
             }
             if (connection != null && resultSet != null) {
                 if (!resultSet.isAfterLast()) {
@@ -122,6 +147,16 @@ public abstract class BaseJdbcRecordIterator<T>
         }
     }
 
+    private void cancelStatement()
+    {
+        try {
+            statement.cancel();
+        }
+        catch (SQLException ignored) {
+            // statement already closed or cancel is not supported
+        }
+    }
+
     public ResultSetMetaData getResultSetMetaData()
     {
         return resultSetMetaData;
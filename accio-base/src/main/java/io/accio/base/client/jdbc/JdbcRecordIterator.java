@@ -14,6 +14,7 @@
 
 package io.accio.base.client.jdbc;
 
+import io.accio.base.Cancellation;
 import io.accio.base.Parameter;
 import io.accio.base.client.Client;
 
@@ -38,13 +39,19 @@ public class JdbcRecordIterator
     public static JdbcRecordIterator of(Client client, String sql, List<Parameter> parameters)
             throws SQLException
     {
-        return new JdbcRecordIterator(client, sql, parameters);
+        return of(client, sql, parameters, new Cancellation());
     }
 
-    private JdbcRecordIterator(Client client, String sql, List<Parameter> parameters)
+    public static JdbcRecordIterator of(Client client, String sql, List<Parameter> parameters, Cancellation cancellation)
             throws SQLException
     {
-        super(client, sql, parameters);
+        return new JdbcRecordIterator(client, sql, parameters, cancellation);
+    }
+
+    private JdbcRecordIterator(Client client, String sql, List<Parameter> parameters, Cancellation cancellation)
+            throws SQLException
+    {
+        super(client, sql, parameters, cancellation);
     }
 
     @Override
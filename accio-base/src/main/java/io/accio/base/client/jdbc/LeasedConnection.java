@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.base.client.jdbc;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A pooled connection handed out as a proxy, which gives the connection back to its pool on close
+ * instead of closing it. The statements and metadata created through the proxy are proxies as well,
+ * so their {@code getConnection} returns the lease rather than the pooled connection, and they can't
+ * be used once the lease is closed.
+ */
+public final class LeasedConnection
+{
+    // result sets are read value by value on the query path, they are left unwrapped to keep that free of proxy calls
+    private static final Set<Class<?>> WRAPPED_TYPES = ImmutableSet.of(
+            Statement.class,
+            PreparedStatement.class,
+            CallableStatement.class,
+            DatabaseMetaData.class);
+
+    private LeasedConnection() {}
+
+    public interface Pool
+    {
+        /**
+         * Takes back a connection whose lease is closed, a broken connection must not be reused.
+         */
+        void release(Connection connection, boolean broken);
+
+        /**
+         * Whether the failure leaves the connection unusable, so it's released as broken.
+         */
+        default boolean isConnectionError(SQLException e)
+        {
+            return false;
+        }
+
+        /**
+         * Called when the lease is aborted, the connection is released as broken anyway.
+         */
+        default void abort(Connection connection, Executor executor)
+                throws SQLException
+        {
+            connection.abort(executor);
+        }
+    }
+
+    public static Connection lease(Connection connection, Pool pool, String description)
+    {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new LeaseHandler(connection, pool, description));
+    }
+
+    private static final class LeaseHandler
+            implements InvocationHandler
+    {
+        private final Connection connection;
+        private final Pool pool;
+        private final String description;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean broken;
+
+        private LeaseHandler(Connection connection, Pool pool, String description)
+        {
+            this.connection = requireNonNull(connection, "connection is null");
+            this.pool = requireNonNull(pool, "pool is null");
+            this.description = requireNonNull(description, "description is null");
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable
+        {
+            switch (method.getName()) {
+                case "close":
+                    if (released.compareAndSet(false, true)) {
+                        pool.release(connection, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return released.get() || connection.isClosed();
+                case "abort":
+                    broken = true;
+                    pool.abort(connection, (Executor) args[0]);
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return description;
+                default:
+                    checkNotReleased();
+            }
+            return wrap((Connection) proxy, invokeDelegate(connection, method, args), method.getReturnType());
+        }
+
+        private Object invokeDelegate(Object delegate, Method method, Object[] args)
+                throws Throwable
+        {
+            try {
+                return method.invoke(delegate, args);
+            }
+            catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && pool.isConnectionError((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private void checkNotReleased()
+                throws SQLException
+        {
+            if (released.get()) {
+                throw new SQLException("Connection is closed");
+            }
+        }
+
+        private Object wrap(Connection lease, Object result, Class<?> type)
+        {
+            if (result == null || !WRAPPED_TYPES.contains(type)) {
+                return result;
+            }
+            return Proxy.newProxyInstance(
+                    type.getClassLoader(),
+                    new Class<?>[] {type},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getConnection":
+                                return lease;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return result.toString();
+                            case "close":
+                            case "isClosed":
+                                break;
+                            default:
+                                checkNotReleased();
+                        }
+                        return wrap(lease, invokeDelegate(result, method, args), method.getReturnType());
+                    });
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.base;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestCancellation
+{
+    @Test
+    public void testCancellerClosesItsRegistration()
+    {
+        Cancellation cancellation = new Cancellation();
+        AtomicInteger canceled = new AtomicInteger();
+        AtomicReference<Cancellation.Registration> registration = new AtomicReference<>();
+        registration.set(cancellation.register(() -> {
+            canceled.incrementAndGet();
+            registration.get().close();
+        }));
+        cancellation.register(canceled::incrementAndGet);
+
+        cancellation.cancel();
+        assertThat(canceled.get()).isEqualTo(2);
+        assertThatThrownBy(cancellation::checkCanceled)
+                .isInstanceOf(AccioException.class)
+                .hasMessage("Query was canceled");
+
+        // registered after the cancellation, so it runs right away
+        cancellation.register(canceled::incrementAndGet);
+        assertThat(canceled.get()).isEqualTo(3);
+    }
+}
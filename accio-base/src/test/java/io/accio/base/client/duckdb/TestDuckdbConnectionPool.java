@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.base.client.duckdb;
+
+import io.airlift.units.Duration;
+import org.duckdb.DuckDBConnection;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+
+import static io.accio.base.client.duckdb.DuckdbConnectionPool.Lane.BACKGROUND;
+import static io.accio.base.client.duckdb.DuckdbConnectionPool.Lane.INTERACTIVE;
+import static io.accio.base.client.duckdb.DuckdbConnectionPool.Lane.MAINTENANCE;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestDuckdbConnectionPool
+{
+    @Test
+    public void testLaneIsolation()
+            throws Exception
+    {
+        try (DuckDBConnection database = createDatabase()) {
+            DuckdbConnectionPool pool = new DuckdbConnectionPool(database, 1, new Duration(10, SECONDS), 1);
+            try (Connection background = pool.getConnection(BACKGROUND)) {
+                // a busy background lane doesn't hold up interactive queries
+                try (Connection interactive = pool.getConnection(INTERACTIVE)) {
+                    assertThat(query(interactive, "SELECT 1")).isEqualTo(1);
+                }
+                // nor the drops of replaced caches
+                try (Connection maintenance = pool.getConnection(MAINTENANCE)) {
+                    assertThat(query(maintenance, "SELECT 1")).isEqualTo(1);
+                }
+
+                CompletableFuture<Connection> waiting = supplyAsync(() -> {
+                    try {
+                        return pool.getConnection(BACKGROUND);
+                    }
+                    catch (SQLException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                long deadline = System.nanoTime() + SECONDS.toNanos(10);
+                while (pool.getWaitingThreads(BACKGROUND) == 0) {
+                    assertThat(System.nanoTime()).isLessThan(deadline);
+                    MILLISECONDS.sleep(10);
+                }
+                assertThat(pool.getActiveConnections(BACKGROUND)).isEqualTo(1);
+                assertThat(pool.getActiveConnections(INTERACTIVE)).isZero();
+
+                // background callers queue until a connection is returned
+                background.close();
+                waiting.get(10, SECONDS).close();
+            }
+            assertThat(pool.getActiveConnections(BACKGROUND)).isZero();
+        }
+    }
+
+    @Test
+    public void testInteractiveAcquireTimeout()
+            throws Exception
+    {
+        try (DuckDBConnection database = createDatabase()) {
+            DuckdbConnectionPool pool = new DuckdbConnectionPool(database, 1, new Duration(100, MILLISECONDS), 1);
+            try (Connection ignored = pool.getConnection(INTERACTIVE)) {
+                assertThatThrownBy(() -> pool.getConnection(INTERACTIVE))
+                        .isInstanceOf(SQLTransientConnectionException.class)
+                        .hasMessageContaining("all 1 interactive connections are in use");
+                assertThat(pool.getActiveConnections(INTERACTIVE)).isEqualTo(1);
+            }
+            pool.getConnection(INTERACTIVE).close();
+        }
+    }
+
+    @Test
+    public void testReuseAfterClose()
+            throws Exception
+    {
+        try (DuckDBConnection database = createDatabase()) {
+            DuckdbConnectionPool pool = new DuckdbConnectionPool(database, 1, new Duration(10, SECONDS), 1);
+            execute(database, "CREATE TABLE t (a INTEGER)");
+
+            Connection connection = pool.getConnection(INTERACTIVE);
+            // temp tables are visible to the connection which creates them only
+            execute(connection, "CREATE TEMP TABLE session_table AS SELECT 1 AS a");
+            connection.setAutoCommit(false);
+            execute(connection, "INSERT INTO t VALUES (1)");
+            connection.close();
+            assertThat(connection.isClosed()).isTrue();
+            assertThatThrownBy(connection::createStatement)
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("Connection is closed");
+
+            try (Connection reused = pool.getConnection(INTERACTIVE)) {
+                assertThat(query(reused, "SELECT a FROM session_table")).isEqualTo(1);
+                // the open transaction is rolled back on close
+                assertThat(reused.getAutoCommit()).isTrue();
+                assertThat(query(reused, "SELECT count(*) FROM t")).isEqualTo(0);
+            }
+            // the lanes don't share connections
+            try (Connection background = pool.getConnection(BACKGROUND)) {
+                assertThatThrownBy(() -> query(background, "SELECT a FROM session_table"))
+                        .isInstanceOf(SQLException.class);
+            }
+        }
+    }
+
+    @Test
+    public void testStatementsDontExposePooledConnection()
+            throws Exception
+    {
+        try (DuckDBConnection database = createDatabase()) {
+            DuckdbConnectionPool pool = new DuckdbConnectionPool(database, 1, new Duration(10, SECONDS), 1);
+            Connection connection = pool.getConnection(INTERACTIVE);
+            Statement statement = connection.createStatement();
+            PreparedStatement preparedStatement = connection.prepareStatement("SELECT ?");
+            assertThat(statement.getConnection()).isSameAs(connection);
+            assertThat(preparedStatement.getConnection()).isSameAs(connection);
+            assertThat(connection.getMetaData().getConnection()).isSameAs(connection);
+
+            connection.close();
+            assertThatThrownBy(() -> statement.execute("SELECT 1"))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("Connection is closed");
+            assertThatThrownBy(() -> preparedStatement.setInt(1, 1))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("Connection is closed");
+            statement.close();
+            preparedStatement.close();
+        }
+    }
+
+    @Test
+    public void testDiscardAfterAbort()
+            throws Exception
+    {
+        try (DuckDBConnection database = createDatabase()) {
+            DuckdbConnectionPool pool = new DuckdbConnectionPool(database, 1, new Duration(10, SECONDS), 1);
+            Connection connection = pool.getConnection(INTERACTIVE);
+            execute(connection, "CREATE TEMP TABLE session_table AS SELECT 1 AS a");
+            connection.abort(Runnable::run);
+            connection.close();
+            assertThat(pool.getActiveConnections(INTERACTIVE)).isZero();
+
+            try (Connection fresh = pool.getConnection(INTERACTIVE)) {
+                assertThatThrownBy(() -> query(fresh, "SELECT a FROM session_table"))
+                        .isInstanceOf(SQLException.class);
+            }
+        }
+    }
+
+    private static DuckDBConnection createDatabase()
+            throws SQLException
+    {
+        return (DuckDBConnection) DriverManager.getConnection("jdbc:duckdb:");
+    }
+
+    private static void execute(Connection connection, String sql)
+            throws SQLException
+    {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long query(Connection connection, String sql)
+            throws SQLException
+    {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            assertThat(resultSet.next()).isTrue();
+            return resultSet.getLong(1);
+        }
+    }
+}
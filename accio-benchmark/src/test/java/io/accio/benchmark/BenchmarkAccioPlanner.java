@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.AccioMDL;
+import io.accio.base.SessionContext;
+import io.accio.sqlrewrite.AccioPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.accio.benchmark.BenchmarkManifests.SYNTHETIC_SESSION;
+import static io.accio.benchmark.BenchmarkManifests.TPCH_QUERIES;
+import static io.accio.benchmark.BenchmarkManifests.TPCH_SESSION;
+import static io.accio.benchmark.BenchmarkManifests.synthetic;
+import static io.accio.benchmark.BenchmarkManifests.syntheticQueries;
+import static io.accio.benchmark.BenchmarkManifests.tpch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures {@link AccioPlanner#rewrite} over the TPCH manifest and synthetic manifests of increasing size.
+ * The queries only touch a couple of models, so the difference between sizes is the cost of the manifest itself.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BenchmarkAccioPlanner
+{
+    @Param({"tpch", "10", "100", "1000"})
+    private String manifest = "tpch";
+
+    private AccioMDL mdl;
+    private SessionContext sessionContext;
+    private List<String> queries;
+
+    @Setup
+    public void setup()
+    {
+        if (manifest.equals("tpch")) {
+            mdl = tpch();
+            sessionContext = TPCH_SESSION;
+            queries = TPCH_QUERIES;
+        }
+        else {
+            int modelCount = Integer.parseInt(manifest);
+            mdl = synthetic(modelCount);
+            sessionContext = SYNTHETIC_SESSION;
+            queries = syntheticQueries(modelCount);
+        }
+    }
+
+    @Benchmark
+    public List<String> rewrite()
+    {
+        ImmutableList.Builder<String> planned = ImmutableList.builder();
+        for (String query : queries) {
+            planned.add(AccioPlanner.rewrite(query, sessionContext, mdl));
+        }
+        return planned.build();
+    }
+
+    @Test
+    public void verify()
+    {
+        for (String manifest : ImmutableList.of("tpch", "10", "100")) {
+            BenchmarkAccioPlanner benchmark = new BenchmarkAccioPlanner();
+            benchmark.manifest = manifest;
+            benchmark.setup();
+            assertThat(benchmark.rewrite())
+                    .hasSameSizeAs(benchmark.queries)
+                    .allSatisfy(planned -> assertThat(planned).startsWith("WITH"));
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkAccioPlanner.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
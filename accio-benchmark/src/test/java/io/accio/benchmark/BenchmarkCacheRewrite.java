@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.AccioMDL;
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.sqlrewrite.CacheRewrite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static io.accio.benchmark.BenchmarkManifests.SYNTHETIC_SESSION;
+import static io.accio.benchmark.BenchmarkManifests.metricName;
+import static io.accio.benchmark.BenchmarkManifests.modelName;
+import static io.accio.benchmark.BenchmarkManifests.synthetic;
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures {@link CacheRewrite#rewrite} against synthetic manifests where every metric is cached.
+ * A miss is a query on a model, which isn't cached and has to fall back to the planner.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BenchmarkCacheRewrite
+{
+    @Param({"10", "100", "1000"})
+    private int modelCount = 10;
+
+    @Param({"hit", "miss"})
+    private String lookup = "hit";
+
+    private AccioMDL mdl;
+    private String query;
+
+    @Setup
+    public void setup()
+    {
+        mdl = synthetic(modelCount);
+        int index = modelCount / 2;
+        query = lookup.equals("hit") ?
+                format("SELECT a.name, a.total, b.total FROM %s a JOIN %s b ON a.name = b.name WHERE a.total > 100", metricName(index), metricName(index + 1)) :
+                format("SELECT m.name, m.parentName FROM %s m WHERE m.value > 10", modelName(index));
+    }
+
+    @Benchmark
+    public Optional<String> rewrite()
+    {
+        return CacheRewrite.rewrite(SYNTHETIC_SESSION, query, BenchmarkCacheRewrite::toCachedTable, mdl);
+    }
+
+    private static Optional<String> toCachedTable(CatalogSchemaTableName table)
+    {
+        String tableName = table.getSchemaTableName().getTableName();
+        if (tableName.startsWith("Metric")) {
+            return Optional.of("cached_" + tableName.toLowerCase(ENGLISH) + "_1");
+        }
+        return Optional.empty();
+    }
+
+    @Test
+    public void verify()
+    {
+        for (String lookup : ImmutableList.of("hit", "miss")) {
+            BenchmarkCacheRewrite benchmark = new BenchmarkCacheRewrite();
+            benchmark.lookup = lookup;
+            benchmark.setup();
+            assertThat(benchmark.rewrite().isPresent()).isEqualTo(lookup.equals("hit"));
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkCacheRewrite.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
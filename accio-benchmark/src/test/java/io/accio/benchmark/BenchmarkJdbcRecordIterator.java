@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.benchmark;
+
+import io.accio.base.client.duckdb.DuckdbClient;
+import io.accio.base.client.jdbc.JdbcRecordIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures reading a whole result set through {@link JdbcRecordIterator} from an in-memory DuckDB,
+ * which is how queries served by cached tables are read before being encoded for the client.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BenchmarkJdbcRecordIterator
+{
+    @Param({"1000", "100000"})
+    private int rows = 1000;
+
+    private DuckdbClient client;
+
+    @Setup
+    public void setup()
+    {
+        client = new DuckdbClient();
+        client.executeDDL(format("CREATE TABLE orders AS SELECT " +
+                "range AS orderkey, " +
+                "range %% 1000 AS custkey, " +
+                "CASE WHEN range %% 3 = 0 THEN 'F' ELSE 'O' END AS orderstatus, " +
+                "CAST(range * 1.5 AS DOUBLE) AS totalprice, " +
+                "CAST(range AS DECIMAL(15, 2)) AS discount, " +
+                "DATE '1992-01-01' + CAST(range %% 2400 AS INTEGER) AS orderdate, " +
+                "'Clerk#' || lpad(CAST(range %% 1000 AS VARCHAR), 9, '0') AS clerk " +
+                "FROM range(%d)", rows));
+    }
+
+    @Benchmark
+    public long iterate(Blackhole blackhole)
+            throws Exception
+    {
+        long count = 0;
+        try (JdbcRecordIterator iterator = JdbcRecordIterator.of(client, "SELECT * FROM orders")) {
+            while (iterator.hasNext()) {
+                blackhole.consume(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void verify()
+            throws Exception
+    {
+        BenchmarkJdbcRecordIterator benchmark = new BenchmarkJdbcRecordIterator();
+        benchmark.setup();
+        Blackhole blackhole = new Blackhole("Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+        assertThat(benchmark.iterate(blackhole)).isEqualTo(1000);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkJdbcRecordIterator.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
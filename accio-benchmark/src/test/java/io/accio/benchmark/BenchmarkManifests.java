@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import io.accio.base.AccioMDL;
+import io.accio.base.SessionContext;
+import io.accio.base.dto.Column;
+import io.accio.base.dto.Manifest;
+import io.accio.base.dto.Metric;
+import io.accio.base.dto.Model;
+import io.accio.base.dto.Relationship;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static com.google.common.io.Resources.getResource;
+import static io.accio.base.AccioTypes.INTEGER;
+import static io.accio.base.AccioTypes.VARCHAR;
+import static io.accio.base.dto.Column.caluclatedColumn;
+import static io.accio.base.dto.Column.column;
+import static io.accio.base.dto.Column.relationshipColumn;
+import static io.accio.base.dto.JoinType.MANY_TO_ONE;
+import static io.accio.base.dto.Metric.metric;
+import static io.accio.base.dto.Model.model;
+import static io.accio.base.dto.Relationship.relationship;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * MDL fixtures shared by the benchmarks: the TPCH manifest used by the sqlrewrite tests, and synthetic
+ * manifests of a given size to see how planning scales with the number of models in the MDL.
+ */
+public final class BenchmarkManifests
+{
+    public static final SessionContext TPCH_SESSION = SessionContext.builder()
+            .setCatalog("canner-cml")
+            .setSchema("tpch_tiny")
+            .build();
+    public static final SessionContext SYNTHETIC_SESSION = SessionContext.builder()
+            .setCatalog("accio")
+            .setSchema("test")
+            .build();
+
+    public static final List<String> TPCH_QUERIES = ImmutableList.of(
+            "SELECT o.orderkey, o.totalprice, c.name FROM Orders o JOIN Customer c ON o.custkey = c.custkey WHERE o.orderdate > DATE '1995-01-01'",
+            "SELECT custkey, totalprice FROM Revenue WHERE totalprice > 100 ORDER BY totalprice DESC LIMIT 10",
+            "SELECT \"order\", extendedprice * (1 - discount) AS revenue FROM Lineitem WHERE shipdate BETWEEN DATE '1994-01-01' AND DATE '1995-01-01'",
+            "SELECT * FROM WeeklyRevenue");
+
+    private BenchmarkManifests() {}
+
+    public static AccioMDL tpch()
+    {
+        try {
+            // shared with the accio-sqlrewrite tests through its test-jar
+            return AccioMDL.fromJson(Resources.toString(getResource("tpch_mdl.json"), UTF_8));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A chain of models where `Model{i}` has a many-to-one relationship to `Model{i - 1}`,
+     * a calculated column through that relationship and a cached metric on top of it.
+     */
+    public static AccioMDL synthetic(int modelCount)
+    {
+        ImmutableList.Builder<Model> models = ImmutableList.builder();
+        ImmutableList.Builder<Relationship> relationships = ImmutableList.builder();
+        ImmutableList.Builder<Metric> metrics = ImmutableList.builder();
+        for (int i = 0; i < modelCount; i++) {
+            ImmutableList.Builder<Column> columns = ImmutableList.<Column>builder()
+                    .add(column("id", INTEGER, null, true))
+                    .add(column("parentId", INTEGER, null, false, "parent_id"))
+                    .add(column("name", VARCHAR, null, true))
+                    .add(column("value", INTEGER, null, false));
+            if (i > 0) {
+                String relationshipName = modelName(i) + "Parent";
+                columns.add(relationshipColumn("parent", modelName(i - 1), relationshipName))
+                        .add(caluclatedColumn("parentName", VARCHAR, "parent.name"));
+                relationships.add(relationship(
+                        relationshipName,
+                        ImmutableList.of(modelName(i), modelName(i - 1)),
+                        MANY_TO_ONE,
+                        format("%s.parentId = %s.id", modelName(i), modelName(i - 1))));
+            }
+            models.add(model(modelName(i), format("SELECT * FROM main.table_%d", i), columns.build(), "id"));
+            metrics.add(metric(
+                    metricName(i),
+                    modelName(i),
+                    ImmutableList.of(column("name", VARCHAR, null, true)),
+                    ImmutableList.of(column("total", INTEGER, null, true, "sum(value)")),
+                    ImmutableList.of(),
+                    true));
+        }
+        return AccioMDL.fromManifest(Manifest.builder()
+                .setCatalog(SYNTHETIC_SESSION.getCatalog().orElseThrow())
+                .setSchema(SYNTHETIC_SESSION.getSchema().orElseThrow())
+                .setModels(models.build())
+                .setRelationships(relationships.build())
+                .setMetrics(metrics.build())
+                .build());
+    }
+
+    /**
+     * Queries touching the last two models and the metric of the middle one, so the
+     * statements stay the same size while the manifest grows.
+     */
+    public static List<String> syntheticQueries(int modelCount)
+    {
+        return ImmutableList.of(
+                format("SELECT m.name, m.parentName, count(*) FROM %s m JOIN %s p ON m.parentId = p.id WHERE m.value > 10 GROUP BY 1, 2",
+                        modelName(modelCount - 1), modelName(modelCount - 2)),
+                format("SELECT name, total FROM %s WHERE total > 100 ORDER BY total DESC LIMIT 10", metricName(modelCount / 2)));
+    }
+
+    public static String modelName(int index)
+    {
+        return "Model" + index;
+    }
+
+    public static String metricName(int index)
+    {
+        return "Metric" + index;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.AccioMDL;
+import io.accio.base.sql.SqlConverter;
+import io.accio.main.connector.bigquery.BigQuerySqlConverter;
+import io.accio.main.connector.postgres.PostgresSqlConverter;
+import io.accio.sqlrewrite.AccioPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.accio.benchmark.BenchmarkManifests.TPCH_QUERIES;
+import static io.accio.benchmark.BenchmarkManifests.TPCH_SESSION;
+import static io.accio.benchmark.BenchmarkManifests.tpch;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the dialect conversion of planned TPCH queries, i.e. the step between {@link AccioPlanner#rewrite}
+ * and sending the statement to the data source.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BenchmarkSqlConverter
+{
+    @Param({"bigquery", "postgres"})
+    private String dialect = "bigquery";
+
+    private SqlConverter sqlConverter;
+    private List<String> plannedQueries;
+
+    @Setup
+    public void setup()
+    {
+        BenchmarkMetadata metadata = new BenchmarkMetadata();
+        sqlConverter = dialect.equals("bigquery") ? new BigQuerySqlConverter(metadata) : new PostgresSqlConverter(metadata);
+        AccioMDL mdl = tpch();
+        plannedQueries = TPCH_QUERIES.stream()
+                .map(query -> AccioPlanner.rewrite(query, TPCH_SESSION, mdl))
+                .collect(toImmutableList());
+    }
+
+    @Benchmark
+    public List<String> convert()
+    {
+        ImmutableList.Builder<String> converted = ImmutableList.builder();
+        for (String query : plannedQueries) {
+            converted.add(sqlConverter.convert(query, TPCH_SESSION));
+        }
+        return converted.build();
+    }
+
+    @Test
+    public void verify()
+    {
+        for (String dialect : ImmutableList.of("bigquery", "postgres")) {
+            BenchmarkSqlConverter benchmark = new BenchmarkSqlConverter();
+            benchmark.dialect = dialect;
+            benchmark.setup();
+            assertThat(benchmark.convert()).hasSameSizeAs(TPCH_QUERIES);
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkSqlConverter.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
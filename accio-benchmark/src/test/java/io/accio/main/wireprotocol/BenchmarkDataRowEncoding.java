@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.accio.base.type.PGType;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.joda.time.Period;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static io.accio.base.type.BigIntType.BIGINT;
+import static io.accio.base.type.BooleanType.BOOLEAN;
+import static io.accio.base.type.ByteaType.BYTEA;
+import static io.accio.base.type.DateType.DATE;
+import static io.accio.base.type.DoubleType.DOUBLE;
+import static io.accio.base.type.InetType.INET;
+import static io.accio.base.type.IntegerType.INTEGER;
+import static io.accio.base.type.IntervalType.INTERVAL;
+import static io.accio.base.type.JsonType.JSON;
+import static io.accio.base.type.NumericType.NUMERIC;
+import static io.accio.base.type.PGArray.INT4_ARRAY;
+import static io.accio.base.type.PGArray.VARCHAR_ARRAY;
+import static io.accio.base.type.RealType.REAL;
+import static io.accio.base.type.SmallIntType.SMALLINT;
+import static io.accio.base.type.TimestampType.TIMESTAMP;
+import static io.accio.base.type.UuidType.UUID;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static io.accio.main.wireprotocol.FormatCodes.FormatCode.BINARY;
+import static io.accio.main.wireprotocol.FormatCodes.FormatCode.TEXT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.nCopies;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures {@link Messages#sendDataRow} for each {@link PGType} we send to clients, in text and binary format.
+ * Each invocation encodes a batch of rows with a single type on an {@link EmbeddedChannel} and releases
+ * the written buffers, so only the encoding and the buffer allocation are measured.
+ * <p>
+ * date, timestamp and inet don't have a binary encoding, they're measured in text format only.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BenchmarkDataRowEncoding
+{
+    private static final int ROWS = 100;
+    private static final int COLUMNS = 10;
+
+    private static final Map<String, SampleType> SAMPLES = ImmutableMap.<String, SampleType>builder()
+            .put("bool", new SampleType(BOOLEAN, true))
+            .put("int2", new SampleType(SMALLINT, (short) 12345))
+            .put("int4", new SampleType(INTEGER, 123456789))
+            .put("int8", new SampleType(BIGINT, 1234567890123L))
+            .put("float4", new SampleType(REAL, 1234.5678f))
+            .put("float8", new SampleType(DOUBLE, 12345678.12345678))
+            .put("numeric", new SampleType(NUMERIC, new BigDecimal("1234567890.0123456789")))
+            .put("varchar", new SampleType(VARCHAR, "Clerk#000000951 furiously regular deposits"))
+            .put("json", new SampleType(JSON, "{\"orderkey\": 1, \"status\": \"O\", \"items\": [1, 2, 3]}"))
+            .put("bytea", new SampleType(BYTEA, "binary payload".getBytes(UTF_8)))
+            .put("uuid", new SampleType(UUID, "4f9a1b2c-6d7e-4f80-9a1b-2c3d4e5f6a7b"))
+            .put("interval", new SampleType(INTERVAL, new Period(1, 2, 0, 3, 4, 5, 6, 0)))
+            .put("_int4", new SampleType(INT4_ARRAY, ImmutableList.of(1, 2, 3, 4, 5)))
+            .put("_varchar", new SampleType(VARCHAR_ARRAY, ImmutableList.of("F", "O", "P")))
+            .put("date", new SampleType(DATE, LocalDate.of(1995, 3, 15)))
+            .put("timestamp", new SampleType(TIMESTAMP, LocalDateTime.of(1995, 3, 15, 12, 34, 56, 789_000_000)))
+            .put("inet", new SampleType(INET, "192.168.0.1"))
+            .build();
+
+    @State(Scope.Thread)
+    public static class Rows
+    {
+        @Param({"bool", "int2", "int4", "int8", "float4", "float8", "numeric", "varchar", "json", "bytea", "uuid", "interval", "_int4", "_varchar"})
+        private String type = "int4";
+
+        @Param({"TEXT", "BINARY"})
+        private FormatCodes.FormatCode format = TEXT;
+
+        private final EmbeddedChannel channel = new EmbeddedChannel();
+        private Object[] row;
+        private List<PGType> schema;
+        private FormatCodes.FormatCode[] formatCodes;
+
+        @Setup
+        public void setup()
+        {
+            SampleType sample = SAMPLES.get(type);
+            row = new Object[COLUMNS];
+            Arrays.fill(row, sample.value);
+            schema = sample.schema();
+            formatCodes = new FormatCodes.FormatCode[] {format};
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TextOnlyRows
+    {
+        @Param({"date", "timestamp", "inet"})
+        private String type = "date";
+
+        private final EmbeddedChannel channel = new EmbeddedChannel();
+        private Object[] row;
+        private List<PGType> schema;
+
+        @Setup
+        public void setup()
+        {
+            SampleType sample = SAMPLES.get(type);
+            row = new Object[COLUMNS];
+            Arrays.fill(row, sample.value);
+            schema = sample.schema();
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    public long sendDataRows(Rows rows)
+    {
+        return send(rows.channel, rows.row, rows.schema, rows.formatCodes);
+    }
+
+    @Benchmark
+    public long sendTextOnlyDataRows(TextOnlyRows rows)
+    {
+        return send(rows.channel, rows.row, rows.schema, null);
+    }
+
+    private static long send(EmbeddedChannel channel, Object[] row, List<PGType> schema, FormatCodes.FormatCode[] formatCodes)
+    {
+        long bytes = 0;
+        for (int i = 0; i < ROWS; i++) {
+            bytes += Messages.sendDataRow(channel, row, schema, formatCodes);
+        }
+        channel.flushOutbound();
+        channel.releaseOutbound();
+        return bytes;
+    }
+
+    @Test
+    public void verify()
+    {
+        for (String type : SAMPLES.keySet()) {
+            TextOnlyRows textRows = new TextOnlyRows();
+            textRows.type = type;
+            textRows.setup();
+            assertSent(textRows.channel, sendTextOnlyDataRows(textRows));
+            textRows.tearDown();
+        }
+        for (String type : SAMPLES.keySet()) {
+            if (ImmutableList.of("date", "timestamp", "inet").contains(type)) {
+                continue;
+            }
+            Rows rows = new Rows();
+            rows.type = type;
+            rows.format = BINARY;
+            rows.setup();
+            assertSent(rows.channel, sendDataRows(rows));
+            rows.tearDown();
+        }
+    }
+
+    private static void assertSent(EmbeddedChannel channel, long bytes)
+    {
+        assertThat(bytes).isGreaterThan((long) ROWS * COLUMNS * 4);
+        assertThat(channel.outboundMessages()).isEmpty();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkDataRowEncoding.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+
+    private static class SampleType
+    {
+        private final PGType type;
+        private final Object value;
+
+        private SampleType(PGType type, Object value)
+        {
+            this.type = type;
+            this.value = value;
+        }
+
+        private List<PGType> schema()
+        {
+            return nCopies(COLUMNS, type);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.patterns;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.main.wireprotocol.PostgresSessionProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.accio.main.wireprotocol.PostgresWireProtocol.isIgnoredCommand;
+import static java.util.Locale.ENGLISH;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the statement pre-processing done before planning, i.e. cutting the first statement, rewriting
+ * `$n` parameters, {@link io.accio.main.wireprotocol.PostgresWireProtocol#isIgnoredCommand} and
+ * {@link PostgreSqlRewriteUtil#rewrite}, against the regex chain it replaced.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BenchmarkScannedStatement
+{
+    private static final List<QueryPattern> LEGACY_PATTERNS = ImmutableList.of(
+            CorrelatedSubQueryPattern.INSTANCE,
+            ShowTransIsoPattern.INSTANCE,
+            SetPattern.INSTANCE,
+            SetSessionPattern.INSTANCE,
+            ShowMaxIdentifierLengthPattern.INSTANCE,
+            DeallocatePattern.INSTANCE,
+            PgExtensionUpdatePathsPattern.INSTANCE,
+            ArraySelectPattern.INSTANCE,
+            ShowDateStylePattern.INSTANCE,
+            ShowStandardConformingPattern.INSTANCE);
+    private static final Pattern LEGACY_SET_TRANSACTION_PATTERN = Pattern.compile("SET +(SESSION CHARACTERISTICS AS )? *TRANSACTION");
+    private static final Pattern LEGACY_SET_SESSION_AUTHORIZATION = Pattern.compile("SET (SESSION |LOCAL )?SESSION AUTHORIZATION");
+    private static final Pattern LEGACY_SET_STMT_PATTERN = Pattern.compile("(?i)^ *SET( +SESSION)* +(?<property>[a-zA-Z0-9_]+)( *= *| +TO +)(?<value>[^ ']+|'.*')");
+    private static final Set<String> LEGACY_IGNORED_COMMAND = Set.of("BEGIN", "COMMIT", "DISCARD", "RESET", "CLOSE", "UNLISTEN");
+
+    @Param({"small", "large"})
+    private String size = "small";
+
+    private String statement;
+
+    @Setup
+    public void setup()
+    {
+        statement = createStatement(size.equals("small") ? 1 : 1000);
+    }
+
+    @Benchmark
+    public String scanned()
+    {
+        ScannedStatement scanned = ScannedStatement.scan(statement);
+        if (isIgnoredCommand(scanned)) {
+            return "";
+        }
+        return PostgreSqlRewriteUtil.rewrite(scanned);
+    }
+
+    @Benchmark
+    public String legacy()
+    {
+        String trimmed = statement.split(";")[0].trim().replaceAll("\\$[0-9]+", "?");
+        if (legacyIsIgnoredCommand(trimmed)) {
+            return "";
+        }
+        return LEGACY_PATTERNS.stream()
+                .filter(pattern -> pattern.matcher(trimmed).find())
+                .findFirst()
+                .map(pattern -> pattern.rewrite(trimmed))
+                .orElse(trimmed);
+    }
+
+    private static boolean legacyIsIgnoredCommand(String statement)
+    {
+        Optional<String> command = Arrays.stream(statement.toUpperCase(ENGLISH).split(" |;"))
+                .filter(split -> !split.isEmpty())
+                .findFirst();
+        if ((command.isPresent() && LEGACY_IGNORED_COMMAND.contains(command.get())) ||
+                LEGACY_SET_TRANSACTION_PATTERN.matcher(statement).find() || LEGACY_SET_SESSION_AUTHORIZATION.matcher(statement).find()) {
+            return true;
+        }
+        Matcher matcher = LEGACY_SET_STMT_PATTERN.matcher(statement);
+        return matcher.find() && PostgresSessionProperties.isIgnoredSessionProperties(matcher.group("property"));
+    }
+
+    // a generated query, about 100 bytes per column
+    private static String createStatement(int columns)
+    {
+        StringBuilder builder = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns; i++) {
+            if (i > 0) {
+                builder.append(",\n       ");
+            }
+            builder.append(String.format("CASE WHEN c%d = $%d THEN 'value %d' ELSE coalesce(c%d, 0) END AS alias_column_%d", i, i + 1, i, i, i));
+        }
+        return builder.append("\nFROM orders o JOIN customer c ON o.custkey = c.custkey\nWHERE o.orderdate > DATE '2020-01-01'").toString();
+    }
+
+    @Test
+    public void verify()
+    {
+        for (String size : ImmutableList.of("small", "large")) {
+            BenchmarkScannedStatement benchmark = new BenchmarkScannedStatement();
+            benchmark.size = size;
+            benchmark.setup();
+            assertThat(benchmark.scanned()).isEqualTo(benchmark.legacy());
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                .include(".*" + BenchmarkScannedStatement.class.getSimpleName() + ".*")
+                .build()).run();
+    }
+}
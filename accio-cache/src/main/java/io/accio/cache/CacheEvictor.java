@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import com.google.common.collect.ImmutableSet;
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.base.client.AutoCloseableIterator;
+import io.accio.base.client.duckdb.DuckdbClient;
+import io.airlift.log.Logger;
+
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static io.accio.base.client.duckdb.DuckdbClient.quoteLiteral;
+import static io.accio.cache.DuckdbConfig.EvictionPolicy.LFU;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the rows held in duckdb memory by all caches under {@link DuckdbConfig#getMaxCacheRows()}.
+ * Once exceeded, the coldest caches are spilled to parquet files, or dropped if no spill directory
+ * is configured. Queries on a dropped cache fall back to the data source until its next refresh.
+ */
+public class CacheEvictor
+{
+    private static final Logger LOG = Logger.get(CacheEvictor.class);
+    private static final String PARQUET_SUFFIX = ".parquet";
+
+    private final DuckdbClient duckdbClient;
+    private final CachedTableMapping cachedTableMapping;
+    private final CacheManifest cacheManifest;
+    private final Optional<Long> maxCacheRows;
+    private final Comparator<CacheInfoPair> evictionOrder;
+    private final Optional<Path> spillDirectory;
+
+    @Inject
+    public CacheEvictor(
+            DuckdbConfig duckdbConfig,
+            DuckdbClient duckdbClient,
+            CachedTableMapping cachedTableMapping,
+            CacheManifest cacheManifest)
+    {
+        this.duckdbClient = requireNonNull(duckdbClient, "duckdbClient is null");
+        this.cachedTableMapping = requireNonNull(cachedTableMapping, "cachedTableMapping is null");
+        this.cacheManifest = requireNonNull(cacheManifest, "cacheManifest is null");
+        this.maxCacheRows = duckdbConfig.getMaxCacheRows();
+        this.evictionOrder = duckdbConfig.getEvictionPolicy() == LFU ?
+                Comparator.comparingLong(CacheInfoPair::getAccessCount).thenComparingLong(CacheInfoPair::getLastAccessTime) :
+                Comparator.comparingLong(CacheInfoPair::getLastAccessTime);
+        this.spillDirectory = duckdbConfig.getSpillDirectory().map(Path::toAbsolutePath);
+    }
+
+    /**
+     * Records the rows held by the given cache, then evicts the other caches until the budget is met.
+     * The admitted cache is never evicted by its own admission, as it has no accesses yet.
+     */
+    public synchronized void admit(CacheInfoPair cacheInfoPair)
+    {
+        cacheInfoPair.getTableName().ifPresent(tableName -> cacheInfoPair.setMemoryRows(countMemoryRows(tableName)));
+        if (maxCacheRows.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<CatalogSchemaTableName, CacheInfoPair>> candidates = cachedTableMapping.entrySet().stream()
+                .filter(entry -> entry.getValue().getTableName().isPresent() && entry.getValue().getMemoryRows() > 0)
+                .sorted(Map.Entry.comparingByValue(evictionOrder))
+                .collect(toImmutableList());
+        long totalRows = candidates.stream().mapToLong(entry -> entry.getValue().getMemoryRows()).sum();
+        for (Map.Entry<CatalogSchemaTableName, CacheInfoPair> candidate : candidates) {
+            if (totalRows <= maxCacheRows.get()) {
+                break;
+            }
+            if (candidate.getValue() == cacheInfoPair) {
+                continue;
+            }
+            long rows = candidate.getValue().getMemoryRows();
+            try {
+                evict(candidate.getKey(), candidate.getValue());
+                totalRows -= rows;
+            }
+            catch (Exception e) {
+                LOG.error(e, "Failed to evict cache %s", candidate.getKey());
+            }
+        }
+        cleanSpillFiles();
+    }
+
+    private void evict(CatalogSchemaTableName catalogSchemaTableName, CacheInfoPair cacheInfoPair)
+            throws IOException
+    {
+        String tableName = cacheInfoPair.getRequiredTableName();
+        if (spillDirectory.isPresent()) {
+            Files.createDirectories(spillDirectory.get());
+            Path spillFile = spillDirectory.get().resolve(tableName + PARQUET_SUFFIX);
+            duckdbClient.executeDDL(format("COPY \"%s\" TO %s (FORMAT PARQUET);\n" +
+                    "BEGIN TRANSACTION;\n" +
+                    "DROP TABLE \"%s\";\n" +
+                    "CREATE VIEW \"%s\" AS SELECT * FROM read_parquet(%s);\n" +
+                    "COMMIT;\n", tableName, quoteLiteral(spillFile.toString()), tableName, tableName, quoteLiteral(spillFile.toString())));
+            cacheInfoPair.setMemoryRows(0);
+            LOG.info("Spilled cache %s to %s", catalogSchemaTableName, spillFile);
+        }
+        else {
+            // the cache is dropped along with the replaced mapping
+            cachedTableMapping.putCachedTableMapping(
+                    catalogSchemaTableName,
+                    new CacheInfoPair(cacheInfoPair.getCacheInfo(), Optional.empty(), Optional.empty(), cacheInfoPair.getCreateTime()));
+            cacheManifest.remove(catalogSchemaTableName);
+            LOG.info("Evicted cache %s", catalogSchemaTableName);
+        }
+    }
+
+    private long countMemoryRows(String tableName)
+    {
+        try (AutoCloseableIterator<Object[]> iterator = duckdbClient.query(
+                format("SELECT estimated_size FROM duckdb_tables() WHERE table_name = %s", quoteLiteral(tableName)))) {
+            return iterator.hasNext() ? ((Number) iterator.next()[0]).longValue() : 0;
+        }
+        catch (Exception e) {
+            LOG.warn(e, "Failed to count rows of cache %s", tableName);
+            return 0;
+        }
+    }
+
+    /**
+     * Removes the spilled files whose cache has been refreshed or removed.
+     */
+    private void cleanSpillFiles()
+    {
+        if (spillDirectory.isEmpty() || !Files.isDirectory(spillDirectory.get())) {
+            return;
+        }
+        Set<String> tables = ImmutableSet.copyOf(duckdbClient.listTables());
+        try (Stream<Path> files = Files.list(spillDirectory.get())) {
+            Set<Path> unused = files
+                    .filter(file -> file.getFileName().toString().endsWith(PARQUET_SUFFIX))
+                    .filter(file -> !tables.contains(file.getFileName().toString().replace(PARQUET_SUFFIX, "")))
+                    .collect(toImmutableSet());
+            for (Path file : unused) {
+                Files.deleteIfExists(file);
+            }
+        }
+        catch (IOException e) {
+            LOG.warn(e, "Failed to clean spilled files in %s", spillDirectory.get());
+        }
+    }
+}
@@ -17,8 +17,10 @@ import io.accio.base.AccioException;
 import io.accio.base.dto.CacheInfo;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.accio.base.metadata.StandardErrorCode.GENERIC_USER_ERROR;
+import static java.lang.System.currentTimeMillis;
 import static java.util.Objects.requireNonNull;
 
 public class CacheInfoPair
@@ -27,6 +29,9 @@ public class CacheInfoPair
     private final Optional<String> tableName;
     private final Optional<String> errorMessage;
     private final long createTime;
+    private final AtomicLong accessCount = new AtomicLong();
+    private volatile long lastAccessTime;
+    private volatile long memoryRows;
 
     protected CacheInfoPair(CacheInfo cacheInfo, String tableName, long createTime)
     {
@@ -39,6 +44,7 @@ public class CacheInfoPair
         this.tableName = requireNonNull(tableName, "tableName is null");
         this.errorMessage = requireNonNull(errorMessage, "errorMessage is null");
         this.createTime = createTime;
+        this.lastAccessTime = createTime;
     }
 
     public CacheInfo getCacheInfo()
@@ -65,4 +71,33 @@ public class CacheInfoPair
     {
         return createTime;
     }
+
+    public void recordAccess()
+    {
+        accessCount.incrementAndGet();
+        lastAccessTime = currentTimeMillis();
+    }
+
+    public long getAccessCount()
+    {
+        return accessCount.get();
+    }
+
+    public long getLastAccessTime()
+    {
+        return lastAccessTime;
+    }
+
+    /**
+     * @return the number of rows this cache holds in duckdb memory; 0 if it is spilled to disk
+     */
+    public long getMemoryRows()
+    {
+        return memoryRows;
+    }
+
+    void setMemoryRows(long memoryRows)
+    {
+        this.memoryRows = memoryRows;
+    }
 }
@@ -16,12 +16,16 @@ package io.accio.cache;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
 import io.accio.base.AccioException;
 import io.accio.base.AccioMDL;
+import io.accio.base.Cancellation;
 import io.accio.base.CatalogSchemaTableName;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.Parameter;
 import io.accio.base.SessionContext;
+import io.accio.base.client.AutoCloseableIterator;
 import io.accio.base.client.duckdb.DuckdbClient;
 import io.accio.base.dto.CacheInfo;
 import io.accio.base.sql.SqlConverter;
@@ -35,34 +39,60 @@ import io.trino.sql.tree.Statement;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.accio.base.AccioMDL.EMPTY;
 import static io.accio.base.CatalogSchemaTableName.catalogSchemaTableName;
+import static io.accio.base.client.duckdb.DuckdbClient.quoteLiteral;
+import static io.accio.base.metadata.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static io.accio.base.metadata.StandardErrorCode.GENERIC_USER_ERROR;
+import static io.accio.cache.DuckdbConfig.CacheStorageMode.PARQUET_VIEW;
 import static io.accio.cache.TaskInfo.TaskStatus.DONE;
 import static io.accio.cache.TaskInfo.TaskStatus.RUNNING;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.concurrent.Threads.threadsNamed;
 import static io.trino.execution.sql.SqlFormatterUtil.getFormattedSql;
+import static java.lang.Math.max;
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.stream.Collectors.toList;
 
@@ -78,11 +108,18 @@ public class CacheManager
     private final CacheStorageConfig cacheStorageConfig;
     private final ConcurrentLinkedQueue<PathInfo> tempFileLocations = new ConcurrentLinkedQueue<>();
     private final CachedTableMapping cachedTableMapping;
+    private final CacheManifest cacheManifest;
+    private final CacheEvictor cacheEvictor;
+    private final CacheStats cacheStats;
+    private final Optional<Path> parquetDirectory;
+    private final boolean localLoad;
+    private final ExecutorService downloadExecutor;
     private final ConcurrentMap<CatalogSchemaTableName, ScheduledFuture<?>> cacheScheduledFutures = new ConcurrentHashMap<>();
     private final ScheduledThreadPoolExecutor refreshExecutor = new ScheduledThreadPoolExecutor(5, daemonThreadsNamed("cache-refresh-%s"));
 
     private final ExecutorService executorService = newCachedThreadPool(threadsNamed("cache-manager-%s"));
     private final ConcurrentHashMap<CatalogSchemaTableName, Task> tasks = new ConcurrentHashMap<>();
+    private final List<Consumer<CatalogSchemaTableName>> cacheRefreshListeners = new CopyOnWriteArrayList<>();
 
     @Inject
     public CacheManager(
@@ -91,7 +128,11 @@ public class CacheManager
             ExtraRewriter extraRewriter,
             DuckdbClient duckdbClient,
             CacheStorageConfig cacheStorageConfig,
-            CachedTableMapping cachedTableMapping)
+            CachedTableMapping cachedTableMapping,
+            CacheManifest cacheManifest,
+            CacheEvictor cacheEvictor,
+            CacheStats cacheStats,
+            DuckdbConfig duckdbConfig)
     {
         this.sqlParser = new SqlParser();
         this.sqlConverter = requireNonNull(sqlConverter, "sqlConverter is null");
@@ -100,10 +141,18 @@ public class CacheManager
         this.duckdbClient = requireNonNull(duckdbClient, "duckdbClient is null");
         this.cacheStorageConfig = requireNonNull(cacheStorageConfig, "cacheStorageConfig is null");
         this.cachedTableMapping = requireNonNull(cachedTableMapping, "cachedTableMapping is null");
+        this.cacheManifest = requireNonNull(cacheManifest, "cacheManifest is null");
+        this.cacheEvictor = requireNonNull(cacheEvictor, "cacheEvictor is null");
+        this.cacheStats = requireNonNull(cacheStats, "cacheStats is null");
+        this.parquetDirectory = duckdbConfig.getCacheStorageMode() == PARQUET_VIEW ?
+                duckdbConfig.getParquetDirectory().map(Path::toAbsolutePath) :
+                Optional.empty();
+        this.localLoad = duckdbConfig.isLocalLoad();
+        this.downloadExecutor = newFixedThreadPool(duckdbConfig.getDownloadThreads(), daemonThreadsNamed("cache-download-%s"));
         refreshExecutor.setRemoveOnCancelPolicy(true);
     }
 
-    private synchronized CompletableFuture<Void> refreshCache(AccioMDL mdl, CacheInfo cacheInfo)
+    private synchronized CompletableFuture<Void> refreshCache(AccioMDL mdl, CacheInfo cacheInfo, TaskInfo taskInfo)
     {
         CatalogSchemaTableName catalogSchemaTableName = catalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
         Optional<Task> taskOptional = Optional.ofNullable(tasks.get(catalogSchemaTableName));
@@ -111,23 +160,38 @@ public class CacheManager
             throw new AccioException(GENERIC_USER_ERROR, format("cache is already running; catalogName: %s, schemaName: %s, tableName: %s", mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName()));
         }
         removeCacheIfExist(catalogSchemaTableName);
-        return doCache(mdl, cacheInfo);
+        return doCache(mdl, cacheInfo, taskInfo);
     }
 
-    private CompletableFuture<Void> handleCache(AccioMDL mdl, CacheInfo cacheInfo)
+    private CompletableFuture<Void> handleCache(AccioMDL mdl, CacheInfo cacheInfo, TaskInfo taskInfo)
     {
-        return refreshCache(mdl, cacheInfo)
-                .thenRun(() -> {
-                    if (cacheInfo.getRefreshTime().toMillis() > 0) {
-                        cacheScheduledFutures.put(
-                                new CatalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName()),
-                                refreshExecutor.scheduleWithFixedDelay(
-                                        () -> createTask(mdl, cacheInfo).join(),
-                                        cacheInfo.getRefreshTime().toMillis(),
-                                        cacheInfo.getRefreshTime().toMillis(),
-                                        MILLISECONDS));
-                    }
-                });
+        return refreshCache(mdl, cacheInfo, taskInfo)
+                .thenRun(() -> scheduleRefresh(mdl, cacheInfo, cacheInfo.getRefreshTime().toMillis()));
+    }
+
+    private void scheduleRefresh(AccioMDL mdl, CacheInfo cacheInfo, long initialDelayMillis)
+    {
+        if (cacheInfo.getRefreshTime().toMillis() > 0) {
+            ScheduledFuture<?> previous = cacheScheduledFutures.put(
+                    new CatalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName()),
+                    refreshExecutor.scheduleWithFixedDelay(
+                            () -> createTask(mdl, cacheInfo).join(),
+                            initialDelayMillis,
+                            cacheInfo.getRefreshTime().toMillis(),
+                            MILLISECONDS));
+            // a cache is refreshed by a single schedule
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener notified each time a cache is rebuilt with new data.
+     */
+    public void addCacheRefreshListener(Consumer<CatalogSchemaTableName> listener)
+    {
+        cacheRefreshListeners.add(requireNonNull(listener, "listener is null"));
     }
 
     public ConnectorRecordIterator query(String sql, List<Parameter> parameters)
@@ -136,50 +200,128 @@ public class CacheManager
         return DuckdbRecordIterator.of(duckdbClient, sql, parameters.stream().collect(toImmutableList()));
     }
 
-    private CompletableFuture<Void> doCache(AccioMDL mdl, CacheInfo cacheInfo)
+    /**
+     * Runs a query rewritten to the given cached tables, and records it to their statistics and to their
+     * accesses the eviction policy ranks them by. Duckdb interrupts the query once the cancellation is canceled.
+     */
+    public ConnectorRecordIterator query(String sql, List<Parameter> parameters, Collection<CatalogSchemaTableName> cachedTables, Cancellation cancellation)
+            throws SQLException
+    {
+        cachedTables.forEach(cachedTableMapping::recordAccess);
+        long start = System.nanoTime();
+        try {
+            ConnectorRecordIterator iterator = DuckdbRecordIterator.of(duckdbClient, sql, ImmutableList.copyOf(parameters), cancellation);
+            cacheStats.recordCacheQuery(cachedTables, System.nanoTime() - start);
+            return iterator;
+        }
+        catch (SQLException | RuntimeException e) {
+            if (!cancellation.isCanceled()) {
+                cacheStats.recordFallback(cachedTables);
+            }
+            throw e;
+        }
+    }
+
+    public CacheStats getCacheStats()
+    {
+        return cacheStats;
+    }
+
+    private CompletableFuture<Void> doCache(AccioMDL mdl, CacheInfo cacheInfo, TaskInfo taskInfo)
     {
         CatalogSchemaTableName catalogSchemaTableName = new CatalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
-        String duckdbTableName = format("%s_%s", cacheInfo.getName(), randomUUID().toString().replace("-", ""));
         long createTime = currentTimeMillis();
+        return buildCache(mdl, cacheInfo, taskInfo, createTime)
+                .exceptionally(e -> {
+                    cachedTableMapping.putCachedTableMapping(catalogSchemaTableName, new CacheInfoPair(cacheInfo, Optional.empty(), Optional.of(getErrorMessage(e)), createTime));
+                    return null;
+                });
+    }
+
+    /**
+     * Builds the cache and maps it in place of the current one. The returned future fails with the error
+     * message if the cache can't be built, leaving the current mapping untouched.
+     */
+    private CompletableFuture<Void> buildCache(AccioMDL mdl, CacheInfo cacheInfo, TaskInfo taskInfo, long createTime)
+    {
+        CatalogSchemaTableName catalogSchemaTableName = new CatalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
+        String duckdbTableName = format("%s_%s", cacheInfo.getName(), randomUUID().toString().replace("-", ""));
+        CacheRefresh refresh = new CacheRefresh();
         return runAsync(() -> {
-            SessionContext sessionContext = SessionContext.builder()
-                    .setCatalog(mdl.getCatalog())
-                    .setSchema(mdl.getSchema())
-                    .build();
-            String accioRewritten = AccioPlanner.rewrite(
-                    format("select * from %s", cacheInfo.getName()),
-                    sessionContext,
-                    mdl);
-            Statement parsedStatement = sqlParser.createStatement(accioRewritten, PARSE_AS_DECIMAL);
-            Statement rewrittenStatement = extraRewriter.rewrite(parsedStatement);
-
-            createCache(mdl, cacheInfo, sessionContext, rewrittenStatement, duckdbTableName);
-            cachedTableMapping.putCachedTableMapping(catalogSchemaTableName, new CacheInfoPair(cacheInfo, duckdbTableName, createTime));
+            String cacheSql = generateCacheSql(mdl, cacheInfo);
+            createCache(mdl, cacheInfo, cacheSql, duckdbTableName, taskInfo, refresh);
+            CacheInfoPair cacheInfoPair = new CacheInfoPair(cacheInfo, duckdbTableName, createTime);
+            cachedTableMapping.putCachedTableMapping(catalogSchemaTableName, cacheInfoPair);
+            cacheManifest.put(new CacheManifest.Entry(
+                    mdl.getCatalog(),
+                    mdl.getSchema(),
+                    cacheInfo.getName(),
+                    duckdbTableName,
+                    sourceHash(cacheSql),
+                    createTime));
+            cacheEvictor.admit(cacheInfoPair);
+            cacheStats.recordRefresh(catalogSchemaTableName, refresh, createTime, countRows(duckdbTableName));
+            cacheRefreshListeners.forEach(listener -> listener.accept(catalogSchemaTableName));
         }).exceptionally(e -> {
-            duckdbClient.dropTableQuietly(duckdbTableName);
+            dropCache(duckdbTableName);
+            cacheStats.recordRefreshFailure(catalogSchemaTableName);
             String errMsg = format("Failed to do cache for cacheInfo %s; caused by %s", cacheInfo.getName(), e.getMessage());
             LOG.error(e, errMsg);
-            cachedTableMapping.putCachedTableMapping(catalogSchemaTableName, new CacheInfoPair(cacheInfo, Optional.empty(), Optional.of(errMsg), createTime));
-            return null;
+            throw new AccioException(GENERIC_INTERNAL_ERROR, errMsg, e);
         });
     }
 
+    private static String getErrorMessage(Throwable e)
+    {
+        return (e instanceof CompletionException && e.getCause() != null ? e.getCause() : e).getMessage();
+    }
+
+    private String generateCacheSql(AccioMDL mdl, CacheInfo cacheInfo)
+    {
+        SessionContext sessionContext = SessionContext.builder()
+                .setCatalog(mdl.getCatalog())
+                .setSchema(mdl.getSchema())
+                .build();
+        String accioRewritten = AccioPlanner.rewrite(
+                format("select * from %s", cacheInfo.getName()),
+                sessionContext,
+                mdl);
+        Statement parsedStatement = sqlParser.createStatement(accioRewritten, PARSE_AS_DECIMAL);
+        Statement rewrittenStatement = extraRewriter.rewrite(parsedStatement);
+        return sqlConverter.convert(getFormattedSql(rewrittenStatement, sqlParser), sessionContext);
+    }
+
+    private static String sourceHash(String cacheSql)
+    {
+        return Hashing.sha256().hashString(cacheSql, UTF_8).toString();
+    }
+
     private void createCache(
             AccioMDL mdl,
             CacheInfo cacheInfo,
-            SessionContext sessionContext,
-            Statement rewrittenStatement,
-            String duckdbTableName)
+            String cacheSql,
+            String duckdbTableName,
+            TaskInfo taskInfo,
+            CacheRefresh refresh)
     {
-        cacheService.createCache(
+        refresh.timeExport(() -> cacheService.createCache(
                         mdl.getCatalog(),
                         mdl.getSchema(),
                         cacheInfo.getName(),
-                        sqlConverter.convert(getFormattedSql(rewrittenStatement, sqlParser), sessionContext))
+                        cacheSql))
                 .ifPresent(pathInfo -> {
                     try {
                         tempFileLocations.add(pathInfo);
-                        refreshCacheInDuckDB(pathInfo.getPath() + "/" + pathInfo.getFilePattern(), duckdbTableName);
+                        if (parquetDirectory.isPresent()) {
+                            createParquetView(pathInfo, duckdbTableName, taskInfo, refresh);
+                        }
+                        else if (localLoad) {
+                            loadCacheFromLocal(pathInfo, duckdbTableName, taskInfo, refresh);
+                        }
+                        else {
+                            // duckdb downloads the files itself while loading them
+                            refresh.timeLoad(() -> refreshCacheInDuckDB(pathInfo.getPath() + "/" + pathInfo.getFilePattern(), duckdbTableName));
+                        }
                     }
                     finally {
                         removeTempFile(pathInfo);
@@ -192,6 +334,126 @@ public class CacheManager
         duckdbClient.executeDDL(cacheStorageConfig.generateDuckdbParquetStatement(path, tableName));
     }
 
+    /**
+     * Downloads the exported parquet files and creates a view over them, so duckdb only reads
+     * the columns and row groups a query needs instead of holding the whole cache in memory.
+     */
+    private void createParquetView(PathInfo pathInfo, String tableName, TaskInfo taskInfo, CacheRefresh refresh)
+    {
+        Path localDirectory = parquetDirectory.orElseThrow().resolve(tableName);
+        try {
+            Files.createDirectories(localDirectory);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        refresh.timeDownload(() -> download(pathInfo, localDirectory, taskInfo, refresh));
+        refresh.timeLoad(() -> duckdbClient.executeDDL(format("CREATE VIEW \"%s\" AS SELECT * FROM read_parquet(%s)",
+                tableName,
+                quoteLiteral(localDirectory.resolve(pathInfo.getFilePattern()).toString()))));
+    }
+
+    /**
+     * Downloads the exported files to a temporary directory in parallel, then loads them in one statement.
+     * Duckdb scans local parquet files with all its threads, which is much faster than reading them one
+     * by one through httpfs.
+     */
+    private void loadCacheFromLocal(PathInfo pathInfo, String tableName, TaskInfo taskInfo, CacheRefresh refresh)
+    {
+        Path localDirectory;
+        try {
+            localDirectory = Files.createTempDirectory("accio-cache-");
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            refresh.timeDownload(() -> download(pathInfo, localDirectory, taskInfo, refresh));
+            refresh.timeLoad(() -> duckdbClient.executeDDL(format("BEGIN TRANSACTION;\n" +
+                            "CREATE TABLE \"%s\" AS SELECT * FROM read_parquet(%s);\n" +
+                            "COMMIT;\n",
+                    tableName,
+                    quoteLiteral(localDirectory.resolve(pathInfo.getFilePattern()).toString()))));
+        }
+        finally {
+            deleteLocalParquet(localDirectory);
+        }
+    }
+
+    private void download(PathInfo pathInfo, Path localDirectory, TaskInfo taskInfo, CacheRefresh refresh)
+    {
+        List<String> files = cacheService.listTargetFiles(pathInfo);
+        taskInfo.setTotalFiles(files.size());
+        CompletableFuture<?>[] downloads = files.stream()
+                .map(file -> runAsync(() -> {
+                    Path localFile = localDirectory.resolve(Path.of(file).getFileName());
+                    cacheService.downloadTargetFile(pathInfo, file, localFile);
+                    refresh.addExportedBytes(fileSize(localFile));
+                    taskInfo.incrementLoadedFiles();
+                }, downloadExecutor))
+                .toArray(CompletableFuture[]::new);
+        allOf(downloads).join();
+    }
+
+    private static long fileSize(Path file)
+    {
+        try {
+            return Files.size(file);
+        }
+        catch (IOException e) {
+            LOG.debug(e, "Failed to get the size of %s", file);
+            return 0;
+        }
+    }
+
+    private long countRows(String tableName)
+    {
+        try (AutoCloseableIterator<Object[]> iterator = duckdbClient.query(format("SELECT count(*) FROM \"%s\"", tableName))) {
+            return iterator.hasNext() ? ((Number) iterator.next()[0]).longValue() : 0;
+        }
+        catch (Exception e) {
+            LOG.debug(e, "Failed to count rows of cache %s", tableName);
+            return 0;
+        }
+    }
+
+    private void dropCache(String tableName)
+    {
+        duckdbClient.dropTableQuietly(tableName);
+        parquetDirectory.ifPresent(directory -> deleteLocalParquet(directory.resolve(tableName)));
+    }
+
+    private static void deleteLocalParquet(Path localDirectory)
+    {
+        try {
+            if (Files.exists(localDirectory)) {
+                deleteRecursively(localDirectory, ALLOW_INSECURE);
+            }
+        }
+        catch (IOException e) {
+            LOG.warn(e, "Failed to delete local parquet files %s", localDirectory);
+        }
+    }
+
+    /**
+     * Removes the local parquet files left by a previous run which no cache refers to.
+     */
+    private void cleanOrphanLocalParquet()
+    {
+        if (parquetDirectory.isEmpty() || !Files.isDirectory(parquetDirectory.get())) {
+            return;
+        }
+        Set<String> duckdbTables = ImmutableSet.copyOf(duckdbClient.listTables());
+        try (Stream<Path> directories = Files.list(parquetDirectory.get())) {
+            directories.filter(directory -> !duckdbTables.contains(directory.getFileName().toString()))
+                    .collect(toImmutableList())
+                    .forEach(CacheManager::deleteLocalParquet);
+        }
+        catch (IOException e) {
+            LOG.warn(e, "Failed to clean local parquet files in %s", parquetDirectory.get());
+        }
+    }
+
     public void removeCacheIfExist(String catalogName, String schemaName)
     {
         requireNonNull(catalogName, "catalogName is null");
@@ -209,8 +471,10 @@ public class CacheManager
                 .filter(entry -> entry.getKey().getCatalogName().equals(catalogName)
                         && entry.getKey().getSchemaTableName().getSchemaName().equals(schemaName))
                 .forEach(entry -> {
-                    entry.getValue().getTableName().ifPresent(duckdbClient::dropTableQuietly);
+                    entry.getValue().getTableName().ifPresent(this::dropCache);
                     cachedTableMapping.remove(entry.getKey());
+                    cacheManifest.remove(entry.getKey());
+                    cacheStats.remove(entry.getKey());
                 });
 
         tasks.keySet().stream()
@@ -227,13 +491,114 @@ public class CacheManager
         }
 
         Optional.ofNullable(cachedTableMapping.get(catalogSchemaTableName)).ifPresent(cacheInfoPair -> {
-            cacheInfoPair.getTableName().ifPresent(duckdbClient::dropTableQuietly);
+            cacheInfoPair.getTableName().ifPresent(this::dropCache);
             cachedTableMapping.remove(catalogSchemaTableName);
+            cacheManifest.remove(catalogSchemaTableName);
         });
+        cacheStats.remove(catalogSchemaTableName);
 
         tasks.remove(catalogSchemaTableName);
     }
 
+    /**
+     * Applies a reloaded mdl to the caches built from the previous one. Caches whose generated sql
+     * is unchanged are kept and caches no longer defined are removed. Changed caches keep serving their
+     * stale data until they are rebuilt, one at a time with the most accessed first, and then the new
+     * caches are built. On the initial load, with {@link AccioMDL#EMPTY} as the old mdl, no cache is built
+     * here; {@link #initializeCache} builds or reattaches them.
+     */
+    public void updateCache(AccioMDL oldMdl, AccioMDL newMdl)
+    {
+        if (!oldMdl.getCatalog().equals(newMdl.getCatalog()) || !oldMdl.getSchema().equals(newMdl.getSchema())) {
+            removeCacheIfExist(oldMdl.getCatalog(), oldMdl.getSchema());
+        }
+
+        List<Map.Entry<CatalogSchemaTableName, CacheInfoPair>> changed = new ArrayList<>();
+        cachedTableMapping.entrySet().stream()
+                .filter(entry -> entry.getKey().getCatalogName().equals(oldMdl.getCatalog())
+                        && entry.getKey().getSchemaTableName().getSchemaName().equals(oldMdl.getSchema()))
+                .collect(toImmutableList())
+                .forEach(entry -> {
+                    CacheInfoPair cacheInfoPair = entry.getValue();
+                    Optional<CacheInfo> newCacheInfo = newMdl.getCacheInfo(entry.getKey());
+                    if (newCacheInfo.isEmpty()) {
+                        removeCacheIfExist(entry.getKey());
+                    }
+                    else if (cacheInfoPair.getTableName().isPresent() && isSameCacheSql(oldMdl, cacheInfoPair.getCacheInfo(), newMdl, newCacheInfo.get())) {
+                        // keep the cache but refresh it with the new definition from now on
+                        Optional.ofNullable(cacheScheduledFutures.remove(entry.getKey())).ifPresent(future -> future.cancel(true));
+                        long refreshTime = newCacheInfo.get().getRefreshTime().toMillis();
+                        scheduleRefresh(newMdl, newCacheInfo.get(), max(0, cacheInfoPair.getCreateTime() + refreshTime - currentTimeMillis()));
+                    }
+                    else {
+                        changed.add(entry);
+                    }
+                });
+        List<CacheInfo> added = newMdl.listCached().stream()
+                .filter(cacheInfo -> cachedTableMapping.get(catalogSchemaTableName(newMdl.getCatalog(), newMdl.getSchema(), cacheInfo.getName())) == null)
+                .collect(toImmutableList());
+
+        CompletableFuture<?> previous = completedFuture(null);
+        for (Map.Entry<CatalogSchemaTableName, CacheInfoPair> entry : changed.stream()
+                .sorted(Map.Entry.comparingByValue(comparingLong(CacheInfoPair::getAccessCount).reversed()))
+                .collect(toImmutableList())) {
+            CacheInfo cacheInfo = newMdl.getCacheInfo(entry.getKey()).orElseThrow();
+            previous = enqueueTask(previous, newMdl, cacheInfo, taskInfo -> revalidateCache(newMdl, cacheInfo, entry.getValue(), taskInfo));
+        }
+        if (oldMdl == EMPTY) {
+            return;
+        }
+        for (CacheInfo cacheInfo : added) {
+            previous = enqueueTask(previous, newMdl, cacheInfo, taskInfo -> doCache(newMdl, cacheInfo, taskInfo)
+                    .thenRun(() -> scheduleRefresh(newMdl, cacheInfo, cacheInfo.getRefreshTime().toMillis())));
+        }
+    }
+
+    /**
+     * Registers a task which starts once the previous one and the running task of the same cache are done.
+     *
+     * @return a future completed when the task is done, whether it fails or not
+     */
+    private CompletableFuture<?> enqueueTask(CompletableFuture<?> previous, AccioMDL mdl, CacheInfo cacheInfo, Function<TaskInfo, CompletableFuture<Void>> action)
+    {
+        CatalogSchemaTableName catalogSchemaTableName = catalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
+        Optional<CompletableFuture<?>> running = Optional.ofNullable(tasks.get(catalogSchemaTableName)).map(task -> task.completableFuture);
+        TaskInfo taskInfo = new TaskInfo(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName(), RUNNING, Instant.now());
+        CompletableFuture<Void> future = previous
+                .thenCompose(ignored -> running.<CompletableFuture<?>>map(runningFuture -> runningFuture.handle((result, e) -> null)).orElse(completedFuture(null)))
+                .thenComposeAsync(ignored -> action.apply(taskInfo), executorService);
+        tasks.put(catalogSchemaTableName, new Task(taskInfo, future));
+        return future.handle((result, e) -> null);
+    }
+
+    private boolean isSameCacheSql(AccioMDL oldMdl, CacheInfo oldCacheInfo, AccioMDL newMdl, CacheInfo newCacheInfo)
+    {
+        try {
+            return generateCacheSql(oldMdl, oldCacheInfo).equals(generateCacheSql(newMdl, newCacheInfo));
+        }
+        catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rebuilds the cache while the stale one keeps serving queries; the stale one is dropped once the
+     * new one replaces it. If the rebuild fails, the stale one is kept until the next refresh and the
+     * returned future fails with the error.
+     */
+    private CompletableFuture<Void> revalidateCache(AccioMDL mdl, CacheInfo cacheInfo, CacheInfoPair staleCacheInfoPair, TaskInfo taskInfo)
+    {
+        CatalogSchemaTableName catalogSchemaTableName = catalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
+        Optional.ofNullable(cacheScheduledFutures.remove(catalogSchemaTableName)).ifPresent(future -> future.cancel(true));
+        return buildCache(mdl, cacheInfo, taskInfo, currentTimeMillis())
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        staleCacheInfoPair.getTableName().ifPresent(this::dropCache);
+                    }
+                    scheduleRefresh(mdl, cacheInfo, cacheInfo.getRefreshTime().toMillis());
+                });
+    }
+
     public boolean cacheScheduledFutureExists(CatalogSchemaTableName catalogSchemaTableName)
     {
         return cacheScheduledFutures.containsKey(catalogSchemaTableName);
@@ -243,6 +608,7 @@ public class CacheManager
     public void stop()
     {
         refreshExecutor.shutdown();
+        downloadExecutor.shutdownNow();
         cleanTempFiles();
     }
 
@@ -265,6 +631,78 @@ public class CacheManager
         }
     }
 
+    /**
+     * Creates the caches defined in the given mdl. If duckdb is backed by a file, the caches still fresh
+     * from the previous run are reattached and the others are refreshed in the background. Otherwise,
+     * this waits until all caches are created.
+     */
+    public void initializeCache(AccioMDL mdl)
+    {
+        cleanOrphanLocalParquet();
+        if (!cacheManifest.isPersistent()) {
+            createTaskUntilDone(mdl);
+            return;
+        }
+
+        Set<String> duckdbTables = ImmutableSet.copyOf(duckdbClient.listTables());
+        Set<CatalogSchemaTableName> reattached = new HashSet<>();
+        for (CacheInfo cacheInfo : mdl.listCached()) {
+            CatalogSchemaTableName catalogSchemaTableName = catalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
+            Optional<CacheManifest.Entry> entry = cacheManifest.get(catalogSchemaTableName)
+                    .filter(manifestEntry -> duckdbTables.contains(manifestEntry.getTableName()))
+                    .filter(manifestEntry -> isReattachable(mdl, cacheInfo, manifestEntry));
+            if (entry.isPresent()) {
+                reattachCache(mdl, cacheInfo, entry.get());
+                reattached.add(catalogSchemaTableName);
+            }
+        }
+
+        // drop the caches left by the previous run which are stale or no longer defined in the mdl
+        cacheManifest.listEntries().stream()
+                .filter(entry -> !reattached.contains(entry.getCatalogSchemaTableName()))
+                .forEach(entry -> {
+                    dropCache(entry.getTableName());
+                    cacheManifest.remove(entry.getCatalogSchemaTableName());
+                });
+
+        mdl.listCached().stream()
+                .filter(cacheInfo -> !reattached.contains(catalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName())))
+                .forEach(cacheInfo -> createTask(mdl, cacheInfo));
+    }
+
+    private boolean isReattachable(AccioMDL mdl, CacheInfo cacheInfo, CacheManifest.Entry entry)
+    {
+        long refreshTime = cacheInfo.getRefreshTime().toMillis();
+        if (refreshTime > 0 && entry.getCreateTime() + refreshTime <= currentTimeMillis()) {
+            return false;
+        }
+        return isSameSource(mdl, cacheInfo, entry);
+    }
+
+    private boolean isSameSource(AccioMDL mdl, CacheInfo cacheInfo, CacheManifest.Entry entry)
+    {
+        try {
+            return entry.getSourceHash().equals(sourceHash(generateCacheSql(mdl, cacheInfo)));
+        }
+        catch (Exception e) {
+            LOG.warn(e, "Failed to generate cache sql for %s; the cache will be refreshed", entry.getCatalogSchemaTableName());
+            return false;
+        }
+    }
+
+    private void reattachCache(AccioMDL mdl, CacheInfo cacheInfo, CacheManifest.Entry entry)
+    {
+        CatalogSchemaTableName catalogSchemaTableName = entry.getCatalogSchemaTableName();
+        CacheInfoPair cacheInfoPair = new CacheInfoPair(cacheInfo, entry.getTableName(), entry.getCreateTime());
+        cachedTableMapping.putCachedTableMapping(catalogSchemaTableName, cacheInfoPair);
+        cacheEvictor.admit(cacheInfoPair);
+        cacheStats.recordReattach(catalogSchemaTableName, entry.getCreateTime(), countRows(entry.getTableName()));
+        TaskInfo taskInfo = new TaskInfo(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName(), RUNNING, Instant.now());
+        tasks.put(catalogSchemaTableName, new Task(taskInfo, completedFuture(null)));
+        scheduleRefresh(mdl, cacheInfo, max(0, entry.getCreateTime() + cacheInfo.getRefreshTime().toMillis() - currentTimeMillis()));
+        LOG.info("Reattached cache %s to duckdb table %s", catalogSchemaTableName, entry.getTableName());
+    }
+
     public List<TaskInfo> createTaskUntilDone(AccioMDL mdl)
     {
         return createTask(mdl)
@@ -279,10 +717,33 @@ public class CacheManager
                 .join();
     }
 
+    /**
+     * Creates a task for each cache in the given mdl. Caches which are being built, or already built from
+     * the same sql, are skipped and their current task is returned instead.
+     */
     public CompletableFuture<List<TaskInfo>> createTask(AccioMDL mdl)
     {
         return supplyAsync(() ->
-                mdl.listCached().stream().map(cacheInfo -> createTask(mdl, cacheInfo).join()).collect(toList()));
+                mdl.listCached().stream()
+                        .map(cacheInfo -> getCurrentTask(mdl, cacheInfo)
+                                .map(task -> TaskInfo.copyFrom(task.getTaskInfo()))
+                                .orElseGet(() -> createTask(mdl, cacheInfo).join()))
+                        .collect(toList()));
+    }
+
+    private Optional<Task> getCurrentTask(AccioMDL mdl, CacheInfo cacheInfo)
+    {
+        CatalogSchemaTableName catalogSchemaTableName = catalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
+        Optional<Task> task = Optional.ofNullable(tasks.get(catalogSchemaTableName));
+        if (task.isEmpty() || task.get().getTaskInfo().inProgress()) {
+            return task;
+        }
+        Optional<String> tableName = Optional.ofNullable(cachedTableMapping.get(catalogSchemaTableName)).flatMap(CacheInfoPair::getTableName);
+        boolean unchanged = tableName.isPresent() && cacheManifest.get(catalogSchemaTableName)
+                .filter(entry -> entry.getTableName().equals(tableName.get()))
+                .filter(entry -> isSameSource(mdl, cacheInfo, entry))
+                .isPresent();
+        return unchanged ? task : Optional.empty();
     }
 
     public CompletableFuture<TaskInfo> createTask(AccioMDL mdl, CacheInfo cacheInfo)
@@ -291,7 +752,8 @@ public class CacheManager
             CatalogSchemaTableName catalogSchemaTableName = new CatalogSchemaTableName(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName());
             TaskInfo taskInfo = new TaskInfo(mdl.getCatalog(), mdl.getSchema(), cacheInfo.getName(), RUNNING, Instant.now());
             // To fix flaky test, we pass value to tasks instead of a reference;
-            Task task = new Task(TaskInfo.copyFrom(taskInfo), handleCache(mdl, cacheInfo));
+            TaskInfo taskProgress = TaskInfo.copyFrom(taskInfo);
+            Task task = new Task(taskProgress, handleCache(mdl, cacheInfo, taskProgress));
             tasks.put(catalogSchemaTableName, task);
             return taskInfo;
         });
@@ -339,16 +801,18 @@ public class CacheManager
             this.taskInfo = taskInfo;
             this.completableFuture =
                     completableFuture
-                            .thenRun(() -> {
+                            .handle((result, e) -> {
                                 CacheInfoPair cacheInfoPair = cachedTableMapping.getCacheInfoPair(
                                         taskInfo.getCatalogName(),
                                         taskInfo.getSchemaName(), taskInfo.getTableName());
+                                // a failed rebuild leaves the stale cache mapped
                                 taskInfo.setCachedTable(new CachedTable(
                                         cacheInfoPair.getCacheInfo().getName(),
-                                        cacheInfoPair.getErrorMessage(),
+                                        e == null ? cacheInfoPair.getErrorMessage() : Optional.of(getErrorMessage(e)),
                                         cacheInfoPair.getCacheInfo().getRefreshTime(),
                                         Instant.ofEpochMilli(cacheInfoPair.getCreateTime())));
                                 taskInfo.setTaskStatus(DONE);
+                                return null;
                             });
         }
 
@@ -0,0 +1,202 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import io.accio.base.CatalogSchemaTableName;
+import io.airlift.log.Logger;
+
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.accio.base.CatalogSchemaTableName.catalogSchemaTableName;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records the caches stored in a file-backed duckdb database, so they can be reattached after a restart.
+ * The manifest is kept next to the database file. Nothing is recorded if duckdb runs in memory.
+ */
+public class CacheManifest
+{
+    private static final Logger LOG = Logger.get(CacheManifest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Entry>> ENTRIES_TYPE = new TypeReference<>() {};
+
+    private final Optional<Path> manifestFile;
+    private final Map<CatalogSchemaTableName, Entry> entries = new HashMap<>();
+
+    @Inject
+    public CacheManifest(DuckdbConfig duckdbConfig)
+    {
+        this(duckdbConfig.getDatabaseFile().map(file -> file.resolveSibling(file.getFileName() + ".manifest.json")));
+    }
+
+    private CacheManifest(Optional<Path> manifestFile)
+    {
+        this.manifestFile = requireNonNull(manifestFile, "manifestFile is null");
+        manifestFile.filter(Files::exists).ifPresent(this::load);
+    }
+
+    public boolean isPersistent()
+    {
+        return manifestFile.isPresent();
+    }
+
+    public synchronized Optional<Entry> get(CatalogSchemaTableName catalogSchemaTableName)
+    {
+        return Optional.ofNullable(entries.get(catalogSchemaTableName));
+    }
+
+    public synchronized List<Entry> listEntries()
+    {
+        return ImmutableList.copyOf(entries.values());
+    }
+
+    public synchronized void put(Entry entry)
+    {
+        if (!isPersistent()) {
+            return;
+        }
+        Entry existed = entries.get(entry.getCatalogSchemaTableName());
+        if (existed != null && existed.getCreateTime() > entry.getCreateTime()) {
+            return;
+        }
+        entries.put(entry.getCatalogSchemaTableName(), entry);
+        store();
+    }
+
+    public synchronized void remove(CatalogSchemaTableName catalogSchemaTableName)
+    {
+        if (entries.remove(catalogSchemaTableName) != null) {
+            store();
+        }
+    }
+
+    private void load(Path file)
+    {
+        try {
+            List<Entry> loaded = MAPPER.readValue(Files.readString(file), ENTRIES_TYPE);
+            loaded.forEach(entry -> entries.put(entry.getCatalogSchemaTableName(), entry));
+        }
+        catch (IOException e) {
+            // a broken manifest only means the caches will be rebuilt
+            LOG.warn(e, "Failed to load cache manifest %s", file);
+        }
+    }
+
+    private void store()
+    {
+        Path file = manifestFile.orElseThrow();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(tempFile, MAPPER.writeValueAsString(ImmutableList.copyOf(entries.values())), UTF_8);
+            Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            // the caches are live already, a stale manifest only means they will be rebuilt after a restart
+            LOG.error(e, "Failed to store cache manifest %s", file);
+        }
+    }
+
+    public static class Entry
+    {
+        private final String catalogName;
+        private final String schemaName;
+        private final String name;
+        private final String tableName;
+        private final String sourceHash;
+        private final long createTime;
+
+        @JsonCreator
+        public Entry(
+                @JsonProperty("catalogName") String catalogName,
+                @JsonProperty("schemaName") String schemaName,
+                @JsonProperty("name") String name,
+                @JsonProperty("tableName") String tableName,
+                @JsonProperty("sourceHash") String sourceHash,
+                @JsonProperty("createTime") long createTime)
+        {
+            this.catalogName = requireNonNull(catalogName, "catalogName is null");
+            this.schemaName = requireNonNull(schemaName, "schemaName is null");
+            this.name = requireNonNull(name, "name is null");
+            this.tableName = requireNonNull(tableName, "tableName is null");
+            this.sourceHash = requireNonNull(sourceHash, "sourceHash is null");
+            this.createTime = createTime;
+        }
+
+        @JsonIgnore
+        public CatalogSchemaTableName getCatalogSchemaTableName()
+        {
+            return catalogSchemaTableName(catalogName, schemaName, name);
+        }
+
+        @JsonProperty
+        public String getCatalogName()
+        {
+            return catalogName;
+        }
+
+        @JsonProperty
+        public String getSchemaName()
+        {
+            return schemaName;
+        }
+
+        @JsonProperty
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the duckdb table holding the cached data
+         */
+        @JsonProperty
+        public String getTableName()
+        {
+            return tableName;
+        }
+
+        /**
+         * @return the hash of the sql generated from the mdl to build this cache
+         */
+        @JsonProperty
+        public String getSourceHash()
+        {
+            return sourceHash;
+        }
+
+        @JsonProperty
+        public long getCreateTime()
+        {
+            return createTime;
+        }
+    }
+}
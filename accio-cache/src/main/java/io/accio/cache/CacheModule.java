@@ -15,11 +15,19 @@
 package io.accio.cache;
 
 import com.google.inject.Binder;
+import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.Singleton;
 import io.accio.base.client.duckdb.DuckdbClient;
 import io.airlift.configuration.AbstractConfigurationAwareModule;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
 import static io.airlift.configuration.ConfigBinder.configBinder;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class CacheModule
         extends AbstractConfigurationAwareModule
@@ -30,7 +38,30 @@ public class CacheModule
         configBinder(binder).bindConfig(DuckdbS3StyleStorageConfig.class);
         binder.bind(CacheStorageConfig.class).to(DuckdbS3StyleStorageConfig.class).in(Scopes.SINGLETON);
         binder.bind(CacheManager.class).in(Scopes.SINGLETON);
-        binder.bind(DuckdbClient.class).in(Scopes.SINGLETON);
+        configBinder(binder).bindConfig(DuckdbConfig.class);
+        binder.bind(CacheManifest.class).in(Scopes.SINGLETON);
+        binder.bind(CacheEvictor.class).in(Scopes.SINGLETON);
+        binder.bind(CacheStats.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(CacheStats.class).withGeneratedName();
         binder.bind(CachedTableMapping.class).to(DefaultCachedTableMapping.class).in(Scopes.SINGLETON);
     }
+
+    @Provides
+    @Singleton
+    public static DuckdbClient provideDuckdbClient(DuckdbConfig config)
+            throws IOException
+    {
+        Optional<Path> databaseFile = config.getDatabaseFile().map(Path::toAbsolutePath);
+        if (databaseFile.isPresent()) {
+            Files.createDirectories(databaseFile.get().getParent());
+        }
+        return DuckdbClient.builder()
+                .setDatabaseFile(databaseFile)
+                .setThreads(config.getThreads())
+                .setMemoryLimit(config.getMemoryLimit())
+                .setInteractiveConnections(config.getInteractiveConnections())
+                .setInteractiveAcquireTimeout(config.getInteractiveAcquireTimeout())
+                .setBackgroundConnections(config.getBackgroundConnections())
+                .build();
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The time spent in each phase of a single cache refresh: exporting the data from the data source,
+ * downloading the exported files and loading them into duckdb.
+ */
+class CacheRefresh
+{
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong exportedBytes = new AtomicLong();
+    private volatile long exportNanos;
+    private volatile long downloadNanos;
+    private volatile long loadNanos;
+
+    <T> T timeExport(Supplier<T> export)
+    {
+        long start = System.nanoTime();
+        try {
+            return export.get();
+        }
+        finally {
+            exportNanos += System.nanoTime() - start;
+        }
+    }
+
+    void timeDownload(Runnable download)
+    {
+        long start = System.nanoTime();
+        try {
+            download.run();
+        }
+        finally {
+            downloadNanos += System.nanoTime() - start;
+        }
+    }
+
+    void timeLoad(Runnable load)
+    {
+        long start = System.nanoTime();
+        try {
+            load.run();
+        }
+        finally {
+            loadNanos += System.nanoTime() - start;
+        }
+    }
+
+    void addExportedBytes(long bytes)
+    {
+        exportedBytes.addAndGet(bytes);
+    }
+
+    long getElapsedNanos()
+    {
+        return System.nanoTime() - startNanos;
+    }
+
+    long getExportNanos()
+    {
+        return exportNanos;
+    }
+
+    long getDownloadNanos()
+    {
+        return downloadNanos;
+    }
+
+    long getLoadNanos()
+    {
+        return loadNanos;
+    }
+
+    /**
+     * @return the size of the exported files, 0 if they are read by duckdb in place instead of downloaded
+     */
+    long getExportedBytes()
+    {
+        return exportedBytes.get();
+    }
+}
@@ -13,11 +13,29 @@
  */
 package io.accio.cache;
 
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * Exports caches to a remote target and fetches them back. {@link CacheManager} exports a cache with
+ * {@link #createCache}, then either lets duckdb read the target directly through
+ * {@link CacheStorageConfig#generateDuckdbParquetStatement}, or lists the exported files with
+ * {@link #listTargetFiles} and downloads them in parallel with {@link #downloadTargetFile}.
+ */
 public interface CacheService
 {
     Optional<PathInfo> createCache(String catalog, String schema, String name, String statement);
 
     void deleteTarget(PathInfo pathInfo);
+
+    /**
+     * @return the names of the files exported to the given target, excluding folders
+     */
+    List<String> listTargetFiles(PathInfo pathInfo);
+
+    /**
+     * Downloads one of the files returned by {@link #listTargetFiles}. It's called concurrently for different files.
+     */
+    void downloadTargetFile(PathInfo pathInfo, String fileName, Path localFile);
 }
@@ -0,0 +1,238 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.accio.base.CatalogSchemaTableName;
+import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Usage and refresh cost of the caches, in total and per cached table. The statistics of each cached
+ * table are exported as a separate MBean once the table is cached or queried.
+ */
+public class CacheStats
+{
+    private static final Logger LOG = Logger.get(CacheStats.class);
+
+    private final MBeanExporter exporter;
+    private final Map<CatalogSchemaTableName, CachedObjectStats> cachedObjects = new ConcurrentHashMap<>();
+
+    private final CounterStat cacheQueries = new CounterStat();
+    private final CounterStat fallbackQueries = new CounterStat();
+    private final TimeStat cacheQueryTime = new TimeStat(MILLISECONDS);
+    private final CounterStat refreshFailures = new CounterStat();
+    private final TimeStat refreshTime = new TimeStat(MILLISECONDS);
+    private final TimeStat exportTime = new TimeStat(MILLISECONDS);
+    private final TimeStat downloadTime = new TimeStat(MILLISECONDS);
+    private final TimeStat loadTime = new TimeStat(MILLISECONDS);
+    private final CounterStat exportedBytes = new CounterStat();
+
+    @Inject
+    public CacheStats(MBeanExporter exporter)
+    {
+        this.exporter = requireNonNull(exporter, "exporter is null");
+    }
+
+    /**
+     * Records a query answered by the given cached tables.
+     */
+    public void recordCacheQuery(Collection<CatalogSchemaTableName> cachedTables, long nanos)
+    {
+        cacheQueries.update(1);
+        cacheQueryTime.add(nanos, NANOSECONDS);
+        cachedTables.forEach(cachedTable -> get(cachedTable).recordCacheQuery(nanos));
+    }
+
+    /**
+     * Records a query routed to the given cached tables which failed on them and fell back to the data source.
+     */
+    public void recordFallback(Collection<CatalogSchemaTableName> cachedTables)
+    {
+        fallbackQueries.update(1);
+        cachedTables.forEach(cachedTable -> get(cachedTable).recordFallback());
+    }
+
+    void recordRefresh(CatalogSchemaTableName cachedTable, CacheRefresh refresh, long createTime, long rows)
+    {
+        refreshTime.add(refresh.getElapsedNanos(), NANOSECONDS);
+        exportTime.add(refresh.getExportNanos(), NANOSECONDS);
+        if (refresh.getDownloadNanos() > 0) {
+            downloadTime.add(refresh.getDownloadNanos(), NANOSECONDS);
+        }
+        loadTime.add(refresh.getLoadNanos(), NANOSECONDS);
+        exportedBytes.update(refresh.getExportedBytes());
+        get(cachedTable).recordRefresh(refresh, createTime, rows);
+    }
+
+    void recordReattach(CatalogSchemaTableName cachedTable, long createTime, long rows)
+    {
+        get(cachedTable).recordReattach(createTime, rows);
+    }
+
+    void recordRefreshFailure(CatalogSchemaTableName cachedTable)
+    {
+        refreshFailures.update(1);
+        get(cachedTable).recordRefreshFailure();
+    }
+
+    /**
+     * Drops the statistics of a table which is no longer cached.
+     */
+    void remove(CatalogSchemaTableName cachedTable)
+    {
+        if (cachedObjects.remove(cachedTable) != null) {
+            try {
+                exporter.unexportWithGeneratedName(CachedObjectStats.class, objectNameProperties(cachedTable));
+            }
+            catch (RuntimeException e) {
+                LOG.debug(e, "Failed to unexport the cache statistics of %s", cachedTable);
+            }
+        }
+    }
+
+    public Optional<CachedObjectStats> get(String catalogName, String schemaName, String tableName)
+    {
+        return Optional.ofNullable(cachedObjects.get(new CatalogSchemaTableName(catalogName, schemaName, tableName)));
+    }
+
+    public List<CachedObjectStats> list()
+    {
+        return ImmutableList.copyOf(cachedObjects.values());
+    }
+
+    private CachedObjectStats get(CatalogSchemaTableName cachedTable)
+    {
+        CachedObjectStats stats = cachedObjects.get(cachedTable);
+        if (stats != null) {
+            return stats;
+        }
+        stats = new CachedObjectStats(cachedTable);
+        CachedObjectStats existing = cachedObjects.putIfAbsent(cachedTable, stats);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            exporter.exportWithGeneratedName(stats, CachedObjectStats.class, objectNameProperties(cachedTable));
+        }
+        catch (RuntimeException e) {
+            LOG.warn(e, "Failed to export the cache statistics of %s", cachedTable);
+        }
+        return stats;
+    }
+
+    // group the cached tables under the MBean of the totals
+    private static Map<String, String> objectNameProperties(CatalogSchemaTableName cachedTable)
+    {
+        return ImmutableMap.of(
+                "name", CacheStats.class.getSimpleName(),
+                "catalog", cachedTable.getCatalogName(),
+                "schema", cachedTable.getSchemaTableName().getSchemaName(),
+                "table", cachedTable.getSchemaTableName().getTableName());
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        cachedObjects.keySet().forEach(this::remove);
+    }
+
+    @Managed
+    public long getCachedObjectCount()
+    {
+        return cachedObjects.size();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getCacheQueries()
+    {
+        return cacheQueries;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getFallbackQueries()
+    {
+        return fallbackQueries;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getCacheQueryTime()
+    {
+        return cacheQueryTime;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRefreshFailures()
+    {
+        return refreshFailures;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getRefreshTime()
+    {
+        return refreshTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getExportTime()
+    {
+        return exportTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getDownloadTime()
+    {
+        return downloadTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getLoadTime()
+    {
+        return loadTime;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getExportedBytes()
+    {
+        return exportedBytes;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.cache.dto.CachedTableStats;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.airlift.units.DataSize.succinctBytes;
+import static io.airlift.units.Duration.succinctNanos;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * How much a single cached table is used, and how fresh and costly to refresh it is.
+ */
+public class CachedObjectStats
+{
+    private final CatalogSchemaTableName catalogSchemaTableName;
+    private final LongAdder cacheQueries = new LongAdder();
+    private final LongAdder fallbackQueries = new LongAdder();
+    private final TimeStat queryTime = new TimeStat(MILLISECONDS);
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    // the refreshed data, updated together by the refreshing thread
+    private volatile long rows;
+    private volatile long exportedBytes;
+    private volatile long lastRefreshTime;
+    private volatile long lastRefreshNanos;
+    private volatile long lastExportNanos;
+    private volatile long lastDownloadNanos;
+    private volatile long lastLoadNanos;
+
+    CachedObjectStats(CatalogSchemaTableName catalogSchemaTableName)
+    {
+        this.catalogSchemaTableName = requireNonNull(catalogSchemaTableName, "catalogSchemaTableName is null");
+    }
+
+    void recordCacheQuery(long nanos)
+    {
+        cacheQueries.increment();
+        queryTime.add(nanos, NANOSECONDS);
+    }
+
+    void recordFallback()
+    {
+        fallbackQueries.increment();
+    }
+
+    /**
+     * @param createTime the time the refreshed data was read from the data source
+     */
+    void recordRefresh(CacheRefresh refresh, long createTime, long rows)
+    {
+        refreshes.increment();
+        this.rows = rows;
+        this.exportedBytes = refresh.getExportedBytes();
+        this.lastRefreshNanos = refresh.getElapsedNanos();
+        this.lastExportNanos = refresh.getExportNanos();
+        this.lastDownloadNanos = refresh.getDownloadNanos();
+        this.lastLoadNanos = refresh.getLoadNanos();
+        this.lastRefreshTime = createTime;
+    }
+
+    /**
+     * Records a cache kept from a previous run, whose refresh cost is unknown.
+     */
+    void recordReattach(long createTime, long rows)
+    {
+        this.rows = rows;
+        this.lastRefreshTime = createTime;
+    }
+
+    void recordRefreshFailure()
+    {
+        refreshFailures.increment();
+    }
+
+    public CatalogSchemaTableName getCatalogSchemaTableName()
+    {
+        return catalogSchemaTableName;
+    }
+
+    @Managed
+    public long getCacheQueries()
+    {
+        return cacheQueries.sum();
+    }
+
+    @Managed(description = "Queries routed to the cache which failed on it and fell back to the data source")
+    public long getFallbackQueries()
+    {
+        return fallbackQueries.sum();
+    }
+
+    @Managed
+    public double getHitRatio()
+    {
+        long hits = getCacheQueries();
+        long total = hits + getFallbackQueries();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getQueryTime()
+    {
+        return queryTime;
+    }
+
+    @Managed
+    public long getRows()
+    {
+        return rows;
+    }
+
+    @Managed(description = "Size of the files exported by the last refresh, 0 if duckdb reads them in place")
+    public long getExportedBytes()
+    {
+        return exportedBytes;
+    }
+
+    @Managed(description = "Time since the data of the cache was read from the data source, -1 if it was never refreshed")
+    public long getAgeMillis()
+    {
+        long refreshTime = lastRefreshTime;
+        return refreshTime == 0 ? -1 : currentTimeMillis() - refreshTime;
+    }
+
+    @Managed
+    public long getRefreshes()
+    {
+        return refreshes.sum();
+    }
+
+    @Managed
+    public long getRefreshFailures()
+    {
+        return refreshFailures.sum();
+    }
+
+    @Managed
+    public long getLastRefreshMillis()
+    {
+        return NANOSECONDS.toMillis(lastRefreshNanos);
+    }
+
+    @Managed
+    public long getLastExportMillis()
+    {
+        return NANOSECONDS.toMillis(lastExportNanos);
+    }
+
+    @Managed
+    public long getLastDownloadMillis()
+    {
+        return NANOSECONDS.toMillis(lastDownloadNanos);
+    }
+
+    @Managed
+    public long getLastLoadMillis()
+    {
+        return NANOSECONDS.toMillis(lastLoadNanos);
+    }
+
+    public CachedTableStats toCachedTableStats()
+    {
+        long refreshTime = lastRefreshTime;
+        return new CachedTableStats(
+                catalogSchemaTableName.getCatalogName(),
+                catalogSchemaTableName.getSchemaTableName().getSchemaName(),
+                catalogSchemaTableName.getSchemaTableName().getTableName(),
+                getCacheQueries(),
+                getFallbackQueries(),
+                getHitRatio(),
+                queryTimePercentile(queryTime.getAllTime().getP50()),
+                queryTimePercentile(queryTime.getAllTime().getP99()),
+                rows,
+                succinctBytes(exportedBytes),
+                refreshTime == 0 ? Optional.empty() : Optional.of(Instant.ofEpochMilli(refreshTime)),
+                refreshTime == 0 ? Optional.empty() : Optional.of(new Duration(currentTimeMillis() - refreshTime, MILLISECONDS).convertToMostSuccinctTimeUnit()),
+                getRefreshes(),
+                getRefreshFailures(),
+                succinctNanos(lastRefreshNanos),
+                succinctNanos(lastExportNanos),
+                succinctNanos(lastDownloadNanos),
+                succinctNanos(lastLoadNanos));
+    }
+
+    private static Duration queryTimePercentile(double millis)
+    {
+        // the percentiles are NaN until a query is recorded
+        return Double.isNaN(millis) ? new Duration(0, MILLISECONDS) : new Duration(millis, MILLISECONDS).convertToMostSuccinctTimeUnit();
+    }
+}
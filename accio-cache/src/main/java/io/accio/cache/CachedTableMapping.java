@@ -32,6 +32,8 @@ public interface CachedTableMapping
 
     Optional<String> convertToCachedTable(CatalogSchemaTableName catalogSchemaTableName);
 
+    void recordAccess(CatalogSchemaTableName catalogSchemaTableName);
+
     Set<Map.Entry<CatalogSchemaTableName, CacheInfoPair>> entrySet();
 
     List<CacheInfoPair> getCacheInfoPairs(String catalogName, String schemaName);
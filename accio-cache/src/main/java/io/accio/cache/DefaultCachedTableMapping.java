@@ -43,17 +43,19 @@ public class DefaultCachedTableMapping
     @Override
     public void putCachedTableMapping(CatalogSchemaTableName catalogSchemaTableName, CacheInfoPair cacheInfoPair)
     {
+        Optional<String> unused;
         synchronized (cachedTableMapping) {
-            if (cachedTableMapping.containsKey(catalogSchemaTableName)) {
-                CacheInfoPair existedCacheInfoPair = cachedTableMapping.get(catalogSchemaTableName);
-                if (existedCacheInfoPair.getCreateTime() > cacheInfoPair.getCreateTime()) {
-                    cacheInfoPair.getTableName().ifPresent(duckdbClient::dropTableQuietly);
-                    return;
-                }
-                existedCacheInfoPair.getTableName().ifPresent(duckdbClient::dropTableQuietly);
+            CacheInfoPair existedCacheInfoPair = cachedTableMapping.get(catalogSchemaTableName);
+            if (existedCacheInfoPair != null && existedCacheInfoPair.getCreateTime() > cacheInfoPair.getCreateTime()) {
+                unused = cacheInfoPair.getTableName();
+            }
+            else {
+                unused = Optional.ofNullable(existedCacheInfoPair).flatMap(CacheInfoPair::getTableName);
+                cachedTableMapping.put(catalogSchemaTableName, cacheInfoPair);
             }
-            cachedTableMapping.put(catalogSchemaTableName, cacheInfoPair);
         }
+        // no query is routed to the unused table anymore, drop it without holding up other mapping updates
+        unused.ifPresent(duckdbClient::dropTableQuietly);
     }
 
     @Override
@@ -80,6 +82,12 @@ public class DefaultCachedTableMapping
         return cachedTableMapping.get(catalogSchemaTableName).getTableName();
     }
 
+    @Override
+    public void recordAccess(CatalogSchemaTableName catalogSchemaTableName)
+    {
+        Optional.ofNullable(cachedTableMapping.get(catalogSchemaTableName)).ifPresent(CacheInfoPair::recordAccess);
+    }
+
     @Override
     public Set<Map.Entry<CatalogSchemaTableName, CacheInfoPair>> entrySet()
     {
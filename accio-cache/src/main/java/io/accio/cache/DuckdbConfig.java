@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class DuckdbConfig
+{
+    public enum EvictionPolicy
+    {
+        LRU,
+        LFU,
+    }
+
+    public enum CacheStorageMode
+    {
+        TABLE,
+        PARQUET_VIEW,
+    }
+
+    private Optional<Path> databaseFile = Optional.empty();
+    private CacheStorageMode cacheStorageMode = CacheStorageMode.TABLE;
+    private Optional<Path> parquetDirectory = Optional.empty();
+    private boolean localLoad;
+    private int downloadThreads = 8;
+    private Optional<Long> maxCacheRows = Optional.empty();
+    private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+    private Optional<Path> spillDirectory = Optional.empty();
+    private Optional<Integer> threads = Optional.empty();
+    private Optional<DataSize> memoryLimit = Optional.empty();
+    private int interactiveConnections = 16;
+    private Duration interactiveAcquireTimeout = new Duration(1, MINUTES);
+    private int backgroundConnections = 2;
+
+    @Config("duckdb.database-file")
+    @ConfigDescription("The file backing the duckdb database which keeps the caches across restarts; caches are kept in memory if not set")
+    public DuckdbConfig setDatabaseFile(String databaseFile)
+    {
+        this.databaseFile = Optional.ofNullable(databaseFile).map(Path::of);
+        return this;
+    }
+
+    public Optional<Path> getDatabaseFile()
+    {
+        return databaseFile;
+    }
+
+    @Config("duckdb.cache.storage-mode")
+    @ConfigDescription("How caches are stored; TABLE copies the exported data into duckdb tables, " +
+            "PARQUET_VIEW downloads the exported parquet files and queries them through duckdb views. Default is TABLE")
+    public DuckdbConfig setCacheStorageMode(CacheStorageMode cacheStorageMode)
+    {
+        this.cacheStorageMode = cacheStorageMode;
+        return this;
+    }
+
+    @NotNull
+    public CacheStorageMode getCacheStorageMode()
+    {
+        return cacheStorageMode;
+    }
+
+    @Config("duckdb.cache.parquet-directory")
+    @ConfigDescription("The directory the exported parquet files are downloaded to in PARQUET_VIEW mode")
+    public DuckdbConfig setParquetDirectory(String parquetDirectory)
+    {
+        this.parquetDirectory = Optional.ofNullable(parquetDirectory).map(Path::of);
+        return this;
+    }
+
+    public Optional<Path> getParquetDirectory()
+    {
+        return parquetDirectory;
+    }
+
+    @Config("duckdb.cache.local-load")
+    @ConfigDescription("Download the exported files in parallel and load them from local disk instead of reading them through httpfs in TABLE mode")
+    public DuckdbConfig setLocalLoad(boolean localLoad)
+    {
+        this.localLoad = localLoad;
+        return this;
+    }
+
+    public boolean isLocalLoad()
+    {
+        return localLoad;
+    }
+
+    @Config("duckdb.cache.download-threads")
+    @ConfigDescription("The maximum number of exported files downloaded concurrently; default is 8")
+    public DuckdbConfig setDownloadThreads(int downloadThreads)
+    {
+        this.downloadThreads = downloadThreads;
+        return this;
+    }
+
+    @Min(1)
+    public int getDownloadThreads()
+    {
+        return downloadThreads;
+    }
+
+    @AssertTrue(message = "duckdb.cache.parquet-directory must be set in PARQUET_VIEW mode")
+    public boolean isParquetDirectoryValid()
+    {
+        return cacheStorageMode != CacheStorageMode.PARQUET_VIEW || parquetDirectory.isPresent();
+    }
+
+    @Config("duckdb.cache.max-rows")
+    @ConfigDescription("The maximum number of rows held in memory by all caches; caches are evicted by the eviction policy once exceeded")
+    public DuckdbConfig setMaxCacheRows(Long maxCacheRows)
+    {
+        this.maxCacheRows = Optional.ofNullable(maxCacheRows);
+        return this;
+    }
+
+    public Optional<Long> getMaxCacheRows()
+    {
+        return maxCacheRows;
+    }
+
+    @Config("duckdb.cache.eviction-policy")
+    @ConfigDescription("The policy choosing which cache to evict first; LRU or LFU, default is LRU")
+    public DuckdbConfig setEvictionPolicy(EvictionPolicy evictionPolicy)
+    {
+        this.evictionPolicy = evictionPolicy;
+        return this;
+    }
+
+    @NotNull
+    public EvictionPolicy getEvictionPolicy()
+    {
+        return evictionPolicy;
+    }
+
+    @Config("duckdb.cache.spill-directory")
+    @ConfigDescription("The directory evicted caches are spilled to as parquet files; evicted caches are dropped if not set")
+    public DuckdbConfig setSpillDirectory(String spillDirectory)
+    {
+        this.spillDirectory = Optional.ofNullable(spillDirectory).map(Path::of);
+        return this;
+    }
+
+    public Optional<Path> getSpillDirectory()
+    {
+        return spillDirectory;
+    }
+
+    @Config("duckdb.threads")
+    @ConfigDescription("The number of threads duckdb runs queries with; duckdb uses all cores if not set")
+    public DuckdbConfig setThreads(Integer threads)
+    {
+        this.threads = Optional.ofNullable(threads);
+        return this;
+    }
+
+    public Optional<Integer> getThreads()
+    {
+        return threads;
+    }
+
+    @Config("duckdb.memory-limit")
+    @ConfigDescription("The maximum memory duckdb uses before spilling to disk; duckdb uses 80% of the RAM if not set")
+    public DuckdbConfig setMemoryLimit(DataSize memoryLimit)
+    {
+        this.memoryLimit = Optional.ofNullable(memoryLimit);
+        return this;
+    }
+
+    public Optional<DataSize> getMemoryLimit()
+    {
+        return memoryLimit;
+    }
+
+    @Config("duckdb.interactive.max-connections")
+    @ConfigDescription("The maximum number of queries served from the caches concurrently; default is 16")
+    public DuckdbConfig setInteractiveConnections(int interactiveConnections)
+    {
+        this.interactiveConnections = interactiveConnections;
+        return this;
+    }
+
+    @Min(1)
+    public int getInteractiveConnections()
+    {
+        return interactiveConnections;
+    }
+
+    @Config("duckdb.interactive.acquire-timeout")
+    @ConfigDescription("How long a query waits when all interactive connections are in use; default is 1m")
+    public DuckdbConfig setInteractiveAcquireTimeout(Duration interactiveAcquireTimeout)
+    {
+        this.interactiveAcquireTimeout = interactiveAcquireTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getInteractiveAcquireTimeout()
+    {
+        return interactiveAcquireTimeout;
+    }
+
+    @Config("duckdb.background.max-connections")
+    @ConfigDescription("The maximum number of cache builds, spills and drops running in duckdb concurrently; others queue up, default is 2")
+    public DuckdbConfig setBackgroundConnections(int backgroundConnections)
+    {
+        this.backgroundConnections = backgroundConnections;
+        return this;
+    }
+
+    @Min(1)
+    public int getBackgroundConnections()
+    {
+        return backgroundConnections;
+    }
+}
@@ -14,6 +14,7 @@
 package io.accio.cache;
 
 import com.google.common.collect.ImmutableList;
+import io.accio.base.Cancellation;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.Parameter;
 import io.accio.base.client.AutoCloseableIterator;
@@ -40,16 +41,25 @@ public class DuckdbRecordIterator
     public static DuckdbRecordIterator of(Client client, String sql, List<Parameter> parameters)
             throws SQLException
     {
-        return new DuckdbRecordIterator(client, sql, parameters);
+        return of(client, sql, parameters, new Cancellation());
     }
 
-    private DuckdbRecordIterator(Client client, String sql, List<Parameter> parameters)
+    /**
+     * The query is interrupted once the cancellation is canceled.
+     */
+    public static DuckdbRecordIterator of(Client client, String sql, List<Parameter> parameters, Cancellation cancellation)
+            throws SQLException
+    {
+        return new DuckdbRecordIterator(client, sql, parameters, cancellation);
+    }
+
+    private DuckdbRecordIterator(Client client, String sql, List<Parameter> parameters, Cancellation cancellation)
             throws SQLException
     {
         requireNonNull(client, "client is null");
         requireNonNull(sql, "sql is null");
         requireNonNull(parameters, "parameters is null");
-        JdbcRecordIterator jdbcRecordIterator = JdbcRecordIterator.of(client, sql, parameters);
+        JdbcRecordIterator jdbcRecordIterator = JdbcRecordIterator.of(client, sql, parameters, cancellation);
         this.recordIterator = jdbcRecordIterator;
 
         ResultSetMetaData resultSetMetaData = jdbcRecordIterator.getResultSetMetaData();
@@ -20,6 +20,7 @@ import io.airlift.configuration.ConfigSecuritySensitive;
 
 import java.util.Optional;
 
+import static io.accio.base.client.duckdb.DuckdbClient.quoteLiteral;
 import static java.lang.String.format;
 
 public class DuckdbS3StyleStorageConfig
@@ -110,7 +111,7 @@ public class DuckdbS3StyleStorageConfig
         secretKey.ifPresent(secretKey -> sb.append(format("SET s3_secret_access_key='%s';\n", secretKey)));
         sb.append(format("SET s3_url_style='%s';\n", urlStyle));
         sb.append("BEGIN TRANSACTION;\n");
-        sb.append(format("CREATE TABLE \"%s\" AS SELECT * FROM read_parquet('s3://%s');", tableName, path));
+        sb.append(format("CREATE TABLE \"%s\" AS SELECT * FROM read_parquet(%s);", tableName, quoteLiteral("s3://" + path)));
         sb.append("COMMIT;\n");
         return sb.toString();
     }
@@ -36,7 +36,9 @@ public class TaskInfo
                 taskInfo.getTaskStatus(),
                 taskInfo.getCachedTable(),
                 taskInfo.getStartTime(),
-                taskInfo.getEndTime());
+                taskInfo.getEndTime(),
+                taskInfo.getTotalFiles(),
+                taskInfo.getLoadedFiles());
     }
 
     public enum TaskStatus
@@ -68,10 +70,12 @@ public class TaskInfo
     private TaskStatus taskStatus;
     private final Instant startTime;
     private Instant endTime;
+    private Integer totalFiles;
+    private Integer loadedFiles;
 
     public TaskInfo(String catalogName, String schemaName, String tableName, TaskStatus taskStatus, Instant startTime)
     {
-        this(catalogName, schemaName, tableName, taskStatus, null, startTime, null);
+        this(catalogName, schemaName, tableName, taskStatus, null, startTime, null, null, null);
     }
 
     @JsonCreator
@@ -82,7 +86,9 @@ public class TaskInfo
             @JsonProperty("taskStatus") TaskStatus taskStatus,
             @JsonProperty("cachedTable") CachedTable cachedTable,
             @JsonProperty("startTime") Instant startTime,
-            @JsonProperty("endTime") Instant endTime)
+            @JsonProperty("endTime") Instant endTime,
+            @JsonProperty("totalFiles") Integer totalFiles,
+            @JsonProperty("loadedFiles") Integer loadedFiles)
 
     {
         this.catalogSchemaTableName = new CatalogSchemaTableName(requireNonNull(catalogName, "catalogName is null"),
@@ -92,6 +98,8 @@ public class TaskInfo
         this.cachedTable = cachedTable;
         this.startTime = requireNonNull(startTime, "startTime is null");
         this.endTime = endTime;
+        this.totalFiles = totalFiles;
+        this.loadedFiles = loadedFiles;
     }
 
     public boolean inProgress()
@@ -152,6 +160,32 @@ public class TaskInfo
         return endTime;
     }
 
+    /**
+     * @return the number of exported files to load; absent if the files are not loaded through local disk
+     */
+    @JsonProperty
+    public synchronized Integer getTotalFiles()
+    {
+        return totalFiles;
+    }
+
+    @JsonProperty
+    public synchronized Integer getLoadedFiles()
+    {
+        return loadedFiles;
+    }
+
+    public synchronized void setTotalFiles(int totalFiles)
+    {
+        this.totalFiles = totalFiles;
+        this.loadedFiles = 0;
+    }
+
+    public synchronized void incrementLoadedFiles()
+    {
+        loadedFiles = loadedFiles == null ? 1 : loadedFiles + 1;
+    }
+
     public TaskInfo setCachedTable(CachedTable cachedTable)
     {
         this.cachedTable = cachedTable;
@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+public class CachedTableStats
+{
+    private final String catalogName;
+    private final String schemaName;
+    private final String tableName;
+    private final long cacheQueries;
+    private final long fallbackQueries;
+    private final double hitRatio;
+    private final Duration queryTimeP50;
+    private final Duration queryTimeP99;
+    private final long rows;
+    private final DataSize exportedSize;
+    private final Optional<Instant> lastRefreshDate;
+    private final Optional<Duration> age;
+    private final long refreshes;
+    private final long refreshFailures;
+    private final Duration lastRefreshDuration;
+    private final Duration lastExportDuration;
+    private final Duration lastDownloadDuration;
+    private final Duration lastLoadDuration;
+
+    @JsonCreator
+    public CachedTableStats(
+            @JsonProperty("catalogName") String catalogName,
+            @JsonProperty("schemaName") String schemaName,
+            @JsonProperty("tableName") String tableName,
+            @JsonProperty("cacheQueries") long cacheQueries,
+            @JsonProperty("fallbackQueries") long fallbackQueries,
+            @JsonProperty("hitRatio") double hitRatio,
+            @JsonProperty("queryTimeP50") Duration queryTimeP50,
+            @JsonProperty("queryTimeP99") Duration queryTimeP99,
+            @JsonProperty("rows") long rows,
+            @JsonProperty("exportedSize") DataSize exportedSize,
+            @JsonProperty("lastRefreshDate") Optional<Instant> lastRefreshDate,
+            @JsonProperty("age") Optional<Duration> age,
+            @JsonProperty("refreshes") long refreshes,
+            @JsonProperty("refreshFailures") long refreshFailures,
+            @JsonProperty("lastRefreshDuration") Duration lastRefreshDuration,
+            @JsonProperty("lastExportDuration") Duration lastExportDuration,
+            @JsonProperty("lastDownloadDuration") Duration lastDownloadDuration,
+            @JsonProperty("lastLoadDuration") Duration lastLoadDuration)
+    {
+        this.catalogName = requireNonNull(catalogName, "catalogName is null");
+        this.schemaName = requireNonNull(schemaName, "schemaName is null");
+        this.tableName = requireNonNull(tableName, "tableName is null");
+        this.cacheQueries = cacheQueries;
+        this.fallbackQueries = fallbackQueries;
+        this.hitRatio = hitRatio;
+        this.queryTimeP50 = requireNonNull(queryTimeP50, "queryTimeP50 is null");
+        this.queryTimeP99 = requireNonNull(queryTimeP99, "queryTimeP99 is null");
+        this.rows = rows;
+        this.exportedSize = requireNonNull(exportedSize, "exportedSize is null");
+        this.lastRefreshDate = requireNonNull(lastRefreshDate, "lastRefreshDate is null");
+        this.age = requireNonNull(age, "age is null");
+        this.refreshes = refreshes;
+        this.refreshFailures = refreshFailures;
+        this.lastRefreshDuration = requireNonNull(lastRefreshDuration, "lastRefreshDuration is null");
+        this.lastExportDuration = requireNonNull(lastExportDuration, "lastExportDuration is null");
+        this.lastDownloadDuration = requireNonNull(lastDownloadDuration, "lastDownloadDuration is null");
+        this.lastLoadDuration = requireNonNull(lastLoadDuration, "lastLoadDuration is null");
+    }
+
+    @JsonProperty
+    public String getCatalogName()
+    {
+        return catalogName;
+    }
+
+    @JsonProperty
+    public String getSchemaName()
+    {
+        return schemaName;
+    }
+
+    @JsonProperty
+    public String getTableName()
+    {
+        return tableName;
+    }
+
+    @JsonProperty
+    public long getCacheQueries()
+    {
+        return cacheQueries;
+    }
+
+    @JsonProperty
+    public long getFallbackQueries()
+    {
+        return fallbackQueries;
+    }
+
+    @JsonProperty
+    public double getHitRatio()
+    {
+        return hitRatio;
+    }
+
+    @JsonProperty
+    public Duration getQueryTimeP50()
+    {
+        return queryTimeP50;
+    }
+
+    @JsonProperty
+    public Duration getQueryTimeP99()
+    {
+        return queryTimeP99;
+    }
+
+    @JsonProperty
+    public long getRows()
+    {
+        return rows;
+    }
+
+    @JsonProperty
+    public DataSize getExportedSize()
+    {
+        return exportedSize;
+    }
+
+    @JsonProperty
+    public Optional<Instant> getLastRefreshDate()
+    {
+        return lastRefreshDate;
+    }
+
+    @JsonProperty
+    public Optional<Duration> getAge()
+    {
+        return age;
+    }
+
+    @JsonProperty
+    public long getRefreshes()
+    {
+        return refreshes;
+    }
+
+    @JsonProperty
+    public long getRefreshFailures()
+    {
+        return refreshFailures;
+    }
+
+    @JsonProperty
+    public Duration getLastRefreshDuration()
+    {
+        return lastRefreshDuration;
+    }
+
+    @JsonProperty
+    public Duration getLastExportDuration()
+    {
+        return lastExportDuration;
+    }
+
+    @JsonProperty
+    public Duration getLastDownloadDuration()
+    {
+        return lastDownloadDuration;
+    }
+
+    @JsonProperty
+    public Duration getLastLoadDuration()
+    {
+        return lastLoadDuration;
+    }
+}
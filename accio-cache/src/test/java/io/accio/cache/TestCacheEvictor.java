@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.base.client.duckdb.DuckdbClient;
+import io.accio.base.dto.Model;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static io.accio.base.CatalogSchemaTableName.catalogSchemaTableName;
+import static io.accio.base.dto.Column.column;
+import static io.accio.base.type.StandardTypes.INTEGER;
+import static io.accio.cache.DuckdbConfig.EvictionPolicy.LFU;
+import static io.accio.cache.DuckdbConfig.EvictionPolicy.LRU;
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCacheEvictor
+{
+    private static final CatalogSchemaTableName ORDERS = catalogSchemaTableName("accio", "test", "Orders");
+    private static final CatalogSchemaTableName CUSTOMER = catalogSchemaTableName("accio", "test", "Customer");
+
+    @Test
+    public void testAdmittedCacheIsNotEvictedUnderLru()
+    {
+        assertAdmittedCacheIsKept(new DuckdbConfig().setMaxCacheRows(15L).setEvictionPolicy(LRU));
+    }
+
+    @Test
+    public void testAdmittedCacheIsNotEvictedUnderLfu()
+    {
+        assertAdmittedCacheIsKept(new DuckdbConfig().setMaxCacheRows(15L).setEvictionPolicy(LFU));
+    }
+
+    private static void assertAdmittedCacheIsKept(DuckdbConfig config)
+    {
+        DuckdbClient duckdbClient = new DuckdbClient();
+        CachedTableMapping cachedTableMapping = new DefaultCachedTableMapping(duckdbClient);
+        CacheEvictor cacheEvictor = new CacheEvictor(config, duckdbClient, cachedTableMapping, new CacheManifest(config));
+
+        CacheInfoPair orders = createCache(duckdbClient, cachedTableMapping, ORDERS, "orders_1", 1);
+        cacheEvictor.admit(orders);
+        orders.recordAccess();
+        orders.recordAccess();
+
+        // the build of the new cache started before the last access of the other one
+        CacheInfoPair customer = createCache(duckdbClient, cachedTableMapping, CUSTOMER, "customer_1", 2);
+        cacheEvictor.admit(customer);
+
+        assertThat(cachedTableMapping.get(CUSTOMER).getTableName()).contains("customer_1");
+        assertThat(cachedTableMapping.get(ORDERS).getTableName()).isEmpty();
+        assertThat(duckdbClient.listTables()).containsExactly("customer_1");
+    }
+
+    private static CacheInfoPair createCache(DuckdbClient duckdbClient, CachedTableMapping cachedTableMapping, CatalogSchemaTableName name, String tableName, long createTime)
+    {
+        duckdbClient.executeDDL(format("CREATE TABLE \"%s\" AS SELECT * FROM range(10) t(orderkey)", tableName));
+        CacheInfoPair cacheInfoPair = new CacheInfoPair(
+                Model.model(name.getSchemaTableName().getTableName(), "SELECT 1 AS orderkey", List.of(column("orderkey", INTEGER, null, true)), true),
+                tableName,
+                createTime);
+        cachedTableMapping.putCachedTableMapping(name, cacheInfoPair);
+        return cacheInfoPair;
+    }
+}
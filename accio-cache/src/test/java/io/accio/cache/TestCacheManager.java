@@ -0,0 +1,364 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import io.accio.base.AccioMDL;
+import io.accio.base.Cancellation;
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.client.AutoCloseableIterator;
+import io.accio.base.client.duckdb.DuckdbClient;
+import io.accio.base.dto.Manifest;
+import io.accio.base.dto.Model;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.accio.base.CatalogSchemaTableName.catalogSchemaTableName;
+import static io.accio.base.dto.Column.column;
+import static io.accio.base.type.StandardTypes.INTEGER;
+import static io.accio.cache.DuckdbConfig.CacheStorageMode.PARQUET_VIEW;
+import static io.accio.cache.TaskInfo.TaskStatus.RUNNING;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Test(singleThreaded = true)
+public class TestCacheManager
+{
+    private static final CatalogSchemaTableName ORDERS = catalogSchemaTableName("accio", "test", "Orders");
+    private static final CatalogSchemaTableName CUSTOMER = catalogSchemaTableName("accio", "test", "Customer");
+    private static final CatalogSchemaTableName LINEITEM = catalogSchemaTableName("accio", "test", "Lineitem");
+    private static final CatalogSchemaTableName NATION = catalogSchemaTableName("accio", "test", "Nation");
+
+    private Path directory;
+    private DuckdbConfig duckdbConfig;
+    private DuckdbClient duckdbClient;
+    private TestingCacheService cacheService;
+    private final List<CacheManager> cacheManagers = new ArrayList<>();
+    private CachedTableMapping cachedTableMapping;
+    private CacheManifest cacheManifest;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("cache-manager");
+        Path databaseFile = directory.resolve("cache.db");
+        duckdbConfig = new DuckdbConfig().setDatabaseFile(databaseFile.toString());
+        duckdbClient = new DuckdbClient(Optional.of(databaseFile));
+        cacheService = new TestingCacheService();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        cacheManagers.forEach(CacheManager::stop);
+        cacheManagers.clear();
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testReattachAfterRestart()
+    {
+        AccioMDL mdl = mdl(model("Orders", "SELECT 1 AS orderkey"));
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl);
+        waitForTask(cacheManager, ORDERS);
+        String tableName = cachedTableMapping.get(ORDERS).getRequiredTableName();
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+
+        // a restarted server loads the manifest stored by the previous one
+        cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl);
+        assertThat(cachedTableMapping.get(ORDERS).getRequiredTableName()).isEqualTo(tableName);
+        assertThat(cacheManifest.get(ORDERS).orElseThrow().getTableName()).isEqualTo(tableName);
+        assertThat(duckdbClient.listTables()).contains(tableName);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+    }
+
+    @Test
+    public void testRebuildMissingTableAfterRestart()
+    {
+        AccioMDL mdl = mdl(model("Orders", "SELECT 1 AS orderkey"));
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl);
+        waitForTask(cacheManager, ORDERS);
+        String tableName = cachedTableMapping.get(ORDERS).getRequiredTableName();
+        duckdbClient.dropTableQuietly(tableName);
+
+        cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl);
+        waitForTask(cacheManager, ORDERS);
+        String rebuilt = cachedTableMapping.get(ORDERS).getRequiredTableName();
+        assertThat(rebuilt).isNotEqualTo(tableName);
+        assertThat(duckdbClient.listTables()).contains(rebuilt);
+        assertThat(cacheManifest.get(ORDERS).orElseThrow().getTableName()).isEqualTo(rebuilt);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(2);
+    }
+
+    @Test
+    public void testRebuildChangedCacheAfterRestart()
+    {
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl(model("Orders", "SELECT 1 AS orderkey")));
+        waitForTask(cacheManager, ORDERS);
+        String tableName = cachedTableMapping.get(ORDERS).getRequiredTableName();
+
+        cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl(model("Orders", "SELECT 2 AS orderkey")));
+        waitForTask(cacheManager, ORDERS);
+        assertThat(cachedTableMapping.get(ORDERS).getRequiredTableName()).isNotEqualTo(tableName);
+        assertThat(duckdbClient.listTables()).doesNotContain(tableName);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(2);
+    }
+
+    @Test
+    public void testManifestFailureKeepsCache()
+            throws IOException
+    {
+        // the manifest can't be stored since its temporary file can't be written over a directory
+        Files.createDirectories(directory.resolve("cache.db.manifest.json.tmp"));
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl(model("Orders", "SELECT 1 AS orderkey")));
+        waitForTask(cacheManager, ORDERS);
+
+        CacheInfoPair cacheInfoPair = cachedTableMapping.get(ORDERS);
+        assertThat(cacheInfoPair.getErrorMessage()).isEmpty();
+        assertThat(duckdbClient.listTables()).contains(cacheInfoPair.getRequiredTableName());
+    }
+
+    @Test
+    public void testQueryRecordsAccess()
+            throws Exception
+    {
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl(model("Orders", "SELECT 1 AS orderkey")));
+        waitForTask(cacheManager, ORDERS);
+        CacheInfoPair cacheInfoPair = cachedTableMapping.get(ORDERS);
+
+        for (int i = 0; i < 3; i++) {
+            try (ConnectorRecordIterator iterator = cacheManager.query(
+                    format("SELECT count(*) FROM \"%s\"", cacheInfoPair.getRequiredTableName()),
+                    List.of(),
+                    List.of(ORDERS),
+                    new Cancellation())) {
+                assertThat(iterator.next()[0]).isEqualTo(10L);
+            }
+        }
+        assertThat(cacheInfoPair.getAccessCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testUpdateCache()
+    {
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl(
+                model("Orders", "SELECT 1 AS orderkey"),
+                model("Customer", "SELECT 1 AS orderkey"),
+                model("Lineitem", "SELECT 1 AS orderkey")));
+        List.of(ORDERS, CUSTOMER, LINEITEM).forEach(name -> waitForTask(cacheManager, name));
+        String orders = cachedTableMapping.get(ORDERS).getRequiredTableName();
+        String customer = cachedTableMapping.get(CUSTOMER).getRequiredTableName();
+        String lineitem = cachedTableMapping.get(LINEITEM).getRequiredTableName();
+
+        cacheManager.updateCache(
+                mdl(model("Orders", "SELECT 1 AS orderkey"), model("Customer", "SELECT 1 AS orderkey"), model("Lineitem", "SELECT 1 AS orderkey")),
+                mdl(model("Orders", "SELECT 1 AS orderkey"), model("Customer", "SELECT 2 AS orderkey"), model("Nation", "SELECT 1 AS orderkey")));
+        List.of(ORDERS, CUSTOMER, NATION).forEach(name -> waitForTask(cacheManager, name));
+
+        // kept
+        assertThat(cachedTableMapping.get(ORDERS).getRequiredTableName()).isEqualTo(orders);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+        // changed
+        String rebuilt = cachedTableMapping.get(CUSTOMER).getRequiredTableName();
+        assertThat(rebuilt).isNotEqualTo(customer);
+        assertThat(cacheService.getExports("Customer")).isEqualTo(2);
+        // removed
+        assertThat(cachedTableMapping.get(LINEITEM)).isNull();
+        assertThat(cacheManifest.get(LINEITEM)).isEmpty();
+        // new
+        String nation = cachedTableMapping.get(NATION).getRequiredTableName();
+        assertThat(cacheService.getExports("Nation")).isEqualTo(1);
+        assertThat(cacheManifest.get(NATION).orElseThrow().getTableName()).isEqualTo(nation);
+
+        assertThat(duckdbClient.listTables())
+                .contains(orders, rebuilt, nation)
+                .doesNotContain(customer, lineitem);
+    }
+
+    @Test
+    public void testFailedRebuildKeepsStaleCache()
+    {
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl(model("Orders", "SELECT 1 AS orderkey")));
+        waitForTask(cacheManager, ORDERS);
+        String tableName = cachedTableMapping.get(ORDERS).getRequiredTableName();
+
+        cacheService.setFailing("Orders", true);
+        cacheManager.updateCache(mdl(model("Orders", "SELECT 1 AS orderkey")), mdl(model("Orders", "SELECT 2 AS orderkey")));
+        waitForTask(cacheManager, ORDERS);
+
+        TaskInfo taskInfo = cacheManager.getTaskInfo(ORDERS).join().orElseThrow();
+        assertThat(taskInfo.getCachedTable().getErrorMessage()).hasValueSatisfying(message -> assertThat(message).contains("Failed to export Orders"));
+        CacheInfoPair cacheInfoPair = cachedTableMapping.get(ORDERS);
+        assertThat(cacheInfoPair.getRequiredTableName()).isEqualTo(tableName);
+        assertThat(cacheInfoPair.getErrorMessage()).isEmpty();
+        assertThat(cacheManifest.get(ORDERS).orElseThrow().getTableName()).isEqualTo(tableName);
+        assertThat(duckdbClient.listTables()).contains(tableName);
+    }
+
+    @Test
+    public void testReloadSkipsUnchangedCaches()
+    {
+        AccioMDL mdl = mdl(model("Orders", "SELECT 1 AS orderkey"));
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl);
+        waitForTask(cacheManager, ORDERS);
+        String tableName = cachedTableMapping.get(ORDERS).getRequiredTableName();
+
+        List<TaskInfo> taskInfos = cacheManager.createTaskUntilDone(mdl);
+        assertThat(taskInfos).hasSize(1);
+        assertThat(cachedTableMapping.get(ORDERS).getRequiredTableName()).isEqualTo(tableName);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+
+        // a changed cache is rebuilt
+        cacheManager.createTaskUntilDone(mdl(model("Orders", "SELECT 2 AS orderkey")));
+        assertThat(cachedTableMapping.get(ORDERS).getRequiredTableName()).isNotEqualTo(tableName);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(2);
+    }
+
+    @Test
+    public void testReloadSkipsRunningCaches()
+    {
+        AccioMDL mdl = mdl(model("Orders", "SELECT 1 AS orderkey"));
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl);
+        waitForTask(cacheManager, ORDERS);
+
+        AccioMDL newMdl = mdl(model("Orders", "SELECT 1 AS orderkey"), model("Customer", "SELECT 1 AS orderkey"));
+        CountDownLatch exports = cacheService.holdExports();
+        cacheManager.updateCache(mdl, newMdl);
+        List<TaskInfo> taskInfos = cacheManager.createTask(newMdl).join();
+        assertThat(taskInfos).extracting(TaskInfo::getTableName).containsExactly("Orders", "Customer");
+        assertThat(taskInfos.get(1).getTaskStatus()).isEqualTo(RUNNING);
+
+        exports.countDown();
+        waitForTask(cacheManager, CUSTOMER);
+        assertThat(cacheService.getExports("Customer")).isEqualTo(1);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+    }
+
+    @Test
+    public void testDownloadToParquetView()
+    {
+        // the local path is quoted in the statement which creates the view
+        duckdbConfig.setCacheStorageMode(PARQUET_VIEW)
+                .setParquetDirectory(directory.resolve("cache's parquet").toString());
+        assertDownloaded(4);
+    }
+
+    @Test
+    public void testDownloadToLocalLoad()
+    {
+        duckdbConfig.setLocalLoad(true);
+        assertDownloaded(4);
+    }
+
+    private void assertDownloaded(int files)
+    {
+        duckdbConfig.setDownloadThreads(files);
+        cacheService.setExportedFiles(files);
+        CacheManager cacheManager = createCacheManager();
+        cacheManager.initializeCache(mdl(model("Orders", "SELECT 1 AS orderkey")));
+        waitForTask(cacheManager, ORDERS);
+
+        CacheInfoPair cacheInfoPair = cachedTableMapping.get(ORDERS);
+        assertThat(cacheInfoPair.getErrorMessage()).isEmpty();
+        TaskInfo taskInfo = cacheManager.getTaskInfo(ORDERS).join().orElseThrow();
+        assertThat(taskInfo.getTotalFiles()).isEqualTo(files);
+        assertThat(taskInfo.getLoadedFiles()).isEqualTo(files);
+        try (AutoCloseableIterator<Object[]> iterator = duckdbClient.query(format("SELECT count(*) FROM \"%s\"", cacheInfoPair.getRequiredTableName()))) {
+            assertThat(iterator.next()[0]).isEqualTo(files * 10L);
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private CacheManager createCacheManager()
+    {
+        cachedTableMapping = new DefaultCachedTableMapping(duckdbClient);
+        cacheManifest = new CacheManifest(duckdbConfig);
+        CacheManager cacheManager = new CacheManager(
+                (sql, sessionContext) -> sql,
+                cacheService,
+                new NoOpExtraRewriter(),
+                duckdbClient,
+                cacheService,
+                cachedTableMapping,
+                cacheManifest,
+                new CacheEvictor(duckdbConfig, duckdbClient, cachedTableMapping, cacheManifest),
+                new CacheStats(new MBeanExporter(new TestingMBeanServer())),
+                duckdbConfig);
+        cacheManagers.add(cacheManager);
+        return cacheManager;
+    }
+
+    private static Model model(String name, String refSql)
+    {
+        return Model.model(name, refSql, List.of(column("orderkey", INTEGER, null, true)), true);
+    }
+
+    private static AccioMDL mdl(Model... models)
+    {
+        return AccioMDL.fromManifest(Manifest.builder()
+                .setCatalog("accio")
+                .setSchema("test")
+                .setModels(Arrays.asList(models))
+                .build());
+    }
+
+    private static void waitForTask(CacheManager cacheManager, CatalogSchemaTableName name)
+    {
+        // the tasks are registered asynchronously
+        long deadline = System.nanoTime() + SECONDS.toNanos(30);
+        while (cacheManager.getTaskInfo(name).join().isEmpty()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        cacheManager.untilTaskDone(name);
+    }
+}
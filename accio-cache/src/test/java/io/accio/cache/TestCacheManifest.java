@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.accio.base.CatalogSchemaTableName.catalogSchemaTableName;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Test(singleThreaded = true)
+public class TestCacheManifest
+{
+    private Path directory;
+    private DuckdbConfig config;
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("cache-manifest");
+        config = new DuckdbConfig().setDatabaseFile(directory.resolve("cache.db").toString());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        CacheManifest manifest = new CacheManifest(config);
+        manifest.put(new CacheManifest.Entry("accio", "test", "Orders", "Orders_1", "hash1", 1));
+        manifest.put(new CacheManifest.Entry("accio", "test", "Customer", "Customer_1", "hash2", 2));
+        manifest.remove(catalogSchemaTableName("accio", "test", "Customer"));
+
+        CacheManifest restarted = new CacheManifest(config);
+        assertThat(restarted.listEntries()).hasSize(1);
+        CacheManifest.Entry entry = restarted.get(catalogSchemaTableName("accio", "test", "Orders")).orElseThrow();
+        assertThat(entry.getTableName()).isEqualTo("Orders_1");
+        assertThat(entry.getSourceHash()).isEqualTo("hash1");
+        assertThat(entry.getCreateTime()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOlderEntryIsIgnored()
+    {
+        CacheManifest manifest = new CacheManifest(config);
+        manifest.put(new CacheManifest.Entry("accio", "test", "Orders", "Orders_2", "hash", 2));
+        manifest.put(new CacheManifest.Entry("accio", "test", "Orders", "Orders_1", "hash", 1));
+
+        assertThat(new CacheManifest(config).get(catalogSchemaTableName("accio", "test", "Orders")).orElseThrow().getTableName())
+                .isEqualTo("Orders_2");
+    }
+
+    @Test
+    public void testBrokenManifest()
+            throws IOException
+    {
+        Files.writeString(directory.resolve("cache.db.manifest.json"), "{broken");
+        assertThat(new CacheManifest(config).listEntries()).isEmpty();
+    }
+
+    @Test
+    public void testStoreFailure()
+            throws IOException
+    {
+        // the temporary file can't be written over a directory
+        Files.createDirectories(directory.resolve("cache.db.manifest.json.tmp"));
+        CacheManifest manifest = new CacheManifest(config);
+        manifest.put(new CacheManifest.Entry("accio", "test", "Orders", "Orders_1", "hash", 1));
+
+        assertThat(manifest.get(catalogSchemaTableName("accio", "test", "Orders"))).isPresent();
+        assertThat(new CacheManifest(config).listEntries()).isEmpty();
+    }
+
+    @Test
+    public void testInMemory()
+    {
+        CacheManifest manifest = new CacheManifest(new DuckdbConfig());
+        assertThat(manifest.isPersistent()).isFalse();
+        manifest.put(new CacheManifest.Entry("accio", "test", "Orders", "Orders_1", "hash", 1));
+        assertThat(manifest.listEntries()).isEmpty();
+    }
+}
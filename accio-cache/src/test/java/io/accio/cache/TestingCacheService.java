@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.cache;
+
+import io.accio.base.client.duckdb.DuckdbClient;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.accio.base.client.duckdb.DuckdbClient.quoteLiteral;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Exports nothing by default, the caches are created by {@link #generateDuckdbParquetStatement} from constant rows.
+ * With {@link #setExportedFiles}, each cache is exported as that many parquet files of 10 rows, whose downloads
+ * wait for each other so that they only finish if they run in parallel.
+ */
+public class TestingCacheService
+        implements CacheService, CacheStorageConfig
+{
+    private final Map<String, AtomicInteger> exports = new ConcurrentHashMap<>();
+    private final Set<String> failingCaches = ConcurrentHashMap.newKeySet();
+    private final DuckdbClient exporter = new DuckdbClient();
+    private volatile int exportedFiles;
+    private volatile CyclicBarrier downloads;
+    private volatile CountDownLatch exportGate = new CountDownLatch(0);
+
+    @Override
+    public Optional<PathInfo> createCache(String catalog, String schema, String name, String statement)
+    {
+        try {
+            exportGate.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (failingCaches.contains(name)) {
+            throw new IllegalStateException(format("Failed to export %s", name));
+        }
+        exports.computeIfAbsent(name, ignored -> new AtomicInteger()).incrementAndGet();
+        return Optional.of(PathInfo.of("testing://" + name, "*.parquet"));
+    }
+
+    @Override
+    public void deleteTarget(PathInfo pathInfo) {}
+
+    @Override
+    public List<String> listTargetFiles(PathInfo pathInfo)
+    {
+        return IntStream.range(0, exportedFiles)
+                .mapToObj(part -> format("%s/part-%s.parquet", pathInfo.getPath(), part))
+                .collect(toImmutableList());
+    }
+
+    @Override
+    public void downloadTargetFile(PathInfo pathInfo, String fileName, Path localFile)
+    {
+        try {
+            downloads.await(10, SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException("Downloads didn't run in parallel", e);
+        }
+        exporter.executeDDL(format("COPY (SELECT * FROM range(10) t(orderkey)) TO %s (FORMAT PARQUET)", quoteLiteral(localFile.toString())));
+    }
+
+    @Override
+    public String generateDuckdbParquetStatement(String path, String tableName)
+    {
+        return format("CREATE TABLE \"%s\" AS SELECT * FROM range(10) t(orderkey)", tableName);
+    }
+
+    public int getExports(String name)
+    {
+        return Optional.ofNullable(exports.get(name)).map(AtomicInteger::get).orElse(0);
+    }
+
+    public void setExportedFiles(int exportedFiles)
+    {
+        this.exportedFiles = exportedFiles;
+        this.downloads = new CyclicBarrier(exportedFiles);
+    }
+
+    /**
+     * Holds the exports until the returned latch is counted down.
+     */
+    public CountDownLatch holdExports()
+    {
+        exportGate = new CountDownLatch(1);
+        return exportGate;
+    }
+
+    public void setFailing(String name, boolean failing)
+    {
+        if (failing) {
+            failingCaches.add(name);
+        }
+        else {
+            failingCaches.remove(name);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.google.cloud.bigquery.Dataset;
 import com.google.cloud.bigquery.DatasetId;
 import com.google.cloud.bigquery.DatasetInfo;
 import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
 import com.google.cloud.bigquery.JobInfo;
 import com.google.cloud.bigquery.JobStatistics;
 import com.google.cloud.bigquery.QueryJobConfiguration;
@@ -34,6 +35,7 @@ import com.google.cloud.http.BaseHttpServiceException;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Streams;
 import io.accio.base.AccioException;
+import io.accio.base.Cancellation;
 import io.accio.base.CatalogSchemaTableName;
 import io.accio.base.Parameter;
 import io.accio.base.metadata.SchemaTableName;
@@ -59,10 +61,20 @@ public class BigQueryClient
     private static final Set<String> INVALID_QUERY = ImmutableSet.of("invalidQuery", "invalid");
 
     private final BigQuery bigQuery;
+    private final boolean useQueryCache;
 
     public BigQueryClient(BigQuery bigQuery)
+    {
+        this(bigQuery, true);
+    }
+
+    /**
+     * @param useQueryCache whether the query jobs and the dry runs use the BigQuery query cache
+     */
+    public BigQueryClient(BigQuery bigQuery, boolean useQueryCache)
     {
         this.bigQuery = bigQuery;
+        this.useQueryCache = useQueryCache;
     }
 
     public Iterable<Dataset> listDatasets(String projectId)
@@ -117,6 +129,11 @@ public class BigQueryClient
         return bigQuery.getDataset(name);
     }
 
+    public void updateDataset(DatasetInfo datasetInfo)
+    {
+        bigQuery.update(datasetInfo);
+    }
+
     public Table getTable(TableId tableId)
     {
         return bigQuery.getTable(tableId);
@@ -129,39 +146,95 @@ public class BigQueryClient
 
     public TableResult query(String sql, List<Parameter> parameters)
     {
-        try {
-            QueryJobConfiguration.Builder queryConfigBuilder =
-                    QueryJobConfiguration
-                            .newBuilder(sql);
-
-            for (Parameter parameter : parameters) {
-                queryConfigBuilder.addPositionalParameter(toQueryParameterValue(parameter.getType(), parameter.getValue()));
-            }
+        return query(sql, parameters, new Cancellation());
+    }
 
-            return bigQuery.query(queryConfigBuilder.build());
+    /**
+     * The query job is canceled once the cancellation is canceled, so it stops using the slots of the project.
+     */
+    public TableResult query(String sql, List<Parameter> parameters, Cancellation cancellation)
+    {
+        JobId jobId = newJobId();
+        try (Cancellation.Registration ignored = cancellation.register(() -> bigQuery.cancel(jobId))) {
+            return bigQuery.query(toQueryJobConfiguration(sql, parameters), jobId);
         }
         catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new BigQueryException(BaseHttpServiceException.UNKNOWN_CODE, format("Failed to run the query [%s]", sql), e);
         }
+        catch (RuntimeException e) {
+            // a canceled job fails with a generic error
+            cancellation.checkCanceled();
+            throw e;
+        }
+    }
+
+    /**
+     * Inserts the query job and returns without waiting for it to finish.
+     */
+    public Job createQueryJob(String sql, List<Parameter> parameters)
+    {
+        return bigQuery.create(JobInfo.of(newJobId(), toQueryJobConfiguration(sql, parameters)));
     }
 
+    public Optional<Job> getJob(JobId jobId)
+    {
+        return Optional.ofNullable(bigQuery.getJob(jobId));
+    }
+
+    public boolean cancel(JobId jobId)
+    {
+        return bigQuery.cancel(jobId);
+    }
+
+    /**
+     * Fetches the first page of the results of a job which is already done.
+     */
+    public TableResult getQueryResults(Job job)
+    {
+        try {
+            return job.getQueryResults();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BigQueryException(BaseHttpServiceException.UNKNOWN_CODE, format("Failed to fetch the results of job %s", job.getJobId()), e);
+        }
+    }
+
+    private JobId newJobId()
+    {
+        return JobId.newBuilder()
+                .setRandomJob()
+                .setLocation(bigQuery.getOptions().getLocation())
+                .build();
+    }
+
+    private QueryJobConfiguration toQueryJobConfiguration(String sql, List<Parameter> parameters)
+    {
+        QueryJobConfiguration.Builder queryConfigBuilder =
+                QueryJobConfiguration
+                        .newBuilder(sql)
+                        .setUseQueryCache(useQueryCache);
+
+        for (Parameter parameter : parameters) {
+            queryConfigBuilder.addPositionalParameter(toQueryParameterValue(parameter.getType(), parameter.getValue()));
+        }
+        return queryConfigBuilder.build();
+    }
+
+    /**
+     * The dry run validates the same job configuration the query is executed with.
+     */
     public JobStatistics.QueryStatistics queryDryRun(Optional<String> datasetIdOptional, String query, List<Parameter> parameters)
     {
         try {
-            QueryJobConfiguration.Builder queryConfigBuilder =
-                    QueryJobConfiguration
-                            .newBuilder(query)
-                            .setDryRun(true)
-                            .setUseQueryCache(false);
+            QueryJobConfiguration.Builder queryConfigBuilder = toQueryJobConfiguration(query, parameters)
+                    .toBuilder()
+                    .setDryRun(true);
 
             datasetIdOptional.ifPresent(queryConfigBuilder::setDefaultDataset);
 
-            for (Parameter parameter : parameters) {
-                queryConfigBuilder.addPositionalParameter(toQueryParameterValue(parameter.getType(), parameter.getValue()));
-            }
-
-            Job job = bigQuery.create(JobInfo.of(queryConfigBuilder.build()));
+            Job job = bigQuery.create(JobInfo.of(newJobId(), queryConfigBuilder.build()));
             return job.getStatistics();
         }
         catch (BigQueryException e) {
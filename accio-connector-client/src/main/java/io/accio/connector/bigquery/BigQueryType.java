@@ -16,6 +16,7 @@ package io.accio.connector.bigquery;
 
 import com.google.cloud.bigquery.Field;
 import com.google.cloud.bigquery.StandardSQLTypeName;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.accio.base.AccioException;
 import io.accio.base.type.DateType;
@@ -30,6 +31,7 @@ import io.accio.base.type.TimestampType;
 import org.joda.time.Period;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -62,6 +64,7 @@ import static io.accio.base.type.RecordType.EMPTY_RECORD;
 import static io.accio.base.type.SmallIntType.SMALLINT;
 import static io.accio.base.type.TinyIntType.TINYINT;
 import static io.accio.base.type.VarcharType.VARCHAR;
+import static java.util.Locale.ENGLISH;
 
 public final class BigQueryType
 {
@@ -136,6 +139,82 @@ public final class BigQueryType
         return new RecordType(innerPgTypes);
     }
 
+    /**
+     * Maps a type in the DDL form used by INFORMATION_SCHEMA.COLUMNS, e.g. {@code ARRAY<STRUCT<a INT64, b STRING(10)>>}.
+     */
+    public static PGType<?> toPGType(String dataType)
+    {
+        String type = dataType.trim();
+        String upperType = type.toUpperCase(ENGLISH);
+        if (upperType.startsWith("ARRAY<") && upperType.endsWith(">")) {
+            PGType<?> innerType = toPGType(type.substring("ARRAY<".length(), type.length() - 1));
+            if (innerType instanceof RecordType) {
+                return toPgRecordArray(innerType);
+            }
+            return PGTypes.getArrayType(innerType.oid());
+        }
+        if (upperType.startsWith("STRUCT<") && upperType.endsWith(">")) {
+            List<String> fields = splitTopLevel(type.substring("STRUCT<".length(), type.length() - 1));
+            if (fields.isEmpty()) {
+                return EMPTY_RECORD;
+            }
+            return new RecordType(fields.stream()
+                    .map(BigQueryType::toFieldPGType)
+                    .collect(toImmutableList()));
+        }
+        // drop the parameters of parameterized types, e.g. STRING(10) or NUMERIC(10, 2)
+        int parameterStart = upperType.indexOf('(');
+        String typeName = parameterStart < 0 ? upperType : upperType.substring(0, parameterStart).trim();
+        return Arrays.stream(StandardSQLTypeName.values())
+                .filter(standardType -> standardType.name().equals(typeName))
+                .findFirst()
+                .map(bqTypeToPgTypeMap::get)
+                .orElseThrow(() -> new AccioException(NOT_SUPPORTED, "Unsupported Type: " + type));
+    }
+
+    private static PGType<?> toFieldPGType(String field)
+    {
+        String trimmed = field.trim();
+        // a field is a name followed by its type, the name may be quoted by backticks
+        int typeStart = trimmed.startsWith("`") ? trimmed.indexOf('`', 1) + 1 : trimmed.indexOf(' ');
+        if (typeStart <= 0) {
+            throw new AccioException(NOT_SUPPORTED, "Unsupported struct field: " + field);
+        }
+        return toPGType(trimmed.substring(typeStart));
+    }
+
+    private static List<String> splitTopLevel(String fields)
+    {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        int depth = 0;
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i < fields.length(); i++) {
+            char c = fields.charAt(i);
+            // a quoted field name may contain any of the separators
+            if (c == '`') {
+                quoted = !quoted;
+            }
+            else if (quoted) {
+                continue;
+            }
+            else if (c == '<' || c == '(') {
+                depth++;
+            }
+            else if (c == '>' || c == ')') {
+                depth--;
+            }
+            else if (c == ',' && depth == 0) {
+                builder.add(fields.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (!fields.substring(start).isBlank()) {
+            builder.add(fields.substring(start));
+        }
+        return builder.build();
+    }
+
     public static StandardSQLTypeName toBqType(PGType<?> pgType)
     {
         if (pgType instanceof PGArray) {
@@ -14,6 +14,7 @@
 
 package io.accio.connector.bigquery;
 
+import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageBatch;
 import com.google.cloud.storage.StorageBatchResult;
@@ -22,6 +23,7 @@ import com.google.common.collect.ImmutableList;
 
 import javax.inject.Inject;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import static java.util.Objects.requireNonNull;
@@ -50,6 +52,27 @@ public class GcsStorageClient
         return results.stream().allMatch(result -> result != null && result.get());
     }
 
+    /**
+     * @return the names of the files under the given prefix, without the placeholder blobs that represent folders
+     */
+    public List<String> listFiles(String bucket, String prefix)
+    {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        storage.list(bucket, Storage.BlobListOption.prefix(prefix))
+                .iterateAll()
+                .forEach(blob -> {
+                    if (!blob.getName().endsWith("/")) {
+                        builder.add(blob.getName());
+                    }
+                });
+        return builder.build();
+    }
+
+    public void downloadFile(String bucket, String name, Path target)
+    {
+        storage.get(BlobId.of(bucket, name)).downloadTo(target);
+    }
+
     @VisibleForTesting
     public boolean checkFolderExists(String bucket, String prefix)
     {
@@ -34,11 +34,11 @@ import org.postgresql.util.PGInterval;
 import javax.inject.Inject;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 import static io.accio.base.metadata.StandardErrorCode.GENERIC_USER_ERROR;
@@ -50,18 +50,18 @@ public class PostgresClient
         implements Client
 {
     private static final Logger LOG = Logger.get(PostgresClient.class);
-    private final PostgresConfig postgresConfig;
+    private final PostgresConnectionPool connectionPool;
 
     @Inject
-    public PostgresClient(PostgresConfig postgresConfig)
+    public PostgresClient(PostgresConnectionPool connectionPool)
     {
-        this.postgresConfig = requireNonNull(postgresConfig, "postgresConfig is null");
+        this.connectionPool = requireNonNull(connectionPool, "connectionPool is null");
     }
 
     public List<TableMetadata> listTable(String schemaName)
     {
-        try (Connection connection = createConnection()) {
-            ResultSet resultSet = connection.getMetaData().getColumns(null, schemaName, null, null);
+        try (Connection connection = createConnection();
+                ResultSet resultSet = connection.getMetaData().getColumns(null, schemaName, null, null)) {
             ListMultimap<SchemaTableName, ColumnMetadata> metadataBuilder = ArrayListMultimap.create();
             while (resultSet.next()) {
                 LOG.debug("type: %s", resultSet.getString("TYPE_NAME"));
@@ -111,8 +111,9 @@ public class PostgresClient
     @Override
     public void executeDDL(String sql)
     {
-        try (Connection connection = createConnection()) {
-            connection.createStatement().execute(sql);
+        try (Connection connection = createConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute(sql);
         }
         catch (Exception e) {
             LOG.error(e, "Error executing DDL");
@@ -123,8 +124,8 @@ public class PostgresClient
     @Override
     public List<ColumnMetadata> describe(String sql, List<Parameter> parameters)
     {
-        try (Connection connection = createConnection()) {
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        try (Connection connection = createConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             setParameter(preparedStatement, parameters);
             ResultSetMetaData metaData = preparedStatement.getMetaData();
             int columnCount = metaData.getColumnCount();
@@ -147,8 +148,8 @@ public class PostgresClient
     @Override
     public List<String> listTables()
     {
-        try (Connection connection = createConnection()) {
-            ResultSet resultSet = connection.getMetaData().getColumns(null, null, null, null);
+        try (Connection connection = createConnection();
+                ResultSet resultSet = connection.getMetaData().getColumns(null, null, null, null)) {
             ListMultimap<SchemaTableName, ColumnMetadata> metadataBuilder = ArrayListMultimap.create();
             while (resultSet.next()) {
                 LOG.info("type: %s", resultSet.getString("TYPE_NAME"));
@@ -177,13 +178,7 @@ public class PostgresClient
     public Connection createConnection()
             throws SQLException
     {
-        try {
-            Class.forName("org.postgresql.Driver");
-        }
-        catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-        return DriverManager.getConnection(postgresConfig.getJdbcUrl(), postgresConfig.getUser(), postgresConfig.getPassword());
+        return connectionPool.getConnection();
     }
 
     public static void setParameter(PreparedStatement preparedStatement, List<Parameter> parameters)
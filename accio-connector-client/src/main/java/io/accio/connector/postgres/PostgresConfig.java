@@ -15,12 +15,30 @@
 package io.accio.connector.postgres;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class PostgresConfig
 {
     private String jdbcUrl;
     private String user;
     private String password;
+    private int poolMinSize;
+    private int poolMaxSize = 10;
+    private Duration poolIdleTimeout = new Duration(10, MINUTES);
+    private Duration poolMaxLifetime = new Duration(30, MINUTES);
+    private Duration poolAcquireTimeout = new Duration(30, SECONDS);
+    private Duration poolValidationTimeout = new Duration(5, SECONDS);
+    private int preparedStatementCacheSize = 256;
+    private int prepareThreshold = 5;
 
     public String getJdbcUrl()
     {
@@ -57,4 +75,125 @@ public class PostgresConfig
         this.password = password;
         return this;
     }
+
+    @Config("postgres.pool.min-size")
+    @ConfigDescription("The number of idle connections kept open to postgres; default is 0")
+    public PostgresConfig setPoolMinSize(int poolMinSize)
+    {
+        this.poolMinSize = poolMinSize;
+        return this;
+    }
+
+    @Min(0)
+    public int getPoolMinSize()
+    {
+        return poolMinSize;
+    }
+
+    @Config("postgres.pool.max-size")
+    @ConfigDescription("The maximum number of connections opened to postgres; default is 10")
+    public PostgresConfig setPoolMaxSize(int poolMaxSize)
+    {
+        this.poolMaxSize = poolMaxSize;
+        return this;
+    }
+
+    @Min(1)
+    public int getPoolMaxSize()
+    {
+        return poolMaxSize;
+    }
+
+    @AssertTrue(message = "postgres.pool.min-size must not be greater than postgres.pool.max-size")
+    public boolean isPoolSizeValid()
+    {
+        return poolMinSize <= poolMaxSize;
+    }
+
+    @Config("postgres.pool.idle-timeout")
+    @ConfigDescription("How long a connection stays idle before it is closed, as long as min-size connections are kept; default is 10m")
+    public PostgresConfig setPoolIdleTimeout(Duration poolIdleTimeout)
+    {
+        this.poolIdleTimeout = poolIdleTimeout;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getPoolIdleTimeout()
+    {
+        return poolIdleTimeout;
+    }
+
+    @Config("postgres.pool.max-lifetime")
+    @ConfigDescription("How long a connection is reused before it is replaced by a new one; default is 30m")
+    public PostgresConfig setPoolMaxLifetime(Duration poolMaxLifetime)
+    {
+        this.poolMaxLifetime = poolMaxLifetime;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getPoolMaxLifetime()
+    {
+        return poolMaxLifetime;
+    }
+
+    @Config("postgres.pool.acquire-timeout")
+    @ConfigDescription("How long a query waits for a connection when all max-size connections are in use; default is 30s")
+    public PostgresConfig setPoolAcquireTimeout(Duration poolAcquireTimeout)
+    {
+        this.poolAcquireTimeout = poolAcquireTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getPoolAcquireTimeout()
+    {
+        return poolAcquireTimeout;
+    }
+
+    @Config("postgres.pool.validation-timeout")
+    @ConfigDescription("How long an idle connection is allowed to answer the validation check before it is discarded; default is 5s")
+    public PostgresConfig setPoolValidationTimeout(Duration poolValidationTimeout)
+    {
+        this.poolValidationTimeout = poolValidationTimeout;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1s")
+    public Duration getPoolValidationTimeout()
+    {
+        return poolValidationTimeout;
+    }
+
+    @Config("postgres.prepared-statement-cache-size")
+    @ConfigDescription("The number of server-side prepared statements cached per connection; 0 disables the cache, default is 256")
+    public PostgresConfig setPreparedStatementCacheSize(int preparedStatementCacheSize)
+    {
+        this.preparedStatementCacheSize = preparedStatementCacheSize;
+        return this;
+    }
+
+    @Min(0)
+    public int getPreparedStatementCacheSize()
+    {
+        return preparedStatementCacheSize;
+    }
+
+    @Config("postgres.prepare-threshold")
+    @ConfigDescription("How many times a statement is executed on a connection before it is prepared on the server; 0 never prepares, default is 5")
+    public PostgresConfig setPrepareThreshold(int prepareThreshold)
+    {
+        this.prepareThreshold = prepareThreshold;
+        return this;
+    }
+
+    @Min(0)
+    public int getPrepareThreshold()
+    {
+        return prepareThreshold;
+    }
 }
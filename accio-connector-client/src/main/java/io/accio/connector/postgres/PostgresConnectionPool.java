@@ -0,0 +1,387 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.connector.postgres;
+
+import io.accio.base.client.jdbc.LeasedConnection;
+import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.Duration.nanosSince;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A bounded pool of postgres connections. The connections handed out are proxies which return
+ * the underlying connection to the pool on close, so callers keep using try-with-resources.
+ * Aborted connections and connections failing with a connection error are discarded instead.
+ */
+public class PostgresConnectionPool
+{
+    private static final Logger LOG = Logger.get(PostgresConnectionPool.class);
+    // connections used within this period are trusted without a validation round trip
+    private static final long VALIDATION_BYPASS_MILLIS = 1000;
+    private static final long MAX_HOUSEKEEPING_INTERVAL_MILLIS = 30_000;
+
+    private final String jdbcUrl;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final Duration acquireTimeout;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper = newSingleThreadScheduledExecutor(daemonThreadsNamed("postgres-pool-housekeeper-%s"));
+    private volatile boolean closed;
+
+    private final TimeStat acquireTime = new TimeStat(MILLISECONDS);
+    private final CounterStat createdConnections = new CounterStat();
+    private final CounterStat closedConnections = new CounterStat();
+    private final CounterStat acquireTimeouts = new CounterStat();
+    private final CounterStat validationFailures = new CounterStat();
+
+    @Inject
+    public PostgresConnectionPool(PostgresConfig config)
+    {
+        requireNonNull(config, "config is null");
+        this.jdbcUrl = requireNonNull(config.getJdbcUrl(), "postgres.jdbc.url is null");
+        this.connectionProperties = new Properties();
+        if (config.getUser() != null) {
+            connectionProperties.setProperty("user", config.getUser());
+        }
+        if (config.getPassword() != null) {
+            connectionProperties.setProperty("password", config.getPassword());
+        }
+        // the driver keeps the server-side prepared statements in a per-connection cache,
+        // which only pays off now that connections outlive a single query
+        connectionProperties.setProperty("prepareThreshold", String.valueOf(config.getPrepareThreshold()));
+        connectionProperties.setProperty("preparedStatementCacheQueries", String.valueOf(config.getPreparedStatementCacheSize()));
+        this.minSize = config.getPoolMinSize();
+        this.maxSize = config.getPoolMaxSize();
+        this.idleTimeoutMillis = config.getPoolIdleTimeout().toMillis();
+        this.maxLifetimeMillis = config.getPoolMaxLifetime().toMillis();
+        this.acquireTimeout = config.getPoolAcquireTimeout();
+        this.validationTimeoutSeconds = max(1, (int) config.getPoolValidationTimeout().getValue(SECONDS));
+        this.permits = new Semaphore(maxSize, true);
+
+        try {
+            Class.forName("org.postgresql.Driver");
+        }
+        catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Starts evicting idle and expired connections, and keeping the pool at its minimum size.
+     */
+    @PostConstruct
+    public void start()
+    {
+        long housekeepingInterval = min(idleTimeoutMillis, MAX_HOUSEKEEPING_INTERVAL_MILLIS);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, housekeepingInterval, MILLISECONDS);
+    }
+
+    public Connection getConnection()
+            throws SQLException
+    {
+        if (closed) {
+            throw new SQLException("Postgres connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), MILLISECONDS)) {
+                acquireTimeouts.update(1);
+                throw new SQLTransientConnectionException(format("Timed out after %s waiting for a postgres connection, all %s connections are in use", acquireTimeout, maxSize));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a postgres connection", e);
+        }
+
+        try {
+            PooledConnection connection = pollIdleConnection();
+            if (connection == null) {
+                connection = openConnection();
+            }
+            acquireTime.add(nanosSince(start));
+            return connection.lease();
+        }
+        catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void close()
+    {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<PooledConnection> connections;
+        synchronized (this) {
+            connections = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+        }
+        connections.forEach(this::discard);
+    }
+
+    private PooledConnection pollIdleConnection()
+    {
+        while (true) {
+            PooledConnection connection;
+            synchronized (this) {
+                connection = idleConnections.pollFirst();
+            }
+            if (connection == null) {
+                return null;
+            }
+            if (connection.isExpired()) {
+                discard(connection);
+                continue;
+            }
+            if (System.currentTimeMillis() - connection.lastUsedTime > VALIDATION_BYPASS_MILLIS && !connection.isValid()) {
+                validationFailures.update(1);
+                discard(connection);
+                continue;
+            }
+            return connection;
+        }
+    }
+
+    private PooledConnection openConnection()
+            throws SQLException
+    {
+        Connection connection = DriverManager.getConnection(jdbcUrl, connectionProperties);
+        totalConnections.incrementAndGet();
+        createdConnections.update(1);
+        return new PooledConnection(connection);
+    }
+
+    private void release(PooledConnection connection, boolean broken)
+    {
+        try {
+            if (!closed && !broken && !connection.isExpired() && connection.reset()) {
+                connection.lastUsedTime = System.currentTimeMillis();
+                synchronized (this) {
+                    if (!closed) {
+                        idleConnections.addFirst(connection);
+                        return;
+                    }
+                }
+            }
+            discard(connection);
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection connection)
+    {
+        totalConnections.decrementAndGet();
+        closedConnections.update(1);
+        try {
+            connection.delegate.close();
+        }
+        catch (SQLException | RuntimeException e) {
+            LOG.debug(e, "Failed to close postgres connection");
+        }
+    }
+
+    private void housekeep()
+    {
+        try {
+            List<PooledConnection> evicted = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                // the least recently used connections are at the tail
+                Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+                while (iterator.hasNext()) {
+                    PooledConnection connection = iterator.next();
+                    boolean idleTooLong = now - connection.lastUsedTime > idleTimeoutMillis && totalConnections.get() - evicted.size() > minSize;
+                    if (idleTooLong || connection.isExpired()) {
+                        iterator.remove();
+                        evicted.add(connection);
+                    }
+                }
+            }
+            evicted.forEach(this::discard);
+
+            while (!closed && totalConnections.get() < minSize) {
+                PooledConnection connection = openConnection();
+                synchronized (this) {
+                    idleConnections.addLast(connection);
+                }
+            }
+        }
+        catch (SQLException | RuntimeException e) {
+            LOG.warn(e, "Failed to maintain the postgres connection pool");
+        }
+    }
+
+    @Managed
+    public int getTotalConnections()
+    {
+        return totalConnections.get();
+    }
+
+    @Managed
+    public synchronized int getIdleConnections()
+    {
+        return idleConnections.size();
+    }
+
+    @Managed
+    public int getActiveConnections()
+    {
+        return maxSize - permits.availablePermits();
+    }
+
+    @Managed
+    public int getWaitingThreads()
+    {
+        return permits.getQueueLength();
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getAcquireTime()
+    {
+        return acquireTime;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getCreatedConnections()
+    {
+        return createdConnections;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getClosedConnections()
+    {
+        return closedConnections;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getAcquireTimeouts()
+    {
+        return acquireTimeouts;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getValidationFailures()
+    {
+        return validationFailures;
+    }
+
+    private class PooledConnection
+            implements LeasedConnection.Pool
+    {
+        private final Connection delegate;
+        private final long createTime = System.currentTimeMillis();
+        private volatile long lastUsedTime = createTime;
+
+        private PooledConnection(Connection delegate)
+        {
+            this.delegate = requireNonNull(delegate, "delegate is null");
+        }
+
+        private boolean isExpired()
+        {
+            return System.currentTimeMillis() - createTime > maxLifetimeMillis;
+        }
+
+        private boolean isValid()
+        {
+            try {
+                return delegate.isValid(validationTimeoutSeconds);
+            }
+            catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private boolean reset()
+        {
+            try {
+                if (!delegate.getAutoCommit()) {
+                    delegate.rollback();
+                    delegate.setAutoCommit(true);
+                }
+                delegate.clearWarnings();
+                return true;
+            }
+            catch (SQLException e) {
+                LOG.debug(e, "Failed to reset postgres connection");
+                return false;
+            }
+        }
+
+        private Connection lease()
+        {
+            return LeasedConnection.lease(delegate, this, "Pooled" + delegate);
+        }
+
+        @Override
+        public void release(Connection connection, boolean broken)
+        {
+            PostgresConnectionPool.this.release(this, broken);
+        }
+
+        @Override
+        public boolean isConnectionError(SQLException e)
+        {
+            // SQLSTATE class 08 is connection exception
+            return e.getSQLState() != null && e.getSQLState().startsWith("08");
+        }
+    }
+}
@@ -14,6 +14,7 @@
 
 package io.accio.connector.postgres;
 
+import io.accio.base.Cancellation;
 import io.accio.base.Parameter;
 import io.accio.base.client.Client;
 import io.accio.base.client.jdbc.BaseJdbcRecordIterator;
@@ -47,13 +48,19 @@ public class PostgresRecordIterator
     public static PostgresRecordIterator of(Client client, String sql, List<Parameter> parameters)
             throws SQLException
     {
-        return new PostgresRecordIterator(client, sql, parameters);
+        return of(client, sql, parameters, new Cancellation());
     }
 
-    private PostgresRecordIterator(Client client, String sql, List<Parameter> parameters)
+    public static PostgresRecordIterator of(Client client, String sql, List<Parameter> parameters, Cancellation cancellation)
             throws SQLException
     {
-        super(client, sql, parameters);
+        return new PostgresRecordIterator(client, sql, parameters, cancellation);
+    }
+
+    private PostgresRecordIterator(Client client, String sql, List<Parameter> parameters, Cancellation cancellation)
+            throws SQLException
+    {
+        super(client, sql, parameters, cancellation);
     }
 
     @Override
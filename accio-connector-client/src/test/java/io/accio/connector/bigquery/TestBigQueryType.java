@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.connector.bigquery;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.StandardSQLTypeName;
+import io.accio.base.AccioException;
+import io.accio.base.type.PGType;
+import org.testng.annotations.Test;
+
+import static com.google.cloud.bigquery.Field.Mode.REPEATED;
+import static com.google.cloud.bigquery.StandardSQLTypeName.BOOL;
+import static com.google.cloud.bigquery.StandardSQLTypeName.DATE;
+import static com.google.cloud.bigquery.StandardSQLTypeName.INT64;
+import static com.google.cloud.bigquery.StandardSQLTypeName.STRING;
+import static com.google.cloud.bigquery.StandardSQLTypeName.STRUCT;
+import static com.google.cloud.bigquery.StandardSQLTypeName.TIMESTAMP;
+import static io.accio.base.type.BigIntType.BIGINT;
+import static io.accio.base.type.NumericType.NUMERIC;
+import static io.accio.base.type.PGArray.VARCHAR_ARRAY;
+import static io.accio.base.type.RecordType.EMPTY_RECORD;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static io.accio.connector.bigquery.BigQueryType.toPGType;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestBigQueryType
+{
+    @Test
+    public void testParameterizedType()
+    {
+        assertThat(toPGType("STRING(10)")).isEqualTo(VARCHAR);
+        assertThat(toPGType("NUMERIC(10, 2)")).isEqualTo(NUMERIC);
+        assertThat(toPGType("BIGNUMERIC(38)")).isEqualTo(NUMERIC);
+        assertThat(toPGType(" int64 ")).isEqualTo(BIGINT);
+    }
+
+    @Test
+    public void testArray()
+    {
+        assertThat(toPGType("ARRAY<STRING(10)>")).isEqualTo(VARCHAR_ARRAY);
+    }
+
+    @Test
+    public void testArrayOfStruct()
+    {
+        // the same type as the one read from the table schema
+        assertSameType(
+                "ARRAY<STRUCT<id INT64, name STRING(10), price NUMERIC(10, 2)>>",
+                Field.newBuilder("items", STRUCT,
+                                field("id", INT64),
+                                field("name", STRING),
+                                field("price", StandardSQLTypeName.NUMERIC))
+                        .setMode(REPEATED)
+                        .build());
+    }
+
+    @Test
+    public void testNestedStruct()
+    {
+        // field names may be type names or quoted, neither makes them part of the type
+        assertSameType(
+                "STRUCT<`array` STRUCT<`date` DATE, struct ARRAY<STRUCT<flag BOOL>>>, `x, y<z>` TIMESTAMP, tags ARRAY<STRING>>",
+                Field.newBuilder("s", STRUCT,
+                                Field.newBuilder("array", STRUCT,
+                                        field("date", DATE),
+                                        Field.newBuilder("struct", STRUCT, field("flag", BOOL)).setMode(REPEATED).build()).build(),
+                                field("x, y<z>", TIMESTAMP),
+                                Field.newBuilder("tags", STRING).setMode(REPEATED).build())
+                        .build());
+        assertThat(toPGType("STRUCT<>")).isEqualTo(EMPTY_RECORD);
+    }
+
+    @Test
+    public void testUnsupportedType()
+    {
+        assertThatThrownBy(() -> toPGType("GEOGRAPHY"))
+                .isInstanceOf(AccioException.class)
+                .hasMessage("Unsupported Type: GEOGRAPHY");
+        assertThatThrownBy(() -> toPGType("ARRAY<STRUCT<a RANGE<DATE>>>"))
+                .isInstanceOf(AccioException.class)
+                .hasMessage("Unsupported Type: RANGE<DATE>");
+        assertThatThrownBy(() -> toPGType("STRUCT<INT64>"))
+                .isInstanceOf(AccioException.class)
+                .hasMessage("Unsupported struct field: INT64");
+    }
+
+    private static void assertSameType(String dataType, Field field)
+    {
+        PGType<?> pgType = toPGType(dataType);
+        assertThat(pgType.oid()).isEqualTo(toPGType(field).oid());
+        assertThat(pgType).usingRecursiveComparison().isEqualTo(toPGType(field));
+    }
+
+    private static Field field(String name, StandardSQLTypeName type)
+    {
+        return Field.of(name, type);
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.connector.postgres;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestPostgresConnectionPool
+{
+    @Test
+    public void testReuseConnection()
+            throws Exception
+    {
+        try (TestingDriver driver = new TestingDriver()) {
+            PostgresConnectionPool pool = createPool(config(driver));
+            try {
+                Connection connection = pool.getConnection();
+                connection.close();
+                assertThat(connection.isClosed()).isTrue();
+                assertThatThrownBy(connection::getAutoCommit).isInstanceOf(SQLException.class);
+
+                pool.getConnection().close();
+                assertThat(driver.getCreatedConnections()).isEqualTo(1);
+                assertThat(driver.getOpenConnections()).isEqualTo(1);
+                assertThat(pool.getIdleConnections()).isEqualTo(1);
+                assertThat(pool.getActiveConnections()).isZero();
+            }
+            finally {
+                pool.close();
+            }
+            assertThat(driver.getOpenConnections()).isZero();
+        }
+    }
+
+    @Test
+    public void testReleasePermitWhenOpenFails()
+            throws Exception
+    {
+        try (TestingDriver driver = new TestingDriver()) {
+            PostgresConnectionPool pool = createPool(config(driver)
+                    .setPoolMaxSize(1)
+                    .setPoolAcquireTimeout(new Duration(100, MILLISECONDS)));
+            try {
+                driver.setFailing(true);
+                assertThatThrownBy(pool::getConnection)
+                        .isInstanceOf(SQLException.class)
+                        .hasMessage("Connection refused");
+                assertThat(pool.getActiveConnections()).isZero();
+                assertThat(pool.getTotalConnections()).isZero();
+
+                // the only permit is available again
+                driver.setFailing(false);
+                pool.getConnection().close();
+                assertThat(pool.getAcquireTimeouts().getTotalCount()).isZero();
+            }
+            finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDiscardAbortedConnection()
+            throws Exception
+    {
+        try (TestingDriver driver = new TestingDriver()) {
+            PostgresConnectionPool pool = createPool(config(driver));
+            try {
+                Connection connection = pool.getConnection();
+                connection.abort(Runnable::run);
+                connection.close();
+                assertThat(driver.getOpenConnections()).isZero();
+                assertThat(pool.getIdleConnections()).isZero();
+                assertThat(pool.getTotalConnections()).isZero();
+                assertThat(pool.getActiveConnections()).isZero();
+
+                pool.getConnection().close();
+                assertThat(driver.getCreatedConnections()).isEqualTo(2);
+            }
+            finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDiscardConnectionOnConnectionError()
+            throws Exception
+    {
+        try (TestingDriver driver = new TestingDriver()) {
+            PostgresConnectionPool pool = createPool(config(driver));
+            try {
+                try (Connection connection = pool.getConnection()) {
+                    assertThatThrownBy(connection::createStatement)
+                            .isInstanceOf(SQLException.class)
+                            .hasMessage("Connection reset");
+                }
+                assertThat(driver.getOpenConnections()).isZero();
+                assertThat(pool.getIdleConnections()).isZero();
+            }
+            finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    public void testEvictIdleConnectionsDownToMinSize()
+            throws Exception
+    {
+        try (TestingDriver driver = new TestingDriver()) {
+            PostgresConnectionPool pool = createPool(config(driver)
+                    .setPoolMinSize(1)
+                    .setPoolMaxSize(3)
+                    .setPoolIdleTimeout(new Duration(100, MILLISECONDS)));
+            try {
+                Connection first = pool.getConnection();
+                Connection second = pool.getConnection();
+                Connection third = pool.getConnection();
+                first.close();
+                second.close();
+                third.close();
+
+                long deadline = System.nanoTime() + SECONDS.toNanos(10);
+                while (pool.getTotalConnections() > 1) {
+                    assertThat(System.nanoTime()).isLessThan(deadline);
+                    MILLISECONDS.sleep(10);
+                }
+                // the pool keeps the minimum size
+                MILLISECONDS.sleep(500);
+                assertThat(pool.getTotalConnections()).isEqualTo(1);
+                assertThat(pool.getIdleConnections()).isEqualTo(1);
+                assertThat(driver.getOpenConnections()).isEqualTo(1);
+            }
+            finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    public void testAcquireTimeout()
+            throws Exception
+    {
+        try (TestingDriver driver = new TestingDriver()) {
+            PostgresConnectionPool pool = createPool(config(driver)
+                    .setPoolMaxSize(1)
+                    .setPoolAcquireTimeout(new Duration(100, MILLISECONDS)));
+            try {
+                Connection connection = pool.getConnection();
+                assertThatThrownBy(pool::getConnection)
+                        .isInstanceOf(SQLTransientConnectionException.class)
+                        .hasMessageContaining("all 1 connections are in use");
+                assertThat(pool.getAcquireTimeouts().getTotalCount()).isEqualTo(1);
+
+                connection.close();
+                pool.getConnection().close();
+                assertThat(driver.getCreatedConnections()).isEqualTo(1);
+            }
+            finally {
+                pool.close();
+            }
+        }
+    }
+
+    private static PostgresConnectionPool createPool(PostgresConfig config)
+    {
+        PostgresConnectionPool pool = new PostgresConnectionPool(config);
+        pool.start();
+        return pool;
+    }
+
+    private static PostgresConfig config(TestingDriver driver)
+    {
+        return new PostgresConfig().setJdbcUrl(driver.getUrl());
+    }
+
+    /**
+     * Hands out fake connections for its own url. A connection fails {@code createStatement} with a
+     * connection error and supports nothing else the pool doesn't call.
+     */
+    private static class TestingDriver
+            implements Driver, AutoCloseable
+    {
+        private final String url = "jdbc:accio-testing:" + randomUUID();
+        private final List<AtomicBoolean> connections = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+
+        private TestingDriver()
+                throws SQLException
+        {
+            DriverManager.registerDriver(this);
+        }
+
+        public String getUrl()
+        {
+            return url;
+        }
+
+        public void setFailing(boolean failing)
+        {
+            this.failing = failing;
+        }
+
+        public int getCreatedConnections()
+        {
+            return connections.size();
+        }
+
+        public long getOpenConnections()
+        {
+            return connections.stream().filter(closed -> !closed.get()).count();
+        }
+
+        @Override
+        public Connection connect(String url, Properties info)
+                throws SQLException
+        {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            if (failing) {
+                throw new SQLException("Connection refused", "08001");
+            }
+            AtomicBoolean closed = new AtomicBoolean();
+            connections.add(closed);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                            case "abort":
+                                closed.set(true);
+                                return null;
+                            case "isClosed":
+                                return closed.get();
+                            case "isValid":
+                                return !closed.get();
+                            case "getAutoCommit":
+                                return true;
+                            case "clearWarnings":
+                                return null;
+                            case "createStatement":
+                                throw new SQLException("Connection reset", "08006");
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return "TestingConnection";
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url)
+        {
+            return this.url.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+        {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion()
+        {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant()
+        {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger()
+                throws SQLFeatureNotSupportedException
+        {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public void close()
+                throws SQLException
+        {
+            DriverManager.deregisterDriver(this);
+        }
+    }
+}
@@ -15,7 +15,9 @@
 package io.accio.main;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import java.io.File;
@@ -30,6 +32,8 @@ public class AccioConfig
 
     private File accioMDLFile = new File("etc/acciomdl.json");
     private DataSourceType dataSourceType;
+    private int pgCatalogInitParallelism = 8;
+    private boolean pgCatalogLazyMaterialization = true;
 
     @NotNull
     public File getAccioMDLFile()
@@ -56,4 +60,31 @@ public class AccioConfig
         this.dataSourceType = dataSourceType;
         return this;
     }
+
+    @Min(1)
+    public int getPgCatalogInitParallelism()
+    {
+        return pgCatalogInitParallelism;
+    }
+
+    @Config("pg-catalog.init-parallelism")
+    @ConfigDescription("Maximum number of pg_catalog objects created concurrently at startup")
+    public AccioConfig setPgCatalogInitParallelism(int pgCatalogInitParallelism)
+    {
+        this.pgCatalogInitParallelism = pgCatalogInitParallelism;
+        return this;
+    }
+
+    public boolean isPgCatalogLazyMaterialization()
+    {
+        return pgCatalogLazyMaterialization;
+    }
+
+    @Config("pg-catalog.lazy-materialization")
+    @ConfigDescription("Create pg_catalog tables in the background after startup, or the first time a query reads them, instead of blocking startup. pg_type and pg_proc, read by the pg_catalog functions, are still created at startup")
+    public AccioConfig setPgCatalogLazyMaterialization(boolean pgCatalogLazyMaterialization)
+    {
+        this.pgCatalogLazyMaterialization = pgCatalogLazyMaterialization;
+        return this;
+    }
 }
@@ -17,6 +17,7 @@ package io.accio.main;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.accio.base.AccioMDL;
 import io.accio.cache.CacheManager;
+import io.accio.main.metadata.CachingMetadata;
 import io.airlift.log.Logger;
 
 import javax.inject.Inject;
@@ -36,16 +37,17 @@ public class AccioManager
     private final AtomicReference<AccioMDL> accioMDL = new AtomicReference<>(EMPTY);
     private final File accioMDLFile;
     private final CacheManager cacheManager;
+    private final CachingMetadata metadata;
 
     @Inject
-    public AccioManager(AccioConfig accioConfig, CacheManager cacheManager)
+    public AccioManager(AccioConfig accioConfig, CacheManager cacheManager, CachingMetadata metadata)
             throws IOException
     {
         this.accioMDLFile = requireNonNull(accioConfig.getAccioMDLFile(), "accioMDLFile is null");
         this.cacheManager = requireNonNull(cacheManager, "cacheManager is null");
+        this.metadata = requireNonNull(metadata, "metadata is null");
         if (accioMDLFile.exists()) {
             loadAccioMDLFromFile();
-            cacheManager.createTaskUntilDone(getAccioMDL());
         }
         else {
             LOG.warn("AccioMDL file %s does not exist", accioMDLFile);
@@ -55,6 +57,8 @@ public class AccioManager
     public synchronized void loadAccioMDLFromFile()
             throws IOException
     {
+        // a reload is the moment users expect changes made in the data source to show up
+        metadata.invalidateAll();
         loadAccioMDL(Files.readString(accioMDLFile.toPath()));
     }
 
@@ -62,8 +66,15 @@ public class AccioManager
             throws JsonProcessingException
     {
         AccioMDL oldAccioMDL = accioMDL.get();
-        cacheManager.removeCacheIfExist(oldAccioMDL.getCatalog(), oldAccioMDL.getSchema());
-        accioMDL.set(AccioMDL.fromJson(json));
+        AccioMDL newAccioMDL = AccioMDL.fromJson(json);
+        if (oldAccioMDL == EMPTY) {
+            // the first mdl loaded, at startup or by the first reload if the file was missing then
+            accioMDL.set(newAccioMDL);
+            cacheManager.initializeCache(newAccioMDL);
+            return;
+        }
+        cacheManager.updateCache(oldAccioMDL, newAccioMDL);
+        accioMDL.set(newAccioMDL);
     }
 
     @Override
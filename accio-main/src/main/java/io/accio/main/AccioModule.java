@@ -16,9 +16,19 @@ package io.accio.main;
 
 import com.google.inject.Binder;
 import com.google.inject.Scopes;
+import io.accio.main.metadata.MetadataCacheConfig;
+import io.accio.main.query.QueryAdmissionConfig;
+import io.accio.main.query.QueryAdmissionController;
+import io.accio.main.query.QueryTracker;
+import io.accio.main.query.QueryTrackerConfig;
+import io.accio.main.query.SlowQueryLog;
+import io.accio.main.query.SlowQueryLogConfig;
+import io.accio.main.wireprotocol.PlanCache;
+import io.accio.main.wireprotocol.QueryResultCache;
 import io.airlift.configuration.AbstractConfigurationAwareModule;
 
 import static io.airlift.configuration.ConfigBinder.configBinder;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class AccioModule
         extends AbstractConfigurationAwareModule
@@ -29,5 +39,19 @@ public class AccioModule
         configBinder(binder).bindConfig(AccioConfig.class);
         binder.bind(AccioManager.class).in(Scopes.SINGLETON);
         binder.bind(AccioMetastore.class).to(AccioManager.class);
+        configBinder(binder).bindConfig(QueryResultCacheConfig.class);
+        binder.bind(QueryResultCache.class).in(Scopes.SINGLETON);
+        configBinder(binder).bindConfig(PlanCacheConfig.class);
+        binder.bind(PlanCache.class).in(Scopes.SINGLETON);
+        configBinder(binder).bindConfig(QueryTrackerConfig.class);
+        configBinder(binder).bindConfig(SlowQueryLogConfig.class);
+        binder.bind(SlowQueryLog.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(SlowQueryLog.class).withGeneratedName();
+        binder.bind(QueryTracker.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(QueryTracker.class).withGeneratedName();
+        configBinder(binder).bindConfig(QueryAdmissionConfig.class);
+        binder.bind(QueryAdmissionController.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(QueryAdmissionController.class).withGeneratedName();
+        configBinder(binder).bindConfig(MetadataCacheConfig.class);
     }
 }
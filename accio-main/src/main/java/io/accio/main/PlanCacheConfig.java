@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+
+import javax.validation.constraints.Min;
+
+public class PlanCacheConfig
+{
+    private boolean enabled = true;
+    private long maxEntries = 1000;
+
+    @Config("plan-cache.enabled")
+    @ConfigDescription("Reuse the compiled plan of a query for the queries which only differ in their literals")
+    public PlanCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("plan-cache.max-entries")
+    @ConfigDescription("The maximum number of compiled plans kept; default is 1000")
+    public PlanCacheConfig setMaxEntries(long maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    @Min(1)
+    public long getMaxEntries()
+    {
+        return maxEntries;
+    }
+}
@@ -19,8 +19,15 @@ import io.accio.base.sql.SqlConverter;
 import io.accio.cache.CacheManager;
 import io.accio.cache.CachedTableMapping;
 import io.accio.main.metadata.Metadata;
+import io.accio.main.pgcatalog.PgCatalogManager;
 import io.accio.main.pgcatalog.regtype.RegObjectFactory;
+import io.accio.main.query.QueryAdmissionController;
+import io.accio.main.query.QueryTracker;
+import io.accio.main.wireprotocol.CancellationManager;
+import io.accio.main.wireprotocol.PlanCache;
 import io.accio.main.wireprotocol.PostgresNetty;
+import io.accio.main.wireprotocol.QueryResultCache;
+import io.accio.main.wireprotocol.metrics.WireProtocolMetrics;
 import io.accio.main.wireprotocol.ssl.SslContextProvider;
 import org.elasticsearch.common.network.NetworkService;
 
@@ -41,6 +48,13 @@ public class PostgresNettyProvider
     private final AccioMetastore accioMetastore;
     private final CacheManager cacheManager;
     private final CachedTableMapping cachedTableMapping;
+    private final QueryResultCache queryResultCache;
+    private final PgCatalogManager pgCatalogManager;
+    private final PlanCache planCache;
+    private final QueryTracker queryTracker;
+    private final QueryAdmissionController queryAdmissionController;
+    private final CancellationManager cancellationManager;
+    private final WireProtocolMetrics wireProtocolMetrics;
 
     @Inject
     public PostgresNettyProvider(
@@ -51,7 +65,14 @@ public class PostgresNettyProvider
             SqlConverter sqlConverter,
             AccioMetastore accioMetastore,
             CacheManager cacheManager,
-            CachedTableMapping cachedTableMapping)
+            CachedTableMapping cachedTableMapping,
+            QueryResultCache queryResultCache,
+            PgCatalogManager pgCatalogManager,
+            PlanCache planCache,
+            QueryTracker queryTracker,
+            QueryAdmissionController queryAdmissionController,
+            CancellationManager cancellationManager,
+            WireProtocolMetrics wireProtocolMetrics)
     {
         this.postgresWireProtocolConfig = requireNonNull(postgresWireProtocolConfig, "postgreWireProtocolConfig is null");
         this.sslContextProvider = requireNonNull(sslContextProvider, "sslContextProvider is null");
@@ -61,6 +82,13 @@ public class PostgresNettyProvider
         this.accioMetastore = requireNonNull(accioMetastore, "accioMetastore is null");
         this.cacheManager = requireNonNull(cacheManager, "cacheManager is null");
         this.cachedTableMapping = requireNonNull(cachedTableMapping, "cachedTableMapping is null");
+        this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
+        this.pgCatalogManager = requireNonNull(pgCatalogManager, "pgCatalogManager is null");
+        this.planCache = requireNonNull(planCache, "planCache is null");
+        this.queryTracker = requireNonNull(queryTracker, "queryTracker is null");
+        this.queryAdmissionController = requireNonNull(queryAdmissionController, "queryAdmissionController is null");
+        this.cancellationManager = requireNonNull(cancellationManager, "cancellationManager is null");
+        this.wireProtocolMetrics = requireNonNull(wireProtocolMetrics, "wireProtocolMetrics is null");
     }
 
     @Override
@@ -76,7 +104,14 @@ public class PostgresNettyProvider
                 sqlConverter,
                 accioMetastore,
                 cacheManager,
-                cachedTableMapping);
+                cachedTableMapping,
+                queryResultCache,
+                pgCatalogManager,
+                planCache,
+                queryTracker,
+                queryAdmissionController,
+                cancellationManager,
+                wireProtocolMetrics);
         postgresNetty.start();
         return postgresNetty;
     }
@@ -14,18 +14,27 @@
 package io.accio.main;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import java.util.Optional;
+
 public class PostgresWireProtocolConfig
 {
     public static final String PG_WIRE_PROTOCOL_PORT = "pg-wire-protocol.port";
     public static final String PG_WIRE_PROTOCOL_SSL_ENABLED = "pg-wire-protocol.ssl.enabled";
     public static final String PG_WIRE_PROTOCOL_NETTY_THREAD_COUNT = "pg-wire-protocol.netty.thread.count";
+    public static final String PG_WIRE_PROTOCOL_METRICS_MAX_APPLICATIONS = "pg-wire-protocol.metrics.max-applications";
+    public static final String PG_WIRE_PROTOCOL_STATEMENT_TIMEOUT = "pg-wire-protocol.statement-timeout";
 
     private String port = "7432";
     private boolean sslEnable;
     private int nettyThreadCount;
+    private int metricsMaxApplications = 100;
+    private Optional<Duration> statementTimeout = Optional.empty();
 
     @NotNull
     public String getPort()
@@ -65,4 +74,31 @@ public class PostgresWireProtocolConfig
         this.nettyThreadCount = nettyThreadCount;
         return this;
     }
+
+    @Min(0)
+    public int getMetricsMaxApplications()
+    {
+        return metricsMaxApplications;
+    }
+
+    @Config(PG_WIRE_PROTOCOL_METRICS_MAX_APPLICATIONS)
+    @ConfigDescription("Maximum number of distinct application names tracked by the wire protocol metrics, the rest are aggregated as 'other'")
+    public PostgresWireProtocolConfig setMetricsMaxApplications(int metricsMaxApplications)
+    {
+        this.metricsMaxApplications = metricsMaxApplications;
+        return this;
+    }
+
+    public Optional<Duration> getStatementTimeout()
+    {
+        return statementTimeout;
+    }
+
+    @Config(PG_WIRE_PROTOCOL_STATEMENT_TIMEOUT)
+    @ConfigDescription("Queries running longer than this are canceled, including the time to send the rows; no limit if not set")
+    public PostgresWireProtocolConfig setStatementTimeout(Duration statementTimeout)
+    {
+        this.statementTimeout = Optional.ofNullable(statementTimeout);
+        return this;
+    }
 }
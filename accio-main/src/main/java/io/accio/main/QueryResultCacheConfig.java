@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class QueryResultCacheConfig
+{
+    private boolean enabled;
+    private Duration ttl = new Duration(5, MINUTES);
+    private long maxEntries = 1000;
+    private long maxMemoryRows = 10_000;
+    private long maxRows = 1_000_000;
+    private Optional<Path> spillDirectory = Optional.empty();
+
+    @Config("query-result-cache.enabled")
+    @ConfigDescription("Serve repeated queries from the results of their previous execution")
+    public QueryResultCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("query-result-cache.ttl")
+    @ConfigDescription("How long a query result is served before the query is executed again; default is 5m. " +
+            "Results only expire early when a cached model they read is refreshed, changes in the data source show up after the ttl")
+    public QueryResultCacheConfig setTtl(Duration ttl)
+    {
+        this.ttl = ttl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getTtl()
+    {
+        return ttl;
+    }
+
+    @Config("query-result-cache.max-entries")
+    @ConfigDescription("The maximum number of query results kept; default is 1000")
+    public QueryResultCacheConfig setMaxEntries(long maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    @Min(1)
+    public long getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    @Config("query-result-cache.max-memory-rows")
+    @ConfigDescription("Results up to this many rows are kept in memory, larger ones are spilled to disk; default is 10000")
+    public QueryResultCacheConfig setMaxMemoryRows(long maxMemoryRows)
+    {
+        this.maxMemoryRows = maxMemoryRows;
+        return this;
+    }
+
+    @Min(0)
+    public long getMaxMemoryRows()
+    {
+        return maxMemoryRows;
+    }
+
+    @Config("query-result-cache.max-rows")
+    @ConfigDescription("Results larger than this many rows are not cached; default is 1000000")
+    public QueryResultCacheConfig setMaxRows(long maxRows)
+    {
+        this.maxRows = maxRows;
+        return this;
+    }
+
+    @Min(0)
+    public long getMaxRows()
+    {
+        return maxRows;
+    }
+
+    @Config("query-result-cache.spill-directory")
+    @ConfigDescription("The directory results larger than max-memory-rows are spilled to; such results are not cached if not set")
+    public QueryResultCacheConfig setSpillDirectory(String spillDirectory)
+    {
+        this.spillDirectory = Optional.ofNullable(spillDirectory).map(Path::of);
+        return this;
+    }
+
+    public Optional<Path> getSpillDirectory()
+    {
+        return spillDirectory;
+    }
+}
@@ -21,6 +21,8 @@ import io.accio.main.metadata.Metadata;
 
 import javax.inject.Inject;
 
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -88,6 +90,20 @@ public class BigQueryCacheService
                 .ifPresent(prefix -> gcsStorageClient.cleanFolders(getRequiredBucketName(), prefix));
     }
 
+    @Override
+    public List<String> listTargetFiles(PathInfo pathInfo)
+    {
+        String prefix = getTableLocationPrefix(pathInfo.getPath())
+                .orElseThrow(() -> new AccioException(GENERIC_USER_ERROR, format("Invalid cache path %s", pathInfo.getPath())));
+        return gcsStorageClient.listFiles(getRequiredBucketName(), prefix);
+    }
+
+    @Override
+    public void downloadTargetFile(PathInfo pathInfo, String fileName, Path localFile)
+    {
+        gcsStorageClient.downloadFile(getRequiredBucketName(), fileName, localFile);
+    }
+
     public static Optional<String> getTableLocationPrefix(String path)
     {
         Matcher matcher = PATH_PATTERN.matcher(path);
@@ -17,11 +17,17 @@ import io.airlift.configuration.Config;
 import io.airlift.configuration.ConfigDescription;
 import io.airlift.configuration.ConfigSecuritySensitive;
 import io.airlift.configuration.validation.FileExists;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import java.util.Optional;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public class BigQueryConfig
 {
     private Optional<String> credentialsKey = Optional.empty();
@@ -33,6 +39,16 @@ public class BigQueryConfig
 
     private Optional<String> bucketName = Optional.empty();
     private String metadataSchemaPrefix = "";
+    private int metadataParallelism = 8;
+    private int metadataRequestsPerSecond = 50;
+    private boolean metadataBulkColumns = true;
+    private int queryPollThreads = 1;
+    private int queryRpcThreads = 16;
+    private Duration queryMinPollInterval = new Duration(50, MILLISECONDS);
+    private Duration queryMaxPollInterval = new Duration(1, SECONDS);
+    private boolean queryUseQueryCache = true;
+    private boolean queryShareJobs = true;
+    private Duration queryJobReuseWindow = new Duration(0, SECONDS);
 
     public Optional<String> getCredentialsKey()
     {
@@ -126,4 +142,143 @@ public class BigQueryConfig
         this.metadataSchemaPrefix = metadataSchemaPrefix;
         return this;
     }
+
+    @Min(1)
+    public int getMetadataParallelism()
+    {
+        return metadataParallelism;
+    }
+
+    @Config("bigquery.metadata.parallelism")
+    @ConfigDescription("The maximum number of concurrent BigQuery API calls fetching datasets and tables; default is 8")
+    public BigQueryConfig setMetadataParallelism(int metadataParallelism)
+    {
+        this.metadataParallelism = metadataParallelism;
+        return this;
+    }
+
+    @Min(1)
+    public int getMetadataRequestsPerSecond()
+    {
+        return metadataRequestsPerSecond;
+    }
+
+    @Config("bigquery.metadata.requests-per-second")
+    @ConfigDescription("The rate limit of the BigQuery API calls fetching datasets and tables; default is 50")
+    public BigQueryConfig setMetadataRequestsPerSecond(int metadataRequestsPerSecond)
+    {
+        this.metadataRequestsPerSecond = metadataRequestsPerSecond;
+        return this;
+    }
+
+    public boolean isMetadataBulkColumns()
+    {
+        return metadataBulkColumns;
+    }
+
+    @Config("bigquery.metadata.bulk-columns")
+    @ConfigDescription("List the columns of a dataset with a single INFORMATION_SCHEMA.COLUMNS query instead of fetching every table; default is true")
+    public BigQueryConfig setMetadataBulkColumns(boolean metadataBulkColumns)
+    {
+        this.metadataBulkColumns = metadataBulkColumns;
+        return this;
+    }
+
+    @Min(1)
+    public int getQueryPollThreads()
+    {
+        return queryPollThreads;
+    }
+
+    @Config("bigquery.query.poll-threads")
+    @ConfigDescription("The number of threads scheduling the polls of running BigQuery query jobs, they never block on a request; default is 1")
+    public BigQueryConfig setQueryPollThreads(int queryPollThreads)
+    {
+        this.queryPollThreads = queryPollThreads;
+        return this;
+    }
+
+    @Min(1)
+    public int getQueryRpcThreads()
+    {
+        return queryRpcThreads;
+    }
+
+    @Config("bigquery.query.rpc-threads")
+    @ConfigDescription("The number of threads inserting, polling and fetching the results of BigQuery query jobs; default is 16")
+    public BigQueryConfig setQueryRpcThreads(int queryRpcThreads)
+    {
+        this.queryRpcThreads = queryRpcThreads;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getQueryMinPollInterval()
+    {
+        return queryMinPollInterval;
+    }
+
+    @Config("bigquery.query.min-poll-interval")
+    @ConfigDescription("The first interval between two polls of a running query job, doubled after every poll; default is 50ms")
+    public BigQueryConfig setQueryMinPollInterval(Duration queryMinPollInterval)
+    {
+        this.queryMinPollInterval = queryMinPollInterval;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getQueryMaxPollInterval()
+    {
+        return queryMaxPollInterval;
+    }
+
+    @Config("bigquery.query.max-poll-interval")
+    @ConfigDescription("The longest interval between two polls of a running query job; default is 1s")
+    public BigQueryConfig setQueryMaxPollInterval(Duration queryMaxPollInterval)
+    {
+        this.queryMaxPollInterval = queryMaxPollInterval;
+        return this;
+    }
+
+    public boolean isQueryUseQueryCache()
+    {
+        return queryUseQueryCache;
+    }
+
+    @Config("bigquery.query.use-query-cache")
+    @ConfigDescription("Whether the query jobs and the dry runs describing the queries use the BigQuery query cache; default is true")
+    public BigQueryConfig setQueryUseQueryCache(boolean queryUseQueryCache)
+    {
+        this.queryUseQueryCache = queryUseQueryCache;
+        return this;
+    }
+
+    public boolean isQueryShareJobs()
+    {
+        return queryShareJobs;
+    }
+
+    @Config("bigquery.query.share-jobs")
+    @ConfigDescription("Whether a query waits for the running job of an identical query instead of submitting another job; default is true")
+    public BigQueryConfig setQueryShareJobs(boolean queryShareJobs)
+    {
+        this.queryShareJobs = queryShareJobs;
+        return this;
+    }
+
+    @NotNull
+    public Duration getQueryJobReuseWindow()
+    {
+        return queryJobReuseWindow;
+    }
+
+    @Config("bigquery.query.job-reuse-window")
+    @ConfigDescription("How long after its creation a finished job is reused for identical queries when jobs are shared; default is 0s, only running jobs are shared")
+    public BigQueryConfig setQueryJobReuseWindow(Duration queryJobReuseWindow)
+    {
+        this.queryJobReuseWindow = queryJobReuseWindow;
+        return this;
+    }
 }
@@ -0,0 +1,406 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.connector.bigquery;
+
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.TableResult;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import io.accio.base.Cancellation;
+import io.accio.base.Parameter;
+import io.accio.base.type.PGType;
+import io.accio.connector.bigquery.BigQueryClient;
+import io.airlift.log.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs the queries as BigQuery jobs without holding a thread while the jobs run. A job is inserted and then
+ * polled, the interval between two polls starts at the min poll interval and doubles up to the max poll interval.
+ * The scheduler only runs the timers, the requests to BigQuery run on a bounded pool of RPC threads. A poll which
+ * fails with a retryable error is retried on the next interval.
+ * <p>
+ * Identical queries share a job: a query sent while an identical one runs waits for the same job, and a finished
+ * job is reused within the reuse window after its creation. Every query reads the results from the destination
+ * table of the job on its own.
+ */
+public class BigQueryJobPoller
+{
+    private static final Logger LOG = Logger.get(BigQueryJobPoller.class);
+    @VisibleForTesting
+    static final int MAX_FAILED_POLLS = 5;
+
+    private final BigQueryClient bigQueryClient;
+    private final long minPollIntervalMillis;
+    private final long maxPollIntervalMillis;
+    private final boolean shareJobs;
+    private final long jobReuseWindowNanos;
+    private final Ticker ticker;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService rpcExecutor;
+    private final Map<JobKey, SharedJob> sharedJobs = new ConcurrentHashMap<>();
+
+    public BigQueryJobPoller(BigQueryClient bigQueryClient, BigQueryConfig config)
+    {
+        this(
+                bigQueryClient,
+                config,
+                Ticker.systemTicker(),
+                new ScheduledThreadPoolExecutor(config.getQueryPollThreads(), daemonThreadsNamed("bigquery-job-poller-%s")),
+                newFixedThreadPool(config.getQueryRpcThreads(), daemonThreadsNamed("bigquery-job-rpc-%s")));
+    }
+
+    @VisibleForTesting
+    BigQueryJobPoller(BigQueryClient bigQueryClient, BigQueryConfig config, Ticker ticker, ScheduledExecutorService scheduler, ExecutorService rpcExecutor)
+    {
+        this.bigQueryClient = requireNonNull(bigQueryClient, "bigQueryClient is null");
+        requireNonNull(config, "config is null");
+        this.minPollIntervalMillis = config.getQueryMinPollInterval().toMillis();
+        this.maxPollIntervalMillis = max(minPollIntervalMillis, config.getQueryMaxPollInterval().toMillis());
+        this.shareJobs = config.isQueryShareJobs();
+        this.jobReuseWindowNanos = config.getQueryJobReuseWindow().roundTo(NANOSECONDS);
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+        this.rpcExecutor = requireNonNull(rpcExecutor, "rpcExecutor is null");
+    }
+
+    public void stop()
+    {
+        scheduler.shutdownNow();
+        rpcExecutor.shutdownNow();
+    }
+
+    /**
+     * The query stops waiting for the job once the cancellation is canceled, and the future then fails with the error
+     * of the cancellation. The job itself is canceled once no query waits for it anymore.
+     *
+     * @return the future of the first page of the results, it's completed on an RPC thread
+     */
+    public CompletableFuture<TableResult> query(String sql, List<Parameter> parameters, Cancellation cancellation)
+    {
+        CompletableFuture<TableResult> result = new CompletableFuture<>();
+        SharedJob job = attach(sql, parameters);
+        Cancellation.Registration registration = cancellation.register(() -> {
+            job.detach();
+            fail(result, cancellation, null);
+        });
+        job.done.whenComplete((doneJob, throwable) -> {
+            registration.close();
+            if (result.isDone()) {
+                return;
+            }
+            if (throwable != null) {
+                fail(result, cancellation, throwable);
+                return;
+            }
+            try {
+                rpcExecutor.execute(() -> {
+                    try {
+                        result.complete(bigQueryClient.getQueryResults(doneJob));
+                    }
+                    catch (RuntimeException e) {
+                        fail(result, cancellation, e);
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                fail(result, cancellation, e);
+            }
+        });
+        return result;
+    }
+
+    private SharedJob attach(String sql, List<Parameter> parameters)
+    {
+        if (!shareJobs) {
+            SharedJob job = new SharedJob();
+            job.attach();
+            start(job, sql, parameters);
+            return job;
+        }
+        JobKey key = new JobKey(sql, parameters);
+        while (true) {
+            SharedJob existing = sharedJobs.get(key);
+            if (existing != null && existing.isReusable() && existing.attach()) {
+                return existing;
+            }
+            SharedJob job = new SharedJob();
+            job.attach();
+            boolean registered = existing == null ? sharedJobs.putIfAbsent(key, job) == null : sharedJobs.replace(key, existing, job);
+            if (registered) {
+                job.done.whenComplete((doneJob, throwable) -> expire(key, job, throwable == null));
+                start(job, sql, parameters);
+                return job;
+            }
+        }
+    }
+
+    private void expire(JobKey key, SharedJob job, boolean succeeded)
+    {
+        long remainingNanos = job.createTime + jobReuseWindowNanos - ticker.read();
+        if (!succeeded || remainingNanos <= 0) {
+            sharedJobs.remove(key, job);
+            return;
+        }
+        try {
+            scheduler.schedule(() -> sharedJobs.remove(key, job), remainingNanos, NANOSECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            sharedJobs.remove(key, job);
+        }
+    }
+
+    private void start(SharedJob job, String sql, List<Parameter> parameters)
+    {
+        execute(job, () -> {
+            if (job.isCanceled()) {
+                return;
+            }
+            Job created = bigQueryClient.createQueryJob(sql, parameters);
+            if (!job.setJobId(created.getJobId())) {
+                // every query stopped waiting while the job was inserted
+                bigQueryClient.cancel(created.getJobId());
+                return;
+            }
+            check(job, created, minPollIntervalMillis);
+        });
+    }
+
+    private void check(SharedJob job, Job current, long pollIntervalMillis)
+    {
+        if (job.done.isDone()) {
+            return;
+        }
+        JobStatus status = current.getStatus();
+        if (status == null || status.getState() != JobStatus.State.DONE) {
+            poll(job, current.getJobId(), pollIntervalMillis, 0);
+            return;
+        }
+        BigQueryError error = status.getError();
+        if (error != null) {
+            throw new BigQueryException(BigQueryException.UNKNOWN_CODE, error.getMessage(), error);
+        }
+        job.done.complete(current);
+    }
+
+    /**
+     * Fetches the status of the job once the poll interval elapsed. Up to {@link #MAX_FAILED_POLLS} consecutive polls
+     * failing with a retryable error are retried, the interval keeps growing in between.
+     */
+    private void poll(SharedJob job, JobId jobId, long pollIntervalMillis, int failedPolls)
+    {
+        long nextPollIntervalMillis = min(pollIntervalMillis * 2, maxPollIntervalMillis);
+        Runnable task = () -> {
+            if (job.done.isDone()) {
+                return;
+            }
+            Optional<Job> refreshed;
+            try {
+                refreshed = bigQueryClient.getJob(jobId);
+            }
+            catch (BigQueryException e) {
+                if (!e.isRetryable() || failedPolls + 1 >= MAX_FAILED_POLLS) {
+                    throw e;
+                }
+                LOG.debug(e, "Failed to poll job %s, retrying", jobId);
+                poll(job, jobId, nextPollIntervalMillis, failedPolls + 1);
+                return;
+            }
+            check(job, refreshed.orElseThrow(() -> new BigQueryException(BigQueryException.UNKNOWN_CODE, format("Job %s was not found", jobId))), nextPollIntervalMillis);
+        };
+        try {
+            // the timer only hands the request over to the RPC threads
+            scheduler.schedule(() -> execute(job, task), pollIntervalMillis, MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            job.done.completeExceptionally(e);
+        }
+    }
+
+    private void execute(SharedJob job, Runnable task)
+    {
+        try {
+            rpcExecutor.execute(() -> {
+                try {
+                    task.run();
+                }
+                catch (RuntimeException e) {
+                    job.done.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            job.done.completeExceptionally(e);
+        }
+    }
+
+    private void cancel(JobId jobId)
+    {
+        try {
+            rpcExecutor.execute(() -> {
+                try {
+                    bigQueryClient.cancel(jobId);
+                }
+                catch (RuntimeException e) {
+                    LOG.warn(e, "Failed to cancel job %s", jobId);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            LOG.warn("Failed to cancel job %s, the poller is stopped", jobId);
+        }
+    }
+
+    /**
+     * Fails the query with the error of the cancellation if it's canceled, since a canceled job fails with a generic error.
+     */
+    private static void fail(CompletableFuture<TableResult> result, Cancellation cancellation, Throwable throwable)
+    {
+        try {
+            cancellation.checkCanceled();
+        }
+        catch (RuntimeException canceled) {
+            result.completeExceptionally(canceled);
+            return;
+        }
+        if (throwable != null) {
+            result.completeExceptionally(throwable);
+        }
+    }
+
+    private class SharedJob
+    {
+        private final CompletableFuture<Job> done = new CompletableFuture<>();
+        private final long createTime = ticker.read();
+        private int waitingQueries;
+        private boolean canceled;
+        private JobId jobId;
+
+        private synchronized boolean attach()
+        {
+            if (canceled) {
+                return false;
+            }
+            waitingQueries++;
+            return true;
+        }
+
+        /**
+         * Cancels the job once no query waits for it anymore.
+         */
+        private void detach()
+        {
+            JobId canceledJobId;
+            synchronized (this) {
+                waitingQueries--;
+                if (waitingQueries > 0 || done.isDone()) {
+                    return;
+                }
+                canceled = true;
+                canceledJobId = jobId;
+            }
+            // stops polling the job
+            done.cancel(false);
+            if (canceledJobId != null) {
+                cancel(canceledJobId);
+            }
+        }
+
+        private synchronized boolean isCanceled()
+        {
+            return canceled;
+        }
+
+        /**
+         * @return false if the job is canceled already
+         */
+        private synchronized boolean setJobId(JobId jobId)
+        {
+            this.jobId = jobId;
+            return !canceled;
+        }
+
+        private boolean isReusable()
+        {
+            if (!done.isDone()) {
+                return true;
+            }
+            return !done.isCompletedExceptionally() && ticker.read() - createTime < jobReuseWindowNanos;
+        }
+    }
+
+    private static class JobKey
+    {
+        private final String sql;
+        private final List<Integer> parameterTypes;
+        private final List<Object> parameterValues;
+
+        private JobKey(String sql, List<Parameter> parameters)
+        {
+            this.sql = requireNonNull(sql, "sql is null");
+            this.parameterTypes = parameters.stream()
+                    .map(Parameter::getType)
+                    .map(PGType::oid)
+                    .collect(toImmutableList());
+            // parameter values could be null
+            this.parameterValues = Arrays.asList(parameters.stream().map(Parameter::getValue).toArray());
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            JobKey that = (JobKey) o;
+            return sql.equals(that.sql)
+                    && parameterTypes.equals(that.parameterTypes)
+                    && parameterValues.equals(that.parameterValues);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(sql, parameterTypes, parameterValues);
+        }
+    }
+}
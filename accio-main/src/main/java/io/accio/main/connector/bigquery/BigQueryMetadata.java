@@ -18,6 +18,7 @@ import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.Dataset;
 import com.google.cloud.bigquery.DatasetId;
 import com.google.cloud.bigquery.DatasetInfo;
+import com.google.cloud.bigquery.FieldValueList;
 import com.google.cloud.bigquery.JobStatistics;
 import com.google.cloud.bigquery.Routine;
 import com.google.cloud.bigquery.Table;
@@ -25,7 +26,9 @@ import com.google.cloud.bigquery.TableResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.RateLimiter;
 import io.accio.base.AccioException;
+import io.accio.base.Cancellation;
 import io.accio.base.Column;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.Parameter;
@@ -35,14 +38,20 @@ import io.accio.connector.bigquery.BigQueryClient;
 import io.accio.connector.bigquery.BigQueryType;
 import io.accio.main.metadata.Metadata;
 import io.accio.main.pgcatalog.function.PgFunctionRegistry;
+import io.airlift.concurrent.MoreFutures;
 import io.airlift.log.Logger;
 import io.trino.sql.tree.QualifiedName;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -51,9 +60,12 @@ import static io.accio.base.metadata.StandardErrorCode.NOT_FOUND;
 import static io.accio.main.pgcatalog.PgCatalogUtils.ACCIO_TEMP_NAME;
 import static io.accio.main.pgcatalog.PgCatalogUtils.PG_CATALOG_NAME;
 import static io.accio.main.pgcatalog.function.PgFunction.PG_FUNCTION_PATTERN;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.lang.String.format;
 import static java.util.Locale.ENGLISH;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 
 public class BigQueryMetadata
         implements Metadata
@@ -68,6 +80,10 @@ public class BigQueryMetadata
     private final String location;
     private final String metadataSchemaName;
     private final String pgCatalogName;
+    private final boolean bulkColumns;
+    private final ExecutorService metadataExecutor;
+    private final RateLimiter metadataRateLimiter;
+    private final BigQueryJobPoller jobPoller;
 
     @Inject
     public BigQueryMetadata(BigQueryClient bigQueryClient, BigQueryConfig bigQueryConfig)
@@ -80,6 +96,17 @@ public class BigQueryMetadata
         this.metadataSchemaName = bigQueryConfig.getMetadataSchemaPrefix() + ACCIO_TEMP_NAME;
         this.pgCatalogName = bigQueryConfig.getMetadataSchemaPrefix() + PG_CATALOG_NAME;
         this.pgFunctionRegistry = new PgFunctionRegistry(pgCatalogName);
+        this.bulkColumns = bigQueryConfig.isMetadataBulkColumns();
+        this.metadataExecutor = newFixedThreadPool(bigQueryConfig.getMetadataParallelism(), daemonThreadsNamed("bigquery-metadata-%s"));
+        this.metadataRateLimiter = RateLimiter.create(bigQueryConfig.getMetadataRequestsPerSecond());
+        this.jobPoller = new BigQueryJobPoller(bigQueryClient, bigQueryConfig);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        metadataExecutor.shutdownNow();
+        jobPoller.stop();
     }
 
     /**
@@ -116,8 +143,9 @@ public class BigQueryMetadata
     {
         // TODO: https://github.com/Canner/canner-metric-layer/issues/47
         //  Getting full dataset information is a heavy cost. It's better to find another way to list dataset by region.
-        return Streams.stream(bigQueryClient.listDatasets(bigQueryClient.getProjectId()))
-                .map(bigQueryClient::getDataSet)
+        List<Dataset> datasets = ImmutableList.copyOf(bigQueryClient.listDatasets(bigQueryClient.getProjectId()));
+        // the listed datasets usually carry their location already, only fetch the full dataset when they don't
+        return fetchAll(datasets, dataset -> dataset.getLocation() != null ? dataset : bigQueryClient.getDataSet(dataset)).stream()
                 .filter(dataset -> location.equalsIgnoreCase(dataset.getLocation()))
                 .map(dataset -> dataset.getDatasetId().getDataset())
                 .collect(toImmutableList());
@@ -130,17 +158,61 @@ public class BigQueryMetadata
         if (dataset.isEmpty()) {
             throw new AccioException(NOT_FOUND, format("Dataset %s is not found", schemaName));
         }
-        Iterable<Table> result = bigQueryClient.listTables(dataset.get().getDatasetId());
-        return Streams.stream(result)
-                .map(table -> {
-                    TableMetadata.Builder builder = TableMetadata.builder(
-                            new SchemaTableName(table.getTableId().getDataset(), table.getTableId().getTable()));
-                    Table fullTable = bigQueryClient.getTable(table.getTableId());
-                    // TODO: type mapping
-                    fullTable.getDefinition().getSchema().getFields()
-                            .forEach(field -> builder.column(field.getName(), BigQueryType.toPGType(field)));
-                    return builder.build();
-                })
+        if (bulkColumns) {
+            try {
+                return listTablesFromInformationSchema(dataset.get().getDatasetId());
+            }
+            catch (RuntimeException e) {
+                LOG.warn(e, "Failed to list the columns of dataset %s from INFORMATION_SCHEMA, fetching its tables one by one", schemaName);
+            }
+        }
+        List<Table> tables = ImmutableList.copyOf(bigQueryClient.listTables(dataset.get().getDatasetId()));
+        return fetchAll(tables, table -> {
+            TableMetadata.Builder builder = TableMetadata.builder(
+                    new SchemaTableName(table.getTableId().getDataset(), table.getTableId().getTable()));
+            Table fullTable = bigQueryClient.getTable(table.getTableId());
+            // TODO: type mapping
+            fullTable.getDefinition().getSchema().getFields()
+                    .forEach(field -> builder.column(field.getName(), BigQueryType.toPGType(field)));
+            return builder.build();
+        });
+    }
+
+    /**
+     * Lists the columns of every table in the dataset with a single query, instead of a getTable call per table.
+     */
+    private List<TableMetadata> listTablesFromInformationSchema(DatasetId datasetId)
+    {
+        // pseudo columns like _PARTITIONTIME are not part of the table schema
+        String sql = format("SELECT table_name, column_name, data_type FROM `%s`.`%s`.INFORMATION_SCHEMA.COLUMNS " +
+                        "WHERE is_hidden = 'NO' AND is_system_defined = 'NO' ORDER BY table_name, ordinal_position",
+                datasetId.getProject() == null ? bigQueryClient.getProjectId() : datasetId.getProject(),
+                datasetId.getDataset());
+        TableResult result = bigQueryClient.query(sql, ImmutableList.of());
+        Map<String, TableMetadata.Builder> builders = new LinkedHashMap<>();
+        for (FieldValueList row : result.iterateAll()) {
+            String tableName = row.get("table_name").getStringValue();
+            builders.computeIfAbsent(tableName, name -> TableMetadata.builder(new SchemaTableName(datasetId.getDataset(), name)))
+                    .column(row.get("column_name").getStringValue(), BigQueryType.toPGType(row.get("data_type").getStringValue()));
+        }
+        return builders.values().stream()
+                .map(TableMetadata.Builder::build)
+                .collect(toImmutableList());
+    }
+
+    /**
+     * Applies the fetcher to all items on the bounded metadata executor, within the configured request rate.
+     */
+    private <T, R> List<R> fetchAll(List<T> items, Function<T, R> fetcher)
+    {
+        List<CompletableFuture<R>> futures = items.stream()
+                .map(item -> supplyAsync(() -> {
+                    metadataRateLimiter.acquire();
+                    return fetcher.apply(item);
+                }, metadataExecutor))
+                .collect(toImmutableList());
+        return futures.stream()
+                .map(MoreFutures::getFutureValue)
                 .collect(toImmutableList());
     }
 
@@ -200,10 +272,16 @@ public class BigQueryMetadata
 
     @Override
     public ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters)
+    {
+        return directQuery(sql, parameters, new Cancellation());
+    }
+
+    @Override
+    public ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters, Cancellation cancellation)
     {
         requireNonNull(sql, "sql can't be null.");
         try {
-            TableResult results = bigQueryClient.query(sql, parameters);
+            TableResult results = bigQueryClient.query(sql, parameters, cancellation);
             return BigQueryRecordIterator.of(results);
         }
         catch (BigQueryException ex) {
@@ -213,6 +291,20 @@ public class BigQueryMetadata
         }
     }
 
+    @Override
+    public CompletableFuture<ConnectorRecordIterator> directQueryAsync(String sql, List<Parameter> parameters, Cancellation cancellation)
+    {
+        requireNonNull(sql, "sql can't be null.");
+        return jobPoller.query(sql, parameters, cancellation)
+                .whenComplete((results, throwable) -> {
+                    if (throwable instanceof BigQueryException) {
+                        LOG.error(throwable);
+                        LOG.error("Failed SQL: %s", sql);
+                    }
+                })
+                .thenApply(BigQueryRecordIterator::of);
+    }
+
     @Override
     public List<Column> describeQuery(String sql, List<Parameter> parameters)
     {
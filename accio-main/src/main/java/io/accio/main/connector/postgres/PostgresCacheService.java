@@ -14,11 +14,16 @@
 
 package io.accio.main.connector.postgres;
 
+import io.accio.base.AccioException;
 import io.accio.cache.CacheService;
 import io.accio.cache.PathInfo;
 
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 
+import static io.accio.base.metadata.StandardErrorCode.NOT_SUPPORTED;
+
 public class PostgresCacheService
         implements CacheService
 {
@@ -30,4 +35,16 @@ public class PostgresCacheService
 
     @Override
     public void deleteTarget(PathInfo pathInfo) {}
+
+    @Override
+    public List<String> listTargetFiles(PathInfo pathInfo)
+    {
+        throw new AccioException(NOT_SUPPORTED, "Postgres connector doesn't export caches");
+    }
+
+    @Override
+    public void downloadTargetFile(PathInfo pathInfo, String fileName, Path localFile)
+    {
+        throw new AccioException(NOT_SUPPORTED, "Postgres connector doesn't export caches");
+    }
 }
@@ -16,6 +16,7 @@ package io.accio.main.connector.postgres;
 
 import com.google.common.collect.ImmutableList;
 import io.accio.base.AccioException;
+import io.accio.base.Cancellation;
 import io.accio.base.Column;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.Parameter;
@@ -132,9 +133,18 @@ public class PostgresMetadata
 
     @Override
     public ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters)
+    {
+        return directQuery(sql, parameters, new Cancellation());
+    }
+
+    @Override
+    public ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters, Cancellation cancellation)
     {
         try {
-            return new PostgresConnectorRecordIterator(PostgresRecordIterator.of(postgresClient, sql, parameters));
+            return new PostgresConnectorRecordIterator(PostgresRecordIterator.of(postgresClient, sql, parameters, cancellation));
+        }
+        catch (AccioException e) {
+            throw e;
         }
         catch (Exception e) {
             throw new AccioException(GENERIC_INTERNAL_ERROR, e);
@@ -49,16 +49,21 @@ public class PostgresSqlConverter
     {
         Node rewrittenNode = parseSql(sql);
         List<SqlRewrite> sqlRewrites = ImmutableList.of(RewriteToPostgresType.INSTANCE);
-        LOG.info("[Input sql]: %s", sql);
+        LOG.debug("[Input sql]: %s", sql);
 
         for (SqlRewrite rewrite : sqlRewrites) {
-            LOG.debug("Before %s: %s", rewrite.getClass().getSimpleName(), formatSql(rewrittenNode));
+            // formatting the tree for each rewrite is costly, don't do it unless it's logged
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Before %s: %s", rewrite.getClass().getSimpleName(), formatSql(rewrittenNode));
+            }
             rewrittenNode = rewrite.rewrite(rewrittenNode, metadata);
-            LOG.debug("After %s: %s", rewrite.getClass().getSimpleName(), formatSql(rewrittenNode));
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("After %s: %s", rewrite.getClass().getSimpleName(), formatSql(rewrittenNode));
+            }
         }
 
         String dialectSql = formatSql(rewrittenNode, POSTGRES);
-        LOG.info("[Dialect sql]: %s", dialectSql);
+        LOG.debug("[Dialect sql]: %s", dialectSql);
         return dialectSql;
     }
 }
@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.metadata;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.accio.base.Cancellation;
+import io.accio.base.Column;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.Parameter;
+import io.accio.base.metadata.TableMetadata;
+import io.airlift.units.Duration;
+import io.trino.sql.tree.QualifiedName;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Caches the metadata listed from the data source, so the data source is only asked again once an entry expires.
+ * Entries older than half of their ttl are refreshed in the background while the old value is still served.
+ * Schema changes made through this class and reloading the MDL invalidate the cached entries.
+ */
+public class CachingMetadata
+        implements Metadata
+{
+    private static final String SINGLE_KEY = "";
+
+    private final Metadata delegate;
+    private final ExecutorService refreshExecutor;
+    private final LoadingCache<String, List<String>> schemasCache;
+    private final LoadingCache<String, Boolean> schemaExistCache;
+    private final LoadingCache<String, List<TableMetadata>> tablesCache;
+    private final LoadingCache<String, List<String>> functionNamesCache;
+    private final LoadingCache<String, String> defaultCatalogCache;
+
+    @Inject
+    public CachingMetadata(@ForCachingMetadata Metadata delegate, MetadataCacheConfig config)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        requireNonNull(config, "config is null");
+        this.refreshExecutor = newFixedThreadPool(config.getRefreshThreads(), daemonThreadsNamed("metadata-cache-refresh-%s"));
+        this.schemasCache = buildCache(config, config.getSchemasTtl(), ignored -> delegate.listSchemas());
+        this.schemaExistCache = buildCache(config, config.getSchemasTtl(), delegate::isSchemaExist);
+        this.tablesCache = buildCache(config, config.getTablesTtl(), delegate::listTables);
+        this.functionNamesCache = buildCache(config, config.getFunctionsTtl(), delegate::listFunctionNames);
+        this.defaultCatalogCache = buildCache(config, config.getDefaultCatalogTtl(), ignored -> delegate.getDefaultCatalog());
+    }
+
+    private <K, V> LoadingCache<K, V> buildCache(MetadataCacheConfig config, Duration ttl, Function<K, V> loader)
+    {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaxEntries());
+        long ttlMillis = config.isEnabled() ? ttl.toMillis() : 0;
+        builder.expireAfterWrite(ttlMillis, MILLISECONDS);
+        if (ttlMillis > 1) {
+            builder.refreshAfterWrite(ttlMillis / 2, MILLISECONDS);
+        }
+        return builder.build(CacheLoader.asyncReloading(CacheLoader.from(loader::apply), refreshExecutor));
+    }
+
+    private static <K, V> V get(LoadingCache<K, V> cache, K key)
+    {
+        try {
+            return cache.getUnchecked(key);
+        }
+        catch (UncheckedExecutionException e) {
+            throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * Drops every cached entry, e.g. after the MDL is reloaded.
+     */
+    public void invalidateAll()
+    {
+        invalidateObjects();
+        defaultCatalogCache.invalidateAll();
+    }
+
+    private void invalidateObjects()
+    {
+        schemasCache.invalidateAll();
+        schemaExistCache.invalidateAll();
+        tablesCache.invalidateAll();
+        functionNamesCache.invalidateAll();
+    }
+
+    private void invalidateSchema(String name)
+    {
+        schemasCache.invalidateAll();
+        schemaExistCache.invalidate(name);
+        tablesCache.invalidate(name);
+        functionNamesCache.invalidate(name);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        refreshExecutor.shutdownNow();
+    }
+
+    @Override
+    public void createSchema(String name)
+    {
+        try {
+            delegate.createSchema(name);
+        }
+        finally {
+            invalidateSchema(name);
+        }
+    }
+
+    @Override
+    public boolean isSchemaExist(String name)
+    {
+        return get(schemaExistCache, name);
+    }
+
+    @Override
+    public void dropSchemaIfExists(String name)
+    {
+        try {
+            delegate.dropSchemaIfExists(name);
+        }
+        finally {
+            invalidateSchema(name);
+        }
+    }
+
+    @Override
+    public List<String> listSchemas()
+    {
+        return get(schemasCache, SINGLE_KEY);
+    }
+
+    @Override
+    public List<TableMetadata> listTables(String schemaName)
+    {
+        return get(tablesCache, schemaName);
+    }
+
+    @Override
+    public List<String> listFunctionNames(String schemaName)
+    {
+        return get(functionNamesCache, schemaName);
+    }
+
+    @Override
+    public QualifiedName resolveFunction(String functionName, int numArgument)
+    {
+        return delegate.resolveFunction(functionName, numArgument);
+    }
+
+    @Override
+    public String getDefaultCatalog()
+    {
+        return get(defaultCatalogCache, SINGLE_KEY);
+    }
+
+    @Override
+    public void directDDL(String sql)
+    {
+        try {
+            delegate.directDDL(sql);
+        }
+        finally {
+            // any schema, table or function could have been changed
+            invalidateObjects();
+        }
+    }
+
+    @Override
+    public ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters)
+    {
+        return delegate.directQuery(sql, parameters);
+    }
+
+    @Override
+    public ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters, Cancellation cancellation)
+    {
+        return delegate.directQuery(sql, parameters, cancellation);
+    }
+
+    @Override
+    public CompletableFuture<ConnectorRecordIterator> directQueryAsync(String sql, List<Parameter> parameters, Cancellation cancellation)
+    {
+        return delegate.directQueryAsync(sql, parameters, cancellation);
+    }
+
+    @Override
+    public List<Column> describeQuery(String sql, List<Parameter> parameters)
+    {
+        return delegate.describeQuery(sql, parameters);
+    }
+
+    @Override
+    public boolean isPgCompatible()
+    {
+        return delegate.isPgCompatible();
+    }
+
+    @Override
+    public String getMetadataSchemaName()
+    {
+        return delegate.getMetadataSchemaName();
+    }
+
+    @Override
+    public String getPgCatalogName()
+    {
+        return delegate.getPgCatalogName();
+    }
+}
@@ -13,6 +13,7 @@
  */
 package io.accio.main.metadata;
 
+import io.accio.base.Cancellation;
 import io.accio.base.Column;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.Parameter;
@@ -20,6 +21,7 @@ import io.accio.base.metadata.TableMetadata;
 import io.trino.sql.tree.QualifiedName;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface Metadata
 {
@@ -43,6 +45,28 @@ public interface Metadata
 
     ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters);
 
+    /**
+     * Runs the query like {@link #directQuery(String, List)}, and stops it in the data source once the cancellation is canceled.
+     */
+    default ConnectorRecordIterator directQuery(String sql, List<Parameter> parameters, Cancellation cancellation)
+    {
+        return directQuery(sql, parameters);
+    }
+
+    /**
+     * Starts the query like {@link #directQuery(String, List, Cancellation)}. The default implementation runs the query on
+     * the calling thread, the connectors which can wait for the query without holding a thread override it.
+     */
+    default CompletableFuture<ConnectorRecordIterator> directQueryAsync(String sql, List<Parameter> parameters, Cancellation cancellation)
+    {
+        try {
+            return CompletableFuture.completedFuture(directQuery(sql, parameters, cancellation));
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     List<Column> describeQuery(String sql, List<Parameter> parameters);
 
     boolean isPgCompatible();
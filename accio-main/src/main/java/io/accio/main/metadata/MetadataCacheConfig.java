@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.metadata;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class MetadataCacheConfig
+{
+    private boolean enabled = true;
+    private Duration schemasTtl = new Duration(10, MINUTES);
+    private Duration tablesTtl = new Duration(5, MINUTES);
+    private Duration functionsTtl = new Duration(10, MINUTES);
+    private Duration defaultCatalogTtl = new Duration(1, HOURS);
+    private long maxEntries = 10_000;
+    private int refreshThreads = 2;
+
+    @Config("metadata.cache.enabled")
+    @ConfigDescription("Cache the schemas, tables and functions listed from the data source")
+    public MetadataCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("metadata.cache.schemas-ttl")
+    @ConfigDescription("How long listed schemas are cached; entries are refreshed in the background after half of it, 0s disables it, default is 10m")
+    public MetadataCacheConfig setSchemasTtl(Duration schemasTtl)
+    {
+        this.schemasTtl = schemasTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getSchemasTtl()
+    {
+        return schemasTtl;
+    }
+
+    @Config("metadata.cache.tables-ttl")
+    @ConfigDescription("How long listed tables are cached; entries are refreshed in the background after half of it, 0s disables it, default is 5m")
+    public MetadataCacheConfig setTablesTtl(Duration tablesTtl)
+    {
+        this.tablesTtl = tablesTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getTablesTtl()
+    {
+        return tablesTtl;
+    }
+
+    @Config("metadata.cache.functions-ttl")
+    @ConfigDescription("How long listed functions are cached; entries are refreshed in the background after half of it, 0s disables it, default is 10m")
+    public MetadataCacheConfig setFunctionsTtl(Duration functionsTtl)
+    {
+        this.functionsTtl = functionsTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getFunctionsTtl()
+    {
+        return functionsTtl;
+    }
+
+    @Config("metadata.cache.default-catalog-ttl")
+    @ConfigDescription("How long the default catalog is cached; it is refreshed in the background after half of it, 0s disables it, default is 1h")
+    public MetadataCacheConfig setDefaultCatalogTtl(Duration defaultCatalogTtl)
+    {
+        this.defaultCatalogTtl = defaultCatalogTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getDefaultCatalogTtl()
+    {
+        return defaultCatalogTtl;
+    }
+
+    @Config("metadata.cache.max-entries")
+    @ConfigDescription("The maximum number of entries per cached method; default is 10000")
+    public MetadataCacheConfig setMaxEntries(long maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    @Min(1)
+    public long getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    @Config("metadata.cache.refresh-threads")
+    @ConfigDescription("The number of threads refreshing cached metadata in the background; default is 2")
+    public MetadataCacheConfig setRefreshThreads(int refreshThreads)
+    {
+        this.refreshThreads = refreshThreads;
+        return this;
+    }
+
+    @Min(1)
+    public int getRefreshThreads()
+    {
+        return refreshThreads;
+    }
+}
@@ -16,10 +16,10 @@ package io.accio.main.pgcatalog;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import io.accio.main.AccioConfig;
 import io.accio.main.metadata.Metadata;
 import io.accio.main.pgcatalog.builder.PgCatalogTableBuilder;
 import io.accio.main.pgcatalog.builder.PgFunctionBuilder;
-import io.accio.main.pgcatalog.function.PgFunction;
 import io.accio.main.pgcatalog.function.PgFunctionRegistry;
 import io.accio.main.pgcatalog.table.CharacterSets;
 import io.accio.main.pgcatalog.table.KeyColumnUsage;
@@ -42,15 +42,28 @@ import io.accio.main.pgcatalog.table.PgTablespaceTable;
 import io.accio.main.pgcatalog.table.PgTypeTable;
 import io.accio.main.pgcatalog.table.ReferentialConstraints;
 import io.accio.main.pgcatalog.table.TableConstraints;
+import io.airlift.log.Logger;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 
 public class PgCatalogManager
 {
+    private static final Logger LOG = Logger.get(PgCatalogManager.class);
+
     private final Map<String, PgCatalogTable> tables;
 
     protected final String metadataSchemaName;
@@ -61,11 +74,20 @@ public class PgCatalogManager
     private final PgCatalogTableBuilder pgCatalogTableBuilder;
     private final PgFunctionBuilder pgFunctionBuilder;
 
+    private final int initParallelism;
+    private final boolean lazyMaterialization;
+    private final ConcurrentMap<String, CompletableFuture<Void>> materializedTables = new ConcurrentHashMap<>();
+
     private final List<String> highPriorityTableName = ImmutableList.of(PgTypeTable.NAME);
+    // the tables read by the bodies of the functions created by initPgFunctions
+    private final List<String> functionDependencyTableName = ImmutableList.of(PgTypeTable.NAME, PgProcTable.NAME);
 
     @Inject
-    public PgCatalogManager(Metadata connector, PgCatalogTableBuilder pgCatalogTableBuilder, PgFunctionBuilder pgFunctionBuilder)
+    public PgCatalogManager(AccioConfig accioConfig, Metadata connector, PgCatalogTableBuilder pgCatalogTableBuilder, PgFunctionBuilder pgFunctionBuilder)
     {
+        requireNonNull(accioConfig, "accioConfig is null");
+        this.initParallelism = accioConfig.getPgCatalogInitParallelism();
+        this.lazyMaterialization = accioConfig.isPgCatalogLazyMaterialization();
         this.tables = initTables();
         this.connector = requireNonNull(connector, "connector is null");
         this.pgCatalogTableBuilder = requireNonNull(pgCatalogTableBuilder, "pgCatalogBuilder is null");
@@ -107,40 +129,116 @@ public class PgCatalogManager
             return;
         }
 
-        createOrReplaceSchema(metadataSchemaName);
-        createOrReplaceSchema(pgCatalogName);
-        initPgTables();
-        initPgFunctions();
+        // pg_catalog and the helper tables its views read in accio_temp are kept across restarts,
+        // objects in them are only rebuilt when their DDL changed
+        boolean helperSchemaExists = connector.isSchemaExist(metadataSchemaName);
+        if (!helperSchemaExists) {
+            connector.createSchema(metadataSchemaName);
+        }
+        createSchemaIfNotExists(pgCatalogName);
+        // without the helper tables the stored hashes don't describe what the views read, rebuild everything
+        pgCatalogTableBuilder.prepare(helperSchemaExists);
+        materializedTables.clear();
+        ExecutorService executor = newFixedThreadPool(initParallelism, daemonThreadsNamed("pg-catalog-init-%s"));
+        try {
+            if (lazyMaterialization) {
+                // queries only trigger the materialization of the tables in their FROM clause,
+                // not of the tables read by the functions they call
+                functionDependencyTableName.forEach(this::materializePgCatalogTable);
+                materializePgTablesInBackground();
+            }
+            else {
+                initPgTables(executor);
+            }
+            initPgFunctions(executor);
+        }
+        finally {
+            executor.shutdownNow();
+        }
     }
 
-    public void initPgTables()
+    /**
+     * With lazy materialization a table is created by {@link #materializePgCatalogTable} when a query
+     * reading it is parsed, which blocks the connection's event loop. Build the tables in the background
+     * after startup, so only the queries arriving before that finishes wait for the DDLs.
+     */
+    private void materializePgTablesInBackground()
+    {
+        ExecutorService executor = newFixedThreadPool(initParallelism, daemonThreadsNamed("pg-catalog-materialize-%s"));
+        CompletableFuture<?>[] materialized = tables.keySet().stream()
+                .map(tableName -> runAsync(() -> materializePgCatalogTable(tableName), executor))
+                .toArray(CompletableFuture[]::new);
+        allOf(materialized).whenComplete((ignored, e) -> {
+            executor.shutdown();
+            if (e != null) {
+                LOG.warn(e, "Failed to materialize pg_catalog tables in the background, they are created when a query reads them");
+            }
+        });
+    }
+
+    public void initPgTables(Executor executor)
     {
         // Some table has dependency with the high priority table.
         // Create them first.
         for (String tableName : highPriorityTableName) {
-            createPgCatalogTable(tables.get(tableName));
+            materializePgCatalogTable(tableName);
         }
 
-        List<PgCatalogTable> lowPriorityTable = tables.values().stream()
-                .filter(pgCatalogTable -> !highPriorityTableName.contains(pgCatalogTable.getName()))
+        List<CompletableFuture<Void>> lowPriorityTables = tables.keySet().stream()
+                .filter(tableName -> !highPriorityTableName.contains(tableName))
+                .map(tableName -> runAsync(() -> materializePgCatalogTable(tableName), executor))
                 .collect(toImmutableList());
+        lowPriorityTables.forEach(table -> getFutureValue(table));
+    }
+
+    /**
+     * Make sure the given pg_catalog table has been created, creating it and the tables it depends on
+     * if needed. Concurrent callers of the same table wait for a single creation. Names which aren't
+     * pg_catalog tables managed here are ignored.
+     */
+    public void materializePgCatalogTable(String tableName)
+    {
+        PgCatalogTable pgCatalogTable = tables.get(tableName);
+        if (pgCatalogTable == null || connector.isPgCompatible()) {
+            return;
+        }
+        CompletableFuture<Void> materialized = materializedTables.get(tableName);
+        if (materialized != null && materialized.isDone() && !materialized.isCompletedExceptionally()) {
+            return;
+        }
+
+        if (!highPriorityTableName.contains(tableName)) {
+            highPriorityTableName.forEach(this::materializePgCatalogTable);
+        }
 
-        for (PgCatalogTable pgCatalogTable : lowPriorityTable) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<Void> existing = materializedTables.putIfAbsent(tableName, result);
+        if (existing != null) {
+            getFutureValue(existing);
+            return;
+        }
+        try {
             createPgCatalogTable(pgCatalogTable);
+            result.complete(null);
+        }
+        catch (RuntimeException e) {
+            // let the next query try again
+            materializedTables.remove(tableName, result);
+            result.completeExceptionally(e);
+            throw e;
         }
     }
 
-    public void initPgFunctions()
+    public void initPgFunctions(Executor executor)
     {
-        for (PgFunction pgFunction : pgFunctionRegistry.getPgFunctions()) {
-            pgFunctionBuilder.createPgFunction(pgFunction);
-        }
+        pgFunctionBuilder.createPgFunctions(pgFunctionRegistry.getPgFunctions(), executor);
     }
 
-    private void createOrReplaceSchema(String name)
+    private void createSchemaIfNotExists(String name)
     {
-        connector.dropSchemaIfExists(name);
-        connector.createSchema(name);
+        if (!connector.isSchemaExist(name)) {
+            connector.createSchema(name);
+        }
     }
 
     private void createPgCatalogTable(PgCatalogTable pgCatalogTable)
@@ -14,10 +14,23 @@
 
 package io.accio.main.pgcatalog;
 
+import static com.google.common.hash.Hashing.sha256;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public final class PgCatalogUtils
 {
     public static final String PG_CATALOG_NAME = "pg_catalog";
     public static final String ACCIO_TEMP_NAME = "accio_temp";
+    // label key recording which DDL produced a pg_catalog object
+    public static final String CONTENT_HASH_LABEL = "accio_content_hash";
 
     private PgCatalogUtils() {}
+
+    /**
+     * A short hash of the given DDL, safe to be used as a BigQuery label value.
+     */
+    public static String contentHash(String sql)
+    {
+        return sha256().hashString(sql, UTF_8).toString().substring(0, 32);
+    }
 }
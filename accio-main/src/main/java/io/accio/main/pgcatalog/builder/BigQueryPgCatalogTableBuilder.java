@@ -14,21 +14,36 @@
 
 package io.accio.main.pgcatalog.builder;
 
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Streams;
 import io.accio.base.metadata.ColumnMetadata;
 import io.accio.base.type.PGType;
+import io.accio.connector.bigquery.BigQueryClient;
 import io.accio.main.AccioMetastore;
 import io.accio.main.metadata.Metadata;
+import io.accio.main.pgcatalog.table.CharacterSets;
+import io.accio.main.pgcatalog.table.PgAttributeTable;
 import io.accio.main.pgcatalog.table.PgCatalogTable;
+import io.accio.main.pgcatalog.table.PgClassTable;
+import io.accio.main.pgcatalog.table.PgDatabaseTable;
+import io.accio.main.pgcatalog.table.PgNamespaceTable;
 
 import javax.inject.Inject;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 
+import static com.google.common.base.MoreObjects.firstNonNull;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static io.accio.base.type.CharType.CHAR;
 import static io.accio.base.type.VarcharType.VARCHAR;
+import static io.accio.main.pgcatalog.PgCatalogUtils.CONTENT_HASH_LABEL;
 import static io.accio.main.pgcatalog.builder.BigQueryUtils.buildPgCatalogTableView;
 import static io.accio.main.pgcatalog.builder.BigQueryUtils.createOrReplaceAllColumn;
 import static io.accio.main.pgcatalog.builder.BigQueryUtils.createOrReplaceAllTable;
@@ -42,17 +57,55 @@ import static java.util.stream.Collectors.joining;
 public final class BigQueryPgCatalogTableBuilder
         extends PgCatalogTableBuilder
 {
+    private final BigQueryClient bigQueryClient;
     private final String metadataSchemaName;
     private final String pgCatalogName;
 
     @Inject
-    public BigQueryPgCatalogTableBuilder(Metadata metadata, AccioMetastore accioMetastore)
+    public BigQueryPgCatalogTableBuilder(Metadata metadata, AccioMetastore accioMetastore, BigQueryClient bigQueryClient)
     {
         super(metadata, accioMetastore);
+        this.bigQueryClient = requireNonNull(bigQueryClient, "bigQueryClient is null");
         this.metadataSchemaName = requireNonNull(metadata.getMetadataSchemaName());
         this.pgCatalogName = requireNonNull(metadata.getPgCatalogName());
     }
 
+    @Override
+    protected List<String> getHelperDDLs(PgCatalogTable pgCatalogTable)
+    {
+        switch (pgCatalogTable.getName()) {
+            case PgClassTable.NAME:
+            case PgDatabaseTable.NAME:
+            case PgNamespaceTable.NAME:
+            case CharacterSets.NAME:
+                return ImmutableList.of(createOrReplaceAllTable(getAccioMDL(), metadataSchemaName, pgCatalogName));
+            case PgAttributeTable.NAME:
+                return ImmutableList.of(
+                        createOrReplacePgTypeMapping(metadataSchemaName),
+                        createOrReplaceAllColumn(getAccioMDL(), metadataSchemaName, pgCatalogName));
+            default:
+                return ImmutableList.of();
+        }
+    }
+
+    @Override
+    protected Map<String, String> loadContentHashes()
+    {
+        // tables.list returns the labels, so a single listing covers the whole catalog
+        return Streams.stream(bigQueryClient.listTables(DatasetId.of(pgCatalogName)))
+                .filter(table -> table.getLabels() != null && table.getLabels().containsKey(CONTENT_HASH_LABEL))
+                .collect(toImmutableMap(table -> table.getTableId().getTable(), table -> table.getLabels().get(CONTENT_HASH_LABEL)));
+    }
+
+    @Override
+    protected void storeContentHash(String tableName, String contentHash)
+    {
+        Table table = bigQueryClient.getTable(TableId.of(pgCatalogName, tableName));
+        Map<String, String> labels = new HashMap<>(firstNonNull(table.getLabels(), ImmutableMap.of()));
+        labels.put(CONTENT_HASH_LABEL, contentHash);
+        bigQueryClient.updateTable(table.toBuilder().setLabels(labels).build());
+    }
+
     @Override
     protected Map<String, String> initReplaceMap()
     {
@@ -75,7 +128,6 @@ public final class BigQueryPgCatalogTableBuilder
     @Override
     protected String createPgClass(PgCatalogTable pgCatalogTable)
     {
-        getMetadata().directDDL(createOrReplaceAllTable(getAccioMDL(), metadataSchemaName, pgCatalogName));
         StringBuilder builder = new StringBuilder();
         builder.append(format("CREATE OR REPLACE VIEW `%s.%s` AS SELECT ", pgCatalogName, pgCatalogTable.getName()));
         Map<String, String> tableContent = pgCatalogTable.getTableContent();
@@ -116,8 +168,6 @@ public final class BigQueryPgCatalogTableBuilder
     @Override
     protected String createPgAttributeTable(PgCatalogTable pgCatalogTable)
     {
-        getMetadata().directDDL(createOrReplacePgTypeMapping(metadataSchemaName));
-        getMetadata().directDDL(createOrReplaceAllColumn(getAccioMDL(), metadataSchemaName, pgCatalogName));
         StringBuilder builder = new StringBuilder();
         builder.append(format("CREATE OR REPLACE VIEW `%s.%s` AS SELECT ", pgCatalogName, pgCatalogTable.getName()));
         Map<String, String> tableContent = pgCatalogTable.getTableContent();
@@ -146,7 +196,6 @@ public final class BigQueryPgCatalogTableBuilder
     protected String createPgDatabaseTable(PgCatalogTable pgCatalogTable)
     {
         // TODO get project id from config
-        getMetadata().directDDL(createOrReplaceAllTable(getAccioMDL(), metadataSchemaName, pgCatalogName));
         StringBuilder builder = new StringBuilder();
         builder.append(format("CREATE OR REPLACE VIEW `%s.%s` AS SELECT DISTINCT ", pgCatalogName, pgCatalogTable.getName()));
         Map<String, String> tableContent = pgCatalogTable.getTableContent();
@@ -180,7 +229,6 @@ public final class BigQueryPgCatalogTableBuilder
     @Override
     protected String createPgNamespaceTable(PgCatalogTable pgCatalogTable)
     {
-        getMetadata().directDDL(createOrReplaceAllTable(getAccioMDL(), metadataSchemaName, pgCatalogName));
         StringBuilder builder = new StringBuilder();
         builder.append(format("CREATE OR REPLACE VIEW `%s.%s` AS SELECT DISTINCT ", pgCatalogName, pgCatalogTable.getName()));
         Map<String, String> tableContent = pgCatalogTable.getTableContent();
@@ -237,7 +285,6 @@ public final class BigQueryPgCatalogTableBuilder
     @Override
     protected String createCharacterSets(PgCatalogTable pgCatalogTable)
     {
-        getMetadata().directDDL(createOrReplaceAllTable(getAccioMDL(), metadataSchemaName, pgCatalogName));
         StringBuilder builder = new StringBuilder();
         builder.append(format("CREATE OR REPLACE VIEW `%s.%s` AS SELECT DISTINCT ", pgCatalogName, pgCatalogTable.getName()));
         Map<String, String> tableContent = pgCatalogTable.getTableContent();
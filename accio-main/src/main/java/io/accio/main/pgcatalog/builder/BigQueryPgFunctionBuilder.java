@@ -14,16 +14,24 @@
 
 package io.accio.main.pgcatalog.builder;
 
+import com.google.cloud.bigquery.Dataset;
+import com.google.common.collect.ImmutableMap;
 import io.accio.base.AccioException;
+import io.accio.connector.bigquery.BigQueryClient;
 import io.accio.main.metadata.Metadata;
 import io.accio.main.pgcatalog.function.PgFunction;
 
 import javax.inject.Inject;
 
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
+import static com.google.common.base.MoreObjects.firstNonNull;
 import static io.accio.base.metadata.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static io.accio.base.type.VarcharType.VARCHAR;
+import static io.accio.main.pgcatalog.PgCatalogUtils.CONTENT_HASH_LABEL;
 import static io.accio.main.pgcatalog.builder.BigQueryUtils.toBqType;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
@@ -31,15 +39,35 @@ import static java.util.Objects.requireNonNull;
 public class BigQueryPgFunctionBuilder
         extends PgFunctionBuilder
 {
+    private final BigQueryClient bigQueryClient;
     private final String pgCatalogName;
 
     @Inject
-    public BigQueryPgFunctionBuilder(Metadata connector)
+    public BigQueryPgFunctionBuilder(Metadata connector, BigQueryClient bigQueryClient)
     {
         super(connector);
+        this.bigQueryClient = requireNonNull(bigQueryClient, "bigQueryClient is null");
         this.pgCatalogName = requireNonNull(connector.getPgCatalogName());
     }
 
+    // Routines can't carry labels, so the hash of all the functions is kept on the dataset instead.
+    @Override
+    protected Optional<String> loadContentHash()
+    {
+        return Optional.ofNullable(bigQueryClient.getDataset(pgCatalogName))
+                .map(Dataset::getLabels)
+                .map(labels -> labels.get(CONTENT_HASH_LABEL));
+    }
+
+    @Override
+    protected void storeContentHash(String contentHash)
+    {
+        Dataset dataset = bigQueryClient.getDataset(pgCatalogName);
+        Map<String, String> labels = new HashMap<>(firstNonNull(dataset.getLabels(), ImmutableMap.of()));
+        labels.put(CONTENT_HASH_LABEL, contentHash);
+        bigQueryClient.updateDataset(dataset.toBuilder().setLabels(labels).build());
+    }
+
     @Override
     protected String generateCreateFunction(PgFunction pgFunction)
     {
@@ -14,6 +14,8 @@
 
 package io.accio.main.pgcatalog.builder;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.accio.base.AccioException;
 import io.accio.base.AccioMDL;
 import io.accio.main.AccioMetastore;
@@ -42,11 +44,19 @@ import io.accio.main.pgcatalog.table.TableConstraints;
 import io.airlift.log.Logger;
 import org.apache.commons.lang3.text.StrSubstitutor;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
 
 import static io.accio.base.metadata.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static io.accio.main.pgcatalog.PgCatalogUtils.contentHash;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
 
 public abstract class PgCatalogTableBuilder
 {
@@ -55,6 +65,8 @@ public abstract class PgCatalogTableBuilder
     private final Map<String, String> replaceMap;
     private final StrSubstitutor strSubstitutor;
     private final AccioMDL accioMDL;
+    private final ConcurrentMap<String, CompletableFuture<Void>> sharedDDLs = new ConcurrentHashMap<>();
+    private volatile Map<String, String> contentHashes = ImmutableMap.of();
 
     public PgCatalogTableBuilder(Metadata metadata, AccioMetastore accioMetastore)
     {
@@ -64,7 +76,36 @@ public abstract class PgCatalogTableBuilder
         this.accioMDL = requireNonNull(accioMetastore.getAccioMDL(), "accioMDL is null");
     }
 
+    /**
+     * Prepare for a new round of {@link #createPgTable} calls. Shared helper DDLs run again
+     * and the content hashes of the existing catalog tables are reloaded.
+     *
+     * @param reuseExisting false if the helper tables are gone, so every catalog table is recreated
+     * regardless of its stored hash
+     */
+    public void prepare(boolean reuseExisting)
+    {
+        sharedDDLs.clear();
+        contentHashes = reuseExisting ? ImmutableMap.copyOf(loadContentHashes()) : ImmutableMap.of();
+    }
+
     public void createPgTable(PgCatalogTable pgCatalogTable)
+    {
+        List<String> helperDDLs = getHelperDDLs(pgCatalogTable);
+        String sql = strSubstitutor.replace(generateCreateTable(pgCatalogTable));
+        String contentHash = contentHash(Stream.concat(helperDDLs.stream(), Stream.of(sql)).collect(joining(";\n")));
+        if (contentHash.equals(contentHashes.get(pgCatalogTable.getName()))) {
+            LOG.info("%s.%s is up to date", metadata.getPgCatalogName(), pgCatalogTable.getName());
+            return;
+        }
+
+        helperDDLs.forEach(this::directDDLOnce);
+        metadata.directDDL(sql);
+        storeContentHash(pgCatalogTable.getName(), contentHash);
+        LOG.info("%s.%s has created or updated", metadata.getPgCatalogName(), pgCatalogTable.getName());
+    }
+
+    private String generateCreateTable(PgCatalogTable pgCatalogTable)
     {
         String sql;
         switch (pgCatalogTable.getName()) {
@@ -132,10 +173,53 @@ public abstract class PgCatalogTableBuilder
                 throw new AccioException(GENERIC_INTERNAL_ERROR, format("Unsupported table %s", pgCatalogTable.getName()));
         }
 
-        metadata.directDDL(strSubstitutor.replace(sql));
-        LOG.info("%s.%s has created or updated", metadata.getPgCatalogName(), pgCatalogTable.getName());
+        return sql;
     }
 
+    /**
+     * Returns the DDLs of the helper tables the given catalog table reads from. They run before the
+     * table itself, and only when the table is recreated, so their content is part of its hash.
+     * Generating the catalog table DDL itself must have no side effects.
+     */
+    protected List<String> getHelperDDLs(PgCatalogTable pgCatalogTable)
+    {
+        return ImmutableList.of();
+    }
+
+    /**
+     * Run a DDL that several catalog tables depend on. Tables are created concurrently, so the
+     * first caller executes the statement and the others wait for its result.
+     */
+    private void directDDLOnce(String sql)
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<Void> existing = sharedDDLs.putIfAbsent(sql, result);
+        if (existing != null) {
+            getFutureValue(existing);
+            return;
+        }
+        try {
+            metadata.directDDL(sql);
+            result.complete(null);
+        }
+        catch (RuntimeException e) {
+            sharedDDLs.remove(sql, result);
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the content hash recorded for each existing catalog table, keyed by table name.
+     * Tables without a recorded hash are always recreated.
+     */
+    protected Map<String, String> loadContentHashes()
+    {
+        return ImmutableMap.of();
+    }
+
+    protected void storeContentHash(String tableName, String contentHash) {}
+
     protected abstract Map<String, String> initReplaceMap();
 
     public Metadata getMetadata()
@@ -14,13 +14,25 @@
 
 package io.accio.main.pgcatalog.builder;
 
+import com.google.common.collect.Lists;
 import io.accio.main.metadata.Metadata;
 import io.accio.main.pgcatalog.function.PgFunction;
 import io.airlift.log.Logger;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.accio.main.pgcatalog.PgCatalogUtils.contentHash;
+import static io.airlift.concurrent.MoreFutures.getFutureValue;
+import static java.util.concurrent.CompletableFuture.runAsync;
+
 public abstract class PgFunctionBuilder
 {
     private static final Logger LOG = Logger.get(PgFunctionBuilder.class);
+    private static final int FUNCTIONS_PER_SCRIPT = 50;
     private final Metadata connector;
 
     public PgFunctionBuilder(Metadata connector)
@@ -28,12 +40,35 @@ public abstract class PgFunctionBuilder
         this.connector = connector;
     }
 
-    public void createPgFunction(PgFunction pgFunction)
+    /**
+     * Create all the given functions. The statements are sent as multi-statement scripts running on
+     * the given executor, and nothing is sent if the recorded content hash shows they are up to date.
+     */
+    public void createPgFunctions(List<PgFunction> pgFunctions, Executor executor)
     {
-        String sql = generateCreateFunction(pgFunction);
-        connector.directDDL(sql);
-        LOG.info("%s.%s has created or updated", connector.getPgCatalogName(), pgFunction.getName());
+        List<String> statements = pgFunctions.stream()
+                .map(this::generateCreateFunction)
+                .collect(toImmutableList());
+        String contentHash = contentHash(String.join(";\n", statements));
+        if (loadContentHash().map(contentHash::equals).orElse(false)) {
+            LOG.info("%s functions in %s are up to date", statements.size(), connector.getPgCatalogName());
+            return;
+        }
+
+        List<CompletableFuture<Void>> scripts = Lists.partition(statements, FUNCTIONS_PER_SCRIPT).stream()
+                .map(batch -> runAsync(() -> connector.directDDL(String.join(";\n", batch)), executor))
+                .collect(toImmutableList());
+        scripts.forEach(script -> getFutureValue(script));
+        storeContentHash(contentHash);
+        LOG.info("%s functions in %s have created or updated", statements.size(), connector.getPgCatalogName());
     }
 
+    protected Optional<String> loadContentHash()
+    {
+        return Optional.empty();
+    }
+
+    protected void storeContentHash(String contentHash) {}
+
     protected abstract String generateCreateFunction(PgFunction pgFunction);
 }
@@ -17,6 +17,7 @@ package io.accio.main.pgcatalog.regtype;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Streams;
 import io.accio.main.metadata.Metadata;
+import io.accio.main.pgcatalog.PgCatalogManager;
 
 import javax.inject.Inject;
 
@@ -32,11 +33,13 @@ public class BigQueryPgMetadata
         extends PgMetadata
 {
     private final Metadata metadata;
+    private final PgCatalogManager pgCatalogManager;
 
     @Inject
-    public BigQueryPgMetadata(Metadata metadata)
+    public BigQueryPgMetadata(Metadata metadata, PgCatalogManager pgCatalogManager)
     {
         this.metadata = requireNonNull(metadata, "metadata is null");
+        this.pgCatalogManager = requireNonNull(pgCatalogManager, "pgCatalogManager is null");
     }
 
     @Override
@@ -44,6 +47,7 @@ public class BigQueryPgMetadata
     {
         // TODO: change to use bigquery api to save cost
         // https://github.com/Canner/canner-metric-layer/issues/63
+        pgCatalogManager.materializePgCatalogTable(REGPROC.getTableName());
         return Streams.stream(metadata.directQuery(format("SELECT oid, %s FROM %s.%s", REGPROC.getNameField(), metadata.getPgCatalogName(), REGPROC.getTableName()), ImmutableList.of()))
                 .map(row -> new RegProc((long) row[0], (String) row[1]))
                 .collect(toImmutableList());
@@ -54,6 +58,7 @@ public class BigQueryPgMetadata
     {
         // TODO: change to use bigquery api to save cost
         // https://github.com/Canner/canner-metric-layer/issues/63
+        pgCatalogManager.materializePgCatalogTable(REGCLASS.getTableName());
         return Streams.stream(metadata.directQuery(format("SELECT oid, %s FROM %s.%s", REGCLASS.getNameField(), metadata.getPgCatalogName(), REGCLASS.getTableName()), ImmutableList.of()))
                 .map(row -> new RegObjectImpl((long) row[0], (String) row[1]))
                 .collect(toImmutableList());
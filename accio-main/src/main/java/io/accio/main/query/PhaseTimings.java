@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * The time spent in each {@link QueryPhase}, in nanoseconds.
+ */
+public class PhaseTimings
+{
+    private final AtomicLongArray nanos = new AtomicLongArray(QueryPhase.values().length);
+
+    public <T> T time(QueryPhase phase, Supplier<T> action)
+    {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        }
+        finally {
+            add(phase, System.nanoTime() - start);
+        }
+    }
+
+    public void add(QueryPhase phase, long nanos)
+    {
+        this.nanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    public void addAll(PhaseTimings other)
+    {
+        for (QueryPhase phase : QueryPhase.values()) {
+            add(phase, other.get(phase));
+        }
+    }
+
+    public long get(QueryPhase phase)
+    {
+        return nanos.get(phase.ordinal());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class QueryAdmissionConfig
+{
+    public enum ResourceGroupKey
+    {
+        USER,
+        APPLICATION_NAME,
+    }
+
+    private boolean enabled;
+    private ResourceGroupKey resourceGroupKey = ResourceGroupKey.USER;
+    private int maxRunningQueries = 50;
+    private int maxRunningQueriesPerGroup = 10;
+    private int maxQueuedQueriesPerGroup = 100;
+    private Duration queueTimeout = new Duration(5, MINUTES);
+
+    @Config("query-admission.enabled")
+    @ConfigDescription("Limit the queries running on the data source; queries answered by the caches or the fast path are not limited")
+    public QueryAdmissionConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("query-admission.resource-group-key")
+    @ConfigDescription("Whether the queries are grouped by the client user or by its application_name; default is USER")
+    public QueryAdmissionConfig setResourceGroupKey(ResourceGroupKey resourceGroupKey)
+    {
+        this.resourceGroupKey = resourceGroupKey;
+        return this;
+    }
+
+    @NotNull
+    public ResourceGroupKey getResourceGroupKey()
+    {
+        return resourceGroupKey;
+    }
+
+    @Config("query-admission.max-running-queries")
+    @ConfigDescription("The queries running on the data source at once across all the groups; default is 50")
+    public QueryAdmissionConfig setMaxRunningQueries(int maxRunningQueries)
+    {
+        this.maxRunningQueries = maxRunningQueries;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxRunningQueries()
+    {
+        return maxRunningQueries;
+    }
+
+    @Config("query-admission.max-running-queries-per-group")
+    @ConfigDescription("The queries of a single group running on the data source at once; default is 10")
+    public QueryAdmissionConfig setMaxRunningQueriesPerGroup(int maxRunningQueriesPerGroup)
+    {
+        this.maxRunningQueriesPerGroup = maxRunningQueriesPerGroup;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxRunningQueriesPerGroup()
+    {
+        return maxRunningQueriesPerGroup;
+    }
+
+    @Config("query-admission.max-queued-queries-per-group")
+    @ConfigDescription("Queries of a group are rejected once this many are waiting; default is 100")
+    public QueryAdmissionConfig setMaxQueuedQueriesPerGroup(int maxQueuedQueriesPerGroup)
+    {
+        this.maxQueuedQueriesPerGroup = maxQueuedQueriesPerGroup;
+        return this;
+    }
+
+    @Min(0)
+    public int getMaxQueuedQueriesPerGroup()
+    {
+        return maxQueuedQueriesPerGroup;
+    }
+
+    @Config("query-admission.queue-timeout")
+    @ConfigDescription("Queries waiting longer than this fail; default is 5m")
+    public QueryAdmissionConfig setQueueTimeout(Duration queueTimeout)
+    {
+        this.queueTimeout = queueTimeout;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getQueueTimeout()
+    {
+        return queueTimeout;
+    }
+}
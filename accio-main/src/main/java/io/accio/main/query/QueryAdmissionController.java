@@ -0,0 +1,317 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.accio.base.AccioException;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.TimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.accio.base.metadata.StandardErrorCode.EXCEEDED_TIME_LIMIT;
+import static io.accio.base.metadata.StandardErrorCode.QUERY_QUEUE_FULL;
+import static io.accio.main.query.QueryAdmissionConfig.ResourceGroupKey.USER;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.Objects.requireNonNullElse;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Bounds the queries running on the data source. Queries are grouped by their client user or
+ * application; a group runs at most {@code query-admission.max-running-queries-per-group} queries
+ * and queues the next ones. When a running query ends, the groups with queued queries take turns,
+ * so a group queueing many batch queries does not delay the queries of the others.
+ */
+public class QueryAdmissionController
+{
+    private static final Lease NO_LEASE = () -> {};
+    private static final String DEFAULT_GROUP = "default";
+
+    private final boolean enabled;
+    private final QueryAdmissionConfig.ResourceGroupKey resourceGroupKey;
+    private final int maxRunningQueries;
+    private final int maxRunningQueriesPerGroup;
+    private final int maxQueuedQueriesPerGroup;
+    private final Duration queueTimeout;
+    private final ScheduledExecutorService timeoutExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("query-admission-timeout-%s"));
+
+    private final Map<String, ResourceGroup> groups = new HashMap<>();
+    // the groups with queued queries, in the order they take turns
+    private final Deque<ResourceGroup> waitingGroups = new ArrayDeque<>();
+    private int runningQueries;
+    private int queuedQueries;
+
+    private final CounterStat admittedQueries = new CounterStat();
+    private final CounterStat rejectedQueries = new CounterStat();
+    private final CounterStat timedOutQueries = new CounterStat();
+    private final TimeStat queuedTime = new TimeStat(MILLISECONDS);
+
+    @Inject
+    public QueryAdmissionController(QueryAdmissionConfig config)
+    {
+        this.enabled = config.isEnabled();
+        this.resourceGroupKey = requireNonNull(config.getResourceGroupKey(), "resourceGroupKey is null");
+        this.maxRunningQueries = config.getMaxRunningQueries();
+        this.maxRunningQueriesPerGroup = config.getMaxRunningQueriesPerGroup();
+        this.maxQueuedQueriesPerGroup = config.getMaxQueuedQueriesPerGroup();
+        this.queueTimeout = requireNonNull(config.getQueueTimeout(), "queueTimeout is null");
+    }
+
+    /**
+     * @param user the client user, could be null
+     * @param applicationName the application_name of the client, could be null
+     * @return a lease completed once the query may run, to be closed when the query ends. It fails with
+     * {@code QUERY_QUEUE_FULL} if the group queues too many queries already, or with {@code EXCEEDED_TIME_LIMIT}
+     * if the query waits longer than the queue timeout.
+     */
+    public CompletableFuture<Lease> admit(@Nullable String user, @Nullable String applicationName)
+    {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(NO_LEASE);
+        }
+        String groupName = requireNonNullElse(resourceGroupKey == USER ? user : applicationName, DEFAULT_GROUP);
+        QueuedQuery queued;
+        synchronized (this) {
+            ResourceGroup group = groups.computeIfAbsent(groupName, ResourceGroup::new);
+            if (group.queue.isEmpty() && canRun(group)) {
+                return CompletableFuture.completedFuture(start(group, System.nanoTime()));
+            }
+            if (group.queue.size() >= maxQueuedQueriesPerGroup) {
+                rejectedQueries.update(1);
+                removeIfIdle(group);
+                return CompletableFuture.failedFuture(new AccioException(QUERY_QUEUE_FULL,
+                        format("Too many queued queries for %s", groupName)));
+            }
+            queued = new QueuedQuery(group);
+            if (group.queue.isEmpty()) {
+                waitingGroups.addLast(group);
+            }
+            group.queue.addLast(queued);
+            queuedQueries++;
+        }
+        queued.timeout = timeoutExecutor.schedule(() -> timeout(queued), queueTimeout.toMillis(), MILLISECONDS);
+        // a query canceled while queued leaves the queue right away
+        queued.future.whenComplete((lease, failure) -> {
+            if (failure instanceof CancellationException) {
+                dequeue(queued);
+            }
+        });
+        return queued.future;
+    }
+
+    private boolean canRun(ResourceGroup group)
+    {
+        return runningQueries < maxRunningQueries && group.running < maxRunningQueriesPerGroup;
+    }
+
+    private Lease start(ResourceGroup group, long queuedSince)
+    {
+        runningQueries++;
+        group.running++;
+        admittedQueries.update(1);
+        queuedTime.add(System.nanoTime() - queuedSince, NANOSECONDS);
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release(group);
+            }
+        };
+    }
+
+    private void release(ResourceGroup group)
+    {
+        List<Runnable> started = new ArrayList<>();
+        synchronized (this) {
+            runningQueries--;
+            group.running--;
+            // the waiting groups take turns, each starts one query at a time
+            int turns = waitingGroups.size();
+            while (turns-- > 0 && runningQueries < maxRunningQueries) {
+                ResourceGroup next = waitingGroups.pollFirst();
+                if (canRun(next)) {
+                    QueuedQuery queued = next.queue.pollFirst();
+                    queuedQueries--;
+                    Lease lease = start(next, queued.queuedSince);
+                    started.add(() -> queued.start(lease));
+                }
+                if (!next.queue.isEmpty()) {
+                    waitingGroups.addLast(next);
+                }
+            }
+            removeIfIdle(group);
+        }
+        // complete outside of the lock, the waiting threads resume right away
+        started.forEach(Runnable::run);
+    }
+
+    private void timeout(QueuedQuery queued)
+    {
+        if (dequeue(queued)) {
+            timedOutQueries.update(1);
+            queued.future.completeExceptionally(new AccioException(EXCEEDED_TIME_LIMIT,
+                    format("Query was queued for more than %s", queueTimeout)));
+        }
+    }
+
+    /**
+     * @return false if the query isn't queued anymore
+     */
+    private synchronized boolean dequeue(QueuedQuery queued)
+    {
+        if (!queued.group.queue.remove(queued)) {
+            return false;
+        }
+        queuedQueries--;
+        if (queued.group.queue.isEmpty()) {
+            waitingGroups.remove(queued.group);
+        }
+        removeIfIdle(queued.group);
+        return true;
+    }
+
+    private void removeIfIdle(ResourceGroup group)
+    {
+        if (group.running == 0 && group.queue.isEmpty()) {
+            groups.remove(group.name);
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        timeoutExecutor.shutdownNow();
+    }
+
+    @VisibleForTesting
+    synchronized int getRunningQueries(String groupName)
+    {
+        ResourceGroup group = groups.get(groupName);
+        return group == null ? 0 : group.running;
+    }
+
+    @Managed
+    public synchronized long getRunningQueries()
+    {
+        return runningQueries;
+    }
+
+    @Managed
+    public synchronized long getQueuedQueries()
+    {
+        return queuedQueries;
+    }
+
+    @Managed
+    public synchronized long getActiveGroups()
+    {
+        return groups.size();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getAdmittedQueries()
+    {
+        return admittedQueries;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedQueries()
+    {
+        return rejectedQueries;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getTimedOutQueries()
+    {
+        return timedOutQueries;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getQueuedTime()
+    {
+        return queuedTime;
+    }
+
+    /**
+     * The permit of a running query, released once it ends. Closing it more than once is a no-op.
+     */
+    public interface Lease
+            extends AutoCloseable
+    {
+        @Override
+        void close();
+    }
+
+    private static class ResourceGroup
+    {
+        private final String name;
+        private final Deque<QueuedQuery> queue = new ArrayDeque<>();
+        private int running;
+
+        private ResourceGroup(String name)
+        {
+            this.name = requireNonNull(name, "name is null");
+        }
+    }
+
+    private static class QueuedQuery
+    {
+        private final ResourceGroup group;
+        private final long queuedSince = System.nanoTime();
+        private final CompletableFuture<Lease> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+
+        private QueuedQuery(ResourceGroup group)
+        {
+            this.group = requireNonNull(group, "group is null");
+        }
+
+        private void start(Lease lease)
+        {
+            ScheduledFuture<?> timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (!future.complete(lease)) {
+                // canceled while it was started
+                lease.close();
+            }
+        }
+    }
+}
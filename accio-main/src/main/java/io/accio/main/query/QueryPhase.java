@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+/**
+ * The phases a query goes through in the wire protocol, in the order they happen.
+ */
+public enum QueryPhase
+{
+    /**
+     * PostgreSqlRewriteUtil, and the literal extraction of the plan cache
+     */
+    PRE_REWRITE,
+    /**
+     * AccioPlanner, skipped if the plan is cached
+     */
+    PLAN,
+    /**
+     * PostgreSqlRewrite, skipped if the plan is cached
+     */
+    PG_REWRITE,
+    CACHE_REWRITE,
+    /**
+     * SqlConverter
+     */
+    CONVERT,
+    /**
+     * waiting for the query admission to the data source, see QueryAdmissionController
+     */
+    QUEUE,
+    /**
+     * until the first rows are available from the data source, the cache or the fast path
+     */
+    EXECUTE,
+    /**
+     * fetching and encoding the rows sent to the client
+     */
+    SEND,
+}
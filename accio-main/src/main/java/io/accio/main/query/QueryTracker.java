@@ -0,0 +1,252 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.DistributionStat;
+import io.airlift.stats.TimeStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.inject.Inject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.accio.main.query.QueryPhase.CACHE_REWRITE;
+import static io.accio.main.query.QueryPhase.CONVERT;
+import static io.accio.main.query.QueryPhase.EXECUTE;
+import static io.accio.main.query.QueryPhase.PG_REWRITE;
+import static io.accio.main.query.QueryPhase.PLAN;
+import static io.accio.main.query.QueryPhase.PRE_REWRITE;
+import static io.accio.main.query.QueryPhase.QUEUE;
+import static io.accio.main.query.QueryPhase.SEND;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Keeps the running and the recently completed queries, and exports the time spent in each phase of
+ * the completed ones.
+ */
+public class QueryTracker
+{
+    private final int maxHistory;
+    private final SlowQueryLog slowQueryLog;
+    private final AtomicLong nextQueryId = new AtomicLong();
+    private final Map<String, TrackedQuery> runningQueries = new ConcurrentHashMap<>();
+    private final Deque<TrackedQuery> completedQueries = new ArrayDeque<>();
+
+    private final Map<QueryPhase, TimeStat> phaseTimes = new EnumMap<>(QueryPhase.class);
+    private final TimeStat queryTime = new TimeStat(MILLISECONDS);
+    private final CounterStat finished = new CounterStat();
+    private final CounterStat failed = new CounterStat();
+    private final CounterStat cacheHits = new CounterStat();
+    private final CounterStat cacheMisses = new CounterStat();
+    private final DistributionStat sentRows = new DistributionStat();
+    private final DistributionStat sentBytes = new DistributionStat();
+
+    @Inject
+    public QueryTracker(QueryTrackerConfig config, SlowQueryLog slowQueryLog)
+    {
+        this.maxHistory = config.getMaxHistory();
+        this.slowQueryLog = requireNonNull(slowQueryLog, "slowQueryLog is null");
+        for (QueryPhase phase : QueryPhase.values()) {
+            phaseTimes.put(phase, new TimeStat(MILLISECONDS));
+        }
+    }
+
+    public TrackedQuery start(String statement, Optional<String> user)
+    {
+        TrackedQuery query = new TrackedQuery(String.valueOf(nextQueryId.incrementAndGet()), statement, user, this::completed);
+        runningQueries.put(query.getQueryId(), query);
+        return query;
+    }
+
+    public List<TrackedQuery> getRunningQueries()
+    {
+        return ImmutableList.copyOf(runningQueries.values());
+    }
+
+    /**
+     * @return the recently completed queries, the latest first
+     */
+    public List<TrackedQuery> getCompletedQueries()
+    {
+        synchronized (completedQueries) {
+            return ImmutableList.copyOf(completedQueries);
+        }
+    }
+
+    public Optional<TrackedQuery> getQuery(String queryId)
+    {
+        TrackedQuery query = runningQueries.get(queryId);
+        if (query != null) {
+            return Optional.of(query);
+        }
+        return getCompletedQueries().stream()
+                .filter(completed -> completed.getQueryId().equals(queryId))
+                .findFirst();
+    }
+
+    private void completed(TrackedQuery query)
+    {
+        runningQueries.remove(query.getQueryId());
+        if (maxHistory > 0) {
+            synchronized (completedQueries) {
+                completedQueries.addFirst(query);
+                while (completedQueries.size() > maxHistory) {
+                    completedQueries.removeLast();
+                }
+            }
+        }
+
+        for (QueryPhase phase : QueryPhase.values()) {
+            long nanos = query.getTimings().get(phase);
+            if (nanos > 0) {
+                phaseTimes.get(phase).add(nanos, NANOSECONDS);
+            }
+        }
+        queryTime.add(query.getElapsedNanos(), NANOSECONDS);
+        if (query.getState() == TrackedQuery.State.FAILED) {
+            failed.update(1);
+        }
+        else {
+            finished.update(1);
+        }
+        query.isCacheHit().ifPresent(hit -> (hit ? cacheHits : cacheMisses).update(1));
+        sentRows.add(query.getRows());
+        sentBytes.add(query.getBytes());
+        slowQueryLog.record(query);
+    }
+
+    @Managed
+    public long getRunningQueryCount()
+    {
+        return runningQueries.size();
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getQueryTime()
+    {
+        return queryTime;
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getPreRewriteTime()
+    {
+        return phaseTimes.get(PRE_REWRITE);
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getPlanTime()
+    {
+        return phaseTimes.get(PLAN);
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getPgRewriteTime()
+    {
+        return phaseTimes.get(PG_REWRITE);
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getCacheRewriteTime()
+    {
+        return phaseTimes.get(CACHE_REWRITE);
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getConvertTime()
+    {
+        return phaseTimes.get(CONVERT);
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getQueueTime()
+    {
+        return phaseTimes.get(QUEUE);
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getExecuteTime()
+    {
+        return phaseTimes.get(EXECUTE);
+    }
+
+    @Managed
+    @Nested
+    public TimeStat getSendTime()
+    {
+        return phaseTimes.get(SEND);
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getFinishedQueries()
+    {
+        return finished;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getFailedQueries()
+    {
+        return failed;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getCacheHits()
+    {
+        return cacheHits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getCacheMisses()
+    {
+        return cacheMisses;
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getSentRows()
+    {
+        return sentRows;
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getSentBytes()
+    {
+        return sentBytes;
+    }
+}
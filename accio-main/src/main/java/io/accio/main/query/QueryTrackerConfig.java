@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+
+import javax.validation.constraints.Min;
+
+public class QueryTrackerConfig
+{
+    private int maxHistory = 100;
+
+    @Config("query-tracker.max-history")
+    @ConfigDescription("The number of completed queries listed by /v1/query; default is 100")
+    public QueryTrackerConfig setMaxHistory(int maxHistory)
+    {
+        this.maxHistory = maxHistory;
+        return this;
+    }
+
+    @Min(0)
+    public int getMaxHistory()
+    {
+        return maxHistory;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.Locale.ENGLISH;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Writes the completed queries slower than a threshold, plus a sample of the others, as JSON lines.
+ * Queries are only queued on completion, the serialization and the I/O happen on a dedicated thread,
+ * and entries are dropped rather than blocking when the queue is full. The log file is opened at
+ * startup, an entry which fails to be written is counted and skipped.
+ */
+public class SlowQueryLog
+{
+    private static final Logger LOG = Logger.get(SlowQueryLog.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+
+    private final boolean enabled;
+    private final Path path;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final BlockingQueue<Entry> queue;
+    private final Writer writer;
+    private final Thread writerThread;
+    private final CounterStat queued = new CounterStat();
+    private final CounterStat dropped = new CounterStat();
+    private final CounterStat failed = new CounterStat();
+
+    @Inject
+    public SlowQueryLog(SlowQueryLogConfig config)
+    {
+        this(config, config.isEnabled() ? openWriter(config.getPath()) : null);
+    }
+
+    @VisibleForTesting
+    SlowQueryLog(SlowQueryLogConfig config, @Nullable Writer writer)
+    {
+        this.enabled = config.isEnabled();
+        checkArgument(!enabled || writer != null, "writer is null");
+        this.writer = writer;
+        this.path = config.getPath();
+        this.thresholdNanos = config.getThreshold().roundTo(NANOSECONDS);
+        this.sampleRate = config.getSampleRate();
+        this.queue = new ArrayBlockingQueue<>(config.getMaxQueuedEntries());
+        this.writerThread = daemonThreadsNamed("slow-query-log").newThread(this::writeEntries);
+        if (enabled) {
+            writerThread.start();
+        }
+    }
+
+    public void record(TrackedQuery query)
+    {
+        if (!enabled) {
+            return;
+        }
+        boolean slow = query.getElapsedNanos() >= thresholdNanos;
+        if (!slow && (sampleRate == 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        if (queue.offer(new Entry(query, slow))) {
+            queued.update(1);
+        }
+        else {
+            dropped.update(1);
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        // the writer drains the queue once interrupted
+        writerThread.interrupt();
+        try {
+            writerThread.join(SECONDS.toMillis(5));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Writer openWriter(Path path)
+    {
+        try {
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            return Files.newBufferedWriter(path, UTF_8, CREATE, APPEND);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(format("Slow query log %s is not writable", path), e);
+        }
+    }
+
+    private void writeEntries()
+    {
+        try (Writer ignored = writer) {
+            try {
+                while (true) {
+                    writeEntry(queue.take());
+                    // flush once the backlog is written, not after every entry
+                    if (queue.isEmpty()) {
+                        flush();
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+                    writeEntry(entry);
+                }
+                flush();
+            }
+        }
+        catch (IOException e) {
+            LOG.error(e, "Failed to close the slow query log %s", path);
+        }
+    }
+
+    private void writeEntry(Entry entry)
+    {
+        try {
+            // serialize first, so a failure never leaves half an entry in the file
+            StringWriter line = new StringWriter();
+            write(line, entry);
+            writer.write(line.toString());
+        }
+        catch (IOException | RuntimeException e) {
+            failed.update(1);
+            LOG.error(e, "Failed to write query %s to the slow query log %s", entry.query.getQueryId(), path);
+        }
+    }
+
+    private void flush()
+    {
+        try {
+            writer.flush();
+        }
+        catch (IOException e) {
+            LOG.error(e, "Failed to flush the slow query log %s", path);
+        }
+    }
+
+    private static void write(Writer writer, Entry entry)
+            throws IOException
+    {
+        TrackedQuery query = entry.query;
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("time", query.getCreateTime().toString());
+            generator.writeStringField("queryId", query.getQueryId());
+            writeOptionalField(generator, "user", query.getUser());
+            generator.writeStringField("state", query.getState().name());
+            generator.writeStringField("reason", entry.slow ? "slow" : "sampled");
+            generator.writeNumberField("elapsedMillis", toMillis(query.getElapsedNanos()));
+            writeOptionalField(generator, "backend", query.getBackend().map(Enum::name));
+            if (query.isCacheHit().isPresent()) {
+                generator.writeBooleanField("cacheHit", query.isCacheHit().get());
+            }
+            generator.writeNumberField("rows", query.getRows());
+            generator.writeNumberField("bytes", query.getBytes());
+            generator.writeObjectFieldStart("phaseMillis");
+            for (QueryPhase phase : QueryPhase.values()) {
+                long nanos = query.getTimings().get(phase);
+                if (nanos > 0) {
+                    generator.writeNumberField(phase.name().toLowerCase(ENGLISH), toMillis(nanos));
+                }
+            }
+            generator.writeEndObject();
+            generator.writeStringField("statement", query.getStatement());
+            writeOptionalField(generator, "rewrittenStatement", query.getRewrittenStatement());
+            writeOptionalField(generator, "dialectStatement", query.getDialectStatement());
+            writeOptionalField(generator, "error", query.getErrorMessage());
+            generator.writeEndObject();
+        }
+        writer.write('\n');
+    }
+
+    private static void writeOptionalField(JsonGenerator generator, String name, Optional<String> value)
+            throws IOException
+    {
+        if (value.isPresent()) {
+            generator.writeStringField(name, value.get());
+        }
+    }
+
+    private static double toMillis(long nanos)
+    {
+        return nanos / 1_000_000.0;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getQueuedEntries()
+    {
+        return queued;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getDroppedEntries()
+    {
+        return dropped;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getFailedEntries()
+    {
+        return failed;
+    }
+
+    @Managed
+    public int getPendingEntries()
+    {
+        return queue.size();
+    }
+
+    private static class Entry
+    {
+        private final TrackedQuery query;
+        private final boolean slow;
+
+        private Entry(TrackedQuery query, boolean slow)
+        {
+            this.query = query;
+            this.slow = slow;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import java.nio.file.Path;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class SlowQueryLogConfig
+{
+    private boolean enabled;
+    private Path path = Path.of("var/log/slow-query.log");
+    private Duration threshold = new Duration(1, SECONDS);
+    private double sampleRate;
+    private int maxQueuedEntries = 1000;
+
+    @Config("slow-query-log.enabled")
+    @ConfigDescription("Write the queries slower than the threshold to the slow query log")
+    public SlowQueryLogConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("slow-query-log.path")
+    @ConfigDescription("The file the slow queries are appended to as JSON lines; default is var/log/slow-query.log")
+    public SlowQueryLogConfig setPath(String path)
+    {
+        this.path = Path.of(path);
+        return this;
+    }
+
+    @NotNull
+    public Path getPath()
+    {
+        return path;
+    }
+
+    @Config("slow-query-log.threshold")
+    @ConfigDescription("Queries taking at least this long are logged; default is 1s")
+    public SlowQueryLogConfig setThreshold(Duration threshold)
+    {
+        this.threshold = threshold;
+        return this;
+    }
+
+    @NotNull
+    public Duration getThreshold()
+    {
+        return threshold;
+    }
+
+    @Config("slow-query-log.sample-rate")
+    @ConfigDescription("The fraction of the queries under the threshold logged anyway, to compare with the slow ones; default is 0")
+    public SlowQueryLogConfig setSampleRate(double sampleRate)
+    {
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    @Config("slow-query-log.max-queued-entries")
+    @ConfigDescription("Entries are dropped when this many are waiting to be written; default is 1000")
+    public SlowQueryLogConfig setMaxQueuedEntries(int maxQueuedEntries)
+    {
+        this.maxQueuedEntries = maxQueuedEntries;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxQueuedEntries()
+    {
+        return maxQueuedEntries;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The lifecycle of a query executed through the wire protocol. It's created when a portal is executed,
+ * and completes once all its rows are sent, it fails, or its portal is closed.
+ */
+public class TrackedQuery
+{
+    public enum State
+    {
+        RUNNING,
+        FINISHED,
+        FAILED,
+    }
+
+    private final String queryId;
+    private final String statement;
+    private final Optional<String> user;
+    private final Instant createTime = Instant.now();
+    private final long createNanos = System.nanoTime();
+    private final PhaseTimings timings = new PhaseTimings();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final Consumer<TrackedQuery> completionListener;
+
+    private volatile Optional<String> rewrittenStatement = Optional.empty();
+    private volatile Optional<String> dialectStatement = Optional.empty();
+    private volatile Optional<QueryBackend> backend = Optional.empty();
+    private volatile State state = State.RUNNING;
+    private volatile long elapsedNanos;
+    private volatile Optional<String> errorMessage = Optional.empty();
+
+    TrackedQuery(String queryId, String statement, Optional<String> user, Consumer<TrackedQuery> completionListener)
+    {
+        this.queryId = requireNonNull(queryId, "queryId is null");
+        this.statement = requireNonNull(statement, "statement is null");
+        this.user = requireNonNull(user, "user is null");
+        this.completionListener = requireNonNull(completionListener, "completionListener is null");
+    }
+
+    public String getQueryId()
+    {
+        return queryId;
+    }
+
+    public String getStatement()
+    {
+        return statement;
+    }
+
+    public Optional<String> getUser()
+    {
+        return user;
+    }
+
+    public Instant getCreateTime()
+    {
+        return createTime;
+    }
+
+    public PhaseTimings getTimings()
+    {
+        return timings;
+    }
+
+    /**
+     * @return the statement planned against the MDL, before it's converted to the dialect of the data source
+     */
+    public Optional<String> getRewrittenStatement()
+    {
+        return rewrittenStatement;
+    }
+
+    public void setRewrittenStatement(String rewrittenStatement)
+    {
+        this.rewrittenStatement = Optional.of(rewrittenStatement);
+    }
+
+    /**
+     * @return the statement sent to the data source or to the cached tables
+     */
+    public Optional<String> getDialectStatement()
+    {
+        return dialectStatement;
+    }
+
+    public void setDialectStatement(String dialectStatement)
+    {
+        this.dialectStatement = Optional.of(dialectStatement);
+    }
+
+    public Optional<QueryBackend> getBackend()
+    {
+        return backend;
+    }
+
+    public void setBackend(QueryBackend backend)
+    {
+        this.backend = Optional.of(backend);
+    }
+
+    /**
+     * @return empty if the query doesn't go through a cache
+     */
+    public Optional<Boolean> isCacheHit()
+    {
+        return backend.filter(value -> value != QueryBackend.FAST_PATH)
+                .map(value -> value != QueryBackend.DATA_SOURCE);
+    }
+
+    public void addSentRows(long rows, long bytes)
+    {
+        this.rows.addAndGet(rows);
+        this.bytes.addAndGet(bytes);
+    }
+
+    public long getRows()
+    {
+        return rows.get();
+    }
+
+    public long getBytes()
+    {
+        return bytes.get();
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    public long getElapsedNanos()
+    {
+        return state == State.RUNNING ? System.nanoTime() - createNanos : elapsedNanos;
+    }
+
+    public Optional<String> getErrorMessage()
+    {
+        return errorMessage;
+    }
+
+    public boolean isDone()
+    {
+        return done.get();
+    }
+
+    public void finish()
+    {
+        complete(State.FINISHED, Optional.empty());
+    }
+
+    public void fail(Throwable throwable)
+    {
+        complete(State.FAILED, Optional.of(String.valueOf(throwable.getMessage())));
+    }
+
+    private void complete(State state, Optional<String> errorMessage)
+    {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        this.elapsedNanos = System.nanoTime() - createNanos;
+        this.errorMessage = errorMessage;
+        this.state = state;
+        completionListener.accept(this);
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.sql;
+
+import io.accio.base.type.PGType;
+import io.accio.main.sql.ParameterizedStatement.Slot;
+import io.accio.sqlrewrite.BaseRewriter;
+import io.trino.sql.tree.BetweenPredicate;
+import io.trino.sql.tree.ComparisonExpression;
+import io.trino.sql.tree.DecimalLiteral;
+import io.trino.sql.tree.DefaultTraversalVisitor;
+import io.trino.sql.tree.DoubleLiteral;
+import io.trino.sql.tree.Expression;
+import io.trino.sql.tree.FunctionRelation;
+import io.trino.sql.tree.InListExpression;
+import io.trino.sql.tree.InPredicate;
+import io.trino.sql.tree.LikePredicate;
+import io.trino.sql.tree.Literal;
+import io.trino.sql.tree.LongLiteral;
+import io.trino.sql.tree.Node;
+import io.trino.sql.tree.NodeLocation;
+import io.trino.sql.tree.NodeRef;
+import io.trino.sql.tree.Parameter;
+import io.trino.sql.tree.Query;
+import io.trino.sql.tree.QuerySpecification;
+import io.trino.sql.tree.Statement;
+import io.trino.sql.tree.StringLiteral;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.accio.base.type.BigIntType.BIGINT;
+import static io.accio.base.type.DoubleType.DOUBLE;
+import static io.accio.base.type.NumericType.NUMERIC;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static io.trino.execution.ParameterExtractor.getParameters;
+
+/**
+ * Replaces the literals of a query which don't affect how it's planned with parameters, so the queries
+ * that only differ in those literals share one canonical statement and one compiled plan.
+ * <p>
+ * Only number and string literals compared with a non-constant expression in WHERE, HAVING or JOIN ON
+ * are replaced. The literals of the select list, GROUP BY, ORDER BY and LIMIT are kept since the plan or
+ * the result columns depend on them, as are the arguments of metric rollups. Enum values are
+ * dereferences rather than literals, so the planner still rewrites them.
+ */
+public final class LiteralParameterizer
+{
+    private LiteralParameterizer() {}
+
+    /**
+     * @param parameterizeStringLiterals whether string literals are replaced; a string parameter is not
+     * coerced to a date or time type by every data source the way a string literal is
+     * @return empty if the statement is not a query
+     */
+    public static Optional<ParameterizedStatement> parameterize(Statement statement, boolean parameterizeStringLiterals)
+    {
+        if (!(statement instanceof Query)) {
+            return Optional.empty();
+        }
+        LiteralCollector collector = new LiteralCollector(parameterizeStringLiterals);
+        collector.process(statement, null);
+
+        List<SlotSource> sources = new ArrayList<>();
+        for (Parameter parameter : getParameters(statement)) {
+            if (parameter.getLocation().isEmpty()) {
+                return Optional.empty();
+            }
+            sources.add(new SlotSource(parameter, parameter.getLocation().get(), Slot.clientParameter(parameter.getPosition())));
+        }
+        for (Literal literal : collector.getLiterals()) {
+            if (literal.getLocation().isEmpty()) {
+                return Optional.empty();
+            }
+            sources.add(new SlotSource(literal, literal.getLocation().get(), Slot.literal(toParameter(literal))));
+        }
+        sources.sort(Comparator.comparing((SlotSource source) -> source.location.getLineNumber())
+                .thenComparing(source -> source.location.getColumnNumber()));
+
+        Map<NodeRef<Node>, Integer> positions = new HashMap<>();
+        List<Slot> slots = new ArrayList<>();
+        for (SlotSource source : sources) {
+            positions.put(NodeRef.of(source.node), slots.size());
+            slots.add(source.slot);
+        }
+        Statement rewritten = (Statement) new Rewriter(positions).process(statement);
+        return Optional.of(new ParameterizedStatement(rewritten, slots));
+    }
+
+    private static io.accio.base.Parameter toParameter(Literal literal)
+    {
+        if (literal instanceof StringLiteral) {
+            return parameter(VARCHAR, ((StringLiteral) literal).getValue());
+        }
+        if (literal instanceof LongLiteral) {
+            return parameter(BIGINT, ((LongLiteral) literal).getValue());
+        }
+        if (literal instanceof DoubleLiteral) {
+            return parameter(DOUBLE, ((DoubleLiteral) literal).getValue());
+        }
+        if (literal instanceof DecimalLiteral) {
+            return parameter(NUMERIC, new BigDecimal(((DecimalLiteral) literal).getValue()));
+        }
+        throw new IllegalArgumentException("Unsupported literal: " + literal);
+    }
+
+    private static io.accio.base.Parameter parameter(PGType<?> type, Object value)
+    {
+        return new io.accio.base.Parameter(type, value);
+    }
+
+    private static boolean isConstant(Expression expression)
+    {
+        return expression instanceof Literal || expression instanceof Parameter;
+    }
+
+    private static class SlotSource
+    {
+        private final Node node;
+        private final NodeLocation location;
+        private final Slot slot;
+
+        private SlotSource(Node node, NodeLocation location, Slot slot)
+        {
+            this.node = node;
+            this.location = location;
+            this.slot = slot;
+        }
+    }
+
+    private static class LiteralCollector
+            extends DefaultTraversalVisitor<Void>
+    {
+        private final boolean parameterizeStringLiterals;
+        private final List<Literal> literals = new ArrayList<>();
+
+        private LiteralCollector(boolean parameterizeStringLiterals)
+        {
+            this.parameterizeStringLiterals = parameterizeStringLiterals;
+        }
+
+        public List<Literal> getLiterals()
+        {
+            return literals;
+        }
+
+        @Override
+        protected Void visitQuery(Query node, Void context)
+        {
+            node.getWith().ifPresent(with -> process(with, context));
+            process(node.getQueryBody(), context);
+            return null;
+        }
+
+        @Override
+        protected Void visitQuerySpecification(QuerySpecification node, Void context)
+        {
+            node.getFrom().ifPresent(from -> process(from, context));
+            node.getWhere().ifPresent(where -> process(where, context));
+            node.getHaving().ifPresent(having -> process(having, context));
+            return null;
+        }
+
+        @Override
+        protected Void visitFunctionRelation(FunctionRelation node, Void context)
+        {
+            // the arguments of a metric rollup decide how it's planned
+            return null;
+        }
+
+        @Override
+        protected Void visitComparisonExpression(ComparisonExpression node, Void context)
+        {
+            if (!isConstant(node.getLeft()) && collect(node.getRight())) {
+                process(node.getLeft(), context);
+                return null;
+            }
+            if (!isConstant(node.getRight()) && collect(node.getLeft())) {
+                process(node.getRight(), context);
+                return null;
+            }
+            return super.visitComparisonExpression(node, context);
+        }
+
+        @Override
+        protected Void visitInPredicate(InPredicate node, Void context)
+        {
+            if (isConstant(node.getValue()) || !(node.getValueList() instanceof InListExpression)) {
+                return super.visitInPredicate(node, context);
+            }
+            process(node.getValue(), context);
+            for (Expression value : ((InListExpression) node.getValueList()).getValues()) {
+                if (!collect(value)) {
+                    process(value, context);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        protected Void visitBetweenPredicate(BetweenPredicate node, Void context)
+        {
+            if (isConstant(node.getValue())) {
+                return super.visitBetweenPredicate(node, context);
+            }
+            process(node.getValue(), context);
+            if (!collect(node.getMin())) {
+                process(node.getMin(), context);
+            }
+            if (!collect(node.getMax())) {
+                process(node.getMax(), context);
+            }
+            return null;
+        }
+
+        @Override
+        protected Void visitLikePredicate(LikePredicate node, Void context)
+        {
+            if (isConstant(node.getValue()) || !collect(node.getPattern())) {
+                return super.visitLikePredicate(node, context);
+            }
+            process(node.getValue(), context);
+            node.getEscape().ifPresent(escape -> process(escape, context));
+            return null;
+        }
+
+        private boolean collect(Expression expression)
+        {
+            if (expression instanceof LongLiteral
+                    || expression instanceof DoubleLiteral
+                    || expression instanceof DecimalLiteral
+                    || (parameterizeStringLiterals && expression instanceof StringLiteral)) {
+                literals.add((Literal) expression);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Rewriter
+            extends BaseRewriter<Void>
+    {
+        private final Map<NodeRef<Node>, Integer> positions;
+
+        private Rewriter(Map<NodeRef<Node>, Integer> positions)
+        {
+            this.positions = positions;
+        }
+
+        @Override
+        protected Node visitParameter(Parameter node, Void context)
+        {
+            return replace(node);
+        }
+
+        @Override
+        protected Node visitStringLiteral(StringLiteral node, Void context)
+        {
+            return replace(node);
+        }
+
+        @Override
+        protected Node visitLongLiteral(LongLiteral node, Void context)
+        {
+            return replace(node);
+        }
+
+        @Override
+        protected Node visitDoubleLiteral(DoubleLiteral node, Void context)
+        {
+            return replace(node);
+        }
+
+        @Override
+        protected Node visitDecimalLiteral(DecimalLiteral node, Void context)
+        {
+            return replace(node);
+        }
+
+        private Node replace(Expression node)
+        {
+            Integer position = positions.get(NodeRef.<Node>of(node));
+            if (position == null) {
+                return node;
+            }
+            return new Parameter(node.getLocation().orElseThrow(), position);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.sql;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.Parameter;
+import io.trino.sql.tree.Statement;
+
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A statement whose plan-neutral literals are replaced by parameters, see {@link LiteralParameterizer}.
+ * Its parameters are numbered in the order they appear, and each of them is either a parameter of the
+ * client or a literal extracted from the original statement.
+ */
+public class ParameterizedStatement
+{
+    private final Statement statement;
+    private final List<Slot> slots;
+
+    public ParameterizedStatement(Statement statement, List<Slot> slots)
+    {
+        this.statement = requireNonNull(statement, "statement is null");
+        this.slots = ImmutableList.copyOf(requireNonNull(slots, "slots is null"));
+    }
+
+    public Statement getStatement()
+    {
+        return statement;
+    }
+
+    public List<Slot> getSlots()
+    {
+        return slots;
+    }
+
+    public int getClientParameterCount()
+    {
+        return (int) slots.stream().filter(Slot::isClientParameter).count();
+    }
+
+    public boolean hasExtractedLiterals()
+    {
+        return slots.stream().anyMatch(slot -> !slot.isClientParameter());
+    }
+
+    /**
+     * @param clientParameters the parameters bound by the client, in the order of the original statement
+     * @return the parameters of the parameterized statement
+     */
+    public List<Parameter> bind(List<Parameter> clientParameters)
+    {
+        if (!hasExtractedLiterals()) {
+            return clientParameters;
+        }
+        ImmutableList.Builder<Parameter> builder = ImmutableList.builder();
+        for (Slot slot : slots) {
+            builder.add(slot.resolve(clientParameters));
+        }
+        return builder.build();
+    }
+
+    public static final class Slot
+    {
+        private final Optional<Parameter> literal;
+        private final int clientParameterIndex;
+
+        private Slot(Optional<Parameter> literal, int clientParameterIndex)
+        {
+            this.literal = literal;
+            this.clientParameterIndex = clientParameterIndex;
+        }
+
+        public static Slot literal(Parameter value)
+        {
+            return new Slot(Optional.of(value), -1);
+        }
+
+        public static Slot clientParameter(int index)
+        {
+            return new Slot(Optional.empty(), index);
+        }
+
+        public boolean isClientParameter()
+        {
+            return literal.isEmpty();
+        }
+
+        public Optional<Parameter> getLiteral()
+        {
+            return literal;
+        }
+
+        public Parameter resolve(List<Parameter> clientParameters)
+        {
+            return literal.orElseGet(() -> clientParameters.get(clientParameterIndex));
+        }
+    }
+}
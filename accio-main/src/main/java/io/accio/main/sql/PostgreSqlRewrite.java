@@ -54,6 +54,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -78,7 +79,20 @@ public final class PostgreSqlRewrite
 
     public static Statement rewrite(RegObjectFactory regObjectFactory, String defaultCatalog, String pgCatalogName, Statement statement)
     {
-        return (Statement) new Visitor(new RegObjectInterpreter(regObjectFactory), defaultCatalog, pgCatalogName).process(statement);
+        return rewrite(regObjectFactory, defaultCatalog, pgCatalogName, statement, tableName -> {});
+    }
+
+    /**
+     * @param pgCatalogTableListener called with the name of every pg_catalog table the statement reads from
+     */
+    public static Statement rewrite(
+            RegObjectFactory regObjectFactory,
+            String defaultCatalog,
+            String pgCatalogName,
+            Statement statement,
+            Consumer<String> pgCatalogTableListener)
+    {
+        return (Statement) new Visitor(new RegObjectInterpreter(regObjectFactory), defaultCatalog, pgCatalogName, pgCatalogTableListener).process(statement);
     }
 
     private static class Visitor
@@ -90,12 +104,14 @@ public final class PostgreSqlRewrite
 
         private final String defaultCatalog;
         private final String pgCatalogName;
+        private final Consumer<String> pgCatalogTableListener;
 
-        public Visitor(RegObjectInterpreter regObjectInterpreter, String defaultCatalog, String pgCatalogName)
+        public Visitor(RegObjectInterpreter regObjectInterpreter, String defaultCatalog, String pgCatalogName, Consumer<String> pgCatalogTableListener)
         {
             this.regObjectInterpreter = regObjectInterpreter;
             this.defaultCatalog = defaultCatalog;
             this.pgCatalogName = pgCatalogName;
+            this.pgCatalogTableListener = pgCatalogTableListener;
         }
 
         @Override
@@ -268,6 +284,7 @@ public final class PostgreSqlRewrite
         protected Node visitTable(Table node, RewriteContext context)
         {
             if (isBelongPgCatalog(node.getName().getParts())) {
+                pgCatalogTableListener.accept(node.getName().getSuffix());
                 if (node.getLocation().isPresent()) {
                     return new Table(
                             node.getLocation().get(),
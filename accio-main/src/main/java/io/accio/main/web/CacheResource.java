@@ -17,6 +17,8 @@ import io.accio.base.AccioException;
 import io.accio.base.CatalogSchemaTableName;
 import io.accio.base.metadata.SchemaTableName;
 import io.accio.cache.CacheManager;
+import io.accio.cache.CachedObjectStats;
+import io.accio.cache.dto.CachedTableStats;
 import io.accio.main.AccioManager;
 
 import javax.inject.Inject;
@@ -29,6 +31,11 @@ import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.accio.base.metadata.StandardErrorCode.NOT_FOUND;
 import static io.accio.main.web.AccioExceptionMapper.bindAsyncResponse;
 import static java.util.Objects.requireNonNull;
@@ -90,4 +97,52 @@ public class CacheResource
                 .listTaskInfo(catalogName, schemaName)
                 .whenComplete(bindAsyncResponse(asyncResponse));
     }
+
+    /**
+     * Lists the usage, freshness and refresh cost of the cached tables.
+     */
+    @GET
+    @Path("stats")
+    public void listCacheStats(@Suspended AsyncResponse asyncResponse)
+    {
+        bindAsyncResponse(asyncResponse).accept(listCacheStats(stats -> true), null);
+    }
+
+    @GET
+    @Path("stats/{catalogName}/{schemaName}")
+    public void listCacheStats(
+            @PathParam("catalogName") String catalogName,
+            @PathParam("schemaName") String schemaName,
+            @Suspended AsyncResponse asyncResponse)
+    {
+        bindAsyncResponse(asyncResponse).accept(
+                listCacheStats(stats -> stats.getCatalogSchemaTableName().getCatalogName().equals(catalogName)
+                        && stats.getCatalogSchemaTableName().getSchemaTableName().getSchemaName().equals(schemaName)),
+                null);
+    }
+
+    @GET
+    @Path("stats/{catalogName}/{schemaName}/{tableName}")
+    public void getCacheStats(
+            @PathParam("catalogName") String catalogName,
+            @PathParam("schemaName") String schemaName,
+            @PathParam("tableName") String tableName,
+            @Suspended AsyncResponse asyncResponse)
+    {
+        Optional<CachedTableStats> stats = cacheManager.getCacheStats().get(catalogName, schemaName, tableName)
+                .map(CachedObjectStats::toCachedTableStats);
+        if (stats.isEmpty()) {
+            bindAsyncResponse(asyncResponse).accept(null, new AccioException(NOT_FOUND, String.format("Cache stats of %s.%s.%s not found.", catalogName, schemaName, tableName)));
+            return;
+        }
+        bindAsyncResponse(asyncResponse).accept(stats.get(), null);
+    }
+
+    private List<CachedTableStats> listCacheStats(Predicate<CachedObjectStats> filter)
+    {
+        return cacheManager.getCacheStats().list().stream()
+                .filter(filter)
+                .map(CachedObjectStats::toCachedTableStats)
+                .collect(toImmutableList());
+    }
 }
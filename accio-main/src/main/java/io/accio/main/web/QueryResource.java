@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.web;
+
+import io.accio.base.AccioException;
+import io.accio.main.query.QueryTracker;
+import io.accio.main.web.dto.QueryInfoDto;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.accio.base.metadata.StandardErrorCode.NOT_FOUND;
+import static io.accio.main.web.AccioExceptionMapper.bindAsyncResponse;
+import static java.util.Objects.requireNonNull;
+
+@Path("/v1/query")
+public class QueryResource
+{
+    private final QueryTracker queryTracker;
+
+    @Inject
+    public QueryResource(QueryTracker queryTracker)
+    {
+        this.queryTracker = requireNonNull(queryTracker, "queryTracker is null");
+    }
+
+    /**
+     * Lists the running queries, followed by the recently completed ones.
+     */
+    @GET
+    public void listQueries(@Suspended AsyncResponse asyncResponse)
+    {
+        List<QueryInfoDto> queries = Stream.concat(queryTracker.getRunningQueries().stream(), queryTracker.getCompletedQueries().stream())
+                .map(QueryInfoDto::from)
+                .collect(toImmutableList());
+        bindAsyncResponse(asyncResponse).accept(queries, null);
+    }
+
+    @GET
+    @Path("{queryId}")
+    public void getQuery(@PathParam("queryId") String queryId, @Suspended AsyncResponse asyncResponse)
+    {
+        Optional<QueryInfoDto> query = queryTracker.getQuery(queryId).map(QueryInfoDto::from);
+        if (query.isEmpty()) {
+            bindAsyncResponse(asyncResponse).accept(null, new AccioException(NOT_FOUND, String.format("Query %s not found.", queryId)));
+            return;
+        }
+        bindAsyncResponse(asyncResponse).accept(query.get(), null);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.accio.main.query.QueryPhase;
+import io.accio.main.query.TrackedQuery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryInfoDto
+{
+    private final String queryId;
+    private final String state;
+    private final String user;
+    private final String statement;
+    private final String createTime;
+    private final long elapsedNanos;
+    private final Map<String, Long> phaseNanos;
+    private final String backend;
+    private final Boolean cacheHit;
+    private final long rows;
+    private final long bytes;
+    private final String errorMessage;
+
+    public static QueryInfoDto from(TrackedQuery query)
+    {
+        Map<String, Long> phaseNanos = new LinkedHashMap<>();
+        for (QueryPhase phase : QueryPhase.values()) {
+            phaseNanos.put(phase.name(), query.getTimings().get(phase));
+        }
+        return new QueryInfoDto(
+                query.getQueryId(),
+                query.getState().name(),
+                query.getUser().orElse(null),
+                query.getStatement(),
+                query.getCreateTime().toString(),
+                query.getElapsedNanos(),
+                phaseNanos,
+                query.getBackend().map(Enum::name).orElse(null),
+                query.isCacheHit().orElse(null),
+                query.getRows(),
+                query.getBytes(),
+                query.getErrorMessage().orElse(null));
+    }
+
+    @JsonCreator
+    public QueryInfoDto(
+            @JsonProperty("queryId") String queryId,
+            @JsonProperty("state") String state,
+            @JsonProperty("user") String user,
+            @JsonProperty("statement") String statement,
+            @JsonProperty("createTime") String createTime,
+            @JsonProperty("elapsedNanos") long elapsedNanos,
+            @JsonProperty("phaseNanos") Map<String, Long> phaseNanos,
+            @JsonProperty("backend") String backend,
+            @JsonProperty("cacheHit") Boolean cacheHit,
+            @JsonProperty("rows") long rows,
+            @JsonProperty("bytes") long bytes,
+            @JsonProperty("errorMessage") String errorMessage)
+    {
+        this.queryId = queryId;
+        this.state = state;
+        this.user = user;
+        this.statement = statement;
+        this.createTime = createTime;
+        this.elapsedNanos = elapsedNanos;
+        this.phaseNanos = phaseNanos;
+        this.backend = backend;
+        this.cacheHit = cacheHit;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.errorMessage = errorMessage;
+    }
+
+    @JsonProperty
+    public String getQueryId()
+    {
+        return queryId;
+    }
+
+    @JsonProperty
+    public String getState()
+    {
+        return state;
+    }
+
+    @JsonProperty
+    public String getUser()
+    {
+        return user;
+    }
+
+    @JsonProperty
+    public String getStatement()
+    {
+        return statement;
+    }
+
+    @JsonProperty
+    public String getCreateTime()
+    {
+        return createTime;
+    }
+
+    @JsonProperty
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    @JsonProperty
+    public Map<String, Long> getPhaseNanos()
+    {
+        return phaseNanos;
+    }
+
+    @JsonProperty
+    public String getBackend()
+    {
+        return backend;
+    }
+
+    @JsonProperty
+    public Boolean getCacheHit()
+    {
+        return cacheHit;
+    }
+
+    @JsonProperty
+    public long getRows()
+    {
+        return rows;
+    }
+
+    @JsonProperty
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    @JsonProperty
+    public String getErrorMessage()
+    {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("queryId", queryId)
+                .add("state", state)
+                .add("elapsedNanos", elapsedNanos)
+                .add("backend", backend)
+                .toString();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import io.accio.base.Cancellation;
+import io.accio.main.PostgresWireProtocolConfig;
+import io.accio.main.query.TrackedQuery;
+import io.airlift.log.Logger;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.accio.base.metadata.StandardErrorCode.EXCEEDED_TIME_LIMIT;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Issues the BackendKeyData of the wire protocol sessions, and cancels the running query of a session when a
+ * client sends a CancelRequest with its key. Also cancels the queries running longer than the statement timeout.
+ */
+public class CancellationManager
+{
+    private static final Logger LOG = Logger.get(CancellationManager.class);
+
+    private final Optional<Duration> statementTimeout;
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicInteger nextProcessId = new AtomicInteger();
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    // cancelling calls the data source, so it's done out of the netty event loop
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final CounterStat cancelRequests = new CounterStat();
+    private final CounterStat invalidCancelRequests = new CounterStat();
+    private final CounterStat timedOutQueries = new CounterStat();
+
+    @Inject
+    public CancellationManager(PostgresWireProtocolConfig config)
+    {
+        this.statementTimeout = requireNonNull(config.getStatementTimeout(), "statementTimeout is null");
+        this.executor = new ScheduledThreadPoolExecutor(1, daemonThreadsNamed("wire-protocol-cancellation-%s"));
+        // most statement timeouts are removed before they expire
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @param canceller cancels the running query of the session
+     * @return the key the client sends to cancel the running query, to be unregistered when the session ends
+     */
+    public BackendKey register(Runnable canceller)
+    {
+        requireNonNull(canceller, "canceller is null");
+        // process ids are positive like those of postgres
+        BackendKey key = new BackendKey(nextProcessId.incrementAndGet() & Integer.MAX_VALUE, random.nextInt());
+        sessions.put(key.getProcessId(), new Session(key.getSecretKey(), canceller));
+        return key;
+    }
+
+    public void unregister(BackendKey key)
+    {
+        sessions.remove(key.getProcessId());
+    }
+
+    /**
+     * Handles a CancelRequest. Like postgres, nothing is sent back to the client, and unknown keys are ignored.
+     */
+    public void cancel(int processId, int secretKey)
+    {
+        cancelRequests.update(1);
+        Session session = sessions.get(processId);
+        if (session == null || session.secretKey != secretKey) {
+            invalidCancelRequests.update(1);
+            LOG.debug("Ignored the CancelRequest of unknown process %s", processId);
+            return;
+        }
+        executor.execute(session.canceller);
+    }
+
+    /**
+     * Cancels the query if it still runs after the statement timeout.
+     *
+     * @return the registration to close once the query is closed
+     */
+    public Cancellation.Registration startStatementTimeout(TrackedQuery query, Cancellation cancellation)
+    {
+        if (statementTimeout.isEmpty()) {
+            return () -> {};
+        }
+        ScheduledFuture<?> timeout = executor.schedule(() -> {
+            if (!query.isDone() && !cancellation.isCanceled()) {
+                timedOutQueries.update(1);
+                cancellation.cancel(EXCEEDED_TIME_LIMIT, format("Query exceeded the statement timeout of %s", statementTimeout.get()));
+            }
+        }, statementTimeout.get().toMillis(), MILLISECONDS);
+        return () -> timeout.cancel(false);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    @Managed
+    public long getSessions()
+    {
+        return sessions.size();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getCancelRequests()
+    {
+        return cancelRequests;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getInvalidCancelRequests()
+    {
+        return invalidCancelRequests;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getTimedOutQueries()
+    {
+        return timedOutQueries;
+    }
+
+    public static class BackendKey
+    {
+        private final int processId;
+        private final int secretKey;
+
+        public BackendKey(int processId, int secretKey)
+        {
+            this.processId = processId;
+            this.secretKey = secretKey;
+        }
+
+        public int getProcessId()
+        {
+            return processId;
+        }
+
+        public int getSecretKey()
+        {
+            return secretKey;
+        }
+    }
+
+    private static class Session
+    {
+        private final int secretKey;
+        private final Runnable canceller;
+
+        private Session(int secretKey, Runnable canceller)
+        {
+            this.secretKey = secretKey;
+            this.canceller = canceller;
+        }
+    }
+}
@@ -151,6 +151,24 @@ public class Messages
         }
     }
 
+    /**
+     * | 'K' | int32 len | int32 process id | int32 secret key
+     * <p>
+     * The client sends the key in a CancelRequest to cancel the running query of this session.
+     */
+    static void sendBackendKeyData(Channel channel, int processId, int secretKey)
+    {
+        ByteBuf buffer = channel.alloc().buffer(13);
+        buffer.writeByte('K');
+        buffer.writeInt(12);
+        buffer.writeInt(processId);
+        buffer.writeInt(secretKey);
+        ChannelFuture channelFuture = channel.write(buffer);
+        if (LOGGER.isDebugEnabled()) {
+            channelFuture.addListener((ChannelFutureListener) future -> LOGGER.debug("sentBackendKeyData %s", processId));
+        }
+    }
+
     static void sendAuthenticationError(Channel channel, String message)
     {
         LOGGER.warn(message);
@@ -262,9 +280,11 @@ public class Messages
      * <p>
      * ByteN
      * The value of the column, in the format indicated by the associated format code. n is the above length.
+     *
+     * @return the number of bytes written
      */
     @SuppressWarnings({"unchecked", "rawtypes"})
-    static void sendDataRow(Channel channel, Object[] row, List<PGType> schema, @Nullable FormatCodes.FormatCode[] formatCodes)
+    static int sendDataRow(Channel channel, Object[] row, List<PGType> schema, @Nullable FormatCodes.FormatCode[] formatCodes)
     {
         int length = 4 + 2;
 
@@ -301,6 +321,8 @@ public class Messages
 
         buffer.setInt(1, length);
         channel.write(buffer);
+        // the message type isn't counted in the length
+        return length + 1;
     }
 
     static void writeCString(ByteBuf buffer, byte[] valBytes)
@@ -15,6 +15,7 @@ package io.accio.main.wireprotocol;
 
 import io.accio.cache.ExtraRewriter;
 import io.accio.main.metadata.Metadata;
+import io.accio.main.pgcatalog.PgCatalogManager;
 import io.accio.main.pgcatalog.regtype.RegObjectFactory;
 import io.accio.main.sql.PostgreSqlRewrite;
 import io.trino.sql.tree.Statement;
@@ -28,17 +29,19 @@ public class PgWireProtocolExtraRewriter
 {
     private final RegObjectFactory regObjectFactory;
     private final Metadata metadata;
+    private final PgCatalogManager pgCatalogManager;
 
     @Inject
-    public PgWireProtocolExtraRewriter(RegObjectFactory regObjectFactory, Metadata metadata)
+    public PgWireProtocolExtraRewriter(RegObjectFactory regObjectFactory, Metadata metadata, PgCatalogManager pgCatalogManager)
     {
         this.regObjectFactory = requireNonNull(regObjectFactory, "regObjectFactory is null");
         this.metadata = requireNonNull(metadata, "metadata is null");
+        this.pgCatalogManager = requireNonNull(pgCatalogManager, "pgCatalogManager is null");
     }
 
     @Override
     public Statement rewrite(Statement statement)
     {
-        return PostgreSqlRewrite.rewrite(regObjectFactory, metadata.getDefaultCatalog(), metadata.getPgCatalogName(), statement);
+        return PostgreSqlRewrite.rewrite(regObjectFactory, metadata.getDefaultCatalog(), metadata.getPgCatalogName(), statement, pgCatalogManager::materializePgCatalogTable);
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.accio.base.AccioMDL;
+import io.accio.base.SessionContext;
+import io.accio.main.PlanCacheConfig;
+
+import javax.inject.Inject;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Caches the planned sql of the canonical statements built by {@link io.accio.main.sql.LiteralParameterizer},
+ * so a query is planned once for all the literal values it's sent with. A plan is keyed on the canonical
+ * statement, the default catalog and schema of the session, and the mdl it was planned with. The cache
+ * rewrite is not kept here since the cached table a query is routed to changes on every refresh.
+ */
+public class PlanCache
+{
+    private final boolean enabled;
+    private final Cache<PlanKey, String> plans;
+
+    @Inject
+    public PlanCache(PlanCacheConfig config)
+    {
+        this.enabled = config.isEnabled();
+        this.plans = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .build();
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param compiler plans the canonical statement if no plan is cached
+     * @return the planned sql of the canonical statement
+     */
+    public String get(AccioMDL mdl, SessionContext sessionContext, String canonicalStatement, Supplier<String> compiler)
+    {
+        if (!enabled) {
+            return compiler.get();
+        }
+        try {
+            return plans.get(new PlanKey(mdl, sessionContext, canonicalStatement), compiler::get);
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static class PlanKey
+    {
+        private final AccioMDL mdl;
+        private final Optional<String> catalog;
+        private final Optional<String> schema;
+        private final String statement;
+
+        private PlanKey(AccioMDL mdl, SessionContext sessionContext, String statement)
+        {
+            this.mdl = requireNonNull(mdl, "mdl is null");
+            this.catalog = sessionContext.getCatalog();
+            this.schema = sessionContext.getSchema();
+            this.statement = requireNonNull(statement, "statement is null");
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PlanKey that = (PlanKey) o;
+            // an mdl is replaced rather than modified on reload, so comparing the instance is enough
+            return mdl == that.mdl
+                    && catalog.equals(that.catalog)
+                    && schema.equals(that.schema)
+                    && statement.equals(that.statement);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(System.identityHashCode(mdl), catalog, schema, statement);
+        }
+    }
+}
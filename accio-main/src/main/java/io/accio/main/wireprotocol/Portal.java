@@ -17,10 +17,12 @@ package io.accio.main.wireprotocol;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import io.accio.base.AccioException;
+import io.accio.base.Cancellation;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.Parameter;
 import io.accio.base.type.PGType;
 import io.accio.base.type.PGTypes;
+import io.accio.main.query.TrackedQuery;
 import io.airlift.log.Logger;
 
 import javax.annotation.Nullable;
@@ -28,6 +30,7 @@ import javax.annotation.PreDestroy;
 import javax.validation.constraints.NotNull;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -43,6 +46,8 @@ public class Portal
     private final List<Object> params;
     private ConnectorRecordIterator connectorRecordIterator;
     private long rowCount;
+    private Optional<TrackedQuery> trackedQuery = Optional.empty();
+    private Optional<Cancellation.Registration> statementTimeout = Optional.empty();
 
     @Nullable
     private final FormatCodes.FormatCode[] resultFormatCodes;
@@ -111,6 +116,21 @@ public class Portal
         this.rowCount = rowCount;
     }
 
+    public Optional<TrackedQuery> getTrackedQuery()
+    {
+        return trackedQuery;
+    }
+
+    public void setTrackedQuery(TrackedQuery trackedQuery)
+    {
+        this.trackedQuery = Optional.of(trackedQuery);
+    }
+
+    public void setStatementTimeout(Cancellation.Registration statementTimeout)
+    {
+        this.statementTimeout = Optional.of(statementTimeout);
+    }
+
     public boolean isSuspended()
     {
         return connectorRecordIterator != null;
@@ -123,7 +143,10 @@ public class Portal
         for (int i = 0; i < pgTypes.size(); i++) {
             builder.add(new Parameter(pgTypes.get(i), params.get(i).equals("null") ? getEmptyValue(pgTypes.get(i)) : params.get(i)));
         }
-        return builder.build();
+        List<Parameter> parameters = builder.build();
+        return preparedStatement.getParameterizedStatement()
+                .map(statement -> statement.bind(parameters))
+                .orElse(parameters);
     }
 
     private Object getEmptyValue(PGType<?> pgType)
@@ -141,15 +164,18 @@ public class Portal
     @PreDestroy
     protected void close()
     {
+        // the rows of a suspended portal may not all be sent
+        trackedQuery.ifPresent(TrackedQuery::finish);
+        statementTimeout.ifPresent(Cancellation.Registration::close);
         if (connectorRecordIterator != null) {
-            LOG.info("ConnectorRecordIterable is closing.");
+            LOG.debug("ConnectorRecordIterable is closing.");
             try {
                 connectorRecordIterator.close();
             }
             catch (Exception ex) {
                 LOG.error(ex, "ConnectorRecordIterable close failed");
             }
-            LOG.info("ConnectorRecordIterable is closed.");
+            LOG.debug("ConnectorRecordIterable is closed.");
         }
     }
 }
@@ -24,7 +24,12 @@ import io.accio.main.AccioMetastore;
 import io.accio.main.PostgresWireProtocolConfig;
 import io.accio.main.metadata.Metadata;
 import io.accio.main.netty.ChannelBootstrapFactory;
+import io.accio.main.pgcatalog.PgCatalogManager;
 import io.accio.main.pgcatalog.regtype.RegObjectFactory;
+import io.accio.main.query.QueryAdmissionController;
+import io.accio.main.query.QueryTracker;
+import io.accio.main.wireprotocol.metrics.ChannelMetricsHandler;
+import io.accio.main.wireprotocol.metrics.WireProtocolMetrics;
 import io.accio.main.wireprotocol.ssl.SslContextProvider;
 import io.accio.main.wireprotocol.ssl.SslReqHandler;
 import io.airlift.log.Logger;
@@ -90,6 +95,13 @@ public class PostgresNetty
     private final AccioMetastore accioMetastore;
     private final CacheManager cacheManager;
     private final CachedTableMapping cachedTableMapping;
+    private final QueryResultCache queryResultCache;
+    private final PgCatalogManager pgCatalogManager;
+    private final PlanCache planCache;
+    private final QueryTracker queryTracker;
+    private final QueryAdmissionController queryAdmissionController;
+    private final CancellationManager cancellationManager;
+    private final WireProtocolMetrics wireProtocolMetrics;
 
     public PostgresNetty(
             NetworkService networkService,
@@ -100,7 +112,14 @@ public class PostgresNetty
             SqlConverter sqlConverter,
             AccioMetastore accioMetastore,
             CacheManager cacheManager,
-            CachedTableMapping cachedTableMapping)
+            CachedTableMapping cachedTableMapping,
+            QueryResultCache queryResultCache,
+            PgCatalogManager pgCatalogManager,
+            PlanCache planCache,
+            QueryTracker queryTracker,
+            QueryAdmissionController queryAdmissionController,
+            CancellationManager cancellationManager,
+            WireProtocolMetrics wireProtocolMetrics)
     {
         this.settings = toWireProtocolSettings();
         this.port = postgresWireProtocolConfig.getPort();
@@ -115,6 +134,13 @@ public class PostgresNetty
         this.accioMetastore = requireNonNull(accioMetastore, "accioMetastore is null");
         this.cacheManager = requireNonNull(cacheManager, "cacheManager is null");
         this.cachedTableMapping = requireNonNull(cachedTableMapping, "cachedTableMapping is null");
+        this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
+        this.pgCatalogManager = requireNonNull(pgCatalogManager, "pgCatalogManager is null");
+        this.planCache = requireNonNull(planCache, "planCache is null");
+        this.queryTracker = requireNonNull(queryTracker, "queryTracker is null");
+        this.queryAdmissionController = requireNonNull(queryAdmissionController, "queryAdmissionController is null");
+        this.cancellationManager = requireNonNull(cancellationManager, "cancellationManager is null");
+        this.wireProtocolMetrics = requireNonNull(wireProtocolMetrics, "wireProtocolMetrics is null");
     }
 
     public void start()
@@ -129,9 +155,11 @@ public class PostgresNetty
             {
                 ChannelPipeline pipeline = ch.pipeline();
                 pipeline.addLast("open_channels", openChannels);
+                ChannelMetricsHandler metricsHandler = wireProtocolMetrics.newChannelHandler();
+                pipeline.addLast("metrics", metricsHandler);
                 WireProtocolSession wireProtocolSession =
-                        new WireProtocolSession(regObjectFactory, connector, sqlConverter, accioMetastore, cacheManager, cachedTableMapping);
-                PostgresWireProtocol postgresWireProtocol = new PostgresWireProtocol(wireProtocolSession, new SslReqHandler(sslContextProvider));
+                        new WireProtocolSession(regObjectFactory, connector, sqlConverter, accioMetastore, cacheManager, cachedTableMapping, queryResultCache, pgCatalogManager, planCache, queryTracker, queryAdmissionController, cancellationManager);
+                PostgresWireProtocol postgresWireProtocol = new PostgresWireProtocol(wireProtocolSession, new SslReqHandler(sslContextProvider), metricsHandler, cancellationManager);
                 pipeline.addLast("frame-decoder", postgresWireProtocol.decoder);
                 pipeline.addLast("handler", postgresWireProtocol.handler);
             }
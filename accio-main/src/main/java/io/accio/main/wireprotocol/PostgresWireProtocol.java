@@ -20,6 +20,8 @@ import io.accio.base.Column;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.type.PGType;
 import io.accio.base.type.PGTypes;
+import io.accio.main.wireprotocol.metrics.ChannelMetricsHandler;
+import io.accio.main.wireprotocol.patterns.ScannedStatement;
 import io.accio.main.wireprotocol.ssl.SslReqHandler;
 import io.airlift.log.Logger;
 import io.netty.buffer.ByteBuf;
@@ -35,7 +37,6 @@ import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -49,8 +50,8 @@ import java.util.regex.Pattern;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.accio.base.metadata.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static io.accio.main.query.QueryPhase.SEND;
 import static java.lang.String.format;
-import static java.util.Locale.ENGLISH;
 import static java.util.Objects.isNull;
 import static java.util.Objects.requireNonNull;
 
@@ -80,6 +81,7 @@ public class PostgresWireProtocol
             "UNLISTEN");
 
     private static final Logger LOG = Logger.get(PostgresWireProtocol.class);
+    private static final int CANCEL_REQUEST_CODE = 80877102;
 
     final MessageDecoder decoder;
     final MessageHandler handler;
@@ -87,6 +89,8 @@ public class PostgresWireProtocol
     private int msgLength;
     private byte msgType;
     private final SslReqHandler sslReqHandler;
+    private final ChannelMetricsHandler metricsHandler;
+    private final CancellationManager cancellationManager;
 
     private final WireProtocolSession wireProtocolSession;
 
@@ -95,16 +99,23 @@ public class PostgresWireProtocol
         PRE_STARTUP,
         STARTUP_HEADER,
         STARTUP_BODY,
+        CANCEL_BODY,
         MSG_HEADER,
         MSG_BODY
     }
 
     private State state = State.PRE_STARTUP;
 
-    public PostgresWireProtocol(WireProtocolSession wireProtocolSession, SslReqHandler sslReqHandler)
+    public PostgresWireProtocol(
+            WireProtocolSession wireProtocolSession,
+            SslReqHandler sslReqHandler,
+            ChannelMetricsHandler metricsHandler,
+            CancellationManager cancellationManager)
     {
         this.wireProtocolSession = requireNonNull(wireProtocolSession, "wireProtocolSession is null");
         this.sslReqHandler = sslReqHandler;
+        this.metricsHandler = requireNonNull(metricsHandler, "metricsHandler is null");
+        this.cancellationManager = requireNonNull(cancellationManager, "cancellationManager is null");
         this.decoder = new MessageDecoder();
         this.handler = new MessageHandler();
     }
@@ -150,7 +161,8 @@ public class PostgresWireProtocol
                 break;
             }
             String value = readCString(byteBuf);
-            LOG.info("payload: key=%s value=%s", key, value);
+            // never log the password the client may send along
+            LOG.debug("payload: key=%s value=%s", key, "password".equalsIgnoreCase(key) ? "<redacted>" : value);
             if (!"".equals(key) && !"".equals(value)) {
                 properties.setProperty(key, value);
             }
@@ -181,10 +193,26 @@ public class PostgresWireProtocol
 
     private void handleStartupBody(ByteBuf buffer, Channel channel)
     {
-        wireProtocolSession.setProperties(readStartupMessage(buffer));
+        Properties properties = readStartupMessage(buffer);
+        metricsHandler.setApplicationName(properties.getProperty(PostgresSessionProperties.APPLICATION_NAME));
+        wireProtocolSession.setProperties(properties);
         initAuthentication(channel);
     }
 
+    /**
+     * CancelRequest:
+     * | int32 length (16) | int32 cancel request code (80877102) | int32 process id | int32 secret key
+     * <p>
+     * It's sent on a new connection, which is closed without a response.
+     */
+    private void handleCancelRequest(ByteBuf buffer, Channel channel)
+    {
+        int processId = buffer.readInt();
+        int secretKey = buffer.readInt();
+        cancellationManager.cancel(processId, secretKey);
+        channel.close();
+    }
+
     private void initAuthentication(Channel channel)
     {
         finishAuthentication(channel, "");
@@ -231,6 +259,8 @@ public class PostgresWireProtocol
         for (Map.Entry<String, String> config : DEFAULT_PG_CONFIGS.entrySet()) {
             Messages.sendParameterStatus(channel, config.getKey(), config.getValue());
         }
+        CancellationManager.BackendKey backendKey = wireProtocolSession.registerBackendKey();
+        Messages.sendBackendKeyData(channel, backendKey.getProcessId(), backendKey.getSecretKey());
         Messages.sendReadyForQuery(channel, TransactionState.IDLE);
     }
 
@@ -277,7 +307,7 @@ public class PostgresWireProtocol
                     0,
                     null);
             Messages.sendRowDescription(channel, wireProtocolSession.describePortal("").get(), null);
-            resultSetSender.sendResultSet();
+            sendResultSet(resultSetSender, wireProtocolSession.getPortal(""));
             return wireProtocolSession.sync();
         }
         catch (Exception e) {
@@ -289,17 +319,45 @@ public class PostgresWireProtocol
         }
     }
 
+    private static long sendResultSet(ResultSetSender resultSetSender, Portal portal)
+    {
+        long start = System.nanoTime();
+        try {
+            long rowCount = resultSetSender.sendResultSet();
+            portal.getTrackedQuery().ifPresent(query -> {
+                query.getTimings().add(SEND, System.nanoTime() - start);
+                query.addSentRows(resultSetSender.getSentRows(), resultSetSender.getSentBytes());
+                if (resultSetSender.isFinished()) {
+                    query.finish();
+                }
+            });
+            return rowCount;
+        }
+        catch (RuntimeException e) {
+            portal.getTrackedQuery().ifPresent(query -> query.fail(e));
+            throw e;
+        }
+    }
+
     public static boolean isIgnoredCommand(String statement)
     {
-        Optional<String> command = Arrays.stream(statement.toUpperCase(ENGLISH).split(" |;"))
-                .filter(split -> !split.isEmpty())
-                .findFirst();
+        return isIgnoredCommand(ScannedStatement.scan(statement));
+    }
 
-        if ((command.isPresent() && IGNORED_COMMAND.contains(command.get())) ||
-                SET_TRANSACTION_PATTERN.matcher(statement).find() || SET_SESSION_AUTHORIZATION.matcher(statement).find()) {
+    public static boolean isIgnoredCommand(ScannedStatement scannedStatement)
+    {
+        String command = scannedStatement.getLeadingKeyword();
+        if (IGNORED_COMMAND.contains(command)) {
             return true;
         }
+        if (!command.equals("SET")) {
+            return false;
+        }
 
+        String statement = scannedStatement.getStatement();
+        if (SET_TRANSACTION_PATTERN.matcher(statement).find() || SET_SESSION_AUTHORIZATION.matcher(statement).find()) {
+            return true;
+        }
         Matcher matcher = SET_STMT_PATTERN.matcher(statement);
         return matcher.find() && PostgresSessionProperties.isIgnoredSessionProperties(matcher.group("property"));
     }
@@ -438,7 +496,7 @@ public class PostgresWireProtocol
         int maxRows = buffer.readInt();
         String statement = "uninitialized statement";
 
-        LOG.info("Execute portal: %s", portalName);
+        LOG.debug("Execute portal: %s", portalName);
         try {
             Portal portal = wireProtocolSession.getPortal(portalName);
 
@@ -472,7 +530,7 @@ public class PostgresWireProtocol
                     maxRows,
                     portal.getRowCount(),
                     resultFormatCodes);
-            portal.setRowCount(resultSetSender.sendResultSet());
+            portal.setRowCount(sendResultSet(resultSetSender, portal));
         }
         catch (Exception e) {
             LOG.error(e, format("Execute query failed. Statement: %s. Root cause is %s", statement, e.getMessage()));
@@ -567,7 +625,7 @@ public class PostgresWireProtocol
     {
         byte type = buffer.readByte();
         String portalOrStatementName = readCString(buffer);
-        LOG.info("Close %s", portalOrStatementName);
+        LOG.debug("Close %s", portalOrStatementName);
         wireProtocolSession.close(type, portalOrStatementName);
         Messages.sendCloseComplete(channel);
     }
@@ -615,7 +673,7 @@ public class PostgresWireProtocol
 
         private void dispatchState(ByteBuf buffer, Channel channel)
         {
-            LOG.info("channel dispatch state: %s", state);
+            LOG.debug("channel dispatch state: %s", state);
             switch (state) {
                 case STARTUP_HEADER:
                 case MSG_HEADER:
@@ -624,6 +682,9 @@ public class PostgresWireProtocol
                     state = PostgresWireProtocol.State.MSG_HEADER;
                     handleStartupBody(buffer, channel);
                     return;
+                case CANCEL_BODY:
+                    handleCancelRequest(buffer, channel);
+                    return;
                 case MSG_BODY:
                     state = PostgresWireProtocol.State.MSG_HEADER;
                     LOG.debug("msg=%s msgLength=%s readableBytes=%s", ((char) msgType), msgLength, buffer.readableBytes());
@@ -646,7 +707,8 @@ public class PostgresWireProtocol
          */
         private void dispatchMessage(ByteBuf buffer, Channel channel)
         {
-            LOG.info("channel dispatch message. msgType: %s", msgType);
+            LOG.debug("channel dispatch message. msgType: %s", msgType);
+            metricsHandler.messageReceived(msgType);
             switch (msgType) {
                 case 'Q': // Query (simple)
                     handleSimpleQuery(buffer, channel);
@@ -697,6 +759,7 @@ public class PostgresWireProtocol
         {
             LOG.debug("channelDisconnected");
             channel = null;
+            wireProtocolSession.close();
             super.channelUnregistered(ctx);
         }
     }
@@ -742,6 +805,9 @@ public class PostgresWireProtocol
                     msgLength = buffer.readInt() - 8; // exclude length itself and protocol
                     LOG.warn("Header pkgLength: %s", msgLength);
                     int protocol = buffer.readInt();
+                    if (protocol == CANCEL_REQUEST_CODE) {
+                        return nullOrBuffer(buffer, State.CANCEL_BODY);
+                    }
                     traceLogProtocol(protocol);
                     return nullOrBuffer(buffer, State.STARTUP_BODY);
                 /*
@@ -758,6 +824,7 @@ public class PostgresWireProtocol
                     return nullOrBuffer(buffer, State.MSG_BODY);
                 case MSG_BODY:
                 case STARTUP_BODY:
+                case CANCEL_BODY:
                     return nullOrBuffer(buffer, state);
                 default:
                     throw new IllegalStateException("Invalid state " + state);
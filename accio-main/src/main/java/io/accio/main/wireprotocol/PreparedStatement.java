@@ -14,8 +14,18 @@
 
 package io.accio.main.wireprotocol;
 
+import com.google.common.collect.ImmutableSet;
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.main.query.PhaseTimings;
+import io.accio.main.sql.ParameterizedStatement;
+import io.accio.main.wireprotocol.fastpath.FastPathStatement;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
 
 public class PreparedStatement
 {
@@ -24,9 +34,14 @@ public class PreparedStatement
     private final String name;
     private final String statement;
     private final Optional<String> cacheStatement;
+    private final Set<CatalogSchemaTableName> cachedTables;
     private final List<Integer> paramTypeOids;
     private final String originalStatement;
     private final boolean isSessionCommand;
+    private final Optional<FastPathStatement> fastPathStatement;
+    private final Optional<ParameterizedStatement> parameterizedStatement;
+    private final PhaseTimings planningTimings;
+    private final AtomicBoolean planningTimingsTaken = new AtomicBoolean();
 
     public PreparedStatement(
             String name,
@@ -35,23 +50,70 @@ public class PreparedStatement
             String originalStatement,
             boolean isSessionCommand)
     {
-        this(name, statement, Optional.empty(), paramTypeOids, originalStatement, isSessionCommand);
+        this(name, statement, Optional.empty(), ImmutableSet.of(), paramTypeOids, originalStatement, isSessionCommand, new PhaseTimings());
+    }
+
+    public PreparedStatement(
+            String name,
+            FastPathStatement fastPathStatement,
+            List<Integer> paramTypeOids,
+            String originalStatement)
+    {
+        this(name, originalStatement, Optional.empty(), ImmutableSet.of(), paramTypeOids, originalStatement, false, Optional.of(fastPathStatement), Optional.empty(), new PhaseTimings());
     }
 
     public PreparedStatement(
             String name,
             String statement,
             Optional<String> cacheStatement,
+            Set<CatalogSchemaTableName> cachedTables,
             List<Integer> paramTypeOids,
             String originalStatement,
-            boolean isSessionCommand)
+            boolean isSessionCommand,
+            PhaseTimings planningTimings)
+    {
+        this(name, statement, cacheStatement, cachedTables, paramTypeOids, originalStatement, isSessionCommand, Optional.empty(), Optional.empty(), planningTimings);
+    }
+
+    /**
+     * @param parameterizedStatement the statement planned in place of the original one, whose extracted literals
+     * are bound together with the parameters of the client
+     */
+    public PreparedStatement(
+            String name,
+            String statement,
+            Optional<String> cacheStatement,
+            Set<CatalogSchemaTableName> cachedTables,
+            List<Integer> paramTypeOids,
+            String originalStatement,
+            ParameterizedStatement parameterizedStatement,
+            PhaseTimings planningTimings)
+    {
+        this(name, statement, cacheStatement, cachedTables, paramTypeOids, originalStatement, false, Optional.empty(), Optional.of(parameterizedStatement), planningTimings);
+    }
+
+    private PreparedStatement(
+            String name,
+            String statement,
+            Optional<String> cacheStatement,
+            Set<CatalogSchemaTableName> cachedTables,
+            List<Integer> paramTypeOids,
+            String originalStatement,
+            boolean isSessionCommand,
+            Optional<FastPathStatement> fastPathStatement,
+            Optional<ParameterizedStatement> parameterizedStatement,
+            PhaseTimings planningTimings)
     {
         this.name = name.isEmpty() ? CANNERFLOW_RESERVED_PREPARE_NAME : name;
         this.statement = statement;
         this.cacheStatement = cacheStatement;
+        this.cachedTables = ImmutableSet.copyOf(requireNonNull(cachedTables, "cachedTables is null"));
         this.paramTypeOids = paramTypeOids;
         this.originalStatement = originalStatement;
         this.isSessionCommand = isSessionCommand;
+        this.fastPathStatement = fastPathStatement;
+        this.parameterizedStatement = parameterizedStatement;
+        this.planningTimings = requireNonNull(planningTimings, "planningTimings is null");
     }
 
     public String getName()
@@ -83,4 +145,39 @@ public class PreparedStatement
     {
         return cacheStatement;
     }
+
+    /**
+     * @return the cached tables the cache statement reads
+     */
+    public Set<CatalogSchemaTableName> getCachedTables()
+    {
+        return cachedTables;
+    }
+
+    /**
+     * Present if the statement is answered by the fast path instead of the data source.
+     */
+    public Optional<FastPathStatement> getFastPathStatement()
+    {
+        return fastPathStatement;
+    }
+
+    /**
+     * Present if the literals of the statement were extracted as parameters to reuse its plan.
+     */
+    public Optional<ParameterizedStatement> getParameterizedStatement()
+    {
+        return parameterizedStatement;
+    }
+
+    /**
+     * @return the time spent preparing the statement, only for its first execution since it's prepared once
+     */
+    public Optional<PhaseTimings> takePlanningTimings()
+    {
+        if (planningTimingsTaken.compareAndSet(false, true)) {
+            return Optional.of(planningTimings);
+        }
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,573 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.accio.base.AccioMDL;
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.Parameter;
+import io.accio.base.SessionContext;
+import io.accio.base.type.PGType;
+import io.accio.cache.CacheManager;
+import io.accio.main.QueryResultCacheConfig;
+import io.airlift.log.Logger;
+import io.trino.sql.parser.SqlParser;
+import io.trino.sql.tree.CurrentTime;
+import io.trino.sql.tree.CurrentUser;
+import io.trino.sql.tree.DefaultTraversalVisitor;
+import io.trino.sql.tree.FunctionCall;
+import io.trino.sql.tree.Statement;
+import io.trino.sql.tree.Table;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static io.accio.main.wireprotocol.QueryResultSpillFormat.readRow;
+import static io.accio.main.wireprotocol.QueryResultSpillFormat.writeRow;
+import static io.accio.main.wireprotocol.WireProtocolSession.PARSE_AS_DECIMAL;
+import static io.accio.sqlrewrite.Utils.toCatalogSchemaTableName;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.lang.Math.min;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Caches the results of the queries executed on the data source. A result is keyed on the dialect sql,
+ * the parameter values and the mdl it was planned with. It expires after the ttl, or once a cached
+ * object read by the query is refreshed. Changes to the data source itself are only picked up after the
+ * ttl, and the results of statements calling non-deterministic functions like {@code now()} aren't cached. Small results are kept in memory and larger ones are spilled to
+ * compressed local files.
+ */
+public class QueryResultCache
+{
+    private static final Logger LOG = Logger.get(QueryResultCache.class);
+    // functions whose result changes between executions of the same statement, in postgres and bigquery
+    private static final Set<String> NON_DETERMINISTIC_FUNCTIONS = ImmutableSet.of(
+            "now",
+            "current_timestamp",
+            "current_date",
+            "current_time",
+            "current_datetime",
+            "localtimestamp",
+            "localtime",
+            "clock_timestamp",
+            "statement_timestamp",
+            "transaction_timestamp",
+            "timeofday",
+            "rand",
+            "random",
+            "uuid",
+            "gen_random_uuid",
+            "generate_uuid",
+            "session_user",
+            "current_user");
+
+    private final boolean enabled;
+    private final long maxMemoryRows;
+    private final long maxRecordedRows;
+    private final Optional<Path> spillDirectory;
+    private final Cache<QueryKey, QueryResult> results;
+    private final SqlParser sqlParser = new SqlParser();
+    private final ExecutorService spillExecutor = newSingleThreadExecutor(daemonThreadsNamed("query-result-spill-%s"));
+
+    @Inject
+    public QueryResultCache(QueryResultCacheConfig config, CacheManager cacheManager)
+    {
+        this(config, Ticker.systemTicker());
+        cacheManager.addCacheRefreshListener(this::invalidate);
+    }
+
+    @VisibleForTesting
+    QueryResultCache(QueryResultCacheConfig config, Ticker ticker)
+    {
+        this.enabled = config.isEnabled();
+        this.maxMemoryRows = config.getMaxMemoryRows();
+        this.spillDirectory = config.getSpillDirectory().map(Path::toAbsolutePath);
+        // without a spill directory, results larger than max-memory-rows can't be cached anyway
+        this.maxRecordedRows = spillDirectory.isPresent() ? config.getMaxRows() : min(config.getMaxRows(), maxMemoryRows);
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(config.getTtl().toMillis(), MILLISECONDS)
+                .ticker(ticker)
+                .removalListener((RemovalListener<QueryKey, QueryResult>) notification -> notification.getValue().release())
+                .build();
+    }
+
+    /**
+     * @param originalStatement the statement sent by the client, used to find the cached objects the query reads
+     * @param loader starts the query if no result is cached
+     */
+    public CompletableFuture<ConnectorRecordIterator> query(
+            AccioMDL mdl,
+            SessionContext sessionContext,
+            String originalStatement,
+            String sql,
+            List<Parameter> parameters,
+            Supplier<CompletableFuture<ConnectorRecordIterator>> loader)
+    {
+        if (!enabled) {
+            return loader.get();
+        }
+        QueryKey key = new QueryKey(mdl, sql, parameters);
+        QueryResult result = results.getIfPresent(key);
+        if (result != null) {
+            Optional<ConnectorRecordIterator> cached = result.iterator();
+            if (cached.isPresent()) {
+                return completedFuture(cached.get());
+            }
+            results.invalidate(key);
+        }
+        Optional<Set<CatalogSchemaTableName>> cachedObjects = findCachedObjects(mdl, sessionContext, originalStatement);
+        if (cachedObjects.isEmpty()) {
+            return loader.get();
+        }
+        return loader.get().thenApply(iterator -> new RecordingIterator(iterator, rows -> {
+            if (rows.getRows().size() <= maxMemoryRows) {
+                results.put(key, new MemoryQueryResult(rows.getTypes(), rows.getRows(), cachedObjects.get()));
+            }
+            else if (spillDirectory.isPresent()) {
+                spillExecutor.execute(() -> spill(rows, cachedObjects.get()).ifPresent(spilled -> results.put(key, spilled)));
+            }
+        }));
+    }
+
+    public void invalidate(CatalogSchemaTableName cachedObject)
+    {
+        results.asMap().entrySet().removeIf(entry -> entry.getValue().getCachedObjects().contains(cachedObject));
+    }
+
+    public void invalidateAll()
+    {
+        results.invalidateAll();
+    }
+
+    /**
+     * Waits until the results handed over so far are spilled.
+     */
+    @VisibleForTesting
+    void awaitSpills()
+    {
+        try {
+            spillExecutor.submit(() -> {}).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        spillExecutor.shutdownNow();
+        results.invalidateAll();
+    }
+
+    /**
+     * @return the cached objects read by the statement, or empty if the statement can't be analyzed
+     * or its result isn't determined by the data it reads
+     */
+    private Optional<Set<CatalogSchemaTableName>> findCachedObjects(AccioMDL mdl, SessionContext sessionContext, String originalStatement)
+    {
+        try {
+            Statement statement = sqlParser.createStatement(originalStatement, PARSE_AS_DECIMAL);
+            ImmutableSet.Builder<CatalogSchemaTableName> builder = ImmutableSet.builder();
+            AtomicBoolean deterministic = new AtomicBoolean(true);
+            new DefaultTraversalVisitor<Void>()
+            {
+                @Override
+                protected Void visitTable(Table node, Void context)
+                {
+                    CatalogSchemaTableName name = toCatalogSchemaTableName(sessionContext, node.getName());
+                    if (mdl.getCacheInfo(name).isPresent()) {
+                        builder.add(name);
+                    }
+                    return null;
+                }
+
+                @Override
+                protected Void visitFunctionCall(FunctionCall node, Void context)
+                {
+                    if (NON_DETERMINISTIC_FUNCTIONS.contains(node.getName().getSuffix().toLowerCase(ENGLISH))) {
+                        deterministic.set(false);
+                    }
+                    return super.visitFunctionCall(node, context);
+                }
+
+                @Override
+                protected Void visitCurrentTime(CurrentTime node, Void context)
+                {
+                    deterministic.set(false);
+                    return null;
+                }
+
+                @Override
+                protected Void visitCurrentUser(CurrentUser node, Void context)
+                {
+                    // the user isn't part of the key
+                    deterministic.set(false);
+                    return null;
+                }
+            }.process(statement, null);
+            if (!deterministic.get()) {
+                return Optional.empty();
+            }
+            return Optional.of(builder.build());
+        }
+        catch (Exception e) {
+            LOG.debug(e, "Failed to analyze statement; its result won't be cached: %s", originalStatement);
+            return Optional.empty();
+        }
+    }
+
+    private Optional<QueryResult> spill(RecordedRows rows, Set<CatalogSchemaTableName> cachedObjects)
+    {
+        Path file = spillDirectory.orElseThrow().resolve("result-" + randomUUID() + ".bin.gz");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file))))) {
+                for (Object[] row : rows.getRows()) {
+                    writeRow(output, row);
+                }
+            }
+            return Optional.of(new SpilledQueryResult(rows.getTypes(), file, rows.getRows().size(), cachedObjects));
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.warn(e, "Failed to spill query result to %s", file);
+            deleteQuietly(file);
+            return Optional.empty();
+        }
+    }
+
+    private static void deleteQuietly(Path file)
+    {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            LOG.warn(e, "Failed to delete %s", file);
+        }
+    }
+
+    private static class QueryKey
+    {
+        private final AccioMDL mdl;
+        private final String sql;
+        private final List<Object> parameterValues;
+
+        private QueryKey(AccioMDL mdl, String sql, List<Parameter> parameters)
+        {
+            this.mdl = requireNonNull(mdl, "mdl is null");
+            this.sql = requireNonNull(sql, "sql is null");
+            // parameter values could be null
+            this.parameterValues = Arrays.asList(parameters.stream().map(Parameter::getValue).toArray());
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            QueryKey that = (QueryKey) o;
+            // an mdl is replaced rather than modified on reload, so comparing the instance is enough
+            return mdl == that.mdl
+                    && sql.equals(that.sql)
+                    && parameterValues.equals(that.parameterValues);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(System.identityHashCode(mdl), sql, parameterValues);
+        }
+    }
+
+    private interface QueryResult
+    {
+        Set<CatalogSchemaTableName> getCachedObjects();
+
+        /**
+         * @return the cached rows, or empty if they are no longer available
+         */
+        Optional<ConnectorRecordIterator> iterator();
+
+        void release();
+    }
+
+    private static class MemoryQueryResult
+            implements QueryResult
+    {
+        private final List<PGType> types;
+        private final List<Object[]> rows;
+        private final Set<CatalogSchemaTableName> cachedObjects;
+
+        private MemoryQueryResult(List<PGType> types, List<Object[]> rows, Set<CatalogSchemaTableName> cachedObjects)
+        {
+            this.types = ImmutableList.copyOf(types);
+            this.rows = ImmutableList.copyOf(rows);
+            this.cachedObjects = requireNonNull(cachedObjects, "cachedObjects is null");
+        }
+
+        @Override
+        public Set<CatalogSchemaTableName> getCachedObjects()
+        {
+            return cachedObjects;
+        }
+
+        @Override
+        public Optional<ConnectorRecordIterator> iterator()
+        {
+            Iterator<Object[]> iterator = rows.iterator();
+            return Optional.of(new ConnectorRecordIterator()
+            {
+                @Override
+                public List<PGType> getTypes()
+                {
+                    return types;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Object[] next()
+                {
+                    return iterator.next();
+                }
+
+                @Override
+                public void close() {}
+            });
+        }
+
+        @Override
+        public void release() {}
+    }
+
+    private static class SpilledQueryResult
+            implements QueryResult
+    {
+        private final List<PGType> types;
+        private final Path file;
+        private final int rowCount;
+        private final Set<CatalogSchemaTableName> cachedObjects;
+
+        private SpilledQueryResult(List<PGType> types, Path file, int rowCount, Set<CatalogSchemaTableName> cachedObjects)
+        {
+            this.types = ImmutableList.copyOf(types);
+            this.file = requireNonNull(file, "file is null");
+            this.rowCount = rowCount;
+            this.cachedObjects = requireNonNull(cachedObjects, "cachedObjects is null");
+        }
+
+        @Override
+        public Set<CatalogSchemaTableName> getCachedObjects()
+        {
+            return cachedObjects;
+        }
+
+        @Override
+        public Optional<ConnectorRecordIterator> iterator()
+        {
+            DataInputStream input;
+            try {
+                input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))));
+            }
+            catch (IOException e) {
+                LOG.warn(e, "Failed to read spilled query result %s", file);
+                return Optional.empty();
+            }
+            return Optional.of(new ConnectorRecordIterator()
+            {
+                private int position;
+
+                @Override
+                public List<PGType> getTypes()
+                {
+                    return types;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return position < rowCount;
+                }
+
+                @Override
+                public Object[] next()
+                {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        position++;
+                        return readRow(input);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void close()
+                        throws IOException
+                {
+                    input.close();
+                }
+            });
+        }
+
+        @Override
+        public void release()
+        {
+            deleteQuietly(file);
+        }
+    }
+
+    private static class RecordedRows
+    {
+        private final List<PGType> types;
+        private final List<Object[]> rows;
+
+        private RecordedRows(List<PGType> types, List<Object[]> rows)
+        {
+            this.types = requireNonNull(types, "types is null");
+            this.rows = requireNonNull(rows, "rows is null");
+        }
+
+        public List<PGType> getTypes()
+        {
+            return types;
+        }
+
+        public List<Object[]> getRows()
+        {
+            return rows;
+        }
+    }
+
+    /**
+     * Passes the rows of the query through while recording them. The result is handed over only if the
+     * client reads all rows and the result is not larger than max-rows, or max-memory-rows if there is
+     * no spill directory.
+     */
+    private class RecordingIterator
+            implements ConnectorRecordIterator
+    {
+        private final ConnectorRecordIterator delegate;
+        private final Consumer<RecordedRows> callback;
+        private List<Object[]> rows = new ArrayList<>();
+        private boolean completed;
+
+        private RecordingIterator(ConnectorRecordIterator delegate, Consumer<RecordedRows> callback)
+        {
+            this.delegate = requireNonNull(delegate, "delegate is null");
+            this.callback = requireNonNull(callback, "callback is null");
+        }
+
+        @Override
+        public List<PGType> getTypes()
+        {
+            return delegate.getTypes();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            boolean hasNext = delegate.hasNext();
+            if (!hasNext && !completed) {
+                completed = true;
+                if (rows != null) {
+                    try {
+                        callback.accept(new RecordedRows(delegate.getTypes(), rows));
+                    }
+                    catch (RuntimeException e) {
+                        LOG.warn(e, "Failed to cache query result");
+                    }
+                    rows = null;
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Object[] next()
+        {
+            Object[] row = delegate.next();
+            if (rows != null) {
+                if (rows.size() < maxRecordedRows) {
+                    rows.add(row);
+                }
+                else {
+                    rows = null;
+                }
+            }
+            return row;
+        }
+
+        @Override
+        public void close()
+                throws Exception
+        {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes the rows of a spilled query result. Each value is written as a tag followed by its data, so
+ * reading a file back only ever creates the value types listed here.
+ */
+final class QueryResultSpillFormat
+{
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 2;
+    private static final byte SHORT = 3;
+    private static final byte INTEGER = 4;
+    private static final byte LONG = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte STRING = 8;
+    private static final byte DECIMAL = 9;
+    private static final byte BYTES = 10;
+    private static final byte DATE = 11;
+    private static final byte TIMESTAMP = 12;
+    private static final byte INTERVAL = 13;
+    private static final byte LIST = 14;
+    private static final byte MAP = 15;
+
+    private QueryResultSpillFormat() {}
+
+    /**
+     * @throws IllegalArgumentException if the row holds a value of a type that can't be encoded
+     */
+    static void writeRow(DataOutput output, Object[] row)
+            throws IOException
+    {
+        output.writeInt(row.length);
+        for (Object value : row) {
+            writeValue(output, value);
+        }
+    }
+
+    static Object[] readRow(DataInput input)
+            throws IOException
+    {
+        Object[] row = new Object[input.readInt()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = readValue(input);
+        }
+        return row;
+    }
+
+    private static void writeValue(DataOutput output, Object value)
+            throws IOException
+    {
+        if (value == null) {
+            output.writeByte(NULL);
+        }
+        else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Byte) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        }
+        else if (value instanceof Short) {
+            output.writeByte(SHORT);
+            output.writeShort((Short) value);
+        }
+        else if (value instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) value);
+        }
+        else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        }
+        else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        }
+        else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        }
+        else if (value instanceof String) {
+            output.writeByte(STRING);
+            writeBytes(output, ((String) value).getBytes(UTF_8));
+        }
+        else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            output.writeByte(DECIMAL);
+            output.writeInt(decimal.scale());
+            writeBytes(output, decimal.unscaledValue().toByteArray());
+        }
+        else if (value instanceof byte[]) {
+            output.writeByte(BYTES);
+            writeBytes(output, (byte[]) value);
+        }
+        else if (value instanceof LocalDate) {
+            output.writeByte(DATE);
+            output.writeLong(((LocalDate) value).toEpochDay());
+        }
+        else if (value instanceof LocalDateTime) {
+            LocalDateTime timestamp = (LocalDateTime) value;
+            output.writeByte(TIMESTAMP);
+            output.writeLong(timestamp.toLocalDate().toEpochDay());
+            output.writeLong(timestamp.toLocalTime().toNanoOfDay());
+        }
+        else if (value instanceof Period) {
+            Period period = (Period) value;
+            output.writeByte(INTERVAL);
+            output.writeInt(period.getYears());
+            output.writeInt(period.getMonths());
+            output.writeInt(period.getDays());
+        }
+        else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            output.writeByte(LIST);
+            output.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(output, element);
+            }
+        }
+        else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(MAP);
+            output.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        }
+        else {
+            throw new IllegalArgumentException(format("Unsupported value type %s", value.getClass().getName()));
+        }
+    }
+
+    private static Object readValue(DataInput input)
+            throws IOException
+    {
+        byte tag = input.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return input.readBoolean();
+            case BYTE:
+                return input.readByte();
+            case SHORT:
+                return input.readShort();
+            case INTEGER:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case FLOAT:
+                return input.readFloat();
+            case DOUBLE:
+                return input.readDouble();
+            case STRING:
+                return new String(readBytes(input), UTF_8);
+            case DECIMAL:
+                int scale = input.readInt();
+                return new BigDecimal(new BigInteger(readBytes(input)), scale);
+            case BYTES:
+                return readBytes(input);
+            case DATE:
+                return LocalDate.ofEpochDay(input.readLong());
+            case TIMESTAMP:
+                LocalDate date = LocalDate.ofEpochDay(input.readLong());
+                return date.atTime(LocalTime.ofNanoOfDay(input.readLong()));
+            case INTERVAL:
+                return Period.of(input.readInt(), input.readInt(), input.readInt());
+            case LIST:
+                int size = input.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            case MAP:
+                int entries = input.readInt();
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < entries; i++) {
+                    map.put(readValue(input), readValue(input));
+                }
+                return map;
+            default:
+                throw new IOException(format("Unknown value tag %s", tag));
+        }
+    }
+
+    private static void writeBytes(DataOutput output, byte[] bytes)
+            throws IOException
+    {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput input)
+            throws IOException
+    {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return bytes;
+    }
+}
@@ -38,6 +38,8 @@ class ResultSetSender
 
     private long localRowCount;
     private long totalRowCount;
+    private long sentBytes;
+    private boolean finished;
 
     ResultSetSender(String query,
             Channel channel,
@@ -59,7 +61,7 @@ class ResultSetSender
     public void sendRow(Object[] row)
     {
         localRowCount++;
-        Messages.sendDataRow(channel, row, schema, formatCodes);
+        sentBytes += Messages.sendDataRow(channel, row, schema, formatCodes);
         if (localRowCount % 1000 == 0) {
             channel.flush();
         }
@@ -99,7 +101,29 @@ class ResultSetSender
             }
         }
         totalRowCount += localRowCount;
+        finished = true;
         allFinished(false);
         return totalRowCount;
     }
+
+    /**
+     * The number of rows sent by this sender, excluding those of the previous batches of the portal.
+     */
+    public long getSentRows()
+    {
+        return localRowCount;
+    }
+
+    public long getSentBytes()
+    {
+        return sentBytes;
+    }
+
+    /**
+     * @return true if all the rows are sent, false if the portal is suspended
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
 }
@@ -16,20 +16,35 @@ package io.accio.main.wireprotocol;
 
 import com.google.common.collect.ImmutableList;
 import io.accio.base.AccioException;
+import io.accio.base.AccioMDL;
+import io.accio.base.Cancellation;
+import io.accio.base.CatalogSchemaTableName;
 import io.accio.base.Column;
 import io.accio.base.ConnectorRecordIterator;
 import io.accio.base.SessionContext;
 import io.accio.base.sql.SqlConverter;
+import io.accio.base.type.PGType;
 import io.accio.cache.CacheManager;
 import io.accio.cache.CachedTableMapping;
 import io.accio.main.AccioMetastore;
 import io.accio.main.metadata.Metadata;
+import io.accio.main.pgcatalog.PgCatalogManager;
 import io.accio.main.pgcatalog.regtype.RegObjectFactory;
+import io.accio.main.query.PhaseTimings;
+import io.accio.main.query.QueryAdmissionController;
+import io.accio.main.query.QueryTracker;
+import io.accio.main.query.TrackedQuery;
+import io.accio.main.sql.LiteralParameterizer;
+import io.accio.main.sql.ParameterizedStatement;
 import io.accio.main.sql.PostgreSqlRewrite;
+import io.accio.main.wireprotocol.fastpath.FastPathRegistry;
+import io.accio.main.wireprotocol.fastpath.FastPathStatement;
 import io.accio.main.wireprotocol.patterns.PostgreSqlRewriteUtil;
+import io.accio.main.wireprotocol.patterns.ScannedStatement;
 import io.accio.sqlrewrite.AccioPlanner;
 import io.accio.sqlrewrite.CacheRewrite;
 import io.airlift.log.Logger;
+import io.trino.sql.SqlFormatter;
 import io.trino.sql.parser.ParsingOptions;
 import io.trino.sql.parser.SqlParser;
 import io.trino.sql.tree.Deallocate;
@@ -40,20 +55,36 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.emptyToNull;
 import static com.google.common.base.Strings.nullToEmpty;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static io.accio.base.metadata.StandardErrorCode.INVALID_PARAMETER_USAGE;
 import static io.accio.base.metadata.StandardErrorCode.NOT_FOUND;
+import static io.accio.main.query.QueryBackend.CACHED_TABLE;
+import static io.accio.main.query.QueryBackend.DATA_SOURCE;
+import static io.accio.main.query.QueryBackend.FAST_PATH;
+import static io.accio.main.query.QueryBackend.RESULT_CACHE;
+import static io.accio.main.query.QueryPhase.CACHE_REWRITE;
+import static io.accio.main.query.QueryPhase.CONVERT;
+import static io.accio.main.query.QueryPhase.EXECUTE;
+import static io.accio.main.query.QueryPhase.PG_REWRITE;
+import static io.accio.main.query.QueryPhase.PLAN;
+import static io.accio.main.query.QueryPhase.PRE_REWRITE;
+import static io.accio.main.query.QueryPhase.QUEUE;
 import static io.accio.main.wireprotocol.PostgresWireProtocol.isIgnoredCommand;
 import static io.accio.main.wireprotocol.PostgresWireProtocolErrorCode.INVALID_PREPARED_STATEMENT_NAME;
 import static io.trino.execution.ParameterExtractor.getParameterCount;
@@ -85,6 +116,14 @@ public class WireProtocolSession
     private final AccioMetastore accioMetastore;
     private final CacheManager cacheManager;
     private final CachedTableMapping cachedTableMapping;
+    private final QueryResultCache queryResultCache;
+    private final PgCatalogManager pgCatalogManager;
+    private final PlanCache planCache;
+    private final QueryTracker queryTracker;
+    private final QueryAdmissionController queryAdmissionController;
+    private final CancellationManager cancellationManager;
+    private volatile Cancellation runningCancellation = new Cancellation();
+    private CancellationManager.BackendKey backendKey;
 
     public WireProtocolSession(
             RegObjectFactory regObjectFactory,
@@ -92,7 +131,13 @@ public class WireProtocolSession
             SqlConverter sqlConverter,
             AccioMetastore accioMetastore,
             CacheManager cacheManager,
-            CachedTableMapping cachedTableMapping)
+            CachedTableMapping cachedTableMapping,
+            QueryResultCache queryResultCache,
+            PgCatalogManager pgCatalogManager,
+            PlanCache planCache,
+            QueryTracker queryTracker,
+            QueryAdmissionController queryAdmissionController,
+            CancellationManager cancellationManager)
     {
         this.sqlParser = new SqlParser();
         this.regObjectFactory = requireNonNull(regObjectFactory, "regObjectFactory is null");
@@ -101,6 +146,12 @@ public class WireProtocolSession
         this.accioMetastore = requireNonNull(accioMetastore, "accioMetastore is null");
         this.cacheManager = requireNonNull(cacheManager, "cacheManager is null");
         this.cachedTableMapping = requireNonNull(cachedTableMapping, "cachedTableMapping is null");
+        this.queryResultCache = requireNonNull(queryResultCache, "queryResultCache is null");
+        this.pgCatalogManager = requireNonNull(pgCatalogManager, "pgCatalogManager is null");
+        this.planCache = requireNonNull(planCache, "planCache is null");
+        this.queryTracker = requireNonNull(queryTracker, "queryTracker is null");
+        this.queryAdmissionController = requireNonNull(queryAdmissionController, "queryAdmissionController is null");
+        this.cancellationManager = requireNonNull(cancellationManager, "cancellationManager is null");
     }
 
     public int getParamTypeOid(String statementName, int fieldPosition)
@@ -197,6 +248,9 @@ public class WireProtocolSession
         if (oriStmt.isEmpty() || isIgnoredCommand(oriStmt)) {
             return Optional.empty();
         }
+        if (portal.getPreparedStatement().getFastPathStatement().isPresent()) {
+            return Optional.of(portal.getPreparedStatement().getFastPathStatement().get().getColumns());
+        }
 
         String sql = sqlConverter.convert(
                 portal.getPreparedStatement().getStatement(),
@@ -217,58 +271,139 @@ public class WireProtocolSession
         if (statementName.equalsIgnoreCase(ALL)) {
             throw new AccioException(INVALID_PREPARED_STATEMENT_NAME, format("%s is a preserved word. Can't be the name of prepared statement", statementName));
         }
-        String statementTrimmed = rewritePreparedChar(statement.split(";")[0].trim());
-        if (statementTrimmed.isEmpty() || isIgnoredCommand(statementTrimmed)) {
+        // JDBC will transfer the prepared parameter sign `?` to `$[0-9]+`, the scan transfers it back to `?`
+        // to match the syntax of presto.
+        ScannedStatement scannedStatement = ScannedStatement.scan(statement);
+        String statementTrimmed = scannedStatement.getStatement();
+        if (statementTrimmed.isEmpty() || isIgnoredCommand(scannedStatement)) {
             preparedStatements.put(statementName, new PreparedStatement(statementName, "", paramTypes, statementTrimmed, false));
+            return;
         }
-        else {
-            SessionContext sessionContext = SessionContext.builder()
-                    .setCatalog(getDefaultDatabase())
-                    .setSchema(getDefaultSchema())
-                    .build();
-            String statementPreRewritten = PostgreSqlRewriteUtil.rewrite(statementTrimmed);
-            String accioRewritten = AccioPlanner.rewrite(
-                    statementPreRewritten,
-                    sessionContext,
-                    accioMetastore.getAccioMDL());
-            // validateSetSessionProperty(statementPreRewritten);
-            Statement parsedStatement = sqlParser.createStatement(accioRewritten, PARSE_AS_DECIMAL);
-            Statement rewrittenStatement = PostgreSqlRewrite.rewrite(regObjectFactory, metadata.getDefaultCatalog(), metadata.getPgCatalogName(), parsedStatement);
-            List<Integer> rewrittenParamTypes = rewriteParameters(rewrittenStatement, paramTypes);
+        Optional<FastPathStatement> fastPathStatement = FastPathRegistry.match(statementTrimmed);
+        if (fastPathStatement.isPresent()) {
+            preparedStatements.put(statementName,
+                    new PreparedStatement(statementName, fastPathStatement.get(), fastPathStatement.get().getParameterTypes(paramTypes), statementTrimmed));
+            LOG.debug("Create fast path preparedStatement %s", statementName);
+            return;
+        }
+
+        SessionContext sessionContext = SessionContext.builder()
+                .setCatalog(getDefaultDatabase())
+                .setSchema(getDefaultSchema())
+                .build();
+        PhaseTimings timings = new PhaseTimings();
+        String statementPreRewritten = timings.time(PRE_REWRITE, () -> PostgreSqlRewriteUtil.rewrite(scannedStatement));
+        Optional<ParameterizedStatement> parameterizedStatement = timings.time(PRE_REWRITE, () -> parameterize(statementPreRewritten));
+        if (parameterizedStatement.isPresent()) {
+            String canonicalStatement = timings.time(PRE_REWRITE, () -> SqlFormatter.formatSql(parameterizedStatement.get().getStatement()));
+            AccioMDL mdl = accioMetastore.getAccioMDL();
+            String plannedStatement = planCache.get(mdl, sessionContext, canonicalStatement, () -> plan(canonicalStatement, sessionContext, mdl, timings));
+            Set<CatalogSchemaTableName> cachedTables = new HashSet<>();
+            Optional<String> cacheStatement = timings.time(CACHE_REWRITE, () -> rewriteToCache(sessionContext, canonicalStatement, mdl, cachedTables));
             preparedStatements.put(statementName,
                     new PreparedStatement(
                             statementName,
-                            getFormattedSql(rewrittenStatement, sqlParser),
-                            CacheRewrite.rewrite(sessionContext, statementPreRewritten, cachedTableMapping::convertToCachedTable, accioMetastore.getAccioMDL()),
-                            rewrittenParamTypes,
+                            plannedStatement,
+                            cacheStatement,
+                            cachedTables,
+                            rewriteParameters(parameterizedStatement.get().getClientParameterCount(), paramTypes),
                             statementTrimmed,
-                            isSessionCommand(rewrittenStatement)));
-            LOG.info("Create preparedStatement %s", statementName);
+                            parameterizedStatement.get(),
+                            timings));
+            LOG.debug("Create preparedStatement %s", statementName);
+            return;
         }
+        String accioRewritten = timings.time(PLAN, () -> AccioPlanner.rewrite(
+                statementPreRewritten,
+                sessionContext,
+                accioMetastore.getAccioMDL()));
+        // validateSetSessionProperty(statementPreRewritten);
+        Statement rewrittenStatement = timings.time(PG_REWRITE, () -> PostgreSqlRewrite.rewrite(
+                regObjectFactory,
+                metadata.getDefaultCatalog(),
+                metadata.getPgCatalogName(),
+                sqlParser.createStatement(accioRewritten, PARSE_AS_DECIMAL),
+                pgCatalogManager::materializePgCatalogTable));
+        List<Integer> rewrittenParamTypes = rewriteParameters(getParameterCount(rewrittenStatement), paramTypes);
+        Set<CatalogSchemaTableName> cachedTables = new HashSet<>();
+        Optional<String> cacheStatement = timings.time(CACHE_REWRITE, () -> rewriteToCache(sessionContext, statementPreRewritten, accioMetastore.getAccioMDL(), cachedTables));
+        preparedStatements.put(statementName,
+                new PreparedStatement(
+                        statementName,
+                        timings.time(PG_REWRITE, () -> getFormattedSql(rewrittenStatement, sqlParser)),
+                        cacheStatement,
+                        cachedTables,
+                        rewrittenParamTypes,
+                        statementTrimmed,
+                        isSessionCommand(rewrittenStatement),
+                        timings));
+        LOG.debug("Create preparedStatement %s", statementName);
     }
 
-    private static boolean isSessionCommand(Statement statement)
+    /**
+     * @param cachedTables collects the cached tables the rewritten statement reads
+     */
+    private Optional<String> rewriteToCache(SessionContext sessionContext, String statement, AccioMDL mdl, Set<CatalogSchemaTableName> cachedTables)
     {
-        return SESSION_COMMAND.contains(statement.getClass());
+        return CacheRewrite.rewrite(
+                sessionContext,
+                statement,
+                cachedTableMapping::convertToCachedTable,
+                mdl,
+                cachedTables::add);
     }
 
     /**
-     * JDBC will transfer the prepared parameter sign `?` to `$[0-9]+`.
-     * e.g SELECT ? as c1, ? as c2  -> SELECT $1 as c1, $2 c2
-     * We need to transfer it back to `?` to match the syntax of presto.
+     * Replaces the plan-neutral literals of a query with parameters, so it shares its plan with the queries
+     * which only differ in those literals.
+     *
+     * @return empty if the plan cache is disabled, or if the statement is not a query
      */
-    private String rewritePreparedChar(String statement)
+    private Optional<ParameterizedStatement> parameterize(String statement)
+    {
+        if (!planCache.isEnabled()) {
+            return Optional.empty();
+        }
+        Statement parsedStatement;
+        try {
+            parsedStatement = sqlParser.createStatement(statement, PARSE_AS_DECIMAL);
+        }
+        catch (RuntimeException e) {
+            // let the planner report the error
+            return Optional.empty();
+        }
+        // a string parameter is not coerced to a date or time type by PostgreSQL the way a string literal is
+        return LiteralParameterizer.parameterize(parsedStatement, !metadata.isPgCompatible());
+    }
+
+    private String plan(String statement, SessionContext sessionContext, AccioMDL mdl, PhaseTimings timings)
+    {
+        String accioRewritten = timings.time(PLAN, () -> AccioPlanner.rewrite(statement, sessionContext, mdl));
+        return timings.time(PG_REWRITE, () -> {
+            Statement rewrittenStatement = PostgreSqlRewrite.rewrite(
+                    regObjectFactory,
+                    metadata.getDefaultCatalog(),
+                    metadata.getPgCatalogName(),
+                    sqlParser.createStatement(accioRewritten, PARSE_AS_DECIMAL),
+                    pgCatalogManager::materializePgCatalogTable);
+            return getFormattedSql(rewrittenStatement, sqlParser);
+        });
+    }
+
+    private static boolean isSessionCommand(Statement statement)
     {
-        return statement.replaceAll("\\$[0-9]+", "?");
+        return SESSION_COMMAND.contains(statement.getClass());
     }
 
     public void bind(String portalName, String statementName, List<Object> params, @Nullable FormatCodes.FormatCode[] resultFormatCodes)
     {
         portals.put(portalName, new Portal(preparedStatements.get(statementName), params, resultFormatCodes));
-        String paramString = params.stream()
-                .map(element -> (isNull(element)) ? "null" : element.toString())
-                .collect(Collectors.joining(","));
-        LOG.info("Bind Portal %s with parameters %s to Statement %s", portalName, paramString, statementName);
+        if (LOG.isDebugEnabled()) {
+            String paramString = params.stream()
+                    .map(element -> (isNull(element)) ? "null" : element.toString())
+                    .collect(Collectors.joining(","));
+            LOG.debug("Bind Portal %s with parameters %s to Statement %s", portalName, paramString, statementName);
+        }
     }
 
     public CompletableFuture<Optional<ConnectorRecordIterator>> execute(String portalName)
@@ -278,27 +413,139 @@ public class WireProtocolSession
 
     private CompletableFuture<Optional<ConnectorRecordIterator>> execute(Portal portal)
     {
+        TrackedQuery query = startQuery(portal);
+        Optional<FastPathStatement> fastPathStatement = portal.getPreparedStatement().getFastPathStatement();
+        if (fastPathStatement.isPresent()) {
+            query.setBackend(FAST_PATH);
+            try {
+                return CompletableFuture.completedFuture(Optional.of(
+                        query.getTimings().time(EXECUTE, () -> fastPathStatement.get().execute(this, portal.getParameters()))));
+            }
+            catch (RuntimeException e) {
+                query.fail(e);
+                throw e;
+            }
+        }
         String execStmt = portal.getPreparedStatement().getStatement();
-        return CompletableFuture.supplyAsync(() -> executeCache(portal).or(() -> {
-            String sql = sqlConverter.convert(execStmt,
-                    SessionContext.builder()
-                            .setCatalog(getDefaultDatabase())
-                            .setSchema(getDefaultSchema())
-                            .build());
-            return Optional.of(metadata.directQuery(sql, portal.getParameters()));
-        }));
+        query.setRewrittenStatement(execStmt);
+        Cancellation cancellation = new Cancellation();
+        runningCancellation = cancellation;
+        portal.setStatementTimeout(cancellationManager.startStatementTimeout(query, cancellation));
+        return CompletableFuture.supplyAsync(() -> executeCache(portal, query, cancellation)).thenCompose(cached -> {
+            if (cached.isPresent()) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            SessionContext sessionContext = SessionContext.builder()
+                    .setCatalog(getDefaultDatabase())
+                    .setSchema(getDefaultSchema())
+                    .build();
+            String sql = query.getTimings().time(CONVERT, () -> sqlConverter.convert(execStmt, sessionContext));
+            query.setDialectStatement(sql);
+            // the loader is only called if the result is not cached
+            query.setBackend(RESULT_CACHE);
+            long start = System.nanoTime();
+            return queryResultCache.query(
+                            accioMetastore.getAccioMDL(),
+                            sessionContext,
+                            portal.getPreparedStatement().getOriginalStatement(),
+                            sql,
+                            portal.getParameters(),
+                            () -> {
+                                query.setBackend(DATA_SOURCE);
+                                return queryDataSource(sql, portal, query, cancellation);
+                            })
+                    .whenComplete((iterator, throwable) -> query.getTimings().add(EXECUTE, System.nanoTime() - start))
+                    .thenApply(Optional::of);
+        }).whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                query.fail(throwable);
+            }
+            else if (result.isEmpty()) {
+                query.finish();
+            }
+        });
+    }
+
+    /**
+     * Queues the query until it's admitted to the data source, no thread is held while it waits. The admission
+     * is released once all the rows are read or the iterator is closed.
+     */
+    private CompletableFuture<ConnectorRecordIterator> queryDataSource(String sql, Portal portal, TrackedQuery query, Cancellation cancellation)
+    {
+        cancellation.checkCanceled();
+        long start = System.nanoTime();
+        CompletableFuture<QueryAdmissionController.Lease> admission = queryAdmissionController.admit(getClientUser(), properties.getProperty(PostgresSessionProperties.APPLICATION_NAME));
+        Cancellation.Registration registration = cancellation.register(() -> admission.cancel(false));
+        return admission
+                .handle((lease, throwable) -> {
+                    registration.close();
+                    // the wait happens within EXECUTE, it's reported as QUEUE instead
+                    long queued = System.nanoTime() - start;
+                    query.getTimings().add(QUEUE, queued);
+                    query.getTimings().add(EXECUTE, -queued);
+                    if (throwable instanceof CancellationException) {
+                        cancellation.checkCanceled();
+                    }
+                    if (throwable != null) {
+                        throw propagate(throwable);
+                    }
+                    return lease;
+                })
+                // the admission could be granted on the thread releasing another one, the query is started off that thread
+                .thenComposeAsync(lease -> queryAdmitted(sql, portal, lease, cancellation));
+    }
+
+    private CompletableFuture<ConnectorRecordIterator> queryAdmitted(String sql, Portal portal, QueryAdmissionController.Lease lease, Cancellation cancellation)
+    {
+        try {
+            return metadata.directQueryAsync(sql, portal.getParameters(), cancellation)
+                    .handle((iterator, throwable) -> {
+                        if (throwable != null) {
+                            lease.close();
+                            throw propagate(throwable);
+                        }
+                        return new AdmittedRecordIterator(iterator, lease);
+                    });
+        }
+        catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    private static RuntimeException propagate(Throwable throwable)
+    {
+        throwIfUnchecked(throwable);
+        return new CompletionException(throwable);
+    }
+
+    private TrackedQuery startQuery(Portal portal)
+    {
+        TrackedQuery query = queryTracker.start(portal.getPreparedStatement().getOriginalStatement(), Optional.ofNullable(getClientUser()));
+        portal.getPreparedStatement().takePlanningTimings().ifPresent(query.getTimings()::addAll);
+        portal.setTrackedQuery(query);
+        return query;
     }
 
-    private Optional<ConnectorRecordIterator> executeCache(Portal portal)
+    private Optional<ConnectorRecordIterator> executeCache(Portal portal, TrackedQuery query, Cancellation cancellation)
     {
         return portal.getPreparedStatement().getCacheStatement().map(statement -> {
+            long start = System.nanoTime();
             try {
-                return cacheManager.query(statement, portal.getParameters());
+                ConnectorRecordIterator iterator = cacheManager.query(statement, portal.getParameters(), portal.getPreparedStatement().getCachedTables(), cancellation);
+                query.setBackend(CACHED_TABLE);
+                query.setDialectStatement(statement);
+                return iterator;
             }
             catch (Exception e) {
+                // a canceled query must not fall back to the data source
+                cancellation.checkCanceled();
                 LOG.warn(e, "Failed to execute cache query: %s", statement);
                 return null;
             }
+            finally {
+                query.getTimings().add(EXECUTE, System.nanoTime() - start);
+            }
         });
     }
 
@@ -322,6 +569,36 @@ public class WireProtocolSession
         return ended;
     }
 
+    /**
+     * @return the key the client sends in a CancelRequest to cancel the running query
+     */
+    public CancellationManager.BackendKey registerBackendKey()
+    {
+        checkState(backendKey == null, "backend key is registered already");
+        backendKey = cancellationManager.register(this::cancelRunningQuery);
+        return backendKey;
+    }
+
+    /**
+     * Cancels the query executing or sending rows, if any. The query fails with {@code USER_CANCELED}.
+     */
+    public void cancelRunningQuery()
+    {
+        runningCancellation.cancel();
+    }
+
+    /**
+     * Closes all the portals when the client disconnects, to release what their queries hold.
+     */
+    public void close()
+    {
+        if (backendKey != null) {
+            cancellationManager.unregister(backendKey);
+        }
+        runningCancellation.cancel();
+        ImmutableList.copyOf(portals.entrySet()).forEach(entry -> portals.remove(entry.getKey()));
+    }
+
     public void close(byte type, String name)
     {
         switch (type) {
@@ -342,6 +619,53 @@ public class WireProtocolSession
         }
     }
 
+    private static class AdmittedRecordIterator
+            implements ConnectorRecordIterator
+    {
+        private final ConnectorRecordIterator delegate;
+        private final QueryAdmissionController.Lease lease;
+
+        private AdmittedRecordIterator(ConnectorRecordIterator delegate, QueryAdmissionController.Lease lease)
+        {
+            this.delegate = requireNonNull(delegate, "delegate is null");
+            this.lease = requireNonNull(lease, "lease is null");
+        }
+
+        @Override
+        public List<PGType> getTypes()
+        {
+            return delegate.getTypes();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            boolean hasNext = delegate.hasNext();
+            if (!hasNext) {
+                lease.close();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Object[] next()
+        {
+            return delegate.next();
+        }
+
+        @Override
+        public void close()
+                throws Exception
+        {
+            try {
+                delegate.close();
+            }
+            finally {
+                lease.close();
+            }
+        }
+    }
+
     private static class PreparedStatementMap
     {
         private final HashMap<String, PreparedStatement> delegate = new HashMap<>();
@@ -438,10 +762,8 @@ public class WireProtocolSession
         return statement.toUpperCase(ENGLISH).startsWith("SET");
     }
 
-    private List<Integer> rewriteParameters(Statement statement, List<Integer> paramTypes)
+    private List<Integer> rewriteParameters(int parameters, List<Integer> paramTypes)
     {
-        int parameters = getParameterCount(statement);
-
         if (paramTypes.size() >= parameters) {
             return paramTypes;
         }
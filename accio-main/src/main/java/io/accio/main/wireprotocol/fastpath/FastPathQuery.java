@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.fastpath;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.Column;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.Parameter;
+import io.accio.base.type.PGType;
+import io.accio.main.wireprotocol.WireProtocolSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A statement answered from session state and the built-in type table instead of the data source.
+ */
+public final class FastPathQuery
+{
+    private final String fingerprint;
+    private final List<Column> columns;
+    private final Predicate<List<QueryFingerprint.Slot>> slotsPredicate;
+    private final RowsProvider rowsProvider;
+
+    public FastPathQuery(String sql, List<Column> columns, RowsProvider rowsProvider)
+    {
+        this(sql, columns, slots -> true, rowsProvider);
+    }
+
+    public FastPathQuery(String sql, List<Column> columns, Predicate<List<QueryFingerprint.Slot>> slotsPredicate, RowsProvider rowsProvider)
+    {
+        this.fingerprint = QueryFingerprint.of(requireNonNull(sql, "sql is null")).getFingerprint();
+        this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
+        this.slotsPredicate = requireNonNull(slotsPredicate, "slotsPredicate is null");
+        this.rowsProvider = requireNonNull(rowsProvider, "rowsProvider is null");
+    }
+
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public List<Column> getColumns()
+    {
+        return columns;
+    }
+
+    public boolean accepts(List<QueryFingerprint.Slot> slots)
+    {
+        return slotsPredicate.test(slots);
+    }
+
+    public ConnectorRecordIterator execute(WireProtocolSession session, List<QueryFingerprint.Slot> slots, List<Parameter> parameters)
+    {
+        // parameters may be bound to null
+        List<Object> arguments = new ArrayList<>(slots.size());
+        slots.forEach(slot -> arguments.add(slot.resolve(parameters)));
+        List<PGType> types = columns.stream()
+                .map(Column::getType)
+                .collect(toImmutableList());
+        return new FastPathRecordIterator(types, rowsProvider.getRows(session, arguments));
+    }
+
+    @FunctionalInterface
+    public interface RowsProvider
+    {
+        /**
+         * @param arguments the value of each slot of the statement, in order of appearance
+         */
+        List<Object[]> getRows(WireProtocolSession session, List<Object> arguments);
+    }
+}
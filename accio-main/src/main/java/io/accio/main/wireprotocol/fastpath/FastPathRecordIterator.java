@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.fastpath;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.type.PGType;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serves rows computed in memory by a {@link FastPathQuery}.
+ */
+public class FastPathRecordIterator
+        implements ConnectorRecordIterator
+{
+    private final List<PGType> types;
+    private final Iterator<Object[]> rows;
+
+    public FastPathRecordIterator(List<PGType> types, List<Object[]> rows)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.rows = requireNonNull(rows, "rows is null").iterator();
+    }
+
+    @Override
+    public List<PGType> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return rows.hasNext();
+    }
+
+    @Override
+    public Object[] next()
+    {
+        return rows.next();
+    }
+
+    @Override
+    public void close() {}
+}
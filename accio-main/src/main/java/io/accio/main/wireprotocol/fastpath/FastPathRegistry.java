@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.fastpath;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
+import io.accio.base.Column;
+import io.accio.base.type.PGType;
+import io.accio.base.type.PGTypes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static io.accio.base.type.BooleanType.BOOLEAN;
+import static io.accio.base.type.CharType.CHAR;
+import static io.accio.base.type.IntegerType.INTEGER;
+import static io.accio.base.type.OidType.OID_INSTANCE;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static io.accio.main.pgcatalog.table.PgCatalogTableUtils.PG_CATALOG;
+import static io.accio.main.wireprotocol.PostgresSessionProperties.SERVER_VERSION;
+import static io.accio.main.wireprotocol.PostgresWireProtocol.DEFAULT_PG_CONFIGS;
+
+/**
+ * Statements drivers and BI tools send while setting up a connection, answered without planning or a
+ * round trip to the data source. A statement is matched by its {@link QueryFingerprint}, so formatting,
+ * letter case, literal values and parameter values don't matter.
+ */
+public final class FastPathRegistry
+{
+    // statements longer than this are never handshake queries, skip fingerprinting them
+    private static final int MAX_STATEMENT_LENGTH = 2048;
+
+    private static final List<FastPathQuery> QUERIES = ImmutableList.<FastPathQuery>builder()
+            // keep-alive and connection test queries
+            .add(new FastPathQuery("SELECT 1",
+                    ImmutableList.of(new Column("?column?", INTEGER)),
+                    slots -> slots.size() == 1 && slots.get(0).getLiteral().map(value -> value.matches("[0-9]{1,9}")).orElse(false),
+                    (session, arguments) -> rows(new Object[] {Integer.parseInt((String) arguments.get(0))})))
+            .add(new FastPathQuery("SELECT version()",
+                    ImmutableList.of(new Column("version", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {"PostgreSQL " + DEFAULT_PG_CONFIGS.get(SERVER_VERSION)})))
+            .add(new FastPathQuery("SELECT current_schema()",
+                    ImmutableList.of(new Column("current_schema", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {session.getDefaultSchema()})))
+            .add(new FastPathQuery("SELECT current_database()",
+                    ImmutableList.of(new Column("current_database", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {session.getDefaultDatabase()})))
+            .add(new FastPathQuery("SELECT current_user",
+                    ImmutableList.of(new Column("current_user", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {session.getClientUser()})))
+            .add(new FastPathQuery("SELECT session_user",
+                    ImmutableList.of(new Column("session_user", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {session.getClientUser()})))
+            // DBeaver
+            .add(new FastPathQuery("SELECT current_schema(), session_user",
+                    ImmutableList.of(new Column("current_schema", VARCHAR), new Column("session_user", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {session.getDefaultSchema(), session.getClientUser()})))
+            .add(new FastPathQuery("SHOW TRANSACTION ISOLATION LEVEL",
+                    ImmutableList.of(new Column("transaction_isolation", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {"read uncommitted"})))
+            .add(new FastPathQuery("SHOW transaction_isolation",
+                    ImmutableList.of(new Column("transaction_isolation", VARCHAR)),
+                    (session, arguments) -> rows(new Object[] {"read uncommitted"})))
+            .addAll(DEFAULT_PG_CONFIGS.entrySet().stream()
+                    .map(config -> new FastPathQuery("SHOW " + config.getKey(),
+                            ImmutableList.of(new Column(config.getKey(), VARCHAR)),
+                            (session, arguments) -> rows(new Object[] {config.getValue()})))
+                    .collect(toImmutableList()))
+            // pgjdbc TypeInfoCache
+            .add(new FastPathQuery("SELECT n.nspname = ANY(current_schemas(true)), n.nspname, t.typname " +
+                    "FROM pg_catalog.pg_type t JOIN pg_catalog.pg_namespace n ON t.typnamespace = n.oid WHERE t.oid = ?",
+                    ImmutableList.of(new Column("?column?", BOOLEAN), new Column("nspname", VARCHAR), new Column("typname", VARCHAR)),
+                    (session, arguments) -> typeByOid(arguments.get(0))
+                            .map(type -> rows(new Object[] {true, PG_CATALOG, type.typName()}))
+                            .orElse(ImmutableList.of())))
+            .add(new FastPathQuery("SELECT e.oid, n.nspname = ANY(current_schemas(true)), n.nspname, e.typname " +
+                    "FROM pg_catalog.pg_type t JOIN pg_catalog.pg_namespace n ON t.typnamespace = n.oid " +
+                    "JOIN pg_catalog.pg_type e ON t.typelem = e.oid WHERE t.oid = ?",
+                    ImmutableList.of(new Column("oid", OID_INSTANCE), new Column("?column?", BOOLEAN), new Column("nspname", VARCHAR), new Column("typname", VARCHAR)),
+                    (session, arguments) -> typeByOid(arguments.get(0))
+                            .flatMap(type -> typeByOid(type.typElem()))
+                            .map(element -> rows(new Object[] {(long) element.oid(), true, PG_CATALOG, element.typName()}))
+                            .orElse(ImmutableList.of())))
+            .add(new FastPathQuery("SELECT e.typdelim FROM pg_catalog.pg_type t, pg_catalog.pg_type e WHERE t.oid = ? and t.typelem = e.oid",
+                    ImmutableList.of(new Column("typdelim", CHAR)),
+                    (session, arguments) -> typeByOid(arguments.get(0))
+                            .flatMap(type -> typeByOid(type.typElem()))
+                            .map(element -> rows(new Object[] {element.typDelim()}))
+                            .orElse(ImmutableList.of())))
+            .add(new FastPathQuery("SELECT typinput='pg_catalog.array_in'::regproc as is_array, typtype, typname, pg_type.oid " +
+                    "FROM pg_catalog.pg_type " +
+                    "LEFT JOIN (select ns.oid as nspoid, ns.nspname, r.r from pg_namespace as ns " +
+                    "join ( select s.r, (current_schemas(false))[s.r] as nspname from generate_series(1, array_upper(current_schemas(false), 1)) as s(r) ) as r " +
+                    "using ( nspname ) ) as sp ON sp.nspoid = typnamespace " +
+                    "WHERE typname = ? ORDER BY sp.r, pg_type.oid DESC",
+                    ImmutableList.of(new Column("is_array", BOOLEAN), new Column("typtype", CHAR), new Column("typname", VARCHAR), new Column("oid", OID_INSTANCE)),
+                    // the last slot is the type name, the others are literals of the statement
+                    (session, arguments) -> Streams.stream(PGTypes.pgTypes())
+                            .filter(type -> type.typName().equals(String.valueOf(arguments.get(arguments.size() - 1))))
+                            .map(type -> new Object[] {"array_in".equals(type.typInput()), type.type(), type.typName(), (long) type.oid()})
+                            .collect(toImmutableList())))
+            .build();
+
+    private static final Map<String, FastPathQuery> FINGERPRINTS = QUERIES.stream()
+            .collect(toImmutableMap(FastPathQuery::getFingerprint, Function.identity()));
+
+    private FastPathRegistry() {}
+
+    public static Optional<FastPathStatement> match(String statement)
+    {
+        if (statement.length() > MAX_STATEMENT_LENGTH) {
+            return Optional.empty();
+        }
+        QueryFingerprint fingerprint = QueryFingerprint.of(statement);
+        return Optional.ofNullable(FINGERPRINTS.get(fingerprint.getFingerprint()))
+                .filter(query -> query.accepts(fingerprint.getSlots()))
+                .map(query -> new FastPathStatement(query, fingerprint.getSlots()));
+    }
+
+    private static List<Object[]> rows(Object[] row)
+    {
+        return ImmutableList.of(row);
+    }
+
+    private static Optional<PGType<?>> typeByOid(Object oid)
+    {
+        if (oid == null) {
+            return Optional.empty();
+        }
+        long value;
+        try {
+            value = oid instanceof Number ? ((Number) oid).longValue() : Long.parseLong(oid.toString().trim());
+        }
+        catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        return Streams.stream(PGTypes.pgTypes())
+                .filter(type -> type.oid() == value)
+                .findFirst();
+    }
+}
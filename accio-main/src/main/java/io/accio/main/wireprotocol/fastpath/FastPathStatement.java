@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.fastpath;
+
+import io.accio.base.Column;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.Parameter;
+import io.accio.main.wireprotocol.WireProtocolSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A prepared statement matched to a {@link FastPathQuery}.
+ */
+public final class FastPathStatement
+{
+    private final FastPathQuery query;
+    private final List<QueryFingerprint.Slot> slots;
+
+    public FastPathStatement(FastPathQuery query, List<QueryFingerprint.Slot> slots)
+    {
+        this.query = requireNonNull(query, "query is null");
+        this.slots = requireNonNull(slots, "slots is null");
+    }
+
+    public List<Column> getColumns()
+    {
+        return query.getColumns();
+    }
+
+    /**
+     * Parameter types declared by the client, with unspecified ones read as varchar.
+     */
+    public List<Integer> getParameterTypes(List<Integer> declaredTypes)
+    {
+        int parameters = (int) slots.stream().filter(QueryFingerprint.Slot::isParameter).count();
+        List<Integer> types = new ArrayList<>(Math.max(parameters, declaredTypes.size()));
+        for (int i = 0; i < Math.max(parameters, declaredTypes.size()); i++) {
+            int declared = i < declaredTypes.size() ? declaredTypes.get(i) : 0;
+            types.add(declared == 0 ? VARCHAR.oid() : declared);
+        }
+        return types;
+    }
+
+    public ConnectorRecordIterator execute(WireProtocolSession session, List<Parameter> parameters)
+    {
+        return query.execute(session, slots, parameters);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.fastpath;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.Parameter;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.lang.Character.isDigit;
+import static java.lang.Character.isLetterOrDigit;
+import static java.lang.Character.isWhitespace;
+import static java.lang.Character.toLowerCase;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A normalized form of a sql statement. Keywords and identifiers are lower-cased, whitespace is collapsed
+ * and every literal or parameter is replaced by a `?` slot, so `SELECT  typname FROM pg_type WHERE oid = 23`
+ * and `select typname from pg_type where oid=$1` share the fingerprint `select typname from pg_type where oid=?`.
+ */
+public final class QueryFingerprint
+{
+    private final String fingerprint;
+    private final List<Slot> slots;
+
+    private QueryFingerprint(String fingerprint, List<Slot> slots)
+    {
+        this.fingerprint = requireNonNull(fingerprint, "fingerprint is null");
+        this.slots = requireNonNull(slots, "slots is null");
+    }
+
+    public static QueryFingerprint of(String sql)
+    {
+        StringBuilder fingerprint = new StringBuilder(sql.length());
+        ImmutableList.Builder<Slot> slots = ImmutableList.builder();
+        int parameterIndex = 0;
+        boolean pendingSpace = false;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (isWhitespace(c)) {
+                pendingSpace = fingerprint.length() > 0;
+                i++;
+                continue;
+            }
+
+            boolean afterWord = !pendingSpace && fingerprint.length() > 0 && isWordChar(fingerprint.charAt(fingerprint.length() - 1));
+            int start = i;
+            String token;
+            if (c == '\'') {
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (i < length) {
+                    char d = sql.charAt(i++);
+                    if (d == '\'') {
+                        if (i < length && sql.charAt(i) == '\'') {
+                            value.append('\'');
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    value.append(d);
+                }
+                slots.add(Slot.literal(value.toString()));
+                token = "?";
+            }
+            else if (c == '"') {
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i++) == '"') {
+                        if (i < length && sql.charAt(i) == '"') {
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                }
+                token = sql.substring(start, i);
+            }
+            else if (isDigit(c) && !afterWord) {
+                while (i < length && (isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                slots.add(Slot.literal(sql.substring(start, i)));
+                token = "?";
+            }
+            else if (c == '?') {
+                i++;
+                slots.add(Slot.parameter(parameterIndex++));
+                token = "?";
+            }
+            else if (c == '$' && !afterWord && i + 1 < length && isDigit(sql.charAt(i + 1))) {
+                i++;
+                while (i < length && isDigit(sql.charAt(i))) {
+                    i++;
+                }
+                slots.add(Slot.parameter(Integer.parseInt(sql.substring(start + 1, i)) - 1));
+                token = "?";
+            }
+            else {
+                i++;
+                token = String.valueOf(toLowerCase(c));
+            }
+
+            if (pendingSpace && isWordChar(fingerprint.charAt(fingerprint.length() - 1)) && isWordChar(token.charAt(0))) {
+                fingerprint.append(' ');
+            }
+            pendingSpace = false;
+            fingerprint.append(token);
+        }
+
+        int end = fingerprint.length();
+        while (end > 0 && fingerprint.charAt(end - 1) == ';') {
+            end--;
+        }
+        fingerprint.setLength(end);
+        return new QueryFingerprint(fingerprint.toString(), slots.build());
+    }
+
+    private static boolean isWordChar(char c)
+    {
+        return isLetterOrDigit(c) || c == '_' || c == '?' || c == '"' || c == '$';
+    }
+
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public List<Slot> getSlots()
+    {
+        return slots;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        QueryFingerprint that = (QueryFingerprint) o;
+        return fingerprint.equals(that.fingerprint) && slots.equals(that.slots);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(fingerprint, slots);
+    }
+
+    @Override
+    public String toString()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * A literal or parameter replaced by `?` in the fingerprint.
+     */
+    public static final class Slot
+    {
+        private final Optional<String> literal;
+        private final int parameterIndex;
+
+        private Slot(Optional<String> literal, int parameterIndex)
+        {
+            this.literal = literal;
+            this.parameterIndex = parameterIndex;
+        }
+
+        public static Slot literal(String value)
+        {
+            return new Slot(Optional.of(value), -1);
+        }
+
+        public static Slot parameter(int index)
+        {
+            return new Slot(Optional.empty(), index);
+        }
+
+        public Optional<String> getLiteral()
+        {
+            return literal;
+        }
+
+        public boolean isParameter()
+        {
+            return literal.isEmpty();
+        }
+
+        public int getParameterIndex()
+        {
+            return parameterIndex;
+        }
+
+        /**
+         * The literal text, or the bound value of the parameter.
+         */
+        public Object resolve(List<Parameter> parameters)
+        {
+            return literal.isPresent() ? literal.get() : parameters.get(parameterIndex).getValue();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Slot that = (Slot) o;
+            return parameterIndex == that.parameterIndex && literal.equals(that.literal);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(literal, parameterIndex);
+        }
+
+        @Override
+        public String toString()
+        {
+            return literal.map(value -> "'" + value + "'").orElse("$" + (parameterIndex + 1));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records the traffic of a single connection to the server statistics and, once the startup
+ * message names the client, to the statistics of its application. The handler sits behind the
+ * {@code SslHandler}, if any, so it sees the plain messages. Each outbound write carries one
+ * message; inbound messages are reported by the protocol handler once they are framed.
+ */
+public class ChannelMetricsHandler
+        extends ChannelDuplexHandler
+{
+    private final WireProtocolMetrics metrics;
+    private final TrafficStats server;
+    @Nullable
+    private TrafficStats application;
+    private long unwritableSince = -1;
+
+    ChannelMetricsHandler(WireProtocolMetrics metrics)
+    {
+        this.metrics = requireNonNull(metrics, "metrics is null");
+        this.server = metrics.getServerStats();
+    }
+
+    /**
+     * Attributes the following traffic of this connection to the given application as well.
+     */
+    public void setApplicationName(@Nullable String applicationName)
+    {
+        if (application != null) {
+            return;
+        }
+        application = metrics.getApplicationStats(applicationName == null || applicationName.isEmpty()
+                ? WireProtocolMetrics.UNKNOWN_APPLICATION
+                : applicationName);
+        application.connectionOpened();
+    }
+
+    public void messageReceived(byte type)
+    {
+        server.messageReceived(type);
+        if (application != null) {
+            application.messageReceived(type);
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx)
+            throws Exception
+    {
+        server.connectionOpened();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx)
+            throws Exception
+    {
+        if (unwritableSince >= 0) {
+            backpressure(System.nanoTime() - unwritableSince);
+            unwritableSince = -1;
+        }
+        server.connectionClosed();
+        if (application != null) {
+            application.connectionClosed();
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg)
+            throws Exception
+    {
+        if (msg instanceof ByteBuf) {
+            int bytes = ((ByteBuf) msg).readableBytes();
+            server.bytesReceived(bytes);
+            if (application != null) {
+                application.bytesReceived(bytes);
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+            throws Exception
+    {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buffer = (ByteBuf) msg;
+            int bytes = buffer.readableBytes();
+            if (bytes > 0) {
+                byte type = buffer.getByte(buffer.readerIndex());
+                server.messageSent(type, bytes);
+                if (application != null) {
+                    application.messageSent(type, bytes);
+                }
+            }
+        }
+        super.write(ctx, msg, promise);
+
+        ChannelOutboundBuffer outboundBuffer = ctx.channel().unsafe().outboundBuffer();
+        if (outboundBuffer != null) {
+            long pending = outboundBuffer.totalPendingWriteBytes();
+            server.pendingOutboundBytes(pending);
+            if (application != null) {
+                application.pendingOutboundBytes(pending);
+            }
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx)
+            throws Exception
+    {
+        server.writabilityChanged();
+        if (application != null) {
+            application.writabilityChanged();
+        }
+        if (!ctx.channel().isWritable()) {
+            unwritableSince = System.nanoTime();
+        }
+        else if (unwritableSince >= 0) {
+            backpressure(System.nanoTime() - unwritableSince);
+            unwritableSince = -1;
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    private void backpressure(long nanos)
+    {
+        server.backpressure(nanos);
+        if (application != null) {
+            application.backpressure(nanos);
+        }
+    }
+}
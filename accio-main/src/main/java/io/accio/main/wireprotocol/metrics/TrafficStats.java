@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.metrics;
+
+import org.weakref.jmx.Managed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Traffic counters of a set of wire protocol connections, either all the connections of the server
+ * or the ones opened by the same client application. Updated concurrently by the event loops.
+ */
+public class TrafficStats
+{
+    // message types are ASCII letters
+    private static final int MESSAGE_TYPES = 128;
+    // every message starts with a type byte followed by an int32 length
+    private static final int MESSAGE_HEADER_LENGTH = 5;
+
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder[] messagesIn = newCounters();
+    private final LongAdder[] messagesOut = newCounters();
+    private final LongAdder writabilityChanges = new LongAdder();
+    private final LongAdder backpressureNanos = new LongAdder();
+    private final AtomicLong pendingOutboundBytesHighWaterMark = new AtomicLong();
+
+    private static LongAdder[] newCounters()
+    {
+        LongAdder[] counters = new LongAdder[MESSAGE_TYPES];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    void connectionOpened()
+    {
+        activeConnections.increment();
+        totalConnections.increment();
+    }
+
+    void connectionClosed()
+    {
+        activeConnections.decrement();
+    }
+
+    void bytesReceived(long bytes)
+    {
+        bytesIn.add(bytes);
+    }
+
+    void messageReceived(byte type)
+    {
+        count(messagesIn, type);
+    }
+
+    void messageSent(byte type, long bytes)
+    {
+        bytesOut.add(bytes);
+        // the single byte answer to an SSLRequest is not a message
+        if (bytes >= MESSAGE_HEADER_LENGTH) {
+            count(messagesOut, type);
+        }
+    }
+
+    void writabilityChanged()
+    {
+        writabilityChanges.increment();
+    }
+
+    void backpressure(long nanos)
+    {
+        backpressureNanos.add(nanos);
+    }
+
+    void pendingOutboundBytes(long bytes)
+    {
+        if (bytes > pendingOutboundBytesHighWaterMark.get()) {
+            pendingOutboundBytesHighWaterMark.accumulateAndGet(bytes, Math::max);
+        }
+    }
+
+    private static void count(LongAdder[] counters, byte type)
+    {
+        if (type >= 0 && type < MESSAGE_TYPES) {
+            counters[type].increment();
+        }
+    }
+
+    public long getMessagesIn(char type)
+    {
+        return type < MESSAGE_TYPES ? messagesIn[type].sum() : 0;
+    }
+
+    public long getMessagesOut(char type)
+    {
+        return type < MESSAGE_TYPES ? messagesOut[type].sum() : 0;
+    }
+
+    @Managed
+    public long getActiveConnections()
+    {
+        return activeConnections.sum();
+    }
+
+    @Managed
+    public long getTotalConnections()
+    {
+        return totalConnections.sum();
+    }
+
+    @Managed
+    public long getBytesIn()
+    {
+        return bytesIn.sum();
+    }
+
+    @Managed
+    public long getBytesOut()
+    {
+        return bytesOut.sum();
+    }
+
+    @Managed
+    public long getMessagesIn()
+    {
+        return sum(messagesIn);
+    }
+
+    @Managed
+    public long getMessagesOut()
+    {
+        return sum(messagesOut);
+    }
+
+    @Managed
+    public long getSimpleQueryMessages()
+    {
+        return getMessagesIn('Q');
+    }
+
+    @Managed
+    public long getParseMessages()
+    {
+        return getMessagesIn('P');
+    }
+
+    @Managed
+    public long getBindMessages()
+    {
+        return getMessagesIn('B');
+    }
+
+    @Managed
+    public long getDescribeMessages()
+    {
+        return getMessagesIn('D');
+    }
+
+    @Managed
+    public long getExecuteMessages()
+    {
+        return getMessagesIn('E');
+    }
+
+    @Managed
+    public long getSyncMessages()
+    {
+        return getMessagesIn('S');
+    }
+
+    @Managed
+    public long getDataRowMessages()
+    {
+        return getMessagesOut('D');
+    }
+
+    @Managed
+    public long getErrorResponseMessages()
+    {
+        return getMessagesOut('E');
+    }
+
+    @Managed
+    public long getWritabilityChanges()
+    {
+        return writabilityChanges.sum();
+    }
+
+    @Managed(description = "Time the connections spent not writable because of backpressure")
+    public long getBackpressureMillis()
+    {
+        return NANOSECONDS.toMillis(backpressureNanos.sum());
+    }
+
+    @Managed(description = "Largest number of bytes queued to be written on a single connection")
+    public long getPendingOutboundBytesHighWaterMark()
+    {
+        return pendingOutboundBytesHighWaterMark.get();
+    }
+
+    private static long sum(LongAdder[] counters)
+    {
+        long sum = 0;
+        for (LongAdder counter : counters) {
+            sum += counter.sum();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.metrics;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import io.accio.main.PostgresWireProtocolConfig;
+import io.airlift.log.Logger;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.management.ObjectName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Traffic of the wire protocol server, in total and per client application (the {@code application_name}
+ * startup parameter), along with the usage of the buffer pool the connections allocate from. The
+ * statistics of each application are exported as a separate MBean once the application connects.
+ */
+public class WireProtocolMetrics
+{
+    private static final Logger LOG = Logger.get(WireProtocolMetrics.class);
+
+    public static final String UNKNOWN_APPLICATION = "unknown";
+    public static final String OTHER_APPLICATIONS = "other";
+
+    private final int maxApplications;
+    private final MBeanExporter exporter;
+    private final Optional<PooledByteBufAllocatorMetric> allocatorMetric;
+    private final TrafficStats server = new TrafficStats();
+    private final Map<String, TrafficStats> applications = new ConcurrentHashMap<>();
+
+    @Inject
+    public WireProtocolMetrics(PostgresWireProtocolConfig config, MBeanExporter exporter)
+    {
+        this(config.getMetricsMaxApplications(), exporter, ByteBufAllocator.DEFAULT);
+    }
+
+    @VisibleForTesting
+    WireProtocolMetrics(int maxApplications, MBeanExporter exporter, ByteBufAllocator allocator)
+    {
+        this.maxApplications = maxApplications;
+        this.exporter = requireNonNull(exporter, "exporter is null");
+        this.allocatorMetric = allocator instanceof PooledByteBufAllocator
+                ? Optional.of(((PooledByteBufAllocator) allocator).metric())
+                : Optional.empty();
+    }
+
+    /**
+     * @return a handler that records the traffic of a single connection, to be added to its pipeline
+     */
+    public ChannelMetricsHandler newChannelHandler()
+    {
+        return new ChannelMetricsHandler(this);
+    }
+
+    TrafficStats getServerStats()
+    {
+        return server;
+    }
+
+    /**
+     * @return the statistics of the given application, applications beyond the first
+     * {@code pg-wire-protocol.metrics.max-applications} are tracked together as {@value #OTHER_APPLICATIONS}
+     */
+    public TrafficStats getApplicationStats(String applicationName)
+    {
+        TrafficStats stats = applications.get(applicationName);
+        if (stats != null) {
+            return stats;
+        }
+        // the check of the limit and the insert must not interleave with those of other applications
+        synchronized (applications) {
+            stats = applications.get(applicationName);
+            if (stats != null) {
+                return stats;
+            }
+            if (applications.size() >= maxApplications && !applicationName.equals(OTHER_APPLICATIONS)) {
+                return getApplicationStats(OTHER_APPLICATIONS);
+            }
+            stats = new TrafficStats();
+            applications.put(applicationName, stats);
+        }
+        try {
+            exporter.export(objectName(applicationName), stats);
+        }
+        catch (RuntimeException e) {
+            LOG.warn(e, "Failed to export the wire protocol metrics of application %s", applicationName);
+        }
+        return stats;
+    }
+
+    // group the applications under the MBean of the server, the name is sent by the client and may contain any character
+    private static String objectName(String applicationName)
+    {
+        return format("%s:name=%s,application=%s",
+                WireProtocolMetrics.class.getPackageName(),
+                WireProtocolMetrics.class.getSimpleName(),
+                ObjectName.quote(applicationName));
+    }
+
+    public Map<String, TrafficStats> getApplications()
+    {
+        return ImmutableMap.copyOf(applications);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        for (String applicationName : applications.keySet()) {
+            try {
+                exporter.unexport(objectName(applicationName));
+            }
+            catch (RuntimeException e) {
+                LOG.debug(e, "Failed to unexport the wire protocol metrics of application %s", applicationName);
+            }
+        }
+    }
+
+    @Managed
+    @Nested
+    public TrafficStats getServer()
+    {
+        return server;
+    }
+
+    @Managed
+    public long getApplicationCount()
+    {
+        return applications.size();
+    }
+
+    @Managed
+    public long getAllocatorUsedDirectMemory()
+    {
+        return allocatorMetric.map(PooledByteBufAllocatorMetric::usedDirectMemory).orElse(0L);
+    }
+
+    @Managed
+    public long getAllocatorUsedHeapMemory()
+    {
+        return allocatorMetric.map(PooledByteBufAllocatorMetric::usedHeapMemory).orElse(0L);
+    }
+
+    @Managed
+    public long getAllocatorDirectArenas()
+    {
+        return allocatorMetric.map(PooledByteBufAllocatorMetric::numDirectArenas).orElse(0);
+    }
+
+    @Managed
+    public long getAllocatorHeapArenas()
+    {
+        return allocatorMetric.map(PooledByteBufAllocatorMetric::numHeapArenas).orElse(0);
+    }
+
+    @Managed
+    public long getAllocatorThreadLocalCaches()
+    {
+        return allocatorMetric.map(PooledByteBufAllocatorMetric::numThreadLocalCaches).orElse(0);
+    }
+
+    @Managed
+    public long getAllocatorChunkSize()
+    {
+        return allocatorMetric.map(PooledByteBufAllocatorMetric::chunkSize).orElse(0);
+    }
+
+    @Managed(description = "Buffers currently allocated from the direct arenas")
+    public long getAllocatorActiveDirectAllocations()
+    {
+        return sumArenas(PooledByteBufAllocatorMetric::directArenas, PoolArenaMetric::numActiveAllocations);
+    }
+
+    @Managed(description = "Buffers currently allocated from the heap arenas")
+    public long getAllocatorActiveHeapAllocations()
+    {
+        return sumArenas(PooledByteBufAllocatorMetric::heapArenas, PoolArenaMetric::numActiveAllocations);
+    }
+
+    @Managed(description = "Bytes of the buffers currently allocated from the direct arenas")
+    public long getAllocatorActiveDirectBytes()
+    {
+        return sumArenas(PooledByteBufAllocatorMetric::directArenas, PoolArenaMetric::numActiveBytes);
+    }
+
+    @Managed(description = "Bytes of the buffers currently allocated from the heap arenas")
+    public long getAllocatorActiveHeapBytes()
+    {
+        return sumArenas(PooledByteBufAllocatorMetric::heapArenas, PoolArenaMetric::numActiveBytes);
+    }
+
+    private long sumArenas(Function<PooledByteBufAllocatorMetric, List<PoolArenaMetric>> arenas, ToLongFunction<PoolArenaMetric> metric)
+    {
+        return allocatorMetric.map(allocator -> arenas.apply(allocator).stream().mapToLong(metric).sum()).orElse(0L);
+    }
+}
@@ -15,32 +15,60 @@
 package io.accio.main.wireprotocol.patterns;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public final class PostgreSqlRewriteUtil
 {
     private PostgreSqlRewriteUtil() {}
 
-    private static final List<QueryPattern> PATTERNS = ImmutableList.<QueryPattern>builder()
-            .add(CorrelatedSubQueryPattern.INSTANCE)
-            .add(ShowTransIsoPattern.INSTANCE)
-            .add(SetPattern.INSTANCE)
-            .add(SetSessionPattern.INSTANCE)
-            .add(ShowMaxIdentifierLengthPattern.INSTANCE)
-            .add(DeallocatePattern.INSTANCE)
-            .add(PgExtensionUpdatePathsPattern.INSTANCE)
-            .add(ArraySelectPattern.INSTANCE)
-            .add(ShowDateStylePattern.INSTANCE)
-            .add(ShowStandardConformingPattern.INSTANCE)
+    // Patterns anchored at the start of a statement, tried only for statements starting with their keyword.
+    private static final Map<String, List<QueryPattern>> PATTERNS_BY_KEYWORD = ImmutableMap.<String, List<QueryPattern>>builder()
+            .put("SHOW", ImmutableList.of(
+                    ShowTransIsoPattern.INSTANCE,
+                    ShowMaxIdentifierLengthPattern.INSTANCE,
+                    ShowDateStylePattern.INSTANCE,
+                    ShowStandardConformingPattern.INSTANCE))
+            .put("SET", ImmutableList.of(
+                    SetPattern.INSTANCE,
+                    SetSessionPattern.INSTANCE))
+            .put("DEALLOCATE", ImmutableList.of(DeallocatePattern.INSTANCE))
             .build();
 
+    // Patterns matching anywhere in a statement, tried only for statements containing the word. Order matters.
+    private static final Map<String, QueryPattern> PATTERNS_BY_WORD = ImmutableMap.<String, QueryPattern>builder()
+            .put("stxkeys", CorrelatedSubQueryPattern.INSTANCE)
+            .put("pg_extension_update_paths", PgExtensionUpdatePathsPattern.INSTANCE)
+            .put("array", ArraySelectPattern.INSTANCE)
+            .build();
+
+    static final Set<String> DISPATCH_WORDS = PATTERNS_BY_WORD.keySet();
+
     public static String rewrite(String statement)
     {
-        return PATTERNS.stream()
-                .filter(pattern -> pattern.matcher(statement).find())
-                .findFirst()
-                .map(pattern -> pattern.rewrite(statement))
-                .orElse(statement);
+        return rewrite(statement, ScannedStatement.scan(statement));
+    }
+
+    public static String rewrite(ScannedStatement statement)
+    {
+        return rewrite(statement.getStatement(), statement);
+    }
+
+    private static String rewrite(String statement, ScannedStatement scanned)
+    {
+        for (QueryPattern pattern : PATTERNS_BY_KEYWORD.getOrDefault(scanned.getLeadingKeyword(), ImmutableList.of())) {
+            if (pattern.matcher(statement).find()) {
+                return pattern.rewrite(statement);
+            }
+        }
+        for (Map.Entry<String, QueryPattern> entry : PATTERNS_BY_WORD.entrySet()) {
+            if (scanned.containsWord(entry.getKey()) && entry.getValue().matcher(statement).find()) {
+                return entry.getValue().rewrite(statement);
+            }
+        }
+        return statement;
     }
 }
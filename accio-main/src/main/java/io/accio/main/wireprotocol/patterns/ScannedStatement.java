@@ -0,0 +1,192 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.patterns;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The result of a single lexical pass over a statement received from the client. The pass
+ * <ul>
+ * <li>cuts the statement at the first `;` outside of quotes and comments,</li>
+ * <li>replaces the `$n` parameters of the extended protocol with `?`, the parameter syntax of the sql parser,</li>
+ * <li>records the leading keyword and which of the words {@link PostgreSqlRewriteUtil} dispatches on appear.</li>
+ * </ul>
+ * Literals, quoted identifiers, comments and dollar-quoted strings are left as they are.
+ */
+public final class ScannedStatement
+{
+    private final String statement;
+    private final String leadingKeyword;
+    private final Set<String> words;
+
+    private ScannedStatement(String statement, String leadingKeyword, Set<String> words)
+    {
+        this.statement = requireNonNull(statement, "statement is null");
+        this.leadingKeyword = requireNonNull(leadingKeyword, "leadingKeyword is null");
+        this.words = requireNonNull(words, "words is null");
+    }
+
+    public static ScannedStatement scan(String sql)
+    {
+        int length = sql.length();
+        StringBuilder rewritten = null;
+        int copied = 0;
+        int end = length;
+        String leadingKeyword = null;
+        Set<String> words = null;
+
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == ';') {
+                end = i;
+                break;
+            }
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+            }
+            else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int newLine = sql.indexOf('\n', i);
+                i = newLine < 0 ? length : newLine + 1;
+            }
+            else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int close = sql.indexOf("*/", i + 2);
+                i = close < 0 ? length : close + 2;
+            }
+            else if (c == '$' && (i == 0 || !isWordChar(sql.charAt(i - 1)))) {
+                int j = i + 1;
+                if (j < length && isDigit(sql.charAt(j))) {
+                    while (j < length && isDigit(sql.charAt(j))) {
+                        j++;
+                    }
+                    if (rewritten == null) {
+                        rewritten = new StringBuilder(length);
+                    }
+                    rewritten.append(sql, copied, i).append('?');
+                    copied = j;
+                    i = j;
+                    continue;
+                }
+                while (j < length && isWordChar(sql.charAt(j)) && sql.charAt(j) != '$') {
+                    j++;
+                }
+                if (j < length && sql.charAt(j) == '$') {
+                    // dollar-quoted string, e.g. $$text$$ or $tag$text$tag$
+                    String tag = sql.substring(i, j + 1);
+                    int close = sql.indexOf(tag, j + 1);
+                    i = close < 0 ? length : close + tag.length();
+                }
+                else {
+                    i++;
+                }
+            }
+            else if (isWordStart(c)) {
+                int j = i + 1;
+                while (j < length && isWordChar(sql.charAt(j))) {
+                    j++;
+                }
+                if (leadingKeyword == null) {
+                    leadingKeyword = sql.substring(i, j).toUpperCase(ENGLISH);
+                }
+                for (String word : PostgreSqlRewriteUtil.DISPATCH_WORDS) {
+                    if (word.length() == j - i && sql.regionMatches(true, i, word, 0, word.length())) {
+                        if (words == null) {
+                            words = new HashSet<>();
+                        }
+                        words.add(word);
+                    }
+                }
+                i = j;
+            }
+            else {
+                i++;
+            }
+        }
+
+        String statement;
+        if (rewritten == null) {
+            statement = sql.substring(0, end);
+        }
+        else {
+            statement = rewritten.append(sql, copied, Math.max(copied, end)).toString();
+        }
+        return new ScannedStatement(
+                statement.trim(),
+                leadingKeyword == null ? "" : leadingKeyword,
+                words == null ? ImmutableSet.of() : ImmutableSet.copyOf(words));
+    }
+
+    private static int skipQuoted(String sql, int start, char quote)
+    {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i++) == quote) {
+                // a doubled quote is an escaped quote
+                if (i < sql.length() && sql.charAt(i) == quote) {
+                    i++;
+                    continue;
+                }
+                return i;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordStart(char c)
+    {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isWordChar(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * The first statement, trimmed, with `$n` parameters replaced by `?`.
+     */
+    public String getStatement()
+    {
+        return statement;
+    }
+
+    /**
+     * The first word of the statement in upper case, or an empty string if there is none.
+     */
+    public String getLeadingKeyword()
+    {
+        return leadingKeyword;
+    }
+
+    /**
+     * Whether the statement contains the given word outside of literals and comments. Only the
+     * words in {@link PostgreSqlRewriteUtil#DISPATCH_WORDS} are tracked.
+     */
+    public boolean containsWord(String word)
+    {
+        return words.contains(word);
+    }
+}
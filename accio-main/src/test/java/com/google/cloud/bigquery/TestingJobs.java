@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.bigquery;
+
+import com.google.common.collect.ImmutableList;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates {@link Job}s with a given status for tests, their builders are only visible in this package.
+ */
+public final class TestingJobs
+{
+    // a job only keeps the service for reload and cancel, which the tests never call
+    static final BigQuery BIG_QUERY = (BigQuery) Proxy.newProxyInstance(
+            BigQuery.class.getClassLoader(),
+            new Class<?>[] {BigQuery.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getOptions")) {
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    private TestingJobs() {}
+
+    public static Job job(JobId jobId, JobStatus.State state)
+    {
+        return job(jobId, new JobStatus(state));
+    }
+
+    public static Job failedJob(JobId jobId, String message)
+    {
+        return job(jobId, new JobStatus(JobStatus.State.DONE, new BigQueryError("invalidQuery", "query", message), ImmutableList.of()));
+    }
+
+    private static Job job(JobId jobId, JobStatus status)
+    {
+        return new Job.Builder(BIG_QUERY, QueryJobConfiguration.of("SELECT 1"))
+                .setJobId(jobId)
+                .setStatus(status)
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.bigquery;
+
+import static com.google.cloud.bigquery.TestingJobs.BIG_QUERY;
+
+/**
+ * Creates {@link Dataset}s and {@link Table}s for tests, their builders are only visible in this package.
+ */
+public final class TestingTables
+{
+    private TestingTables() {}
+
+    public static Dataset dataset(DatasetId datasetId)
+    {
+        return new Dataset.Builder(BIG_QUERY, datasetId).build();
+    }
+
+    public static Table table(TableId tableId, Schema schema)
+    {
+        return new Table.Builder(BIG_QUERY, tableId, StandardTableDefinition.of(schema)).build();
+    }
+}
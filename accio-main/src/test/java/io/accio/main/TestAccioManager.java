@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main;
+
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.base.client.duckdb.DuckdbClient;
+import io.accio.cache.CacheEvictor;
+import io.accio.cache.CacheManager;
+import io.accio.cache.CacheManifest;
+import io.accio.cache.CacheStats;
+import io.accio.cache.CachedTableMapping;
+import io.accio.cache.DefaultCachedTableMapping;
+import io.accio.cache.DuckdbConfig;
+import io.accio.cache.NoOpExtraRewriter;
+import io.accio.cache.TaskInfo;
+import io.accio.cache.TestingCacheService;
+import io.accio.main.metadata.CachingMetadata;
+import io.accio.main.metadata.MetadataCacheConfig;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.accio.base.CatalogSchemaTableName.catalogSchemaTableName;
+import static io.accio.cache.TaskInfo.TaskStatus.DONE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Test(singleThreaded = true)
+public class TestAccioManager
+{
+    private static final CatalogSchemaTableName ORDERS = catalogSchemaTableName("accio", "test", "Orders");
+    private static final String MANIFEST = "{\"catalog\": \"accio\", \"schema\": \"test\", \"models\": [" +
+            "{\"name\": \"Orders\", \"refSql\": \"SELECT 1 AS orderkey\", \"columns\": [{\"name\": \"orderkey\", \"type\": \"integer\", \"notNull\": true}], \"cached\": true}]}";
+
+    private Path directory;
+    private DuckdbConfig duckdbConfig;
+    private DuckdbClient duckdbClient;
+    private TestingCacheService cacheService;
+    private CachedTableMapping cachedTableMapping;
+    private final List<CacheManager> cacheManagers = new ArrayList<>();
+    private final List<CachingMetadata> metadatas = new ArrayList<>();
+
+    @BeforeMethod
+    public void setUp()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("accio-manager");
+        Path databaseFile = directory.resolve("cache.db");
+        duckdbConfig = new DuckdbConfig().setDatabaseFile(databaseFile.toString());
+        duckdbClient = new DuckdbClient(Optional.of(databaseFile));
+        cacheService = new TestingCacheService();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        cacheManagers.forEach(CacheManager::stop);
+        cacheManagers.clear();
+        metadatas.forEach(CachingMetadata::stop);
+        metadatas.clear();
+        deleteRecursively(directory, ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testStartupWithPersistentCache()
+            throws IOException
+    {
+        Path mdlFile = directory.resolve("mdl.json");
+        Files.writeString(mdlFile, MANIFEST);
+        AccioConfig accioConfig = new AccioConfig().setAccioMDLFile(mdlFile.toFile());
+
+        CacheManager cacheManager = createCacheManager();
+        new AccioManager(accioConfig, cacheManager, createMetadata());
+        assertThat(waitForTask(cacheManager, ORDERS).getTaskStatus()).isEqualTo(DONE);
+        String tableName = cachedTableMapping.get(ORDERS).getRequiredTableName();
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+
+        // a restarted server reattaches the cache instead of exporting it again
+        cacheManager = createCacheManager();
+        AccioManager accioManager = new AccioManager(accioConfig, cacheManager, createMetadata());
+        assertThat(accioManager.getAccioMDL().getCatalog()).isEqualTo("accio");
+        assertThat(cachedTableMapping.get(ORDERS).getRequiredTableName()).isEqualTo(tableName);
+        assertThat(waitForTask(cacheManager, ORDERS).getTaskStatus()).isEqualTo(DONE);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+
+        // a reload of the unchanged mdl keeps the cache as well
+        accioManager.loadAccioMDLFromFile();
+        assertThat(cachedTableMapping.get(ORDERS).getRequiredTableName()).isEqualTo(tableName);
+        assertThat(cacheService.getExports("Orders")).isEqualTo(1);
+    }
+
+    private CacheManager createCacheManager()
+    {
+        cachedTableMapping = new DefaultCachedTableMapping(duckdbClient);
+        CacheManifest cacheManifest = new CacheManifest(duckdbConfig);
+        CacheManager cacheManager = new CacheManager(
+                (sql, sessionContext) -> sql,
+                cacheService,
+                new NoOpExtraRewriter(),
+                duckdbClient,
+                cacheService,
+                cachedTableMapping,
+                cacheManifest,
+                new CacheEvictor(duckdbConfig, duckdbClient, cachedTableMapping, cacheManifest),
+                new CacheStats(new MBeanExporter(new TestingMBeanServer())),
+                duckdbConfig);
+        cacheManagers.add(cacheManager);
+        return cacheManager;
+    }
+
+    private CachingMetadata createMetadata()
+    {
+        CachingMetadata metadata = new CachingMetadata(new TestingMetadata(), new MetadataCacheConfig());
+        metadatas.add(metadata);
+        return metadata;
+    }
+
+    private static TaskInfo waitForTask(CacheManager cacheManager, CatalogSchemaTableName name)
+    {
+        // the tasks are registered asynchronously
+        long deadline = System.nanoTime() + SECONDS.toNanos(30);
+        while (cacheManager.getTaskInfo(name).join().isEmpty()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        cacheManager.untilTaskDone(name);
+        return cacheManager.getTaskInfo(name).join().orElseThrow();
+    }
+}
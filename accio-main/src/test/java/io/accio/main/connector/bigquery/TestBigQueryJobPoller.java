@@ -0,0 +1,572 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.connector.bigquery;
+
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.EmptyTableResult;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.Schema;
+import com.google.cloud.bigquery.TableResult;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import io.accio.base.AccioException;
+import io.accio.base.Cancellation;
+import io.accio.base.Parameter;
+import io.accio.connector.bigquery.BigQueryClient;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.cloud.bigquery.JobStatus.State.DONE;
+import static com.google.cloud.bigquery.JobStatus.State.RUNNING;
+import static com.google.cloud.bigquery.TestingJobs.failedJob;
+import static com.google.cloud.bigquery.TestingJobs.job;
+import static io.accio.main.connector.bigquery.BigQueryJobPoller.MAX_FAILED_POLLS;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The requests and the scheduled polls only run when the test asks for them, one at a time on the test thread,
+ * so every test sees a single, deterministic interleaving.
+ */
+public class TestBigQueryJobPoller
+{
+    private static final TableResult RESULT = new EmptyTableResult(Schema.of());
+
+    @Test
+    public void testPollBackoff()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.addPolls(RUNNING, RUNNING, RUNNING, RUNNING, DONE);
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThat(result.join()).isSameAs(RESULT);
+        assertThat(scheduler.getDelaysMillis()).containsExactly(100L, 200L, 400L, 500L, 500L);
+        assertThat(client.getPolledJobs()).hasSize(5);
+    }
+
+    @Test
+    public void testFailedJob()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.addPoll(jobId -> failedJob(jobId, "Syntax error"));
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(BigQueryException.class)
+                .hasMessageContaining("Syntax error");
+        assertThat(client.getFetchedJobs()).isEmpty();
+    }
+
+    @Test
+    public void testFailedInsert()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.failInsert(new BigQueryException(400, "Invalid query"));
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(BigQueryException.class)
+                .hasMessageContaining("Invalid query");
+        assertThat(scheduler.getDelaysMillis()).isEmpty();
+    }
+
+    @Test
+    public void testRetryTransientPollErrors()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.addPollFailure(new BigQueryException(503, "Service unavailable"));
+        client.addPollFailure(new BigQueryException(503, "Service unavailable"));
+        client.addPolls(DONE);
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThat(result.join()).isSameAs(RESULT);
+        // the interval keeps growing while the polls fail
+        assertThat(scheduler.getDelaysMillis()).containsExactly(100L, 200L, 400L);
+    }
+
+    @Test
+    public void testGiveUpAfterTransientPollErrors()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        for (int i = 0; i < MAX_FAILED_POLLS; i++) {
+            client.addPollFailure(new BigQueryException(503, "Service unavailable"));
+        }
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(BigQueryException.class)
+                .hasMessageContaining("Service unavailable");
+        assertThat(client.getPolledJobs()).hasSize(MAX_FAILED_POLLS);
+    }
+
+    @Test
+    public void testFailOnPermanentPollError()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.addPollFailure(new BigQueryException(403, "Access denied"));
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(BigQueryException.class)
+                .hasMessageContaining("Access denied");
+        assertThat(client.getPolledJobs()).hasSize(1);
+    }
+
+    @Test
+    public void testCancelBeforeInsert()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        Cancellation cancellation = new Cancellation();
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), cancellation);
+        cancellation.cancel();
+        scheduler.runAll();
+
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(AccioException.class)
+                .hasMessageContaining("Query was canceled");
+        assertThat(client.getInsertedJobs()).isEmpty();
+        assertThat(client.getCanceledJobs()).isEmpty();
+    }
+
+    @Test
+    public void testCancelBeforeJobIdIsSet()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        Cancellation cancellation = new Cancellation();
+        // the query is canceled while the job is inserted
+        client.onInsert(cancellation::cancel);
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), cancellation);
+        scheduler.runAll();
+
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(AccioException.class)
+                .hasMessageContaining("Query was canceled");
+        // the job is canceled once it's inserted, and never polled
+        assertThat(client.getCanceledJobs()).containsExactlyElementsOf(client.getInsertedJobs());
+        assertThat(scheduler.getDelaysMillis()).isEmpty();
+    }
+
+    @Test
+    public void testCancelAfterJobIdIsSet()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.addPolls(RUNNING);
+        Cancellation cancellation = new Cancellation();
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, config());
+
+        CompletableFuture<TableResult> result = poller.query("SELECT 1", ImmutableList.of(), cancellation);
+        // insert the job, fire the timer, then poll it once
+        scheduler.runNext();
+        scheduler.runNext();
+        scheduler.runNext();
+        cancellation.cancel();
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(AccioException.class)
+                .hasMessageContaining("Query was canceled");
+
+        // the job is canceled and the pending poll stops without asking for the job
+        scheduler.runAll();
+        assertThat(client.getCanceledJobs()).containsExactlyElementsOf(client.getInsertedJobs());
+        assertThat(client.getPolledJobs()).hasSize(1);
+        assertThat(client.getFetchedJobs()).isEmpty();
+    }
+
+    @Test
+    public void testShareRunningJob()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, sharingConfig());
+
+        CompletableFuture<TableResult> first = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        CompletableFuture<TableResult> second = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        CompletableFuture<TableResult> other = poller.query("SELECT 2", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThat(first.join()).isSameAs(RESULT);
+        assertThat(second.join()).isSameAs(RESULT);
+        assertThat(other.join()).isSameAs(RESULT);
+        assertThat(client.getInsertedQueries()).containsExactly("SELECT 1", "SELECT 2");
+        // every query reads the results on its own
+        assertThat(client.getFetchedJobs()).hasSize(3);
+    }
+
+    @Test
+    public void testDetachKeepsJobForOtherQueries()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.addPolls(RUNNING);
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, sharingConfig());
+
+        Cancellation canceled = new Cancellation();
+        CompletableFuture<TableResult> first = poller.query("SELECT 1", ImmutableList.of(), canceled);
+        CompletableFuture<TableResult> second = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runNext();
+        canceled.cancel();
+        scheduler.runAll();
+
+        assertThatThrownBy(first::join)
+                .hasCauseInstanceOf(AccioException.class)
+                .hasMessageContaining("Query was canceled");
+        assertThat(second.join()).isSameAs(RESULT);
+        assertThat(client.getInsertedJobs()).hasSize(1);
+        assertThat(client.getCanceledJobs()).isEmpty();
+    }
+
+    @Test
+    public void testAttachDuringDetach()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, sharingConfig());
+
+        Cancellation canceled = new Cancellation();
+        CompletableFuture<TableResult> first = poller.query("SELECT 1", ImmutableList.of(), canceled);
+        scheduler.runNext();
+        // the query arrives while the last waiting query is still detaching from the job
+        CompletableFuture<CompletableFuture<TableResult>> second = first.handle((result, throwable) -> poller.query("SELECT 1", ImmutableList.of(), new Cancellation()));
+        canceled.cancel();
+        CompletableFuture<TableResult> third = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+
+        assertThatThrownBy(first::join)
+                .hasCauseInstanceOf(AccioException.class)
+                .hasMessageContaining("Query was canceled");
+        assertThat(second.join().join()).isSameAs(RESULT);
+        assertThat(third.join()).isSameAs(RESULT);
+        // the canceled job is never shared, the later queries share a new one
+        assertThat(client.getInsertedJobs()).hasSize(2);
+        assertThat(client.getCanceledJobs()).containsExactly(client.getInsertedJobs().get(0));
+    }
+
+    @Test
+    public void testReuseWindow()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        TestingScheduler scheduler = new TestingScheduler();
+        TestingTicker ticker = new TestingTicker();
+        BigQueryJobPoller poller = createPoller(client, scheduler, ticker, sharingConfig().setQueryJobReuseWindow(new Duration(10, SECONDS)));
+
+        assertThat(query(poller, scheduler, "SELECT 1")).isSameAs(RESULT);
+        ticker.advance(5, SECONDS);
+        assertThat(query(poller, scheduler, "SELECT 1")).isSameAs(RESULT);
+        assertThat(client.getInsertedJobs()).hasSize(1);
+        assertThat(client.getFetchedJobs()).hasSize(2);
+
+        // the window starts when the job is created, the finished job expires even before its removal runs
+        ticker.advance(6, SECONDS);
+        CompletableFuture<TableResult> expired = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+        assertThat(expired.join()).isSameAs(RESULT);
+        assertThat(client.getInsertedJobs()).hasSize(2);
+
+        // the removal of the expired job leaves the new one in place
+        assertThat(query(poller, scheduler, "SELECT 1")).isSameAs(RESULT);
+        assertThat(client.getInsertedJobs()).hasSize(2);
+    }
+
+    @Test
+    public void testOnlyShareRunningJobsWithoutReuseWindow()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, sharingConfig());
+
+        query(poller, scheduler, "SELECT 1");
+        query(poller, scheduler, "SELECT 1");
+        assertThat(client.getInsertedJobs()).hasSize(2);
+    }
+
+    @Test
+    public void testFailedJobIsNeverReused()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient();
+        client.addPoll(jobId -> failedJob(jobId, "Resources exceeded"));
+        TestingScheduler scheduler = new TestingScheduler();
+        BigQueryJobPoller poller = createPoller(client, scheduler, new TestingTicker(), sharingConfig().setQueryJobReuseWindow(new Duration(1, HOURS)));
+
+        CompletableFuture<TableResult> first = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        CompletableFuture<TableResult> second = poller.query("SELECT 1", ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+        // the queries waiting for the job share its failure
+        assertThatThrownBy(first::join).hasMessageContaining("Resources exceeded");
+        assertThatThrownBy(second::join).hasMessageContaining("Resources exceeded");
+
+        assertThat(query(poller, scheduler, "SELECT 1")).isSameAs(RESULT);
+        assertThat(client.getInsertedJobs()).hasSize(2);
+    }
+
+    private static TableResult query(BigQueryJobPoller poller, TestingScheduler scheduler, String sql)
+    {
+        CompletableFuture<TableResult> result = poller.query(sql, ImmutableList.of(), new Cancellation());
+        scheduler.runAll();
+        return result.join();
+    }
+
+    private static BigQueryConfig config()
+    {
+        return new BigQueryConfig()
+                .setQueryMinPollInterval(new Duration(100, MILLISECONDS))
+                .setQueryMaxPollInterval(new Duration(500, MILLISECONDS))
+                .setQueryShareJobs(false);
+    }
+
+    private static BigQueryConfig sharingConfig()
+    {
+        return config().setQueryShareJobs(true);
+    }
+
+    private static BigQueryJobPoller createPoller(FakeBigQueryClient client, TestingScheduler scheduler, BigQueryConfig config)
+    {
+        return createPoller(client, scheduler, Ticker.systemTicker(), config);
+    }
+
+    private static BigQueryJobPoller createPoller(FakeBigQueryClient client, TestingScheduler scheduler, Ticker ticker, BigQueryConfig config)
+    {
+        return new BigQueryJobPoller(client, config, ticker, scheduler, scheduler);
+    }
+
+    private interface JobResponse
+    {
+        Job respond(JobId jobId);
+    }
+
+    private static class FakeBigQueryClient
+            extends BigQueryClient
+    {
+        private final Queue<JobResponse> polls = new ArrayDeque<>();
+        private final List<String> insertedQueries = new ArrayList<>();
+        private final List<JobId> insertedJobs = new ArrayList<>();
+        private final List<JobId> polledJobs = new ArrayList<>();
+        private final List<JobId> canceledJobs = new ArrayList<>();
+        private final List<JobId> fetchedJobs = new ArrayList<>();
+        private Runnable onInsert = () -> {};
+        private RuntimeException insertFailure;
+
+        private FakeBigQueryClient()
+        {
+            super(null);
+        }
+
+        /**
+         * Once the scripted polls are used up, every poll finds the job done.
+         */
+        public void addPolls(JobStatus.State... states)
+        {
+            for (JobStatus.State state : states) {
+                addPoll(jobId -> job(jobId, state));
+            }
+        }
+
+        public void addPoll(JobResponse response)
+        {
+            polls.add(response);
+        }
+
+        public void addPollFailure(RuntimeException failure)
+        {
+            polls.add(jobId -> {
+                throw failure;
+            });
+        }
+
+        public void onInsert(Runnable onInsert)
+        {
+            this.onInsert = onInsert;
+        }
+
+        public void failInsert(RuntimeException insertFailure)
+        {
+            this.insertFailure = insertFailure;
+        }
+
+        @Override
+        public Job createQueryJob(String sql, List<Parameter> parameters)
+        {
+            if (insertFailure != null) {
+                throw insertFailure;
+            }
+            JobId jobId = JobId.of("job_" + insertedJobs.size());
+            insertedQueries.add(sql);
+            insertedJobs.add(jobId);
+            onInsert.run();
+            return job(jobId, RUNNING);
+        }
+
+        @Override
+        public Optional<Job> getJob(JobId jobId)
+        {
+            polledJobs.add(jobId);
+            JobResponse response = polls.poll();
+            return Optional.of(response == null ? job(jobId, DONE) : response.respond(jobId));
+        }
+
+        @Override
+        public boolean cancel(JobId jobId)
+        {
+            canceledJobs.add(jobId);
+            return true;
+        }
+
+        @Override
+        public TableResult getQueryResults(Job job)
+        {
+            fetchedJobs.add(job.getJobId());
+            return RESULT;
+        }
+
+        public List<String> getInsertedQueries()
+        {
+            return insertedQueries;
+        }
+
+        public List<JobId> getInsertedJobs()
+        {
+            return insertedJobs;
+        }
+
+        public List<JobId> getPolledJobs()
+        {
+            return polledJobs;
+        }
+
+        public List<JobId> getCanceledJobs()
+        {
+            return canceledJobs;
+        }
+
+        public List<JobId> getFetchedJobs()
+        {
+            return fetchedJobs;
+        }
+    }
+
+    private static class TestingTicker
+            extends Ticker
+    {
+        private long nanos;
+
+        @Override
+        public long read()
+        {
+            return nanos;
+        }
+
+        public void advance(long value, TimeUnit unit)
+        {
+            nanos += unit.toNanos(value);
+        }
+    }
+
+    /**
+     * Serves as both the scheduler and the RPC executor of the poller. Records the delay of every scheduled task
+     * and keeps all the tasks until the test runs them.
+     */
+    private static class TestingScheduler
+            extends ScheduledThreadPoolExecutor
+    {
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private final List<Long> delaysMillis = new ArrayList<>();
+
+        private TestingScheduler()
+        {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+        {
+            pending.add(command);
+            delaysMillis.add(unit.toMillis(delay));
+            // the poller never looks at the future
+            return null;
+        }
+
+        @Override
+        public void execute(Runnable command)
+        {
+            pending.add(command);
+        }
+
+        public boolean runNext()
+        {
+            Runnable task = pending.poll();
+            if (task == null) {
+                return false;
+            }
+            task.run();
+            return true;
+        }
+
+        public void runAll()
+        {
+            while (runNext()) {
+                // a task could schedule the next one
+            }
+        }
+
+        public List<Long> getDelaysMillis()
+        {
+            return delaysMillis;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.connector.bigquery;
+
+import com.google.cloud.bigquery.Dataset;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.EmptyTableResult;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.Schema;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableDefinition;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.TableResult;
+import com.google.common.collect.ImmutableList;
+import io.accio.base.Parameter;
+import io.accio.base.metadata.ColumnMetadata;
+import io.accio.base.metadata.TableMetadata;
+import io.accio.base.type.PGType;
+import io.accio.connector.bigquery.BigQueryClient;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.cloud.bigquery.Field.Mode.REPEATED;
+import static com.google.cloud.bigquery.FieldValue.Attribute.PRIMITIVE;
+import static com.google.cloud.bigquery.StandardSQLTypeName.INT64;
+import static com.google.cloud.bigquery.StandardSQLTypeName.STRING;
+import static com.google.cloud.bigquery.TestingTables.dataset;
+import static com.google.cloud.bigquery.TestingTables.table;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.accio.base.type.BigIntType.BIGINT;
+import static io.accio.base.type.PGArray.VARCHAR_ARRAY;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestBigQueryMetadata
+{
+    private static final DatasetId DATASET = DatasetId.of("project", "tpch");
+    private static final TableId ORDERS = TableId.of("project", "tpch", "orders");
+    private static final TableId CUSTOMER = TableId.of("project", "tpch", "customer");
+
+    @Test
+    public void testListTablesFromInformationSchema()
+    {
+        FakeBigQueryClient client = new FakeBigQueryClient(ImmutableList.of(
+                column("customer", "custkey", "INT64"),
+                column("customer", "name", "STRING(25)"),
+                column("orders", "orderkey", "INT64"),
+                column("orders", "tags", "ARRAY<STRING>")));
+        BigQueryMetadata metadata = new BigQueryMetadata(client, config());
+        try {
+            List<TableMetadata> tables = metadata.listTables("tpch");
+            assertThat(describe(tables)).containsExactly(
+                    Map.of("customer", List.of(columnMetadata("custkey", BIGINT), columnMetadata("name", VARCHAR))),
+                    Map.of("orders", List.of(columnMetadata("orderkey", BIGINT), columnMetadata("tags", VARCHAR_ARRAY))));
+            assertThat(client.fetchedTables).isEmpty();
+        }
+        finally {
+            metadata.stop();
+        }
+    }
+
+    @Test
+    public void testFallbackToTableListing()
+    {
+        // a data type the parser can't read fails the whole INFORMATION_SCHEMA listing
+        FakeBigQueryClient client = new FakeBigQueryClient(ImmutableList.of(
+                column("customer", "custkey", "INT64"),
+                column("orders", "orderkey", "INT64"),
+                column("orders", "tags", "ARRAY<STRING")));
+        BigQueryMetadata metadata = new BigQueryMetadata(client, config());
+        try {
+            List<TableMetadata> tables = metadata.listTables("tpch");
+            assertThat(describe(tables)).containsExactlyInAnyOrder(
+                    Map.of("customer", List.of(columnMetadata("custkey", BIGINT))),
+                    Map.of("orders", List.of(columnMetadata("orderkey", BIGINT), columnMetadata("tags", VARCHAR_ARRAY))));
+            assertThat(client.fetchedTables).containsExactlyInAnyOrder(CUSTOMER, ORDERS);
+        }
+        finally {
+            metadata.stop();
+        }
+    }
+
+    private static BigQueryConfig config()
+    {
+        return new BigQueryConfig().setLocation("US");
+    }
+
+    private static List<Map<String, List<ColumnMetadata>>> describe(List<TableMetadata> tables)
+    {
+        return tables.stream()
+                .map(table -> Map.of(table.getTable().getTableName(), table.getColumns()))
+                .collect(toImmutableList());
+    }
+
+    private static ColumnMetadata columnMetadata(String name, PGType<?> type)
+    {
+        return ColumnMetadata.builder()
+                .setName(name)
+                .setType(type)
+                .build();
+    }
+
+    private static FieldValueList column(String tableName, String columnName, String dataType)
+    {
+        return FieldValueList.of(
+                ImmutableList.of(FieldValue.of(PRIMITIVE, tableName), FieldValue.of(PRIMITIVE, columnName), FieldValue.of(PRIMITIVE, dataType)),
+                Field.of("table_name", STRING),
+                Field.of("column_name", STRING),
+                Field.of("data_type", STRING));
+    }
+
+    private static class FakeBigQueryClient
+            extends BigQueryClient
+    {
+        private final List<FieldValueList> informationSchemaColumns;
+        private final List<TableId> fetchedTables = new ArrayList<>();
+
+        private FakeBigQueryClient(List<FieldValueList> informationSchemaColumns)
+        {
+            super(null);
+            this.informationSchemaColumns = informationSchemaColumns;
+        }
+
+        @Override
+        public String getProjectId()
+        {
+            return "project";
+        }
+
+        @Override
+        public Dataset getDataset(String name)
+        {
+            return dataset(DatasetId.of("project", name));
+        }
+
+        @Override
+        public TableResult query(String sql, List<Parameter> parameters)
+        {
+            assertThat(sql).contains("`project`.`tpch`.INFORMATION_SCHEMA.COLUMNS");
+            return new EmptyTableResult(Schema.of())
+            {
+                @Override
+                public Iterable<FieldValueList> iterateAll()
+                {
+                    return informationSchemaColumns;
+                }
+            };
+        }
+
+        @Override
+        public Iterable<Table> listTables(DatasetId datasetId, TableDefinition.Type... types)
+        {
+            assertThat(datasetId).isEqualTo(DATASET);
+            return ImmutableList.of(table(CUSTOMER, Schema.of()), table(ORDERS, Schema.of()));
+        }
+
+        @Override
+        public synchronized Table getTable(TableId tableId)
+        {
+            fetchedTables.add(tableId);
+            if (tableId.equals(CUSTOMER)) {
+                return table(tableId, Schema.of(Field.of("custkey", INT64)));
+            }
+            return table(tableId, Schema.of(Field.of("orderkey", INT64), Field.newBuilder("tags", STRING).setMode(REPEATED).build()));
+        }
+    }
+}
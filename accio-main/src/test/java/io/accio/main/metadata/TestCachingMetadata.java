@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.metadata;
+
+import io.accio.main.TestingMetadata;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCachingMetadata
+{
+    @Test
+    public void testCacheAndInvalidate()
+    {
+        CountingMetadata delegate = new CountingMetadata();
+        CachingMetadata metadata = new CachingMetadata(delegate, new MetadataCacheConfig());
+        try {
+            assertThat(metadata.listSchemas()).containsExactly("testing_schema1", "testing_schema2");
+            assertThat(metadata.listSchemas()).containsExactly("testing_schema1", "testing_schema2");
+            assertThat(metadata.getDefaultCatalog()).isEqualTo("testing_catalog");
+            assertThat(metadata.getDefaultCatalog()).isEqualTo("testing_catalog");
+            assertThat(delegate.listSchemasCount.get()).isEqualTo(1);
+            assertThat(delegate.defaultCatalogCount.get()).isEqualTo(1);
+
+            metadata.directDDL("CREATE TABLE t (c int)");
+            metadata.listSchemas();
+            metadata.getDefaultCatalog();
+            assertThat(delegate.listSchemasCount.get()).isEqualTo(2);
+            assertThat(delegate.defaultCatalogCount.get()).isEqualTo(1);
+
+            metadata.invalidateAll();
+            metadata.listSchemas();
+            metadata.getDefaultCatalog();
+            assertThat(delegate.listSchemasCount.get()).isEqualTo(3);
+            assertThat(delegate.defaultCatalogCount.get()).isEqualTo(2);
+        }
+        finally {
+            metadata.stop();
+        }
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        CountingMetadata delegate = new CountingMetadata();
+        CachingMetadata metadata = new CachingMetadata(delegate, new MetadataCacheConfig().setEnabled(false));
+        try {
+            metadata.listSchemas();
+            metadata.listSchemas();
+            assertThat(delegate.listSchemasCount.get()).isEqualTo(2);
+        }
+        finally {
+            metadata.stop();
+        }
+    }
+
+    private static class CountingMetadata
+            extends TestingMetadata
+    {
+        private final AtomicInteger listSchemasCount = new AtomicInteger();
+        private final AtomicInteger defaultCatalogCount = new AtomicInteger();
+
+        @Override
+        public List<String> listSchemas()
+        {
+            listSchemasCount.incrementAndGet();
+            return super.listSchemas();
+        }
+
+        @Override
+        public String getDefaultCatalog()
+        {
+            defaultCatalogCount.incrementAndGet();
+            return "testing_catalog";
+        }
+
+        @Override
+        public void directDDL(String sql) {}
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.pgcatalog.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.accio.base.AccioMDL;
+import io.accio.main.TestingMetadata;
+import io.accio.main.pgcatalog.table.PgCatalogTable;
+import io.accio.main.pgcatalog.table.PgClassTable;
+import io.accio.main.pgcatalog.table.PgNamespaceTable;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestPgCatalogTableBuilder
+{
+    private static final PgCatalogTable PG_CLASS = new PgClassTable();
+    private static final PgCatalogTable PG_NAMESPACE = new PgNamespaceTable();
+
+    @Test
+    public void testSkipUpToDateTable()
+    {
+        RecordingMetadata metadata = new RecordingMetadata();
+        Map<String, String> labels = new ConcurrentHashMap<>();
+
+        TestingPgCatalogTableBuilder builder = new TestingPgCatalogTableBuilder(metadata, labels, "v1");
+        builder.prepare(true);
+        builder.createPgTable(PG_CLASS);
+        assertThat(metadata.getDDLs()).containsExactly("CREATE helper v1", "CREATE pg_class v1");
+        assertThat(labels).containsOnlyKeys(PgClassTable.NAME);
+
+        // a new builder, as after a restart, only knows the hashes persisted as labels
+        metadata.clear();
+        builder = new TestingPgCatalogTableBuilder(metadata, labels, "v1");
+        builder.prepare(true);
+        builder.createPgTable(PG_CLASS);
+        assertThat(metadata.getDDLs()).isEmpty();
+    }
+
+    @Test
+    public void testRebuildWithoutHelperTables()
+    {
+        RecordingMetadata metadata = new RecordingMetadata();
+        Map<String, String> labels = new ConcurrentHashMap<>();
+
+        TestingPgCatalogTableBuilder builder = new TestingPgCatalogTableBuilder(metadata, labels, "v1");
+        builder.prepare(true);
+        builder.createPgTable(PG_CLASS);
+
+        // the helper schema was dropped, the stored hash no longer tells whether the view works
+        metadata.clear();
+        builder = new TestingPgCatalogTableBuilder(metadata, labels, "v1");
+        builder.prepare(false);
+        builder.createPgTable(PG_CLASS);
+        assertThat(metadata.getDDLs()).containsExactly("CREATE helper v1", "CREATE pg_class v1");
+    }
+
+    @Test
+    public void testRebuildWhenHelperChanges()
+    {
+        RecordingMetadata metadata = new RecordingMetadata();
+        Map<String, String> labels = new ConcurrentHashMap<>();
+
+        TestingPgCatalogTableBuilder builder = new TestingPgCatalogTableBuilder(metadata, labels, "v1");
+        builder.prepare(true);
+        builder.createPgTable(PG_CLASS);
+        String hash = labels.get(PgClassTable.NAME);
+
+        // the view sql is unchanged, only the helper table it reads from differs
+        metadata.clear();
+        builder = new TestingPgCatalogTableBuilder(metadata, labels, "v1", "v2");
+        builder.prepare(true);
+        builder.createPgTable(PG_CLASS);
+        assertThat(metadata.getDDLs()).containsExactly("CREATE helper v2", "CREATE pg_class v1");
+        assertThat(labels.get(PgClassTable.NAME)).isNotEqualTo(hash);
+    }
+
+    @Test
+    public void testSharedHelperRunsOncePerPrepare()
+    {
+        RecordingMetadata metadata = new RecordingMetadata();
+        TestingPgCatalogTableBuilder builder = new TestingPgCatalogTableBuilder(metadata, new ConcurrentHashMap<>(), "v1");
+        builder.prepare(true);
+        builder.createPgTable(PG_CLASS);
+        builder.createPgTable(PG_NAMESPACE);
+        assertThat(metadata.getDDLs()).containsExactly("CREATE helper v1", "CREATE pg_class v1", "CREATE pg_namespace v1");
+    }
+
+    @Test
+    public void testFailedTableKeepsNoHash()
+    {
+        RecordingMetadata metadata = new RecordingMetadata();
+        Map<String, String> labels = new ConcurrentHashMap<>();
+
+        TestingPgCatalogTableBuilder builder = new TestingPgCatalogTableBuilder(metadata, labels, "v1");
+        builder.prepare(true);
+        metadata.failOn("CREATE pg_class v1");
+        assertThatThrownBy(() -> builder.createPgTable(PG_CLASS))
+                .hasMessage("failed to run CREATE pg_class v1");
+        assertThat(labels).isEmpty();
+
+        metadata.failOn(null);
+        metadata.clear();
+        builder.prepare(true);
+        builder.createPgTable(PG_CLASS);
+        assertThat(metadata.getDDLs()).containsExactly("CREATE helper v1", "CREATE pg_class v1");
+        assertThat(labels).containsOnlyKeys(PgClassTable.NAME);
+    }
+
+    private static class RecordingMetadata
+            extends TestingMetadata
+    {
+        private final List<String> ddls = new CopyOnWriteArrayList<>();
+        private volatile String failingDDL;
+
+        @Override
+        public void directDDL(String sql)
+        {
+            if (sql.equals(failingDDL)) {
+                throw new RuntimeException(format("failed to run %s", sql));
+            }
+            ddls.add(sql);
+        }
+
+        public List<String> getDDLs()
+        {
+            return ImmutableList.copyOf(ddls);
+        }
+
+        public void clear()
+        {
+            ddls.clear();
+        }
+
+        public void failOn(String sql)
+        {
+            failingDDL = sql;
+        }
+    }
+
+    private static class TestingPgCatalogTableBuilder
+            extends PostgresPgCatalogTableBuilder
+    {
+        private final Map<String, String> labels;
+        private final String viewVersion;
+        private final String helperVersion;
+
+        public TestingPgCatalogTableBuilder(RecordingMetadata metadata, Map<String, String> labels, String version)
+        {
+            this(metadata, labels, version, version);
+        }
+
+        public TestingPgCatalogTableBuilder(RecordingMetadata metadata, Map<String, String> labels, String viewVersion, String helperVersion)
+        {
+            super(metadata, () -> AccioMDL.EMPTY);
+            this.labels = labels;
+            this.viewVersion = viewVersion;
+            this.helperVersion = helperVersion;
+        }
+
+        @Override
+        protected List<String> getHelperDDLs(PgCatalogTable pgCatalogTable)
+        {
+            return ImmutableList.of("CREATE helper " + helperVersion);
+        }
+
+        @Override
+        protected Map<String, String> loadContentHashes()
+        {
+            return ImmutableMap.copyOf(labels);
+        }
+
+        @Override
+        protected void storeContentHash(String tableName, String contentHash)
+        {
+            labels.put(tableName, contentHash);
+        }
+
+        @Override
+        protected String createPgClass(PgCatalogTable pgCatalogTable)
+        {
+            return createView(pgCatalogTable);
+        }
+
+        @Override
+        protected String createPgNamespaceTable(PgCatalogTable pgCatalogTable)
+        {
+            return createView(pgCatalogTable);
+        }
+
+        private String createView(PgCatalogTable pgCatalogTable)
+        {
+            return format("CREATE %s %s", pgCatalogTable.getName(), viewVersion);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import io.accio.base.AccioException;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestQueryAdmissionController
+{
+    @Test
+    public void testDisabled()
+    {
+        QueryAdmissionController controller = new QueryAdmissionController(new QueryAdmissionConfig()
+                .setMaxRunningQueries(1));
+        assertThat(controller.admit("user", null)).isDone();
+        assertThat(controller.admit("user", null)).isDone();
+        assertThat(controller.getRunningQueries()).isZero();
+    }
+
+    @Test
+    public void testGroupsTakeTurns()
+    {
+        QueryAdmissionController controller = new QueryAdmissionController(new QueryAdmissionConfig()
+                .setEnabled(true)
+                .setMaxRunningQueries(2)
+                .setMaxRunningQueriesPerGroup(2)
+                .setMaxQueuedQueriesPerGroup(2)
+                .setQueueTimeout(new Duration(1, DAYS)));
+        try {
+            QueryAdmissionController.Lease first = controller.admit("batch", null).join();
+            QueryAdmissionController.Lease second = controller.admit("batch", null).join();
+            CompletableFuture<QueryAdmissionController.Lease> batch = controller.admit("batch", null);
+            CompletableFuture<QueryAdmissionController.Lease> nextBatch = controller.admit("batch", null);
+            CompletableFuture<QueryAdmissionController.Lease> interactive = controller.admit("interactive", null);
+            assertThat(controller.getQueuedQueries()).isEqualTo(3);
+
+            assertThatThrownBy(() -> controller.admit("batch", null).join())
+                    .hasCauseInstanceOf(AccioException.class)
+                    .hasMessageContaining("Too many queued queries for batch");
+
+            // the batch group queued first, so it takes the first turn
+            first.close();
+            // releasing again is ignored
+            first.close();
+            assertThat(batch).isDone();
+            assertThat(interactive).isNotDone();
+
+            // then the interactive group, even though the batch group queued before it
+            second.close();
+            assertThat(interactive).isDone();
+            assertThat(nextBatch).isNotDone();
+            assertThat(controller.getRunningQueries("batch")).isEqualTo(1);
+            assertThat(controller.getRunningQueries("interactive")).isEqualTo(1);
+
+            batch.join().close();
+            interactive.join().close();
+            nextBatch.join().close();
+            assertThat(controller.getRunningQueries()).isZero();
+            assertThat(controller.getActiveGroups()).isZero();
+            assertThat(controller.getAdmittedQueries().getTotalCount()).isEqualTo(5);
+            assertThat(controller.getRejectedQueries().getTotalCount()).isEqualTo(1);
+        }
+        finally {
+            controller.stop();
+        }
+    }
+
+    @Test
+    public void testQueueTimeout()
+    {
+        QueryAdmissionController controller = new QueryAdmissionController(new QueryAdmissionConfig()
+                .setEnabled(true)
+                .setMaxRunningQueries(1)
+                .setQueueTimeout(new Duration(10, MILLISECONDS)));
+        try {
+            QueryAdmissionController.Lease running = controller.admit("user", null).join();
+            assertThatThrownBy(() -> controller.admit("user", null).join())
+                    .hasCauseInstanceOf(AccioException.class)
+                    .hasMessageContaining("Query was queued for more than");
+            assertThat(controller.getQueuedQueries()).isZero();
+            assertThat(controller.getTimedOutQueries().getTotalCount()).isEqualTo(1);
+            running.close();
+            assertThat(controller.getRunningQueries()).isZero();
+        }
+        finally {
+            controller.stop();
+        }
+    }
+}
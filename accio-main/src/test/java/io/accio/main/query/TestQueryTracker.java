@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static io.accio.main.query.QueryBackend.DATA_SOURCE;
+import static io.accio.main.query.QueryBackend.FAST_PATH;
+import static io.accio.main.query.QueryBackend.RESULT_CACHE;
+import static io.accio.main.query.QueryPhase.EXECUTE;
+import static io.accio.main.query.QueryPhase.PLAN;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestQueryTracker
+{
+    @Test
+    public void testQueryLifecycle()
+    {
+        QueryTracker tracker = new QueryTracker(new QueryTrackerConfig().setMaxHistory(2), new SlowQueryLog(new SlowQueryLogConfig()));
+
+        TrackedQuery query = tracker.start("SELECT 1", Optional.of("user"));
+        query.getTimings().add(PLAN, 100);
+        assertThat(query.getTimings().time(EXECUTE, () -> "result")).isEqualTo("result");
+        query.setBackend(RESULT_CACHE);
+        query.addSentRows(2, 20);
+        assertThat(tracker.getRunningQueries()).containsExactly(query);
+
+        query.finish();
+        // completing twice is ignored
+        query.fail(new RuntimeException("failed"));
+        assertThat(query.getState()).isEqualTo(TrackedQuery.State.FINISHED);
+        assertThat(query.isCacheHit()).contains(true);
+        assertThat(tracker.getRunningQueries()).isEmpty();
+        assertThat(tracker.getCompletedQueries()).containsExactly(query);
+        assertThat(tracker.getPlanTime().getAllTime().getCount()).isEqualTo(1);
+        assertThat(tracker.getExecuteTime().getAllTime().getCount()).isEqualTo(1);
+        assertThat(tracker.getSendTime().getAllTime().getCount()).isZero();
+        assertThat(tracker.getCacheHits().getTotalCount()).isEqualTo(1);
+
+        TrackedQuery failed = tracker.start("SELECT 2", Optional.empty());
+        failed.setBackend(DATA_SOURCE);
+        failed.fail(new RuntimeException("failed"));
+        assertThat(failed.getErrorMessage()).contains("failed");
+        assertThat(tracker.getFailedQueries().getTotalCount()).isEqualTo(1);
+        assertThat(tracker.getCacheMisses().getTotalCount()).isEqualTo(1);
+
+        TrackedQuery fastPath = tracker.start("SELECT version()", Optional.empty());
+        fastPath.setBackend(FAST_PATH);
+        fastPath.finish();
+        assertThat(fastPath.isCacheHit()).isEmpty();
+        assertThat(tracker.getCompletedQueries()).containsExactly(fastPath, failed);
+        assertThat(tracker.getQuery(query.getQueryId())).isEmpty();
+        assertThat(tracker.getQuery(failed.getQueryId())).contains(failed);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.query;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.accio.main.query.QueryBackend.DATA_SOURCE;
+import static io.accio.main.query.QueryPhase.PLAN;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestSlowQueryLog
+{
+    @Test
+    public void testLogSlowQueries()
+            throws IOException
+    {
+        Path path = Files.createTempDirectory("slow-query-log").resolve("slow-query.log");
+        SlowQueryLog slowQueryLog = new SlowQueryLog(new SlowQueryLogConfig()
+                .setEnabled(true)
+                .setPath(path.toString())
+                .setThreshold(new Duration(0, MILLISECONDS)));
+        QueryTracker tracker = new QueryTracker(new QueryTrackerConfig(), slowQueryLog);
+
+        TrackedQuery query = tracker.start("SELECT * FROM Orders", Optional.of("user"));
+        query.getTimings().add(PLAN, 1_500_000);
+        query.setRewrittenStatement("WITH Orders AS (SELECT 1) SELECT * FROM Orders");
+        query.setDialectStatement("WITH Orders AS (SELECT 1) SELECT * FROM Orders");
+        query.setBackend(DATA_SOURCE);
+        query.addSentRows(1, 10);
+        query.finish();
+
+        TrackedQuery failed = tracker.start("SELECT \"quoted\" FROM Orders", Optional.empty());
+        failed.fail(new RuntimeException("failed"));
+        slowQueryLog.stop();
+
+        List<String> lines = Files.readAllLines(path);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0))
+                .startsWith("{\"time\":")
+                .contains("\"queryId\":\"1\"", "\"user\":\"user\"", "\"state\":\"FINISHED\"", "\"reason\":\"slow\"", "\"backend\":\"DATA_SOURCE\"")
+                .contains("\"cacheHit\":false", "\"rows\":1", "\"bytes\":10", "\"phaseMillis\":{\"plan\":1.5}")
+                .contains("\"rewrittenStatement\":\"WITH Orders AS (SELECT 1) SELECT * FROM Orders\"")
+                .doesNotContain("\"error\"");
+        assertThat(lines.get(1))
+                .contains("\"state\":\"FAILED\"", "\"statement\":\"SELECT \\\"quoted\\\" FROM Orders\"", "\"error\":\"failed\"")
+                .doesNotContain("\"user\"", "\"dialectStatement\"");
+    }
+
+    @Test
+    public void testSkipFastQueries()
+            throws IOException
+    {
+        Path path = Files.createTempDirectory("slow-query-log").resolve("slow-query.log");
+        SlowQueryLog slowQueryLog = new SlowQueryLog(new SlowQueryLogConfig()
+                .setEnabled(true)
+                .setPath(path.toString())
+                .setThreshold(new Duration(1, HOURS)));
+        QueryTracker tracker = new QueryTracker(new QueryTrackerConfig(), slowQueryLog);
+        tracker.start("SELECT 1", Optional.empty()).finish();
+        slowQueryLog.stop();
+
+        assertThat(slowQueryLog.getQueuedEntries().getTotalCount()).isZero();
+        assertThat(Files.readAllLines(path)).isEmpty();
+    }
+
+    @Test
+    public void testSkipFailedEntries()
+            throws IOException
+    {
+        FailingWriter writer = new FailingWriter("fail");
+        SlowQueryLog slowQueryLog = new SlowQueryLog(new SlowQueryLogConfig()
+                .setEnabled(true)
+                .setThreshold(new Duration(0, MILLISECONDS)), writer);
+        QueryTracker tracker = new QueryTracker(new QueryTrackerConfig(), slowQueryLog);
+        tracker.start("SELECT 1", Optional.empty()).finish();
+        tracker.start("SELECT 'fail'", Optional.empty()).finish();
+        tracker.start("SELECT 3", Optional.empty()).finish();
+        slowQueryLog.stop();
+
+        assertThat(slowQueryLog.getFailedEntries().getTotalCount()).isEqualTo(1);
+        List<String> lines = writer.toString().lines().collect(toImmutableList());
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"statement\":\"SELECT 1\"");
+        assertThat(lines.get(1)).contains("\"statement\":\"SELECT 3\"");
+    }
+
+    @Test
+    public void testUnwritablePath()
+            throws IOException
+    {
+        Path file = Files.createTempFile("slow-query-log", ".log");
+        assertThatThrownBy(() -> new SlowQueryLog(new SlowQueryLogConfig()
+                .setEnabled(true)
+                .setPath(file.resolve("slow-query.log").toString())))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("is not writable");
+
+        // the path is only opened when the log is enabled
+        new SlowQueryLog(new SlowQueryLogConfig().setPath(file.resolve("slow-query.log").toString())).stop();
+    }
+
+    private static class FailingWriter
+            extends Writer
+    {
+        private final String failOn;
+        private final StringBuilder written = new StringBuilder();
+
+        private FailingWriter(String failOn)
+        {
+            this.failOn = failOn;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length)
+                throws IOException
+        {
+            String str = new String(buffer, offset, length);
+            if (str.contains(failOn)) {
+                throw new IOException("No space left on device");
+            }
+            written.append(str);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        public String toString()
+        {
+            return written.toString();
+        }
+    }
+}
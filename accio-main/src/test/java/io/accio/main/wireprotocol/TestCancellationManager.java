@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import io.accio.base.AccioException;
+import io.accio.base.Cancellation;
+import io.accio.main.PostgresWireProtocolConfig;
+import io.accio.main.query.QueryTracker;
+import io.accio.main.query.QueryTrackerConfig;
+import io.accio.main.query.SlowQueryLog;
+import io.accio.main.query.SlowQueryLogConfig;
+import io.accio.main.query.TrackedQuery;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.accio.base.metadata.StandardErrorCode.EXCEEDED_TIME_LIMIT;
+import static io.accio.base.metadata.StandardErrorCode.USER_CANCELED;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestCancellationManager
+{
+    @Test
+    public void testCancelRequest()
+            throws InterruptedException
+    {
+        CancellationManager manager = new CancellationManager(new PostgresWireProtocolConfig());
+        try {
+            CountDownLatch canceled = new CountDownLatch(1);
+            CancellationManager.BackendKey key = manager.register(canceled::countDown);
+            CancellationManager.BackendKey other = manager.register(() -> {});
+            assertThat(key.getProcessId()).isNotEqualTo(other.getProcessId());
+
+            // a wrong secret key is ignored
+            manager.cancel(key.getProcessId(), key.getSecretKey() + 1);
+            manager.cancel(key.getProcessId(), key.getSecretKey());
+            assertThat(canceled.await(10, SECONDS)).isTrue();
+            assertThat(manager.getCancelRequests().getTotalCount()).isEqualTo(2);
+            assertThat(manager.getInvalidCancelRequests().getTotalCount()).isEqualTo(1);
+
+            manager.unregister(key);
+            manager.unregister(other);
+            assertThat(manager.getSessions()).isZero();
+        }
+        finally {
+            manager.stop();
+        }
+    }
+
+    @Test
+    public void testStatementTimeout()
+            throws InterruptedException
+    {
+        CancellationManager manager = new CancellationManager(new PostgresWireProtocolConfig()
+                .setStatementTimeout(new Duration(10, MILLISECONDS)));
+        QueryTracker tracker = new QueryTracker(new QueryTrackerConfig(), new SlowQueryLog(new SlowQueryLogConfig()));
+        try {
+            Cancellation cancellation = new Cancellation();
+            CountDownLatch canceled = new CountDownLatch(1);
+            cancellation.register(canceled::countDown);
+            manager.startStatementTimeout(tracker.start("SELECT 1", Optional.empty()), cancellation);
+            assertThat(canceled.await(10, SECONDS)).isTrue();
+            assertThatThrownBy(cancellation::checkCanceled)
+                    .isInstanceOf(AccioException.class)
+                    .hasMessageContaining("statement timeout")
+                    .extracting(e -> ((AccioException) e).getErrorCode())
+                    .isEqualTo(EXCEEDED_TIME_LIMIT.toErrorCode());
+
+            // a completed query is not canceled
+            Cancellation completed = new Cancellation();
+            TrackedQuery query = tracker.start("SELECT 2", Optional.empty());
+            manager.startStatementTimeout(query, completed);
+            query.finish();
+            Thread.sleep(100);
+            assertThat(completed.isCanceled()).isFalse();
+            assertThat(manager.getTimedOutQueries().getTotalCount()).isEqualTo(1);
+        }
+        finally {
+            manager.stop();
+        }
+    }
+
+    @Test
+    public void testCancellation()
+    {
+        Cancellation cancellation = new Cancellation();
+        AtomicInteger cancels = new AtomicInteger();
+        Cancellation.Registration registration = cancellation.register(cancels::incrementAndGet);
+        cancellation.register(cancels::incrementAndGet).close();
+        cancellation.cancel();
+        // only the first cancel takes effect
+        cancellation.cancel(EXCEEDED_TIME_LIMIT, "timeout");
+        registration.close();
+        assertThat(cancels.get()).isEqualTo(1);
+        assertThatThrownBy(cancellation::checkCanceled)
+                .extracting(e -> ((AccioException) e).getErrorCode())
+                .isEqualTo(USER_CANCELED.toErrorCode());
+
+        // registered after the cancel, it's called right away
+        cancellation.register(cancels::incrementAndGet);
+        assertThat(cancels.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import io.accio.base.Parameter;
+import io.accio.main.sql.LiteralParameterizer;
+import io.accio.main.sql.ParameterizedStatement;
+import io.trino.sql.SqlFormatter;
+import io.trino.sql.parser.SqlParser;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static io.accio.base.type.BigIntType.BIGINT;
+import static io.accio.base.type.IntegerType.INTEGER;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static io.accio.main.wireprotocol.WireProtocolSession.PARSE_AS_DECIMAL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestLiteralParameterizer
+{
+    private final SqlParser sqlParser = new SqlParser();
+
+    @Test
+    public void testCanonicalStatement()
+    {
+        assertCanonical(
+                "SELECT a FROM t WHERE b = 1 AND c > 2.5",
+                "SELECT a FROM t WHERE b = 3 AND c > 4.5");
+        assertCanonical(
+                "SELECT a FROM t WHERE b IN ('x', 'y') AND c BETWEEN 1 AND 2 AND d LIKE 'a%'",
+                "SELECT a FROM t WHERE b IN ('z', 'w') AND c BETWEEN 3 AND 4 AND d LIKE 'b%'");
+        assertCanonical(
+                "SELECT a FROM t JOIN s ON t.id = s.id AND s.v = 1 GROUP BY a HAVING count(*) > 10",
+                "SELECT a FROM t JOIN s ON t.id = s.id AND s.v = 2 GROUP BY a HAVING count(*) > 20");
+        assertCanonical(
+                "SELECT a FROM t WHERE b IN (SELECT b FROM s WHERE c = 1)",
+                "SELECT a FROM t WHERE b IN (SELECT b FROM s WHERE c = 2)");
+    }
+
+    @Test
+    public void testKeepPlanningLiterals()
+    {
+        assertNotCanonical("SELECT a, 1 FROM t", "SELECT a, 2 FROM t");
+        assertNotCanonical("SELECT a FROM t ORDER BY 1 LIMIT 10", "SELECT a FROM t ORDER BY 2 LIMIT 20");
+        assertNotCanonical("SELECT a FROM t GROUP BY 1", "SELECT a FROM t GROUP BY 2");
+        assertNotCanonical("SELECT a FROM t WHERE 1 = 1", "SELECT a FROM t WHERE 1 = 2");
+        assertNotCanonical("SELECT a FROM t WHERE b = Status.ACTIVE", "SELECT a FROM t WHERE b = Status.INACTIVE");
+        assertNotCanonical(
+                "SELECT * FROM roll_up(Revenue, orderdate, MONTH) WHERE a = 1",
+                "SELECT * FROM roll_up(Revenue, orderdate, YEAR) WHERE a = 1");
+        assertThat(LiteralParameterizer.parameterize(sqlParser.createStatement("SHOW TABLES", PARSE_AS_DECIMAL), true)).isEmpty();
+    }
+
+    @Test
+    public void testStringLiterals()
+    {
+        ParameterizedStatement statement = parameterize("SELECT a FROM t WHERE b = 'x' AND c = 1", false);
+        assertThat(SqlFormatter.formatSql(statement.getStatement())).contains("b = 'x'");
+        assertThat(statement.getSlots()).hasSize(1);
+    }
+
+    @Test
+    public void testBindParameters()
+    {
+        ParameterizedStatement statement = parameterize("SELECT a FROM t WHERE b = ? AND c = 'x' AND d IN (?, 2)", true);
+        assertThat(statement.getClientParameterCount()).isEqualTo(2);
+        List<Parameter> parameters = statement.bind(List.of(new Parameter(INTEGER, 10), new Parameter(INTEGER, 20)));
+        assertThat(parameters).extracting(Parameter::getValue).containsExactly(10, "x", 20, 2L);
+        assertThat(parameters).extracting(Parameter::getType).containsExactly(INTEGER, VARCHAR, INTEGER, BIGINT);
+
+        ParameterizedStatement noLiterals = parameterize("SELECT a FROM t WHERE b = ?", true);
+        assertThat(noLiterals.hasExtractedLiterals()).isFalse();
+    }
+
+    private void assertCanonical(String sql, String other)
+    {
+        assertThat(canonical(sql)).isEqualTo(canonical(other));
+    }
+
+    private void assertNotCanonical(String sql, String other)
+    {
+        assertThat(canonical(sql)).isNotEqualTo(canonical(other));
+    }
+
+    private String canonical(String sql)
+    {
+        return SqlFormatter.formatSql(parameterize(sql, true).getStatement());
+    }
+
+    private ParameterizedStatement parameterize(String sql, boolean parameterizeStringLiterals)
+    {
+        return LiteralParameterizer.parameterize(sqlParser.createStatement(sql, PARSE_AS_DECIMAL), parameterizeStringLiterals).orElseThrow();
+    }
+}
@@ -25,6 +25,8 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.text.MessageFormat;
+import java.util.HashSet;
+import java.util.Set;
 
 import static io.accio.main.pgcatalog.OidHash.functionOid;
 import static io.accio.main.pgcatalog.OidHash.oid;
@@ -289,6 +291,17 @@ public class TestPostgreSqlRewrite
         assertRewrite(format("SELECT %s::regclass", oid("t1")), "SELECT 't1'");
     }
 
+    @Test
+    public void testReferencedPgCatalogTables()
+    {
+        Statement statement = sqlParser.createStatement(
+                "SELECT * FROM pg_catalog.pg_class c JOIN pg_namespace n ON c.relnamespace = n.oid WHERE c.relname IN (SELECT relname FROM canner.s1.t1)",
+                new ParsingOptions(AS_DOUBLE));
+        Set<String> tables = new HashSet<>();
+        PostgreSqlRewrite.rewrite(regObjectFactory, DEFAULT_CATALOG, PG_CATALOG_NAME, statement, tables::add);
+        assertThat(tables).containsExactlyInAnyOrder("pg_class", "pg_namespace");
+    }
+
     void assertTableNameRewriteAndNoRewrite(@Language("SQL") String sqlFormat)
     {
         // sql submitted by pg jdbc will only like `pg_type` and `pg_catalog.pg_type`.
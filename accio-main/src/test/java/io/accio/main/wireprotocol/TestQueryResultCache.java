@@ -0,0 +1,303 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol;
+
+import com.google.common.base.Ticker;
+import io.accio.base.AccioMDL;
+import io.accio.base.CatalogSchemaTableName;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.Parameter;
+import io.accio.base.SessionContext;
+import io.accio.base.dto.Manifest;
+import io.accio.base.dto.Model;
+import io.accio.base.type.PGType;
+import io.accio.base.type.StandardTypes;
+import io.accio.main.QueryResultCacheConfig;
+import io.accio.main.wireprotocol.fastpath.FastPathRecordIterator;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static io.accio.base.CatalogSchemaTableName.catalogSchemaTableName;
+import static io.accio.base.dto.Column.column;
+import static io.accio.base.type.IntegerType.INTEGER;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestQueryResultCache
+{
+    private static final CatalogSchemaTableName ORDERS = catalogSchemaTableName("accio", "test", "Orders");
+    private static final SessionContext SESSION_CONTEXT = SessionContext.builder()
+            .setCatalog("accio")
+            .setSchema("test")
+            .build();
+    private static final AccioMDL MDL = mdl();
+    private static final List<PGType> TYPES = List.of(INTEGER, VARCHAR);
+    private static final List<Object[]> ROWS = List.of(new Object[] {1, "a"}, new Object[] {2, "b"}, new Object[] {3, null});
+
+    @Test
+    public void testHitAndMiss()
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig().setEnabled(true), Ticker.systemTicker());
+        TestingLoader loader = new TestingLoader(ROWS);
+        assertThat(query(cache, MDL, "SELECT * FROM Orders", List.of(), loader)).containsExactlyElementsOf(ROWS);
+        assertThat(query(cache, MDL, "SELECT * FROM Orders", List.of(), loader)).containsExactlyElementsOf(ROWS);
+        assertThat(loader.getLoads()).isEqualTo(1);
+
+        // the parameter values and the mdl are part of the key
+        List<Parameter> parameters = List.of(new Parameter(INTEGER, 1));
+        query(cache, MDL, "SELECT * FROM Orders", parameters, loader);
+        query(cache, MDL, "SELECT * FROM Orders", parameters, loader);
+        assertThat(loader.getLoads()).isEqualTo(2);
+        query(cache, mdl(), "SELECT * FROM Orders", List.of(), loader);
+        assertThat(loader.getLoads()).isEqualTo(3);
+    }
+
+    @Test
+    public void testNonDeterministicStatementIsNotCached()
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig().setEnabled(true), Ticker.systemTicker());
+        for (String sql : List.of(
+                "SELECT *, now() FROM Orders",
+                "SELECT * FROM Orders WHERE orderdate < current_timestamp",
+                "SELECT * FROM Orders ORDER BY RANDOM() LIMIT 1",
+                "SELECT * FROM Orders WHERE name = current_user")) {
+            TestingLoader loader = new TestingLoader(ROWS);
+            query(cache, MDL, sql, List.of(), loader);
+            query(cache, MDL, sql, List.of(), loader);
+            assertThat(loader.getLoads()).as(sql).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testPartiallyReadResultIsNotCached()
+            throws Exception
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig().setEnabled(true), Ticker.systemTicker());
+        TestingLoader loader = new TestingLoader(ROWS);
+        try (ConnectorRecordIterator iterator = cache.query(MDL, SESSION_CONTEXT, "SELECT * FROM Orders", "SELECT * FROM Orders", List.of(), loader).join()) {
+            iterator.next();
+        }
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+        assertThat(loader.getLoads()).isEqualTo(2);
+    }
+
+    @Test
+    public void testTtl()
+    {
+        TestingTicker ticker = new TestingTicker();
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig()
+                .setEnabled(true)
+                .setTtl(new Duration(5, MINUTES)), ticker);
+        TestingLoader loader = new TestingLoader(ROWS);
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+        ticker.advance(4, MINUTES);
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+        assertThat(loader.getLoads()).isEqualTo(1);
+
+        ticker.advance(1, MINUTES);
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+        assertThat(loader.getLoads()).isEqualTo(2);
+    }
+
+    @Test
+    public void testInvalidateOnCachedObjectRefresh()
+    {
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig().setEnabled(true), Ticker.systemTicker());
+        TestingLoader orders = new TestingLoader(ROWS);
+        TestingLoader customer = new TestingLoader(ROWS);
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), orders);
+        query(cache, MDL, "SELECT * FROM Customer", List.of(), customer);
+
+        cache.invalidate(ORDERS);
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), orders);
+        query(cache, MDL, "SELECT * FROM Customer", List.of(), customer);
+        assertThat(orders.getLoads()).isEqualTo(2);
+        assertThat(customer.getLoads()).isEqualTo(1);
+    }
+
+    @Test
+    public void testMemoryCap()
+    {
+        // without a spill directory, results larger than max-memory-rows are not cached
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig()
+                .setEnabled(true)
+                .setMaxMemoryRows(2), Ticker.systemTicker());
+        TestingLoader loader = new TestingLoader(ROWS);
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+        query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+        assertThat(loader.getLoads()).isEqualTo(2);
+
+        TestingLoader small = new TestingLoader(ROWS.subList(0, 2));
+        query(cache, MDL, "SELECT * FROM Customer", List.of(), small);
+        query(cache, MDL, "SELECT * FROM Customer", List.of(), small);
+        assertThat(small.getLoads()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSpillRoundTrip()
+            throws IOException
+    {
+        Path spillDirectory = Files.createTempDirectory("query-result-spill");
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig()
+                .setEnabled(true)
+                .setMaxMemoryRows(1)
+                .setSpillDirectory(spillDirectory.toString()), Ticker.systemTicker());
+        try {
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] {
+                    null, true, (byte) 1, (short) 2, 3, 4L, 5.5f, 6.5d, "text", new BigDecimal("-12345678901234567890.123"),
+                    new byte[] {1, 2, 3}, LocalDate.of(2023, 1, 2), LocalDateTime.of(2023, 1, 2, 3, 4, 5, 6000), Period.of(1, 2, 3),
+                    Arrays.asList(1, null, "a"), Map.of("key", List.of(1L, 2L))});
+            rows.add(new Object[16]);
+            TestingLoader loader = new TestingLoader(rows);
+            query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+            cache.awaitSpills();
+            assertThat(listFiles(spillDirectory)).hasSize(1);
+
+            assertThat(query(cache, MDL, "SELECT * FROM Orders", List.of(), loader)).containsExactlyElementsOf(rows);
+            assertThat(loader.getLoads()).isEqualTo(1);
+
+            // the spilled file is deleted along with the result
+            cache.invalidateAll();
+            assertThat(listFiles(spillDirectory)).isEmpty();
+        }
+        finally {
+            cache.stop();
+            deleteRecursively(spillDirectory, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testUnsupportedValueIsNotSpilled()
+            throws IOException
+    {
+        Path spillDirectory = Files.createTempDirectory("query-result-spill");
+        QueryResultCache cache = new QueryResultCache(new QueryResultCacheConfig()
+                .setEnabled(true)
+                .setMaxMemoryRows(0)
+                .setSpillDirectory(spillDirectory.toString()), Ticker.systemTicker());
+        try {
+            List<Object[]> rows = List.<Object[]>of(new Object[] {new Object()});
+            TestingLoader loader = new TestingLoader(rows);
+            query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+            cache.awaitSpills();
+            assertThat(listFiles(spillDirectory)).isEmpty();
+            query(cache, MDL, "SELECT * FROM Orders", List.of(), loader);
+            assertThat(loader.getLoads()).isEqualTo(2);
+        }
+        finally {
+            cache.stop();
+            deleteRecursively(spillDirectory, ALLOW_INSECURE);
+        }
+    }
+
+    private static List<Object[]> query(QueryResultCache cache, AccioMDL mdl, String sql, List<Parameter> parameters, TestingLoader loader)
+    {
+        List<Object[]> rows = new ArrayList<>();
+        try (ConnectorRecordIterator iterator = cache.query(mdl, SESSION_CONTEXT, sql, sql, parameters, loader).join()) {
+            iterator.forEachRemaining(rows::add);
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return rows;
+    }
+
+    private static List<Path> listFiles(Path directory)
+            throws IOException
+    {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(toImmutableList());
+        }
+    }
+
+    private static AccioMDL mdl()
+    {
+        return AccioMDL.fromManifest(Manifest.builder()
+                .setCatalog("accio")
+                .setSchema("test")
+                .setModels(List.of(model("Orders"), model("Customer")))
+                .build());
+    }
+
+    private static Model model(String name)
+    {
+        return Model.model(name, "SELECT 1 AS orderkey", List.of(column("orderkey", StandardTypes.INTEGER, null, true)), true);
+    }
+
+    private static class TestingLoader
+            implements Supplier<CompletableFuture<ConnectorRecordIterator>>
+    {
+        private final List<Object[]> rows;
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private TestingLoader(List<Object[]> rows)
+        {
+            this.rows = rows;
+        }
+
+        @Override
+        public CompletableFuture<ConnectorRecordIterator> get()
+        {
+            loads.incrementAndGet();
+            return completedFuture(new FastPathRecordIterator(TYPES, rows));
+        }
+
+        public int getLoads()
+        {
+            return loads.get();
+        }
+    }
+
+    private static class TestingTicker
+            extends Ticker
+    {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read()
+        {
+            return nanos.get();
+        }
+
+        public void advance(long duration, TimeUnit unit)
+        {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.fastpath;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.ConnectorRecordIterator;
+import io.accio.base.Parameter;
+import io.accio.main.wireprotocol.fastpath.QueryFingerprint.Slot;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.accio.base.type.IntegerType.INTEGER;
+import static io.accio.base.type.VarcharType.VARCHAR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestFastPathRegistry
+{
+    @Test
+    public void testFingerprint()
+    {
+        QueryFingerprint fingerprint = QueryFingerprint.of("SELECT  typname\n FROM pg_type WHERE oid = 23 AND typname = 'it''s' AND \"Col 1\" = $2;");
+        assertThat(fingerprint.getFingerprint()).isEqualTo("select typname from pg_type where oid=? and typname=? and \"Col 1\"=?");
+        assertThat(fingerprint.getSlots()).containsExactly(Slot.literal("23"), Slot.literal("it's"), Slot.parameter(1));
+
+        assertThat(QueryFingerprint.of("select t1.c2 from t1").getFingerprint()).isEqualTo("select t1.c2 from t1");
+        assertThat(QueryFingerprint.of("SELECT version ( )").getFingerprint())
+                .isEqualTo(QueryFingerprint.of("select version()").getFingerprint());
+    }
+
+    @Test
+    public void testMatch()
+    {
+        assertThat(FastPathRegistry.match("select version()")).isPresent();
+        assertThat(FastPathRegistry.match("SHOW TRANSACTION  ISOLATION LEVEL")).isPresent();
+        assertThat(FastPathRegistry.match("select 1")).isPresent();
+        assertThat(FastPathRegistry.match("select 'a'")).isEmpty();
+        assertThat(FastPathRegistry.match("select * from orders")).isEmpty();
+    }
+
+    @Test
+    public void testTypeLookup()
+    {
+        FastPathStatement statement = FastPathRegistry.match(
+                "SELECT n.nspname = ANY(current_schemas(true)), n.nspname, t.typname\n" +
+                        "FROM pg_catalog.pg_type t\n" +
+                        "JOIN pg_catalog.pg_namespace n ON t.typnamespace = n.oid\n" +
+                        "WHERE t.oid = ?").orElseThrow();
+        assertThat(statement.getParameterTypes(ImmutableList.of(INTEGER.oid()))).containsExactly(INTEGER.oid());
+        assertThat(statement.getParameterTypes(ImmutableList.of())).containsExactly(VARCHAR.oid());
+
+        assertThat(rows(statement.execute(null, ImmutableList.of(new Parameter(INTEGER, INTEGER.oid())))))
+                .containsExactly(new Object[] {true, "pg_catalog", "int4"});
+        assertThat(rows(statement.execute(null, ImmutableList.of(new Parameter(VARCHAR, "-1"))))).isEmpty();
+    }
+
+    private static List<Object[]> rows(ConnectorRecordIterator iterator)
+    {
+        List<Object[]> rows = new ArrayList<>();
+        iterator.forEachRemaining(rows::add);
+        return rows;
+    }
+}
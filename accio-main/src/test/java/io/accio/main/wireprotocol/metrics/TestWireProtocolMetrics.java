@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+import org.weakref.jmx.testing.TestingMBeanServer;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestWireProtocolMetrics
+{
+    @Test
+    public void testTraffic()
+    {
+        MBeanExporter exporter = new MBeanExporter(new TestingMBeanServer());
+        WireProtocolMetrics metrics = new WireProtocolMetrics(1, exporter, new PooledByteBufAllocator(false));
+        ChannelMetricsHandler handler = metrics.newChannelHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        // the startup message arrives before the application is known
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[8]));
+        handler.setApplicationName("psql");
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[6]));
+        handler.messageReceived((byte) 'P');
+        channel.writeOutbound(message('D', 10));
+        channel.writeOutbound(Unpooled.wrappedBuffer(new byte[] {'S'}));
+
+        TrafficStats server = metrics.getServer();
+        TrafficStats psql = metrics.getApplications().get("psql");
+        assertThat(server.getActiveConnections()).isEqualTo(1);
+        assertThat(server.getBytesIn()).isEqualTo(14);
+        assertThat(psql.getBytesIn()).isEqualTo(6);
+        assertThat(server.getParseMessages()).isEqualTo(1);
+        assertThat(psql.getParseMessages()).isEqualTo(1);
+        assertThat(server.getBytesOut()).isEqualTo(12);
+        assertThat(server.getDataRowMessages()).isEqualTo(1);
+        assertThat(server.getMessagesOut()).isEqualTo(1);
+        assertThat(exporter.getExportedObjects()).containsOnlyKeys("io.accio.main.wireprotocol.metrics:name=WireProtocolMetrics,application=\"psql\"");
+
+        // applications beyond the limit are tracked together
+        ChannelMetricsHandler other = metrics.newChannelHandler();
+        new EmbeddedChannel(other).close();
+        other.setApplicationName("DBeaver");
+        assertThat(metrics.getApplications()).containsOnlyKeys("psql", WireProtocolMetrics.OTHER_APPLICATIONS);
+
+        channel.finishAndReleaseAll();
+        assertThat(psql.getActiveConnections()).isZero();
+        assertThat(psql.getTotalConnections()).isEqualTo(1);
+        metrics.stop();
+        assertThat(exporter.getExportedObjects()).isEmpty();
+    }
+
+    @Test
+    public void testApplicationNames()
+    {
+        MBeanExporter exporter = new MBeanExporter(new TestingMBeanServer());
+        WireProtocolMetrics metrics = new WireProtocolMetrics(2, exporter, new PooledByteBufAllocator(false));
+        // the characters with a meaning in object names don't break the export
+        metrics.getApplicationStats("app,type=*:\"1\"");
+        assertThat(exporter.getExportedObjects()).containsOnlyKeys(
+                "io.accio.main.wireprotocol.metrics:name=WireProtocolMetrics,application=\"app,type=\\*:\\\"1\\\"\"");
+
+        // concurrent new applications don't exceed the limit
+        IntStream.range(0, 100).parallel().forEach(i -> metrics.getApplicationStats("app" + i));
+        assertThat(metrics.getApplications()).hasSize(3).containsKey(WireProtocolMetrics.OTHER_APPLICATIONS);
+        metrics.stop();
+        assertThat(exporter.getExportedObjects()).isEmpty();
+    }
+
+    @Test
+    public void testBackpressure()
+    {
+        WireProtocolMetrics metrics = new WireProtocolMetrics(1, new MBeanExporter(new TestingMBeanServer()), new PooledByteBufAllocator(false));
+        EmbeddedChannel channel = new EmbeddedChannel(metrics.newChannelHandler());
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+
+        channel.write(message('D', 20));
+        assertThat(channel.isWritable()).isFalse();
+        channel.flush();
+        assertThat(channel.isWritable()).isTrue();
+        channel.releaseOutbound();
+
+        TrafficStats server = metrics.getServer();
+        assertThat(server.getWritabilityChanges()).isEqualTo(2);
+        // the pending bytes include the overhead of the outbound buffer entries
+        assertThat(server.getPendingOutboundBytesHighWaterMark()).isGreaterThanOrEqualTo(21);
+        assertThat(server.getBackpressureMillis()).isGreaterThanOrEqualTo(0);
+        channel.finishAndReleaseAll();
+    }
+
+    private static ByteBuf message(char type, int length)
+    {
+        ByteBuf buffer = Unpooled.buffer(length + 1);
+        buffer.writeByte(type);
+        buffer.writeInt(length);
+        buffer.writeZero(length - 4);
+        return buffer;
+    }
+}
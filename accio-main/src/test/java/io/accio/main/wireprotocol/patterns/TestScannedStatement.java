@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.main.wireprotocol.patterns;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestScannedStatement
+{
+    @Test
+    public void testStatement()
+    {
+        assertThat(ScannedStatement.scan("  SELECT $1, $23 FROM t1 ; SELECT 2").getStatement()).isEqualTo("SELECT ?, ? FROM t1");
+        assertThat(ScannedStatement.scan("SELECT ';', '$1', \"a;$1\" FROM t1 WHERE c1 = $1").getStatement())
+                .isEqualTo("SELECT ';', '$1', \"a;$1\" FROM t1 WHERE c1 = ?");
+        assertThat(ScannedStatement.scan("SELECT 'it''s;' -- comment; $1\n, c$1, $$body; $1$$, $tag$ $2 $tag$ FROM t1").getStatement())
+                .isEqualTo("SELECT 'it''s;' -- comment; $1\n, c$1, $$body; $1$$, $tag$ $2 $tag$ FROM t1");
+        assertThat(ScannedStatement.scan(";").getStatement()).isEmpty();
+    }
+
+    @Test
+    public void testKeywords()
+    {
+        assertThat(ScannedStatement.scan("/* hint */ begin;").getLeadingKeyword()).isEqualTo("BEGIN");
+        assertThat(ScannedStatement.scan("  ").getLeadingKeyword()).isEmpty();
+
+        ScannedStatement statement = ScannedStatement.scan("select Array(select 'stxkeys')");
+        assertThat(statement.containsWord("array")).isTrue();
+        assertThat(statement.containsWord("stxkeys")).isFalse();
+    }
+}
@@ -32,10 +32,14 @@ import io.airlift.http.server.HttpServerModule;
 import io.airlift.jaxrs.JaxrsModule;
 import io.airlift.json.JsonModule;
 import io.airlift.node.NodeModule;
+import org.weakref.jmx.guice.MBeanModule;
+
+import javax.management.MBeanServer;
 
 import static io.accio.main.AccioConfig.DataSourceType.BIGQUERY;
 import static io.accio.main.AccioConfig.DataSourceType.POSTGRES;
 import static io.airlift.configuration.ConditionalModule.conditionalModule;
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
 
 public class AccioServer
         extends Server
@@ -61,6 +65,8 @@ public class AccioServer
                 new JsonModule(),
                 new JaxrsModule(),
                 new EventModule(),
+                new MBeanModule(),
+                binder -> binder.bind(MBeanServer.class).toInstance(getPlatformMBeanServer()),
                 new PostgresWireProtocolModule(new EmptyTlsDataProvider()),
                 conditionalModule(AccioConfig.class, config -> config.getDataSourceType().equals(BIGQUERY), new BigQueryConnectorModule()),
                 conditionalModule(AccioConfig.class, config -> config.getDataSourceType().equals(POSTGRES), new PostgresConnectorModule()),
@@ -33,6 +33,8 @@ import io.accio.main.connector.bigquery.BigQueryConfig;
 import io.accio.main.connector.bigquery.BigQueryCredentialsSupplier;
 import io.accio.main.connector.bigquery.BigQueryMetadata;
 import io.accio.main.connector.bigquery.BigQuerySqlConverter;
+import io.accio.main.metadata.CachingMetadata;
+import io.accio.main.metadata.ForCachingMetadata;
 import io.accio.main.metadata.Metadata;
 import io.accio.main.pgcatalog.builder.BigQueryPgCatalogTableBuilder;
 import io.accio.main.pgcatalog.builder.BigQueryPgFunctionBuilder;
@@ -52,7 +54,9 @@ public class BigQueryConnectorModule
     @Override
     protected void setup(Binder binder)
     {
-        binder.bind(Metadata.class).to(BigQueryMetadata.class).in(Scopes.SINGLETON);
+        binder.bind(Metadata.class).annotatedWith(ForCachingMetadata.class).to(BigQueryMetadata.class).in(Scopes.SINGLETON);
+        binder.bind(CachingMetadata.class).in(Scopes.SINGLETON);
+        binder.bind(Metadata.class).to(CachingMetadata.class);
         binder.bind(PgCatalogTableBuilder.class).to(BigQueryPgCatalogTableBuilder.class).in(Scopes.SINGLETON);
         binder.bind(PgFunctionBuilder.class).to(BigQueryPgFunctionBuilder.class).in(Scopes.SINGLETON);
         binder.bind(PgMetadata.class).to(BigQueryPgMetadata.class).in(Scopes.SINGLETON);
@@ -73,7 +77,7 @@ public class BigQueryConnectorModule
                 .setLocation(config.getLocation().orElse(null));
         // set credentials of provided
         bigQueryCredentialsSupplier.getCredentials().ifPresent(options::setCredentials);
-        return new BigQueryClient(options.build().getService());
+        return new BigQueryClient(options.build().getService(), config.isQueryUseQueryCache());
     }
 
     @Provides
@@ -20,9 +20,12 @@ import io.accio.base.sql.SqlConverter;
 import io.accio.cache.CacheService;
 import io.accio.connector.postgres.PostgresClient;
 import io.accio.connector.postgres.PostgresConfig;
+import io.accio.connector.postgres.PostgresConnectionPool;
 import io.accio.main.connector.postgres.PostgresCacheService;
 import io.accio.main.connector.postgres.PostgresMetadata;
 import io.accio.main.connector.postgres.PostgresSqlConverter;
+import io.accio.main.metadata.CachingMetadata;
+import io.accio.main.metadata.ForCachingMetadata;
 import io.accio.main.metadata.Metadata;
 import io.accio.main.pgcatalog.builder.PgCatalogTableBuilder;
 import io.accio.main.pgcatalog.builder.PgFunctionBuilder;
@@ -33,6 +36,7 @@ import io.accio.main.pgcatalog.regtype.PostgresPgMetadata;
 import io.airlift.configuration.AbstractConfigurationAwareModule;
 
 import static io.airlift.configuration.ConfigBinder.configBinder;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class PostgresConnectorModule
         extends AbstractConfigurationAwareModule
@@ -40,8 +44,12 @@ public class PostgresConnectorModule
     @Override
     protected void setup(Binder binder)
     {
+        binder.bind(PostgresConnectionPool.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(PostgresConnectionPool.class).withGeneratedName();
         binder.bind(PostgresClient.class).in(Scopes.SINGLETON);
-        binder.bind(Metadata.class).to(PostgresMetadata.class).in(Scopes.SINGLETON);
+        binder.bind(Metadata.class).annotatedWith(ForCachingMetadata.class).to(PostgresMetadata.class).in(Scopes.SINGLETON);
+        binder.bind(CachingMetadata.class).in(Scopes.SINGLETON);
+        binder.bind(Metadata.class).to(CachingMetadata.class);
         binder.bind(SqlConverter.class).to(PostgresSqlConverter.class).in(Scopes.SINGLETON);
         binder.bind(PgCatalogTableBuilder.class).to(PostgresPgCatalogTableBuilder.class).in(Scopes.SINGLETON);
         binder.bind(PgFunctionBuilder.class).to(PostgresPgFunctionBuilder.class).in(Scopes.SINGLETON);
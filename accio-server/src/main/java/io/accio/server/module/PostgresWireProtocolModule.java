@@ -21,14 +21,17 @@ import io.accio.main.PostgresNettyProvider;
 import io.accio.main.PostgresWireProtocolConfig;
 import io.accio.main.pgcatalog.PgCatalogManager;
 import io.accio.main.pgcatalog.regtype.RegObjectFactory;
+import io.accio.main.wireprotocol.CancellationManager;
 import io.accio.main.wireprotocol.PgWireProtocolExtraRewriter;
 import io.accio.main.wireprotocol.PostgresNetty;
+import io.accio.main.wireprotocol.metrics.WireProtocolMetrics;
 import io.accio.main.wireprotocol.ssl.SslContextProvider;
 import io.accio.main.wireprotocol.ssl.TlsDataProvider;
 import io.airlift.configuration.AbstractConfigurationAwareModule;
 import io.trino.sql.parser.SqlParser;
 
 import static io.airlift.configuration.ConfigBinder.configBinder;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class PostgresWireProtocolModule
         extends AbstractConfigurationAwareModule
@@ -49,6 +52,10 @@ public class PostgresWireProtocolModule
         binder.bind(SslContextProvider.class).in(Scopes.SINGLETON);
         binder.bind(PgCatalogManager.class).in(Scopes.SINGLETON);
         binder.bind(RegObjectFactory.class).in((Scopes.SINGLETON));
+        binder.bind(WireProtocolMetrics.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(WireProtocolMetrics.class).withGeneratedName();
+        binder.bind(CancellationManager.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(CancellationManager.class).withGeneratedName();
         binder.bind(PostgresNetty.class).toProvider(PostgresNettyProvider.class).in(Scopes.SINGLETON);
 
         // for cache extra rewrite
@@ -17,6 +17,7 @@ package io.accio.main.server.module;
 import com.google.inject.Binder;
 import io.accio.main.web.AccioExceptionMapper;
 import io.accio.main.web.CacheResource;
+import io.accio.main.web.QueryResource;
 import io.accio.main.web.ReloadResource;
 import io.airlift.configuration.AbstractConfigurationAwareModule;
 
@@ -30,6 +31,7 @@ public class WebModule
     {
         jaxrsBinder(binder).bind(ReloadResource.class);
         jaxrsBinder(binder).bind(CacheResource.class);
+        jaxrsBinder(binder).bind(QueryResource.class);
         jaxrsBinder(binder).bindInstance(new AccioExceptionMapper());
     }
 }
@@ -43,6 +43,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static io.accio.sqlrewrite.Utils.analyzeFrom;
@@ -67,6 +68,19 @@ public class CacheRewrite
             String sql,
             Function<CatalogSchemaTableName, Optional<String>> converter,
             AccioMDL accioMDL)
+    {
+        return rewrite(sessionContext, sql, converter, accioMDL, cachedTable -> {});
+    }
+
+    /**
+     * @param cacheHitListener notified of each cached table the query is routed to
+     */
+    public static Optional<String> rewrite(
+            SessionContext sessionContext,
+            String sql,
+            Function<CatalogSchemaTableName, Optional<String>> converter,
+            AccioMDL accioMDL,
+            Consumer<CatalogSchemaTableName> cacheHitListener)
     {
         try {
             Statement statement = SQL_PARSER.createStatement(sql, new ParsingOptions(AS_DECIMAL));
@@ -74,6 +88,7 @@ public class CacheRewrite
             Statement rewritten = (Statement) new Rewriter(sessionContext, converter, accioMDL, aggregationAnalysis).process(statement, Optional.empty());
             if (rewritten instanceof Query
                     && aggregationAnalysis.onlyCachedTables()) {
+                aggregationAnalysis.getCachedTables().forEach(cacheHitListener);
                 return Optional.of(SqlFormatter.formatSql(rewritten, DUCKDB));
             }
         }
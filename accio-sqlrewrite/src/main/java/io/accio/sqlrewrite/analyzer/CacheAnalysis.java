@@ -34,6 +34,11 @@ public class CacheAnalysis
         this.cachedTables.add(cachedTables);
     }
 
+    public Set<CatalogSchemaTableName> getCachedTables()
+    {
+        return cachedTables;
+    }
+
     public boolean onlyCachedTables()
     {
         return cachedTables.size() > 0 && tables.equals(cachedTables);
@@ -26,9 +26,11 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.text.MessageFormat;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -420,6 +422,34 @@ public class TestCacheRewrite
         assertThat(rewriteCached(sql)).isEmpty();
     }
 
+    @Test
+    public void testCacheHitListener()
+    {
+        SessionContext sessionContext = SessionContext.builder()
+                .setCatalog("accio")
+                .setSchema("test")
+                .build();
+        Set<CatalogSchemaTableName> hits = new HashSet<>();
+        CacheRewrite.rewrite(
+                sessionContext,
+                "SELECT * FROM Collection JOIN AvgCollection ON Collection.author = AvgCollection.author",
+                this::toCacheTable,
+                accioMDL,
+                hits::add);
+        assertThat(hits).containsExactlyInAnyOrder(
+                new CatalogSchemaTableName("accio", "test", "Collection"),
+                new CatalogSchemaTableName("accio", "test", "AvgCollection"));
+
+        hits.clear();
+        CacheRewrite.rewrite(
+                sessionContext,
+                "SELECT * FROM Collection JOIN AvgCollection ON Collection.author = AvgCollection.author",
+                table -> table.getSchemaTableName().getTableName().equals("Collection") ? toCacheTable(table) : Optional.empty(),
+                accioMDL,
+                hits::add);
+        assertThat(hits).isEmpty();
+    }
+
     private void assertOneTable(String sqlFormat, OneTableTestData testData)
     {
         assertRewrite(MessageFormat.format(sqlFormat, testData.table),
@@ -39,6 +39,7 @@ import io.airlift.http.server.testing.TestingHttpServerModule;
 import io.airlift.jaxrs.JaxrsModule;
 import io.airlift.json.JsonModule;
 import io.airlift.node.NodeModule;
+import org.weakref.jmx.testing.TestingMBeanModule;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -81,6 +82,7 @@ public class TestingAccioServer
                 new JsonModule(),
                 new JaxrsModule(),
                 new EventModule(),
+                new TestingMBeanModule(),
                 new PostgresWireProtocolModule(new EmptyTlsDataProvider()),
                 conditionalModule(AccioConfig.class, config -> config.getDataSourceType().equals(BIGQUERY), new BigQueryConnectorModule()),
                 conditionalModule(AccioConfig.class, config -> config.getDataSourceType().equals(POSTGRES), new PostgresConnectorModule()),
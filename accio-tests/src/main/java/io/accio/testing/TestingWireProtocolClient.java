@@ -35,6 +35,7 @@ import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -55,13 +56,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class TestingWireProtocolClient
         implements AutoCloseable
 {
+    private final InetSocketAddress address;
     private final Socket socketClient;
     private final InputStream in;
     private final OutputStream out;
+    private int processId;
+    private int secretKey;
 
     public TestingWireProtocolClient(InetSocketAddress isa)
             throws IOException
     {
+        this.address = isa;
         this.socketClient = new Socket();
         socketClient.setSoTimeout(60000);
         socketClient.connect(isa);
@@ -587,6 +592,63 @@ public class TestingWireProtocolClient
         assertThat(readyForQueryResponse).isEqualTo(new byte[] {'Z', 0, 0, 0, 5, (byte) state});
     }
 
+    /**
+     * BackendKeyData (B)
+     * Byte1('K')
+     * Identifies the message as cancellation key data.
+     * <p>
+     * Int32(12)
+     * Length of message contents in bytes, including self.
+     * <p>
+     * Int32
+     * The process ID of this backend.
+     * <p>
+     * Int32
+     * The secret key of this backend.
+     */
+    public void assertBackendKeyData()
+            throws IOException
+    {
+        byte[] header = readBytes(5);
+        assertThat(header).isEqualTo(new byte[] {'K', 0, 0, 0, 12});
+        ByteBuffer body = ByteBuffer.wrap(readBytes(8));
+        processId = body.getInt();
+        secretKey = body.getInt();
+    }
+
+    /**
+     * CancelRequest (F)
+     * Int32(16)
+     * Length of message contents in bytes, including self.
+     * <p>
+     * Int32(80877102)
+     * The cancel request code.
+     * <p>
+     * Int32
+     * The process ID of the target backend.
+     * <p>
+     * Int32
+     * The secret key for the target backend.
+     * <p>
+     * It's sent on a new connection with the key read by {@link #assertBackendKeyData()}.
+     */
+    public void sendCancelRequest()
+            throws IOException
+    {
+        try (Socket socket = new Socket()) {
+            socket.connect(address);
+            ByteBuf buffer = Unpooled.buffer();
+            buffer.writeInt(16);
+            buffer.writeInt(80877102);
+            buffer.writeInt(processId);
+            buffer.writeInt(secretKey);
+            socket.getOutputStream().write(buffer.array(), 0, 16);
+            socket.getOutputStream().flush();
+            // the server closes the connection once the request is handled
+            assertThat(socket.getInputStream().read()).isEqualTo(-1);
+        }
+    }
+
     /**
      * CommandComplete (B)
      * Byte1('C')
@@ -834,6 +896,35 @@ public class TestingWireProtocolClient
         }
     }
 
+    public static class QueryResponse
+    {
+        private final long rows;
+        private final long bytes;
+        private final Optional<ErrorResponse> error;
+
+        private QueryResponse(long rows, long bytes, ErrorResponse error)
+        {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.error = Optional.ofNullable(error);
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public Optional<ErrorResponse> getError()
+        {
+            return error;
+        }
+    }
+
     /**
      * RowDescription (B)
      * Byte1('T')
@@ -1030,17 +1121,56 @@ public class TestingWireProtocolClient
             throws IOException
     {
         byte[] bytes = new byte[length];
-        in.read(bytes);
+        // a large message could arrive in several packets
+        in.readNBytes(bytes, 0, length);
         return bytes;
     }
 
+    /**
+     * Reads and discards the backend messages until ReadyForQuery, e.g. the whole response to a simple query or to a
+     * batch of extended query messages ending with Sync. Only the data rows, the received bytes and the first error
+     * are kept, which is all a load test needs to know about a query.
+     */
+    public QueryResponse readUntilReadyForQuery()
+            throws IOException
+    {
+        long rows = 0;
+        long bytes = 0;
+        ErrorResponse error = null;
+        while (true) {
+            byte[] header = readBytes(5);
+            byte type = header[0];
+            int length = ByteBuffer.wrap(header, 1, 4).getInt();
+            byte[] body = readBytes(length - 4);
+            bytes += length + 1;
+            switch (type) {
+                case 'D':
+                    rows++;
+                    break;
+                case 'E':
+                    if (error == null) {
+                        error = parseErrorResponse(ByteBuffer.wrap(body));
+                    }
+                    break;
+                case 'Z':
+                    return new QueryResponse(rows, bytes, error);
+                default:
+                    // other messages don't matter here
+            }
+        }
+    }
+
     public ErrorResponse readErrorResponse()
             throws IOException
     {
         assertThat(readBytes(1)).isEqualTo(new byte[] {'E'});
         int length = ByteBuffer.wrap(readBytes(4)).getInt();
+        return parseErrorResponse(ByteBuffer.wrap(readBytes(length - 4)));
+    }
+
+    private static ErrorResponse parseErrorResponse(ByteBuffer buffer)
+    {
         ErrorResponse errorResponse = new ErrorResponse();
-        ByteBuffer buffer = ByteBuffer.wrap(readBytes(length - 4));
         while (buffer.hasRemaining()) {
             byte id = buffer.get();
             // https://www.postgresql.org/docs/9.3/protocol-error-fields.html
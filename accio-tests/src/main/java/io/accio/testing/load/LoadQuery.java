@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.testing.load;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.type.PGType;
+import io.accio.testing.TestingWireProtocolClient;
+import io.accio.testing.TestingWireProtocolClient.Parameter;
+import io.accio.testing.TestingWireProtocolClient.QueryResponse;
+import org.intellij.lang.annotations.Language;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.accio.testing.TestingWireProtocolClient.DescribeType.PORTAL;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A query of a load test workload. Each query is picked with a probability proportional to its weight.
+ */
+public class LoadQuery
+{
+    public enum Protocol
+    {
+        SIMPLE,
+        EXTENDED,
+    }
+
+    private final String name;
+    private final Protocol protocol;
+    private final String sql;
+    private final List<PGType<?>> parameterTypes;
+    private final Function<Random, List<Parameter>> parameters;
+    private final int weight;
+
+    public static LoadQuery simpleQuery(String name, @Language("SQL") String sql, int weight)
+    {
+        return new LoadQuery(name, Protocol.SIMPLE, sql, ImmutableList.of(), random -> ImmutableList.of(), weight);
+    }
+
+    /**
+     * @param parameters generates the parameters of each execution, so the literals can vary between executions like
+     * they do with a real client.
+     */
+    public static LoadQuery extendedQuery(String name, @Language("SQL") String sql, List<PGType<?>> parameterTypes, Function<Random, List<Parameter>> parameters, int weight)
+    {
+        return new LoadQuery(name, Protocol.EXTENDED, sql, parameterTypes, parameters, weight);
+    }
+
+    private LoadQuery(String name, Protocol protocol, String sql, List<PGType<?>> parameterTypes, Function<Random, List<Parameter>> parameters, int weight)
+    {
+        this.name = requireNonNull(name, "name is null");
+        this.protocol = requireNonNull(protocol, "protocol is null");
+        this.sql = requireNonNull(sql, "sql is null");
+        this.parameterTypes = ImmutableList.copyOf(requireNonNull(parameterTypes, "parameterTypes is null"));
+        this.parameters = requireNonNull(parameters, "parameters is null");
+        checkArgument(weight > 0, "weight must be positive");
+        this.weight = weight;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Protocol getProtocol()
+    {
+        return protocol;
+    }
+
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Sends the query and reads the whole response. The extended protocol uses the unnamed statement and portal,
+     * like the JDBC driver does for a statement executed once.
+     */
+    QueryResponse execute(TestingWireProtocolClient client, Random random)
+            throws IOException
+    {
+        switch (protocol) {
+            case SIMPLE:
+                client.sendSimpleQuery(sql);
+                break;
+            case EXTENDED:
+                client.sendParse("", sql, parameterTypes.stream().map(PGType::oid).collect(toImmutableList()));
+                client.sendBind("", "", parameters.apply(random));
+                client.sendDescribe(PORTAL, "");
+                client.sendExecute("", 0);
+                client.sendSync();
+                break;
+        }
+        return client.readUntilReadyForQuery();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("name", name)
+                .add("protocol", protocol)
+                .add("sql", sql)
+                .add("weight", weight)
+                .toString();
+    }
+}
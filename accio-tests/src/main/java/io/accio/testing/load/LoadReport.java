@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.testing.load;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.units.DataSize.succinctBytes;
+import static io.airlift.units.Duration.succinctNanos;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * The outcome of a {@link WireProtocolLoadGenerator} run. The server runs in the same JVM as the load generator,
+ * so the allocation excludes the threads of the load generator but is otherwise process wide.
+ */
+public class LoadReport
+{
+    private final int connections;
+    private final Duration elapsed;
+    private final Map<String, QueryStats> queryStats;
+    private final QueryStats total;
+    private final DataSize serverAllocation;
+    private final DataSize peakHeap;
+
+    LoadReport(int connections, Duration elapsed, Map<String, QueryStats> queryStats, DataSize serverAllocation, DataSize peakHeap)
+    {
+        this.connections = connections;
+        this.elapsed = requireNonNull(elapsed, "elapsed is null");
+        this.queryStats = ImmutableMap.copyOf(requireNonNull(queryStats, "queryStats is null"));
+        this.total = QueryStats.merge(queryStats.values());
+        this.serverAllocation = requireNonNull(serverAllocation, "serverAllocation is null");
+        this.peakHeap = requireNonNull(peakHeap, "peakHeap is null");
+    }
+
+    public int getConnections()
+    {
+        return connections;
+    }
+
+    public Duration getElapsed()
+    {
+        return elapsed;
+    }
+
+    public Map<String, QueryStats> getQueryStats()
+    {
+        return queryStats;
+    }
+
+    public QueryStats getTotal()
+    {
+        return total;
+    }
+
+    public double getQueriesPerSecond()
+    {
+        return total.getCount() / elapsed.getValue(SECONDS);
+    }
+
+    public DataSize getServerAllocation()
+    {
+        return serverAllocation;
+    }
+
+    public DataSize getServerAllocationRate()
+    {
+        return succinctBytes((long) (serverAllocation.toBytes() / elapsed.getValue(SECONDS)));
+    }
+
+    public DataSize getPeakHeap()
+    {
+        return peakHeap;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(format("%d connections, %s, %.1f queries/s, %d errors%n", connections, elapsed.convertToMostSuccinctTimeUnit(), getQueriesPerSecond(), total.getErrors()));
+        builder.append(format("server allocation rate %s/s, peak heap %s%n", getServerAllocationRate(), peakHeap));
+        builder.append(format("%-20s %10s %8s %12s %12s %10s %10s %10s %10s%n", "query", "count", "errors", "rows", "bytes", "p50", "p90", "p99", "max"));
+        for (Map.Entry<String, QueryStats> entry : queryStats.entrySet()) {
+            appendStats(builder, entry.getKey(), entry.getValue());
+        }
+        appendStats(builder, "total", total);
+        return builder.toString();
+    }
+
+    private static void appendStats(StringBuilder builder, String name, QueryStats stats)
+    {
+        builder.append(format("%-20s %10d %8d %12d %12s %10s %10s %10s %10s%n",
+                name,
+                stats.getCount(),
+                stats.getErrors(),
+                stats.getRows(),
+                succinctBytes(stats.getBytes()),
+                stats.getLatency(0.5).convertToMostSuccinctTimeUnit(),
+                stats.getLatency(0.9).convertToMostSuccinctTimeUnit(),
+                stats.getLatency(0.99).convertToMostSuccinctTimeUnit(),
+                stats.getLatency(1).convertToMostSuccinctTimeUnit()));
+    }
+
+    public static class QueryStats
+    {
+        private final long[] sortedLatencies;
+        private final long errors;
+        private final long rows;
+        private final long bytes;
+
+        QueryStats(long[] latencies, long errors, long rows, long bytes)
+        {
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+            this.errors = errors;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+
+        private static QueryStats merge(Iterable<QueryStats> stats)
+        {
+            long[] latencies = new long[0];
+            long errors = 0;
+            long rows = 0;
+            long bytes = 0;
+            for (QueryStats stat : stats) {
+                int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + stat.sortedLatencies.length);
+                System.arraycopy(stat.sortedLatencies, 0, latencies, offset, stat.sortedLatencies.length);
+                errors += stat.errors;
+                rows += stat.rows;
+                bytes += stat.bytes;
+            }
+            return new QueryStats(latencies, errors, rows, bytes);
+        }
+
+        public long getCount()
+        {
+            return sortedLatencies.length;
+        }
+
+        public long getErrors()
+        {
+            return errors;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        /**
+         * @param percentile between 0 and 1, using the nearest rank
+         */
+        public Duration getLatency(double percentile)
+        {
+            checkArgument(percentile >= 0 && percentile <= 1, "percentile must be between 0 and 1");
+            if (sortedLatencies.length == 0) {
+                return succinctNanos(0);
+            }
+            int rank = (int) Math.ceil(percentile * sortedLatencies.length);
+            return succinctNanos(sortedLatencies[Math.max(rank, 1) - 1]);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.testing.load;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.management.ThreadMXBean;
+import io.accio.testing.TestingWireProtocolClient;
+import io.accio.testing.TestingWireProtocolClient.QueryResponse;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static io.airlift.units.DataSize.succinctBytes;
+import static io.airlift.units.Duration.nanosSince;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Drives sustained load against the wire protocol of a running accio server: each connection issues queries picked
+ * from a weighted workload until the run duration is over. The warmup runs the same workload without recording
+ * anything, so the JIT and the caches of the server are warm when the measurement starts.
+ */
+public class WireProtocolLoadGenerator
+{
+    private static final Logger LOG = Logger.get(WireProtocolLoadGenerator.class);
+    private static final int PROTOCOL_VERSION = 196608;
+
+    private final HostAndPort address;
+    private final String user;
+    private final String password;
+    private final String database;
+    private final int connections;
+    private final Duration warmup;
+    private final Duration duration;
+    private final List<LoadQuery> queries;
+    private final int totalWeight;
+    private final long seed;
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    private WireProtocolLoadGenerator(Builder builder)
+    {
+        this.address = requireNonNull(builder.address, "address is null");
+        this.user = requireNonNull(builder.user, "user is null");
+        this.password = requireNonNull(builder.password, "password is null");
+        this.database = requireNonNull(builder.database, "database is null");
+        checkArgument(builder.connections > 0, "connections must be positive");
+        this.connections = builder.connections;
+        this.warmup = requireNonNull(builder.warmup, "warmup is null");
+        this.duration = requireNonNull(builder.duration, "duration is null");
+        this.queries = builder.queries.build();
+        checkArgument(!queries.isEmpty(), "queries is empty");
+        this.totalWeight = queries.stream().mapToInt(LoadQuery::getWeight).sum();
+        this.seed = builder.seed;
+    }
+
+    public LoadReport run()
+    {
+        ExecutorService executor = newFixedThreadPool(connections, new ThreadFactoryBuilder().setNameFormat("load-generator-%s").setDaemon(true).build());
+        try {
+            if (warmup.toMillis() > 0) {
+                LOG.info("Warming up %s connections for %s", connections, warmup);
+                // a different seed, so the measurement doesn't replay the warmup queries
+                runPhase(executor, warmup, ~seed);
+            }
+
+            Set<Long> loadThreads = ConcurrentHashMap.newKeySet();
+            loadThreads.add(Thread.currentThread().getId());
+            List<MemoryPoolMXBean> heapPools = heapPools();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            Map<Long, Long> allocationBefore = threadAllocations();
+
+            LOG.info("Running %s connections for %s", connections, duration);
+            long start = System.nanoTime();
+            List<Map<String, Recorder>> recorders = runPhase(executor, duration, seed, loadThreads);
+            Duration elapsed = nanosSince(start);
+
+            // the pool threads are still alive, so their allocation can be told apart from the server's
+            Map<Long, Long> allocationAfter = threadAllocations();
+            long serverAllocation = allocationAfter.entrySet().stream()
+                    .filter(entry -> !loadThreads.contains(entry.getKey()))
+                    .mapToLong(entry -> entry.getValue() - allocationBefore.getOrDefault(entry.getKey(), 0L))
+                    .sum();
+            long peakHeap = heapPools.stream()
+                    .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                    .sum();
+
+            return new LoadReport(connections, elapsed, merge(recorders), succinctBytes(serverAllocation), succinctBytes(peakHeap));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Map<String, Recorder>> runPhase(ExecutorService executor, Duration phaseDuration, long phaseSeed)
+    {
+        return runPhase(executor, phaseDuration, phaseSeed, ConcurrentHashMap.newKeySet());
+    }
+
+    private List<Map<String, Recorder>> runPhase(ExecutorService executor, Duration phaseDuration, long phaseSeed, Set<Long> loadThreads)
+    {
+        long deadline = System.nanoTime() + phaseDuration.roundTo(NANOSECONDS);
+        List<Future<Map<String, Recorder>>> futures = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Random random = new Random(phaseSeed + i);
+            futures.add(executor.submit(() -> {
+                loadThreads.add(Thread.currentThread().getId());
+                return runConnection(deadline, random);
+            }));
+        }
+
+        ImmutableList.Builder<Map<String, Recorder>> recorders = ImmutableList.builder();
+        for (Future<Map<String, Recorder>> future : futures) {
+            try {
+                recorders.add(future.get());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            catch (ExecutionException e) {
+                throwIfUnchecked(e.getCause());
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return recorders.build();
+    }
+
+    private Map<String, Recorder> runConnection(long deadline, Random random)
+    {
+        Map<String, Recorder> recorders = new HashMap<>();
+        try (TestingWireProtocolClient client = new TestingWireProtocolClient(new InetSocketAddress(address.getHost(), address.getPort()))) {
+            client.sendStartUpMessage(PROTOCOL_VERSION, password, database, user);
+            QueryResponse startUp = client.readUntilReadyForQuery();
+            checkState(startUp.getError().isEmpty(), "Failed to connect: %s", startUp.getError().map(TestingWireProtocolClient.ErrorResponse::getMessage).orElse(""));
+
+            while (System.nanoTime() < deadline) {
+                LoadQuery query = pick(random);
+                long start = System.nanoTime();
+                QueryResponse response = query.execute(client, random);
+                recorders.computeIfAbsent(query.getName(), name -> new Recorder())
+                        .record(System.nanoTime() - start, response);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return recorders;
+    }
+
+    private LoadQuery pick(Random random)
+    {
+        int value = random.nextInt(totalWeight);
+        for (LoadQuery query : queries) {
+            value -= query.getWeight();
+            if (value < 0) {
+                return query;
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    private Map<String, LoadReport.QueryStats> merge(List<Map<String, Recorder>> recorders)
+    {
+        Map<String, LoadReport.QueryStats> stats = new LinkedHashMap<>();
+        for (LoadQuery query : queries) {
+            Recorder merged = new Recorder();
+            recorders.stream()
+                    .map(recorder -> recorder.get(query.getName()))
+                    .filter(Objects::nonNull)
+                    .forEach(merged::addAll);
+            stats.put(query.getName(), merged.toStats());
+        }
+        return ImmutableMap.copyOf(stats);
+    }
+
+    private static List<MemoryPoolMXBean> heapPools()
+    {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .collect(toImmutableList());
+    }
+
+    private static Map<Long, Long> threadAllocations()
+    {
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        long[] allocations = threadMXBean.getThreadAllocatedBytes(threadIds);
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < threadIds.length; i++) {
+            // -1 for a thread that died in the meantime
+            if (allocations[i] >= 0) {
+                result.put(threadIds[i], allocations[i]);
+            }
+        }
+        return result;
+    }
+
+    private static class Recorder
+    {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private long rows;
+        private long bytes;
+
+        private void record(long latencyNanos, QueryResponse response)
+        {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (response.getError().isPresent()) {
+                errors++;
+            }
+            rows += response.getRows();
+            bytes += response.getBytes();
+        }
+
+        private void addAll(Recorder other)
+        {
+            for (int i = 0; i < other.count; i++) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = other.latencies[i];
+            }
+            errors += other.errors;
+            rows += other.rows;
+            bytes += other.bytes;
+        }
+
+        private LoadReport.QueryStats toStats()
+        {
+            return new LoadReport.QueryStats(Arrays.copyOf(latencies, count), errors, rows, bytes);
+        }
+    }
+
+    public static class Builder
+    {
+        private HostAndPort address;
+        private String user = "accio";
+        private String password = "ignored";
+        private String database = "accio";
+        private int connections = 8;
+        private Duration warmup = new Duration(5, SECONDS);
+        private Duration duration = new Duration(30, SECONDS);
+        private final ImmutableList.Builder<LoadQuery> queries = ImmutableList.builder();
+        private long seed = 42;
+
+        public Builder setAddress(HostAndPort address)
+        {
+            this.address = address;
+            return this;
+        }
+
+        public Builder setUser(String user)
+        {
+            this.user = user;
+            return this;
+        }
+
+        public Builder setPassword(String password)
+        {
+            this.password = password;
+            return this;
+        }
+
+        public Builder setDatabase(String database)
+        {
+            this.database = database;
+            return this;
+        }
+
+        public Builder setConnections(int connections)
+        {
+            this.connections = connections;
+            return this;
+        }
+
+        public Builder setWarmup(Duration warmup)
+        {
+            this.warmup = warmup;
+            return this;
+        }
+
+        public Builder setDuration(Duration duration)
+        {
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder addQuery(LoadQuery query)
+        {
+            this.queries.add(query);
+            return this;
+        }
+
+        public Builder addQueries(List<LoadQuery> queries)
+        {
+            this.queries.addAll(queries);
+            return this;
+        }
+
+        public Builder setSeed(long seed)
+        {
+            this.seed = seed;
+            return this;
+        }
+
+        public WireProtocolLoadGenerator build()
+        {
+            return new WireProtocolLoadGenerator(this);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import com.google.common.io.Closer;
 import com.google.inject.Key;
 import io.accio.base.CatalogSchemaTableName;
 import io.accio.cache.TaskInfo;
+import io.accio.cache.dto.CachedTableStats;
 import io.accio.main.web.dto.ErrorMessageDto;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpClientConfig;
@@ -54,6 +55,7 @@ public abstract class RequireAccioServer
 
     public static final JsonCodec<TaskInfo> TASK_INFO_CODEC = jsonCodec(TaskInfo.class);
     public static final JsonCodec<List<TaskInfo>> TASK_INFO_LIST_CODEC = listJsonCodec(TaskInfo.class);
+    public static final JsonCodec<CachedTableStats> CACHED_TABLE_STATS_CODEC = jsonCodec(CachedTableStats.class);
     private static final JsonCodec<ErrorMessageDto> ERROR_CODEC = jsonCodec(ErrorMessageDto.class);
 
     public RequireAccioServer() {}
@@ -142,6 +144,19 @@ public abstract class RequireAccioServer
         return TASK_INFO_CODEC.fromJson(response.getBody());
     }
 
+    protected CachedTableStats getCachedTableStats(CatalogSchemaTableName name)
+    {
+        Request request = prepareGet()
+                .setUri(server().getHttpServerBasedUrl().resolve(format("/v1/cache/stats/%s/%s/%s",
+                        name.getCatalogName(), name.getSchemaTableName().getSchemaName(), name.getSchemaTableName().getTableName())))
+                .build();
+        StringResponseHandler.StringResponse response = executeHttpRequest(request, createStringResponseHandler());
+        if (response.getStatusCode() != 200) {
+            getWebApplicationException(response);
+        }
+        return CACHED_TABLE_STATS_CODEC.fromJson(response.getBody());
+    }
+
     public <T, E extends Exception> T executeHttpRequest(Request request, ResponseHandler<T, E> responseHandler)
             throws E
     {
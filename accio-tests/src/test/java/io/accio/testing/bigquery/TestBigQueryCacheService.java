@@ -92,6 +92,10 @@ public class TestBigQueryCacheService
         String bucketName = bigQueryConfig.getBucketName().orElseThrow(AssertionError::new);
         String prefix = getTableLocationPrefix(pathInfo.get().getPath()).orElseThrow(AssertionError::new);
         assertThat(gcsStorageClient.checkFolderExists(bucketName, prefix)).isTrue();
+        // folder placeholders are not listed as files
+        assertThat(bigQueryCacheService.listTargetFiles(pathInfo.get()))
+                .isNotEmpty()
+                .allMatch(name -> name.startsWith(prefix) && name.endsWith(".parquet"));
         bigQueryCacheService.deleteTarget(pathInfo.get());
         assertThat(gcsStorageClient.checkFolderExists(bucketName, prefix)).isFalse();
     }
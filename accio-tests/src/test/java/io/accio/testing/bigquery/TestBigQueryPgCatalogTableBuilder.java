@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.testing.bigquery;
+
+import com.google.api.gax.rpc.HeaderProvider;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
+import io.accio.base.AccioMDL;
+import io.accio.connector.bigquery.BigQueryClient;
+import io.accio.main.connector.bigquery.BigQueryConfig;
+import io.accio.main.connector.bigquery.BigQueryCredentialsSupplier;
+import io.accio.main.connector.bigquery.BigQueryMetadata;
+import io.accio.main.pgcatalog.builder.BigQueryPgCatalogTableBuilder;
+import io.accio.main.pgcatalog.table.PgAmTable;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static io.accio.base.Utils.randomIntString;
+import static io.accio.main.pgcatalog.PgCatalogUtils.CONTENT_HASH_LABEL;
+import static io.accio.main.server.module.BigQueryConnectorModule.createHeaderProvider;
+import static io.accio.main.server.module.BigQueryConnectorModule.provideBigQuery;
+import static io.accio.main.server.module.BigQueryConnectorModule.provideBigQueryCredentialsSupplier;
+import static java.lang.String.format;
+import static java.lang.System.getenv;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestBigQueryPgCatalogTableBuilder
+{
+    private final BigQueryClient bigQueryClient;
+    private final BigQueryMetadata bigQueryMetadata;
+
+    private TestBigQueryPgCatalogTableBuilder()
+    {
+        BigQueryConfig bigQueryConfig = new BigQueryConfig();
+        bigQueryConfig.setLocation("asia-east1")
+                .setCredentialsKey(getenv("TEST_BIG_QUERY_CREDENTIALS_BASE64_JSON"))
+                .setProjectId(getenv("TEST_BIG_QUERY_PROJECT_ID"))
+                .setMetadataSchemaPrefix(format("test_%s_", randomIntString()));
+        BigQueryCredentialsSupplier bigQueryCredentialsSupplier = provideBigQueryCredentialsSupplier(bigQueryConfig);
+        HeaderProvider headerProvider = createHeaderProvider();
+        this.bigQueryClient = provideBigQuery(bigQueryConfig, headerProvider, bigQueryCredentialsSupplier);
+        this.bigQueryMetadata = new BigQueryMetadata(bigQueryClient, bigQueryConfig);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void cleanup()
+    {
+        bigQueryClient.dropDatasetWithAllContent(DatasetId.of(bigQueryMetadata.getPgCatalogName()));
+        bigQueryMetadata.stop();
+    }
+
+    @Test
+    public void testContentHashLabel()
+    {
+        bigQueryMetadata.createSchema(bigQueryMetadata.getPgCatalogName());
+        TableId tableId = TableId.of(bigQueryMetadata.getPgCatalogName(), PgAmTable.NAME);
+
+        BigQueryPgCatalogTableBuilder builder = new BigQueryPgCatalogTableBuilder(bigQueryMetadata, () -> AccioMDL.EMPTY, bigQueryClient);
+        builder.prepare(true);
+        builder.createPgTable(new PgAmTable());
+        Table created = bigQueryClient.getTable(tableId);
+        assertThat(created.getLabels()).containsKey(CONTENT_HASH_LABEL);
+
+        // a new builder reads the hash back from the label and leaves the view untouched
+        builder = new BigQueryPgCatalogTableBuilder(bigQueryMetadata, () -> AccioMDL.EMPTY, bigQueryClient);
+        builder.prepare(true);
+        builder.createPgTable(new PgAmTable());
+        Table skipped = bigQueryClient.getTable(tableId);
+        assertThat(skipped.getLastModifiedTime()).isEqualTo(created.getLastModifiedTime());
+        assertThat(skipped.getLabels()).isEqualTo(created.getLabels());
+    }
+}
@@ -22,6 +22,7 @@ import io.accio.base.Parameter;
 import io.accio.base.SessionContext;
 import io.accio.base.client.duckdb.DuckdbClient;
 import io.accio.cache.TaskInfo;
+import io.accio.cache.dto.CachedTableStats;
 import io.accio.main.AccioMetastore;
 import io.accio.sqlrewrite.CacheRewrite;
 import org.testng.annotations.Test;
@@ -123,6 +124,12 @@ public class TestCache
                 assertThat(resultSet.next()).isFalse();
             }
         }
+
+        CachedTableStats stats = getCachedTableStats(catalogSchemaTableName("canner-cml", "tpch_tiny", "Revenue"));
+        assertThat(stats.getCacheQueries()).isGreaterThanOrEqualTo(2);
+        assertThat(stats.getRows()).isPositive();
+        assertThat(stats.getLastRefreshDate()).isPresent();
+        assertThat(stats.getRefreshes()).isPositive();
     }
 
     @Test
@@ -43,6 +43,11 @@ public abstract class AbstractWireProtocolTestWithPostgres
                 .build();
     }
 
+    protected TestingPostgreSqlServer getTestingPostgreSqlServer()
+    {
+        return testingPostgreSqlServer;
+    }
+
     @Override
     protected String getDefaultCatalog()
     {
@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.accio.testing.postgres;
+
+import com.google.common.collect.ImmutableList;
+import io.accio.base.dto.Manifest;
+import io.accio.base.type.IntegerType;
+import io.accio.testing.load.LoadQuery;
+import io.accio.testing.load.LoadReport;
+import io.accio.testing.load.WireProtocolLoadGenerator;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static io.accio.base.AccioTypes.DATE;
+import static io.accio.base.AccioTypes.DOUBLE;
+import static io.accio.base.AccioTypes.INTEGER;
+import static io.accio.base.AccioTypes.VARCHAR;
+import static io.accio.base.dto.Column.column;
+import static io.accio.base.dto.Column.relationshipColumn;
+import static io.accio.base.dto.JoinType.MANY_TO_ONE;
+import static io.accio.base.dto.Model.model;
+import static io.accio.base.dto.Relationship.relationship;
+import static io.accio.testing.TestingWireProtocolClient.Parameter.textParameter;
+import static io.accio.testing.load.LoadQuery.extendedQuery;
+import static io.accio.testing.load.LoadQuery.simpleQuery;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link WireProtocolLoadGenerator} against an accio server backed by PostgreSQL. The test is a short smoke run
+ * of the harness; use {@link #main} for capacity numbers, e.g. `main 32 60` for 32 connections during 60 seconds.
+ */
+public class TestWireProtocolLoadWithPostgres
+        extends AbstractWireProtocolTestWithPostgres
+{
+    private static final Logger LOG = Logger.get(TestWireProtocolLoadWithPostgres.class);
+    private static final int ORDERS = 100_000;
+    private static final int CUSTOMERS = 1_000;
+
+    private Path accioMDLFile;
+
+    @Override
+    protected Optional<String> getAccioMDLPath()
+    {
+        try {
+            accioMDLFile = Files.createTempFile("acciomdl", ".json");
+            Files.write(accioMDLFile, jsonCodec(Manifest.class).toJsonBytes(manifest()));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Optional.of(accioMDLFile.toAbsolutePath().toString());
+    }
+
+    @Override
+    protected void prepare()
+    {
+        getTestingPostgreSqlServer().execute(format("CREATE TABLE tpch.orders AS SELECT " +
+                "i AS o_orderkey, " +
+                "i %% %d AS o_custkey, " +
+                "CASE WHEN i %% 3 = 0 THEN 'F' ELSE 'O' END AS o_orderstatus, " +
+                "(i * 1.5)::double precision AS o_totalprice, " +
+                "DATE '1992-01-01' + i %% 2400 AS o_orderdate " +
+                "FROM generate_series(1, %d) i", CUSTOMERS, ORDERS));
+        getTestingPostgreSqlServer().execute(format("CREATE TABLE tpch.customer AS SELECT " +
+                "i AS c_custkey, " +
+                "'Customer#' || lpad(i::text, 9, '0') AS c_name " +
+                "FROM generate_series(0, %d) i", CUSTOMERS - 1));
+    }
+
+    @Override
+    protected void cleanup()
+    {
+        try {
+            Files.deleteIfExists(accioMDLFile);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void testLoad()
+    {
+        LoadReport report = run(4, new Duration(1, SECONDS), new Duration(5, SECONDS));
+        assertThat(report.getTotal().getErrors()).isEqualTo(0);
+        assertThat(report.getQueryStats().values())
+                .allSatisfy(stats -> assertThat(stats.getCount()).isGreaterThan(0));
+    }
+
+    private LoadReport run(int connections, Duration warmup, Duration duration)
+    {
+        LoadReport report = WireProtocolLoadGenerator.builder()
+                .setAddress(server().getPgHostAndPort())
+                .setUser("accio")
+                .setPassword(MOCK_PASSWORD)
+                .setDatabase(getDefaultCatalog())
+                .setConnections(connections)
+                .setWarmup(warmup)
+                .setDuration(duration)
+                .addQueries(workload())
+                .build()
+                .run();
+        LOG.info("Load report:%n%s", report);
+        return report;
+    }
+
+    private static List<LoadQuery> workload()
+    {
+        return ImmutableList.of(
+                simpleQuery("simple_point", "SELECT orderkey, custkey, totalprice FROM Orders WHERE orderkey = 42", 20),
+                extendedQuery(
+                        "extended_point",
+                        "SELECT orderkey, custkey, totalprice FROM Orders WHERE orderkey = $1",
+                        ImmutableList.of(IntegerType.INTEGER),
+                        random -> ImmutableList.of(textParameter(random.nextInt(ORDERS) + 1, IntegerType.INTEGER)),
+                        40),
+                simpleQuery(
+                        "aggregation",
+                        "SELECT c.name, sum(o.totalprice) AS revenue FROM Orders o JOIN Customer c ON o.custkey = c.custkey " +
+                                "WHERE o.orderdate >= DATE '1995-01-01' GROUP BY c.name ORDER BY revenue DESC LIMIT 10",
+                        10),
+                simpleQuery(
+                        "introspection",
+                        "SELECT t.typlen FROM pg_catalog.pg_type t, pg_catalog.pg_namespace n WHERE t.typnamespace=n.oid AND t.typname='name' AND n.nspname='pg_catalog'",
+                        20),
+                simpleQuery("large_fetch", "SELECT * FROM Orders LIMIT 20000", 2));
+    }
+
+    private static Manifest manifest()
+    {
+        return Manifest.builder()
+                .setCatalog("tpch")
+                .setSchema("tpch")
+                .setModels(ImmutableList.of(
+                        model("Orders",
+                                "SELECT * FROM tpch.orders",
+                                ImmutableList.of(
+                                        column("orderkey", INTEGER, null, true, "o_orderkey"),
+                                        column("custkey", INTEGER, null, true, "o_custkey"),
+                                        column("orderstatus", VARCHAR, null, true, "o_orderstatus"),
+                                        column("totalprice", DOUBLE, null, true, "o_totalprice"),
+                                        column("orderdate", DATE, null, true, "o_orderdate"),
+                                        relationshipColumn("customer", "Customer", "OrdersCustomer")),
+                                "orderkey"),
+                        model("Customer",
+                                "SELECT * FROM tpch.customer",
+                                ImmutableList.of(
+                                        column("custkey", INTEGER, null, true, "c_custkey"),
+                                        column("name", VARCHAR, null, true, "c_name")),
+                                "custkey")))
+                .setRelationships(ImmutableList.of(
+                        relationship("OrdersCustomer", ImmutableList.of("Orders", "Customer"), MANY_TO_ONE, "Orders.custkey = Customer.custkey")))
+                .build();
+    }
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        Duration duration = new Duration(args.length > 1 ? Integer.parseInt(args[1]) : 30, SECONDS);
+        TestWireProtocolLoadWithPostgres test = new TestWireProtocolLoadWithPostgres();
+        test.init();
+        try {
+            test.run(connections, new Duration(10, SECONDS), duration);
+        }
+        finally {
+            test.close();
+        }
+    }
+}
@@ -932,5 +932,6 @@ public class TestWireProtocolWithPostgres
         for (Map.Entry<String, String> config : PostgresWireProtocol.DEFAULT_PG_CONFIGS.entrySet()) {
             protocolClient.assertParameterStatus(config.getKey(), config.getValue());
         }
+        protocolClient.assertBackendKeyData();
     }
 }